@@ -59,6 +59,25 @@ public class ECN {
                                        byte[][] basesy,
                                        byte[][] exponents);
 
+    /**
+     * Returns true if and only if the given points are canonically
+     * reduced and satisfy the curve equation. The unit point is not
+     * accepted, since it has no affine coordinates.
+     *
+     * @param modulus Modulus of field.
+     * @param a x-coefficient of curve.
+     * @param b Constant coefficient of curve.
+     * @param pointsx x-coordinates of points.
+     * @param pointsy y-coordinates of points.
+     * @return True or false depending on if the points are on the
+     * curve or not.
+     */
+    public native static boolean is_on_curve(byte[] modulus,
+                                             byte[] a,
+                                             byte[] b,
+                                             byte[][] pointsx,
+                                             byte[][] pointsy);
+
     public native static long fexp_precompute(byte[] modulus,
                                               byte[] a,
                                               byte[] b,
@@ -87,6 +87,24 @@ ecn_mul(mpz_t t1, mpz_t t2, mpz_t s,
 	mpz_t x1, mpz_t y1,
 	mpz_t x2, mpz_t y2);
 
+/**
+ * Returns non-zero if and only if the input point is canonically
+ * reduced and satisfies the curve equation. The unit point must be
+ * handled by the caller.
+ *
+ * @param t1 Temporary variable.
+ * @param t2 Temporary variable.
+ * @param modulus Modulus of field.
+ * @param a x-coefficient of curve.
+ * @param b Constant coefficient of curve.
+ * @param x x-coordinate of input point.
+ * @param y y-coordinate of input point.
+ */
+int
+ecn_is_on_curve(mpz_t t1, mpz_t t2,
+		mpz_t modulus, mpz_t a, mpz_t b,
+		mpz_t x, mpz_t y);
+
 /**
  * Returns the power of a point to the given exponent. In contrast to
  * the squaring and multiplication functions, this function requires
@@ -0,0 +1,49 @@
+/*
+
+Copyright 2011 Douglas Wikström
+
+This file is part of a package for Vfork that provides native
+elliptic curve code (ECN).
+
+ECN is free software: you can redistribute it and/or modify it under
+the terms of the GNU Lesser General Public License as published by the
+Free Software Foundation, either version 3 of the License, or (at your
+option) any later version.
+
+ECN is distributed in the hope that it will be useful, but WITHOUT ANY
+WARRANTY; without even the implied warranty of MERCHANTABILITY or
+FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public
+License for more details.
+
+You should have received a copy of the GNU Lesser General Public
+License along with ECN.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+
+#include <gmp.h>
+#include "ecn.h"
+
+int
+ecn_is_on_curve(mpz_t t1, mpz_t t2,
+		mpz_t modulus, mpz_t a, mpz_t b,
+		mpz_t x, mpz_t y) {
+
+  /* The coordinates must be canonically reduced. */
+  if (mpz_sgn(x) < 0 || mpz_cmp(x, modulus) >= 0
+      || mpz_sgn(y) < 0 || mpz_cmp(y, modulus) >= 0) {
+    return 0;
+  }
+
+  /* t1 = (x^2 + a)x + b, which is reduced only once. */
+  mpz_mul(t1, x, x);
+  mpz_add(t1, t1, a);
+  mpz_mul(t1, t1, x);
+  mpz_add(t1, t1, b);
+
+  /* t2 = y^2 */
+  mpz_mul(t2, y, y);
+
+  mpz_sub(t1, t1, t2);
+
+  return mpz_divisible_p(t1, modulus);
+}
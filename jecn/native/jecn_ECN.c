@@ -190,6 +190,70 @@ JNIEXPORT jobjectArray JNICALL Java_jecn_ECN_sexp
   return javaResult;
 }
 
+/*
+ * Class:     jecn_ECN
+ * Method:    is_on_curve
+ * Signature: ([B[B[B[[B[[B)Z
+ */
+JNIEXPORT jboolean JNICALL Java_jecn_ECN_is_1on_1curve
+  (JNIEnv *env, jclass clazz,
+   jbyteArray javaModulus, jbyteArray javaA, jbyteArray javaB,
+   jobjectArray javaPointsx, jobjectArray javaPointsy) {
+
+  int i;
+  mpz_t modulus;
+  mpz_t a;
+  mpz_t b;
+  mpz_t x;
+  mpz_t y;
+  mpz_t t1;
+  mpz_t t2;
+  jboolean result = JNI_TRUE;
+
+  /* Extract number of points. */
+  jsize numberOfPoints = (*env)->GetArrayLength(env, javaPointsx);
+
+  /* Convert curve parameters represented as byte[] to mpz_t. */
+  jbyteArray_to_mpz_t(env, &modulus, javaModulus);
+  jbyteArray_to_mpz_t(env, &a, javaA);
+  jbyteArray_to_mpz_t(env, &b, javaB);
+
+  mpz_init(t1);
+  mpz_init(t2);
+
+  /* Verify the points one by one to avoid converting all of them
+     before a point that is not on the curve is found. */
+  for (i = 0; result == JNI_TRUE && i < numberOfPoints; i++)
+    {
+      jbyteArray javaPointx =
+	(jbyteArray)(*env)->GetObjectArrayElement(env, javaPointsx, i);
+      jbyteArray_to_mpz_t(env, &x, javaPointx);
+      (*env)->DeleteLocalRef(env, javaPointx);
+
+      jbyteArray javaPointy =
+	(jbyteArray)(*env)->GetObjectArrayElement(env, javaPointsy, i);
+      jbyteArray_to_mpz_t(env, &y, javaPointy);
+      (*env)->DeleteLocalRef(env, javaPointy);
+
+      if (!ecn_is_on_curve(t1, t2, modulus, a, b, x, y))
+	{
+	  result = JNI_FALSE;
+	}
+
+      mpz_clear(y);
+      mpz_clear(x);
+    }
+
+  /* Deallocate resources. */
+  mpz_clear(t2);
+  mpz_clear(t1);
+  mpz_clear(b);
+  mpz_clear(a);
+  mpz_clear(modulus);
+
+  return result;
+}
+
 int
 fexp_block_width(int bit_length, int size) {
 
@@ -24,6 +24,7 @@ License along with JGMPMEE.  If not, see
 package jgmpmee;
 
 import java.math.*;
+import java.nio.*;
 import java.util.*;
 
 /**
@@ -41,6 +42,12 @@ public class FpowmTab {
      */
     protected long tablePtr;
 
+    /**
+     * Number of bytes in the two's complement representation of the
+     * modulus, which suffices to represent any result.
+     */
+    protected int modulusByteLength;
+
     /**
      * Creates a precomputed table for the given basis, modulus, and
      * exponent bit length.
@@ -71,6 +78,7 @@ public class FpowmTab {
 		    BigInteger modulus,
 		    int blockWidth,
 		    int exponentBitlen) {
+	modulusByteLength = modulus.toByteArray().length;
 	tablePtr = GMPMEE.fpowm_precomp(basis.toByteArray(),
 					modulus.toByteArray(),
 					blockWidth,
@@ -88,6 +96,29 @@ public class FpowmTab {
 					   exponent.toByteArray()));
     }
 
+    /**
+     * Computes modular exponentiations using the given exponents and
+     * the basis and modulus previously used to construct this table
+     * using a single call to native code.
+     *
+     * @param exponents Exponents used in modular exponentiations.
+     * @return Array of results.
+     */
+    public BigInteger[] fpowm(BigInteger[] exponents) {
+	int exponentsWidth = JGMPMEE.width(exponents);
+
+	ByteBuffer results =
+	    ByteBuffer.allocateDirect(exponents.length * modulusByteLength);
+
+	GMPMEE.fpowm_array(tablePtr,
+			   JGMPMEE.pack(exponents, exponentsWidth),
+			   exponentsWidth,
+			   exponents.length,
+			   results, modulusByteLength);
+
+	return JGMPMEE.unpack(results, exponents.length, modulusByteLength);
+    }
+
     /**
      * Release resources allocated by native code.
      */
@@ -24,6 +24,7 @@ License along with JGMPMEE.  If not, see
 package jgmpmee;
 
 import java.math.*;
+import java.nio.*;
 import java.util.*;
 
 /**
@@ -107,6 +108,79 @@ public final class GMPMEE {
      */
     native static void fpowm_clear(long tablePtr);
 
+    /**
+     * Computes modular exponentiations of a batch of bases in a
+     * single call. Integers are stored in direct buffers as
+     * consecutive records of fixed width in two's complement
+     * representation. If the buffer of exponents only contains a
+     * single record, then this exponent is used for all bases.
+     *
+     * @param bases Basis elements.
+     * @param basesWidth Number of bytes in each basis record.
+     * @param exponents Exponents used to compute powers.
+     * @param exponentsWidth Number of bytes in each exponent record.
+     * @param count Number of exponentiations.
+     * @param modulus Modulus.
+     * @param results Destination of the results.
+     * @param resultsWidth Number of bytes in each result record.
+     */
+    native static void powm_array(ByteBuffer bases,
+				  int basesWidth,
+				  ByteBuffer exponents,
+				  int exponentsWidth,
+				  int count,
+				  byte[] modulus,
+				  ByteBuffer results,
+				  int resultsWidth);
+
+    /**
+     * Computes simultaneous modular exponentiations of consecutive
+     * batches of the given size in a single call. The last batch may
+     * be smaller. Integers are stored as in {@link
+     * #powm_array(ByteBuffer, int, ByteBuffer, int, int, byte[],
+     * ByteBuffer, int)} and one result is written for each batch.
+     *
+     * @param bases Basis elements.
+     * @param basesWidth Number of bytes in each basis record.
+     * @param exponents Exponents used to compute powers.
+     * @param exponentsWidth Number of bytes in each exponent record.
+     * @param count Total number of bases and exponents.
+     * @param batchSize Number of bases in each batch.
+     * @param modulus Modulus.
+     * @param results Destination of the results.
+     * @param resultsWidth Number of bytes in each result record.
+     */
+    native static void spowm_batch(ByteBuffer bases,
+				   int basesWidth,
+				   ByteBuffer exponents,
+				   int exponentsWidth,
+				   int count,
+				   int batchSize,
+				   byte[] modulus,
+				   ByteBuffer results,
+				   int resultsWidth);
+
+    /**
+     * Computes fixed base modular exponentiations of a batch of
+     * exponents in a single call using a precomputed table. Integers
+     * are stored as in {@link #powm_array(ByteBuffer, int,
+     * ByteBuffer, int, int, byte[], ByteBuffer, int)}.
+     *
+     * @param tablePtr Native pointer to a precomputed table output by
+     * {@link #fpowm_precomp(byte[], byte[], int, int)}.
+     * @param exponents Exponents used to compute powers.
+     * @param exponentsWidth Number of bytes in each exponent record.
+     * @param count Number of exponentiations.
+     * @param results Destination of the results.
+     * @param resultsWidth Number of bytes in each result record.
+     */
+    native static void fpowm_array(long tablePtr,
+				   ByteBuffer exponents,
+				   int exponentsWidth,
+				   int count,
+				   ByteBuffer results,
+				   int resultsWidth);
+
     /**
      * Returns the Legendre symbol of <code>op</code> modulo
      * <code>odd_prime</code>.
@@ -24,6 +24,7 @@ License along with JGMPMEE.  If not, see
 package jgmpmee;
 
 import java.math.*;
+import java.nio.*;
 import java.util.*;
 
 /**
@@ -56,6 +57,70 @@ public class JGMPMEE {
 	return native_bis;
     }
 
+    /**
+     * Returns the number of bytes needed to represent each of the
+     * given integers in two's complement representation.
+     *
+     * @param bis Integers.
+     * @return Maximal number of bytes needed for an integer.
+     */
+    static int width(BigInteger[] bis) {
+	int width = 1;
+	for (int i = 0; i < bis.length; i++) {
+	    width = Math.max(width, bis[i].bitLength() / 8 + 1);
+	}
+	return width;
+    }
+
+    /**
+     * Packs an array of <code>BigInteger</code> into a direct buffer
+     * as consecutive records of the given width, each holding an
+     * integer in two's complement representation sign-extended to
+     * the width of the records.
+     *
+     * @param bis Integers to be packed.
+     * @param width Number of bytes in each record.
+     * @return Buffer holding the packed integers.
+     */
+    static ByteBuffer pack(BigInteger[] bis, int width) {
+
+	ByteBuffer buffer = ByteBuffer.allocateDirect(bis.length * width);
+	for (int i = 0; i < bis.length; i++) {
+
+	    byte[] bytes = bis[i].toByteArray();
+	    byte pad = bis[i].signum() < 0 ? (byte)0xFF : 0;
+
+	    for (int j = bytes.length; j < width; j++) {
+		buffer.put(pad);
+	    }
+	    buffer.put(bytes);
+	}
+	buffer.clear();
+	return buffer;
+    }
+
+    /**
+     * Unpacks the given number of integers stored as consecutive
+     * records of the given width in a buffer.
+     *
+     * @param buffer Buffer holding the packed integers.
+     * @param count Number of integers.
+     * @param width Number of bytes in each record.
+     * @return Array of unpacked integers.
+     */
+    static BigInteger[] unpack(ByteBuffer buffer, int count, int width) {
+
+	BigInteger[] bis = new BigInteger[count];
+	byte[] bytes = new byte[width];
+
+	buffer.clear();
+	for (int i = 0; i < count; i++) {
+	    buffer.get(bytes);
+	    bis[i] = new BigInteger(bytes);
+	}
+	return bis;
+    }
+
     /**
      * Computes a modular exponentiation.
      *
@@ -92,6 +157,104 @@ public class JGMPMEE {
 					   modulus.toByteArray()));
     }
 
+    /**
+     * Computes the modular exponentiations of the bases to the
+     * corresponding exponents using a single call to native code.
+     *
+     * @param bases Basis elements.
+     * @param exponents Exponents used to compute powers.
+     * @param modulus Modulus.
+     * @return Array of the bases to the powers of
+     * <code>exponents</code> modulo <code>modulus</code>.
+     */
+    public static BigInteger[] powm(BigInteger[] bases,
+				    BigInteger[] exponents,
+				    BigInteger modulus) {
+	if (bases.length != exponents.length) {
+	    throw new IllegalArgumentException("Different lengths!");
+	}
+	int basesWidth = width(bases);
+	int exponentsWidth = width(exponents);
+	int resultsWidth = modulus.toByteArray().length;
+
+	ByteBuffer results =
+	    ByteBuffer.allocateDirect(bases.length * resultsWidth);
+
+	GMPMEE.powm_array(pack(bases, basesWidth), basesWidth,
+			  pack(exponents, exponentsWidth), exponentsWidth,
+			  bases.length,
+			  modulus.toByteArray(),
+			  results, resultsWidth);
+
+	return unpack(results, bases.length, resultsWidth);
+    }
+
+    /**
+     * Computes the modular exponentiations of the bases to a common
+     * exponent using a single call to native code.
+     *
+     * @param bases Basis elements.
+     * @param exponent Exponent used to compute powers.
+     * @param modulus Modulus.
+     * @return Array of the bases to the power of
+     * <code>exponent</code> modulo <code>modulus</code>.
+     */
+    public static BigInteger[] powm(BigInteger[] bases,
+				    BigInteger exponent,
+				    BigInteger modulus) {
+	int basesWidth = width(bases);
+	int exponentWidth = exponent.bitLength() / 8 + 1;
+	int resultsWidth = modulus.toByteArray().length;
+
+	ByteBuffer results =
+	    ByteBuffer.allocateDirect(bases.length * resultsWidth);
+
+	GMPMEE.powm_array(pack(bases, basesWidth), basesWidth,
+			  pack(new BigInteger[] {exponent}, exponentWidth),
+			  exponentWidth,
+			  bases.length,
+			  modulus.toByteArray(),
+			  results, resultsWidth);
+
+	return unpack(results, bases.length, resultsWidth);
+    }
+
+    /**
+     * Computes simultaneous modular exponentiations of consecutive
+     * batches of the given size using a single call to native code.
+     *
+     * @param bases Basis elements.
+     * @param exponents Exponents used to compute powers.
+     * @param modulus Modulus.
+     * @param batchSize Number of bases in each batch. The last batch
+     * may be smaller.
+     * @return Array with one product of the bases to the powers of
+     * <code>exponents</code> modulo <code>modulus</code> for each
+     * batch.
+     */
+    public static BigInteger[] spowm(BigInteger[] bases,
+				     BigInteger[] exponents,
+				     BigInteger modulus,
+				     int batchSize) {
+	if (bases.length != exponents.length) {
+	    throw new IllegalArgumentException("Different lengths!");
+	}
+	int basesWidth = width(bases);
+	int exponentsWidth = width(exponents);
+	int resultsWidth = modulus.toByteArray().length;
+	int count = (bases.length + batchSize - 1) / batchSize;
+
+	ByteBuffer results = ByteBuffer.allocateDirect(count * resultsWidth);
+
+	GMPMEE.spowm_batch(pack(bases, basesWidth), basesWidth,
+			   pack(exponents, exponentsWidth), exponentsWidth,
+			   bases.length, batchSize,
+			   modulus.toByteArray(),
+			   results, resultsWidth);
+
+	return unpack(results, count, resultsWidth);
+    }
+
     /**
      * Returns the Legendre symbol of this instance modulo the
      * input.
@@ -40,11 +40,12 @@ public class Test {
     final static int no_spowm_tests = 10;
 
     public static void usage() {
-	System.out.println("Usage: (-e|-f|-se) <len> "
+	System.out.println("Usage: (-e|-f|-se|-b) <len> "
 			   + "<modulus bit len> [<exponent bit len>]");
 	System.out.println("-e  Test plain modular exponentiation.");
 	System.out.println("-f  Test fixed base modular exponentiation.");
 	System.out.println("-se Test simultaneous modular exponentiation.");
+	System.out.println("-b  Test batched modular exponentiations.");
 	System.exit(0);
     }
 
@@ -85,6 +86,13 @@ public class Test {
 	    } else {
 		System.out.println("failed.");
 	    }
+	} else if (cmd.equals("-b")) {
+	    System.out.print("Testing batched JGMPMEE routines... ");
+	    if (test_batched(len, modulusBitlen, exponentBitlen)) {
+		System.out.println("done.");
+	    } else {
+		System.out.println("failed.");
+	    }
 	}
     }
 
@@ -234,4 +242,74 @@ public class Test {
 	}
 	return true;
     }
+
+    /**
+     * Tests {@link JGMPMEE#powm(BigInteger[], BigInteger[],
+     * BigInteger)}, {@link JGMPMEE#powm(BigInteger[], BigInteger,
+     * BigInteger)}, {@link JGMPMEE#spowm(BigInteger[], BigInteger[],
+     * BigInteger, int)}, and {@link FpowmTab#fpowm(BigInteger[])} by
+     * randomly selecting elements and a modulus and verifying the
+     * results with {@link BigInteger#modPow(BigInteger, BigInteger,
+     * BigInteger)}.
+     *
+     * @param len Number of exponentiations performed.
+     * @param modulusBitlen Bit length of the moduli and bases.
+     * @param exponentBitlen Bit length of exponents.
+     * @return Returns <code>true</code> or <code>false</code>
+     * depending on if the test succeeded or not.
+     */
+    public static boolean test_batched(int len,
+				       int modulusBitlen,
+				       int exponentBitlen) {
+
+	Random random = new Random();
+	BigInteger modulus = new BigInteger(modulusBitlen, random).setBit(0);
+	BigInteger[] bases = new BigInteger[len];
+	BigInteger[] exponents = new BigInteger[len];
+
+	for (int i = 0; i < len; i++) {
+	    bases[i] = new BigInteger(modulusBitlen, random).mod(modulus);
+	    exponents[i] = new BigInteger(exponentBitlen, random);
+	}
+
+	BigInteger[] powm_res = JGMPMEE.powm(bases, exponents, modulus);
+	BigInteger[] powm1_res = JGMPMEE.powm(bases, exponents[0], modulus);
+
+	FpowmTab tab = new FpowmTab(bases[0], modulus, exponentBitlen);
+	BigInteger[] fpowm_res = tab.fpowm(exponents);
+	tab.free();
+
+	for (int i = 0; i < len; i++) {
+	    BigInteger java_res = bases[i].modPow(exponents[i], modulus);
+	    BigInteger java1_res = bases[i].modPow(exponents[0], modulus);
+	    BigInteger javaf_res = bases[0].modPow(exponents[i], modulus);
+
+	    if (java_res.compareTo(powm_res[i]) != 0
+		|| java1_res.compareTo(powm1_res[i]) != 0
+		|| javaf_res.compareTo(fpowm_res[i]) != 0) {
+		return false;
+	    }
+	}
+
+	int batchSize = Math.max(1, len / no_spowm_tests);
+	BigInteger[] spowm_res =
+	    JGMPMEE.spowm(bases, exponents, modulus, batchSize);
+
+	for (int i = 0; i < spowm_res.length; i++) {
+	    int offset = i * batchSize;
+	    int width = Math.min(batchSize, len - offset);
+
+	    BigInteger[] batchBases = Arrays.copyOfRange(bases, offset,
+							 offset + width);
+	    BigInteger[] batchExponents = Arrays.copyOfRange(exponents, offset,
+							     offset + width);
+	    BigInteger java_res =
+		modPowProd(batchBases, batchExponents, modulus);
+
+	    if (java_res.compareTo(spowm_res[i]) != 0) {
+		return false;
+	    }
+	}
+	return true;
+    }
 }
@@ -1,3 +1,4 @@
+#include <string.h>
 #include <gmp.h>
 #include "convert.h"
 
@@ -107,3 +108,99 @@ void mpz_t_to_jbyteArray(JNIEnv* env, jbyteArray* javaBytes, mpz_t gmpValue)
      into JVM memory space only if needed. */
   (*env)->ReleaseByteArrayElements(env, *javaBytes, cBytes, doesCopy);
 }
+
+void
+bytes_to_mpz_t(mpz_t gmpValue, jbyte* cBytes, size_t byte_len)
+{
+  /* Execute unsigned conversion. */
+  mpz_import(gmpValue,             /* Resulting mpz_t */
+	     byte_len,             /* Number of words */
+	     1,                    /* Most significant word first */
+	     1,                    /* Number of bytes in each word (is one) */
+	     1,                    /* Most signif. byte of each word first */
+	     0,                    /* No. ignored leading bits of words */
+	     (void*)cBytes);       /* Source of the bytes */
+
+  /* If the integer is negative, then the bytes correspond to
+     2^n-gmpValue, where n/8 is the number of bytes. Thus, we must
+     subtract 2^n. */
+  if (byte_len > 0 && (cBytes[0] & 0x80))
+    {
+      mpz_t tmp;
+      mpz_init(tmp);
+      mpz_setbit(tmp, 8 * byte_len);
+      mpz_sub(gmpValue, gmpValue, tmp);
+      mpz_clear(tmp);
+    }
+}
+
+int
+mpz_t_to_bytes(jbyte* cBytes, size_t byte_len, mpz_t gmpValue)
+{
+  size_t count;
+  mpz_t tmp;
+
+  if (mpz_sgn(gmpValue) >= 0)
+    {
+      /* There must be room for a leading zero bit. */
+      if (mpz_sizeinbase(gmpValue, 2) >= 8 * byte_len)
+	{
+	  return 0;
+	}
+      memset(cBytes, 0x00, byte_len);
+
+      if (mpz_sgn(gmpValue) > 0)
+	{
+	  count = (mpz_sizeinbase(gmpValue, 2) + 7) / 8;
+	  mpz_export((void*)&(cBytes[byte_len - count]), &count,
+		     1, 1, 1, 0, gmpValue);
+	}
+    }
+  else
+    {
+      /* We add 2^n, where n = 8 * byte_len. The result fits if and
+	 only if it is positive and its most significant bit is set. */
+      mpz_init(tmp);
+      mpz_setbit(tmp, 8 * byte_len);
+      mpz_add(tmp, tmp, gmpValue);
+
+      if (mpz_sgn(tmp) <= 0 || !mpz_tstbit(tmp, 8 * byte_len - 1))
+	{
+	  mpz_clear(tmp);
+	  return 0;
+	}
+
+      count = byte_len;
+      mpz_export((void*)cBytes, &count, 1, 1, 1, 0, tmp);
+      mpz_clear(tmp);
+    }
+  return 1;
+}
+
+void
+throw_illegal_argument(JNIEnv* env, const char* message)
+{
+  jclass clazz = (*env)->FindClass(env, "java/lang/IllegalArgumentException");
+  if (clazz != NULL)
+    {
+      (*env)->ThrowNew(env, clazz, message);
+    }
+}
+
+jbyte*
+direct_buffer_address(JNIEnv* env, jobject buffer, jlong byte_len)
+{
+  jbyte* cBytes = (jbyte*)(*env)->GetDirectBufferAddress(env, buffer);
+
+  if (cBytes == NULL)
+    {
+      throw_illegal_argument(env, "Buffer is not direct!");
+      return NULL;
+    }
+  if ((*env)->GetDirectBufferCapacity(env, buffer) < byte_len)
+    {
+      throw_illegal_argument(env, "Buffer is too small!");
+      return NULL;
+    }
+  return cBytes;
+}
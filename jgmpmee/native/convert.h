@@ -24,6 +24,38 @@ jbyteArray_to_mpz_t(JNIEnv* env, mpz_t* gmpValue, jbyteArray javaBytes);
 void
 mpz_t_to_jbyteArray(JNIEnv* env, jbyteArray* javaBytes, mpz_t gmpValue);
 
+/*
+ * Translates the two's complement representation of an integer
+ * stored in the byte_len bytes starting at cBytes into a GMP mpz_t
+ * element. The gmpValue must be initialized before the call.
+ */
+void
+bytes_to_mpz_t(mpz_t gmpValue, jbyte* cBytes, size_t byte_len);
+
+/*
+ * Writes the two's complement representation of gmpValue,
+ * sign-extended to exactly byte_len bytes, to cBytes. Returns one if
+ * the integer fits in byte_len bytes and zero otherwise.
+ */
+int
+mpz_t_to_bytes(jbyte* cBytes, size_t byte_len, mpz_t gmpValue);
+
+/*
+ * Returns a pointer to the contents of a direct java.nio.ByteBuffer
+ * holding at least byte_len bytes. If the buffer is not direct or is
+ * too small, then an IllegalArgumentException is thrown in the JVM
+ * and NULL is returned.
+ */
+jbyte*
+direct_buffer_address(JNIEnv* env, jobject buffer, jlong byte_len);
+
+/*
+ * Throws an IllegalArgumentException with the given message in the
+ * JVM.
+ */
+void
+throw_illegal_argument(JNIEnv* env, const char* message);
+
 #ifdef __cplusplus
 }
 #endif
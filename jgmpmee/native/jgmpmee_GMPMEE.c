@@ -201,6 +201,256 @@ JNIEXPORT void JNICALL Java_jgmpmee_GMPMEE_fpowm_1clear
 }
 
 
+/*
+ * Class:     jgmpmee_GMPMEE
+ * Method:    powm_array
+ * Signature: (Ljava/nio/ByteBuffer;ILjava/nio/ByteBuffer;II[BLjava/nio/ByteBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_jgmpmee_GMPMEE_powm_1array
+(JNIEnv *env, jclass clazz, jobject javaBases, jint basesWidth,
+ jobject javaExponents, jint exponentsWidth, jint count,
+ jbyteArray javaModulus, jobject javaResults, jint resultsWidth)
+{
+  int i;
+  jlong exponentsRecords;
+  jbyte *cBases;
+  jbyte *cExponents;
+  jbyte *cResults;
+
+  mpz_t basis;
+  mpz_t exponent;
+  mpz_t modulus;
+  mpz_t result;
+
+  if (basesWidth <= 0 || exponentsWidth <= 0 || resultsWidth <= 0)
+    {
+      throw_illegal_argument(env, "Non-positive width!");
+      return;
+    }
+
+  /* The exponents buffer holds either a single exponent used with
+     all bases, or one exponent for each basis. */
+  exponentsRecords =
+    (*env)->GetDirectBufferCapacity(env, javaExponents) / exponentsWidth;
+  if (exponentsRecords > 1)
+    {
+      exponentsRecords = count;
+    }
+  else
+    {
+      exponentsRecords = 1;
+    }
+
+  /* Fetch pointers to the contents of the direct buffers. */
+  cBases = direct_buffer_address(env, javaBases, (jlong)count * basesWidth);
+  if (cBases == NULL)
+    {
+      return;
+    }
+  cExponents = direct_buffer_address(env, javaExponents,
+				     exponentsRecords * exponentsWidth);
+  if (cExponents == NULL)
+    {
+      return;
+    }
+  cResults =
+    direct_buffer_address(env, javaResults, (jlong)count * resultsWidth);
+  if (cResults == NULL)
+    {
+      return;
+    }
+
+  jbyteArray_to_mpz_t(env, &modulus, javaModulus);
+  mpz_init(basis);
+  mpz_init(exponent);
+  mpz_init(result);
+
+  if (exponentsRecords == 1)
+    {
+      bytes_to_mpz_t(exponent, cExponents, exponentsWidth);
+    }
+
+  for (i = 0; i < count; i++)
+    {
+      bytes_to_mpz_t(basis, cBases + (size_t)i * basesWidth, basesWidth);
+      if (exponentsRecords != 1)
+	{
+	  bytes_to_mpz_t(exponent, cExponents + (size_t)i * exponentsWidth,
+			 exponentsWidth);
+	}
+
+      mpz_powm(result, basis, exponent, modulus);
+
+      if (!mpz_t_to_bytes(cResults + (size_t)i * resultsWidth, resultsWidth,
+			  result))
+	{
+	  throw_illegal_argument(env, "Result does not fit in record!");
+	  break;
+	}
+    }
+
+  /* Deallocate resources. */
+  mpz_clear(result);
+  mpz_clear(exponent);
+  mpz_clear(basis);
+  mpz_clear(modulus);
+}
+
+
+/*
+ * Class:     jgmpmee_GMPMEE
+ * Method:    spowm_batch
+ * Signature: (Ljava/nio/ByteBuffer;ILjava/nio/ByteBuffer;III[BLjava/nio/ByteBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_jgmpmee_GMPMEE_spowm_1batch
+(JNIEnv *env, jclass clazz, jobject javaBases, jint basesWidth,
+ jobject javaExponents, jint exponentsWidth, jint count, jint batchSize,
+ jbyteArray javaModulus, jobject javaResults, jint resultsWidth)
+{
+  int i;
+  int j;
+  int len;
+  jlong numberOfResults;
+  jbyte *cBases;
+  jbyte *cExponents;
+  jbyte *cResults;
+
+  mpz_t *bases;
+  mpz_t *exponents;
+  mpz_t modulus;
+  mpz_t result;
+
+  if (basesWidth <= 0 || exponentsWidth <= 0 || resultsWidth <= 0)
+    {
+      throw_illegal_argument(env, "Non-positive width!");
+      return;
+    }
+  if (batchSize <= 0)
+    {
+      throw_illegal_argument(env, "Non-positive batch size!");
+      return;
+    }
+  numberOfResults = (count + batchSize - 1) / batchSize;
+
+  /* Fetch pointers to the contents of the direct buffers. */
+  cBases = direct_buffer_address(env, javaBases, (jlong)count * basesWidth);
+  if (cBases == NULL)
+    {
+      return;
+    }
+  cExponents =
+    direct_buffer_address(env, javaExponents, (jlong)count * exponentsWidth);
+  if (cExponents == NULL)
+    {
+      return;
+    }
+  cResults =
+    direct_buffer_address(env, javaResults, numberOfResults * resultsWidth);
+  if (cResults == NULL)
+    {
+      return;
+    }
+
+  jbyteArray_to_mpz_t(env, &modulus, javaModulus);
+  mpz_init(result);
+
+  /* The same arrays of mpz_t are reused for all batches. */
+  bases = gmpmee_array_alloc_init(batchSize);
+  exponents = gmpmee_array_alloc_init(batchSize);
+
+  for (i = 0; i < numberOfResults; i++)
+    {
+      len = count - i * batchSize;
+      if (len > batchSize)
+	{
+	  len = batchSize;
+	}
+
+      for (j = 0; j < len; j++)
+	{
+	  size_t index = (size_t)i * batchSize + j;
+	  bytes_to_mpz_t(bases[j], cBases + index * basesWidth, basesWidth);
+	  bytes_to_mpz_t(exponents[j], cExponents + index * exponentsWidth,
+			 exponentsWidth);
+	}
+
+      gmpmee_spowm(result, bases, exponents, len, modulus);
+
+      if (!mpz_t_to_bytes(cResults + (size_t)i * resultsWidth, resultsWidth,
+			  result))
+	{
+	  throw_illegal_argument(env, "Result does not fit in record!");
+	  break;
+	}
+    }
+
+  /* Deallocate resources. */
+  gmpmee_array_clear_dealloc(exponents, batchSize);
+  gmpmee_array_clear_dealloc(bases, batchSize);
+  mpz_clear(result);
+  mpz_clear(modulus);
+}
+
+
+/*
+ * Class:     jgmpmee_GMPMEE
+ * Method:    fpowm_array
+ * Signature: (JLjava/nio/ByteBuffer;IILjava/nio/ByteBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_jgmpmee_GMPMEE_fpowm_1array
+(JNIEnv *env, jclass clazz, jlong javaTablePtr, jobject javaExponents,
+ jint exponentsWidth, jint count, jobject javaResults, jint resultsWidth)
+{
+  int i;
+  jbyte *cExponents;
+  jbyte *cResults;
+
+  mpz_t exponent;
+  mpz_t result;
+
+  if (exponentsWidth <= 0 || resultsWidth <= 0)
+    {
+      throw_illegal_argument(env, "Non-positive width!");
+      return;
+    }
+
+  /* Fetch pointers to the contents of the direct buffers. */
+  cExponents =
+    direct_buffer_address(env, javaExponents, (jlong)count * exponentsWidth);
+  if (cExponents == NULL)
+    {
+      return;
+    }
+  cResults =
+    direct_buffer_address(env, javaResults, (jlong)count * resultsWidth);
+  if (cResults == NULL)
+    {
+      return;
+    }
+
+  mpz_init(exponent);
+  mpz_init(result);
+
+  for (i = 0; i < count; i++)
+    {
+      bytes_to_mpz_t(exponent, cExponents + (size_t)i * exponentsWidth,
+		     exponentsWidth);
+
+      gmpmee_fpowm(result, *(gmpmee_fpowm_tab *)(long)javaTablePtr, exponent);
+
+      if (!mpz_t_to_bytes(cResults + (size_t)i * resultsWidth, resultsWidth,
+			  result))
+	{
+	  throw_illegal_argument(env, "Result does not fit in record!");
+	  break;
+	}
+    }
+
+  mpz_clear(result);
+  mpz_clear(exponent);
+}
+
+
 /*
  * Class:     jgmpmee_GMPMEE
  * Method:    legendre
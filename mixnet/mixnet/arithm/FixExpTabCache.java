@@ -0,0 +1,499 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.arithm;
+
+import java.util.*;
+
+/**
+ * Process-wide cache of tables used for fixed base exponentiation,
+ * i.e., of instances of {@link PGroupFixExpTab} and {@link
+ * LargeIntegerFixModPowTab}. The same bases, e.g., the standard
+ * generator and the joint public key, are exponentiated repeatedly
+ * during the execution of a protocol, so the tables are kept and
+ * reused instead of being recomputed for each array of exponents.
+ *
+ * <p>
+ *
+ * Tables are keyed by the group (or modulus), the basis, and the
+ * bit length of exponents rounded up to a multiple of eight. A
+ * cached table is reused if it is at least as wide as the table that
+ * would otherwise have been computed. The total size of the cached
+ * tables is bounded, and the least recently used tables are evicted
+ * when the bound is exceeded.
+ *
+ * <p>
+ *
+ * A table returned by this class must be handed back using {@link
+ * #release(Object)} when the caller is done with it. Native resources
+ * of an evicted table are freed once it is no longer in use.
+ *
+ * @author Douglas Wikstrom
+ */
+public class FixExpTabCache {
+
+    /**
+     * Default bound on the total number of bytes of cached tables.
+     */
+    public final static long DEFAULT_MAX_BYTE_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Bound on the total number of bytes of cached tables.
+     */
+    protected static long maxByteSize = DEFAULT_MAX_BYTE_SIZE;
+
+    /**
+     * Cached tables in access order, i.e., the least recently used
+     * table comes first.
+     */
+    protected static LinkedHashMap<TabKey, TabEntry> entries =
+        new LinkedHashMap<TabKey, TabEntry>(16, 0.75f, true);
+
+    /**
+     * Tables currently in use, cached or not.
+     */
+    protected static IdentityHashMap<Object, TabEntry> inUse =
+        new IdentityHashMap<Object, TabEntry>();
+
+    /**
+     * Approximate number of bytes of the cached tables.
+     */
+    protected static long byteSize;
+
+    /**
+     * Number of requests answered with a cached table.
+     */
+    protected static long hits;
+
+    /**
+     * Number of requests that required a new table.
+     */
+    protected static long misses;
+
+    /**
+     * Number of tables evicted from the cache.
+     */
+    protected static long evictions;
+
+    /**
+     * Sets the bound on the total number of bytes of cached tables
+     * and evicts tables until the bound is respected. A bound of zero
+     * disables caching.
+     *
+     * @param maxByteSize Bound on the total number of bytes.
+     */
+    public static synchronized void setMaxByteSize(long maxByteSize) {
+        FixExpTabCache.maxByteSize = Math.max(0, maxByteSize);
+        shrink();
+    }
+
+    /**
+     * Returns the bound on the total number of bytes of cached
+     * tables.
+     *
+     * @return Bound on the total number of bytes.
+     */
+    public static synchronized long getMaxByteSize() {
+        return maxByteSize;
+    }
+
+    /**
+     * Returns a table for fixed base exponentiation in a group of
+     * the given basis with exponents of at most the given bit
+     * length. The table must be handed back using {@link
+     * #release(Object)}.
+     *
+     * @param basis Fixed basis.
+     * @param bitLength Maximal bit length of exponents.
+     * @param width Width of the table that is computed if no cached
+     * table is sufficiently wide.
+     * @return Table for fixed base exponentiation.
+     */
+    public static PGroupFixExpTab getTab(PGroupElement basis,
+                                         int bitLength,
+                                         int width) {
+        PGroup pGroup = basis.getPGroup();
+
+        TabKey key = new TabKey(pGroup,
+                                basis.toByteTree().toByteArray(),
+                                roundBitLength(bitLength));
+
+        PGroupFixExpTab tab = (PGroupFixExpTab)lookup(key, width);
+        if (tab == null) {
+            tab = new PGroupFixExpTab(basis, key.bitLength, width);
+            int elementByteLength = pGroup.getByteLength();
+            tab = (PGroupFixExpTab)
+                insert(key, tab, width, tableByteSize(width,
+                                                      elementByteLength));
+        }
+        return tab;
+    }
+
+    /**
+     * Returns a table for fixed base modular exponentiation of the
+     * given basis modulo the given modulus with exponents of at most
+     * the given bit length. The table must be handed back using
+     * {@link #release(Object)}.
+     *
+     * @param basis Fixed basis.
+     * @param modulus Modulus.
+     * @param bitLength Maximal bit length of exponents.
+     * @param width Width of the table that is computed if no cached
+     * table is sufficiently wide.
+     * @return Table for fixed base modular exponentiation.
+     */
+    public static LargeIntegerFixModPowTab getTab(LargeInteger basis,
+                                                  LargeInteger modulus,
+                                                  int bitLength,
+                                                  int width) {
+        TabKey key = new TabKey(modulus,
+                                basis.toByteArray(),
+                                roundBitLength(bitLength));
+
+        LargeIntegerFixModPowTab tab =
+            (LargeIntegerFixModPowTab)lookup(key, width);
+        if (tab == null) {
+            tab = new LargeIntegerFixModPowTab(basis, key.bitLength,
+                                               width, modulus);
+            int modulusByteLength = modulus.toByteArray().length;
+            tab = (LargeIntegerFixModPowTab)
+                insert(key, tab, width, tableByteSize(width,
+                                                      modulusByteLength));
+        }
+        return tab;
+    }
+
+    /**
+     * Hands back a table returned by this class. A table that is not
+     * cached is freed when no longer in use.
+     *
+     * @param tab Table returned by this class.
+     */
+    public static synchronized void release(Object tab) {
+        TabEntry entry = inUse.get(tab);
+        if (entry == null) {
+            throw new ArithmError("Releasing unknown table!");
+        }
+        entry.users--;
+        if (entry.users == 0) {
+            inUse.remove(tab);
+            if (entry.evicted) {
+                free(entry);
+            }
+        }
+    }
+
+    /**
+     * Evicts all cached tables.
+     */
+    public static synchronized void clear() {
+        while (!entries.isEmpty()) {
+            evict(entries.values().iterator().next());
+        }
+    }
+
+    /**
+     * Returns the number of requests answered with a cached table.
+     *
+     * @return Number of cache hits.
+     */
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests that required a new table.
+     *
+     * @return Number of cache misses.
+     */
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of tables evicted from the cache.
+     *
+     * @return Number of evictions.
+     */
+    public static synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Resets the counters of hits, misses, and evictions.
+     */
+    public static synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * Returns a short description of the usage of the cache suitable
+     * for logging.
+     *
+     * @return Description of usage of the cache.
+     */
+    public static synchronized String statistics() {
+        return "hits=" + hits
+            + ", misses=" + misses
+            + ", evictions=" + evictions
+            + ", tables=" + entries.size()
+            + ", bytes=" + byteSize;
+    }
+
+    /**
+     * Rounds a bit length up to the nearest multiple of eight to let
+     * exponents of slightly different lengths share tables.
+     *
+     * @param bitLength Bit length.
+     * @return Rounded bit length.
+     */
+    protected static int roundBitLength(int bitLength) {
+        return Math.max(8, (bitLength + 7) / 8 * 8);
+    }
+
+    /**
+     * Returns the approximate number of bytes of a table of the given
+     * width with elements of the given byte length.
+     *
+     * @param width Width of table.
+     * @param byteLength Number of bytes of each element.
+     * @return Approximate number of bytes of the table.
+     */
+    protected static long tableByteSize(int width, int byteLength) {
+        return (1L << width) * byteLength;
+    }
+
+    /**
+     * Returns a cached table for the given key that is at least of
+     * the given width, or <code>null</code> if there is no such table.
+     *
+     * @param key Key of table.
+     * @param width Minimal width.
+     * @return Table or <code>null</code>.
+     */
+    protected static synchronized Object lookup(TabKey key, int width) {
+        TabEntry entry = entries.get(key);
+        if (entry != null && entry.width >= width) {
+            hits++;
+            acquire(entry);
+            return entry.tab;
+        } else {
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Inserts a newly computed table into the cache, replacing any
+     * table with the same key, and returns it acquired by the
+     * caller. A table that is larger than the bound is not cached.
+     *
+     * @param key Key of table.
+     * @param tab Table.
+     * @param width Width of table.
+     * @param tabByteSize Approximate number of bytes of the table.
+     * @return Input table.
+     */
+    protected static synchronized Object insert(TabKey key,
+                                                Object tab,
+                                                int width,
+                                                long tabByteSize) {
+        TabEntry entry = new TabEntry(key, tab, width, tabByteSize);
+
+        if (tabByteSize > maxByteSize) {
+
+            // The table is freed as soon as it is released.
+            entry.evicted = true;
+
+        } else {
+
+            TabEntry old = entries.get(key);
+            if (old != null) {
+                evict(old);
+            }
+            entries.put(key, entry);
+            byteSize += tabByteSize;
+            shrink();
+        }
+        acquire(entry);
+        return tab;
+    }
+
+    /**
+     * Evicts the least recently used tables until the bound on the
+     * total number of bytes is respected.
+     */
+    protected static void shrink() {
+        Iterator<TabEntry> iterator = entries.values().iterator();
+        while (byteSize > maxByteSize && iterator.hasNext()) {
+            TabEntry entry = iterator.next();
+            iterator.remove();
+            evicted(entry);
+        }
+    }
+
+    /**
+     * Removes the given entry from the cache.
+     *
+     * @param entry Entry to be evicted.
+     */
+    protected static void evict(TabEntry entry) {
+        entries.remove(entry.key);
+        evicted(entry);
+    }
+
+    /**
+     * Updates the bookkeeping for an entry that has been removed
+     * from the cache and frees the table if it is not in use.
+     *
+     * @param entry Entry that has been removed.
+     */
+    protected static void evicted(TabEntry entry) {
+        byteSize -= entry.byteSize;
+        evictions++;
+        entry.evicted = true;
+        if (entry.users == 0) {
+            free(entry);
+        }
+    }
+
+    /**
+     * Registers one more user of the table of the given entry.
+     *
+     * @param entry Entry of table.
+     */
+    protected static void acquire(TabEntry entry) {
+        entry.users++;
+        inUse.put(entry.tab, entry);
+    }
+
+    /**
+     * Frees any native resources allocated by the table of the given
+     * entry.
+     *
+     * @param entry Entry of table.
+     */
+    protected static void free(TabEntry entry) {
+        if (entry.tab instanceof LargeIntegerFixModPowTab) {
+            ((LargeIntegerFixModPowTab)entry.tab).free();
+        }
+    }
+}
+
+/**
+ * Key of a cached table.
+ */
+class TabKey {
+
+    /**
+     * Group or modulus of the basis.
+     */
+    Object group;
+
+    /**
+     * Representation of the basis.
+     */
+    byte[] basis;
+
+    /**
+     * Maximal bit length of exponents.
+     */
+    int bitLength;
+
+    /**
+     * Creates a key.
+     *
+     * @param group Group or modulus of the basis.
+     * @param basis Representation of the basis.
+     * @param bitLength Maximal bit length of exponents.
+     */
+    TabKey(Object group, byte[] basis, int bitLength) {
+        this.group = group;
+        this.basis = basis;
+        this.bitLength = bitLength;
+    }
+
+    public int hashCode() {
+        return 31 * Arrays.hashCode(basis) + bitLength;
+    }
+
+    public boolean equals(Object obj) {
+        if (!(obj instanceof TabKey)) {
+            return false;
+        }
+        TabKey key = (TabKey)obj;
+        return bitLength == key.bitLength
+            && Arrays.equals(basis, key.basis)
+            && group.equals(key.group);
+    }
+}
+
+/**
+ * Cached table along with its bookkeeping.
+ */
+class TabEntry {
+
+    /**
+     * Key of the table.
+     */
+    TabKey key;
+
+    /**
+     * Table.
+     */
+    Object tab;
+
+    /**
+     * Width of the table.
+     */
+    int width;
+
+    /**
+     * Approximate number of bytes of the table.
+     */
+    long byteSize;
+
+    /**
+     * Number of users of the table.
+     */
+    int users;
+
+    /**
+     * Indicates that the table is no longer cached.
+     */
+    boolean evicted;
+
+    /**
+     * Creates an entry.
+     *
+     * @param key Key of the table.
+     * @param tab Table.
+     * @param width Width of the table.
+     * @param byteSize Approximate number of bytes of the table.
+     */
+    TabEntry(TabKey key, Object tab, int width, long byteSize) {
+        this.key = key;
+        this.tab = tab;
+        this.width = width;
+        this.byteSize = byteSize;
+    }
+}
@@ -90,6 +90,11 @@ public class JECPGroup extends BPGroup {
 
 // Enabled calls to native code ends here
 
+    /**
+     * Pure java arithmetic on the curve using Jacobian coordinates.
+     */
+    final JECPGroupJacobian jacobian;
+
     /**
      * Generator of the group.
      */
@@ -152,6 +157,7 @@ public class JECPGroup extends BPGroup {
         this.field = field;
         this.a = new PFieldElement(field, a);
         this.b = new PFieldElement(field, b);
+        this.jacobian = new JECPGroupJacobian(field.getOrder().value, a.value);
         this.g = new JECPGroupElement(this, gx, gy);
         this.one = JECPGroupElement.one(this);
 
@@ -306,11 +312,88 @@ public class JECPGroup extends BPGroup {
 
     public PGroupElementArray randomElementArray(int size, RandomSource rs,
                                                  int statDist) {
+        final BigInteger fieldOrder = getModulusField().getOrder().value;
         PGroupElement[] res = new PGroupElement[size];
-        for (int i = 0; i < size; i++) {
-            res[i] = randomElement(rs, statDist);
+
+        int filled = 0;
+        while (filled < size) {
+
+            // We never draw more candidates than needed to fill the
+            // array, so the output and the randomness consumed are
+            // identical to those of repeated calls to randomElement.
+            final int candidates = size - filled;
+
+            final LargeInteger[] xs = new LargeInteger[candidates];
+            for (int i = 0; i < candidates; i++) {
+                xs[i] = new LargeInteger(getModulusField().getOrder(),
+                                         statDist,
+                                         rs);
+            }
+
+            // Square roots are computed in parallel, where null
+            // indicates that a candidate is not an x-coordinate.
+            final BigInteger[] ys = new BigInteger[candidates];
+
+            ArrayWorker worker =
+                new ArrayWorker(candidates) {
+                    public void work(int start, int end) {
+                        for (int i = start; i < end; i++) {
+                            try {
+                                ys[i] = ressol(f(xs[i].value).value.value,
+                                               fieldOrder);
+                            } catch (ArithmException ae) {
+                                ys[i] = null;
+                            }
+                        }
+                    }
+                };
+            worker.work(expThreadThreshold);
+
+            for (int i = 0; i < candidates; i++) {
+                if (ys[i] != null) {
+                    res[filled++] =
+                        JECPGroupElement.unsafeElement(this,
+                                                       xs[i],
+                                                       new LargeInteger(ys[i]));
+                }
+            }
+        }
+
+        return toElementArray(res);
+    }
+
+    public PGroupElementArray toElementArray(int size, ByteTreeReader btr)
+        throws ArithmFormatException {
+
+        if (size == 0) {
+            size = btr.getRemaining();
+        }
+        if (btr.getRemaining() != size) {
+            throw new ArithmFormatException("Unexpected size!");
+        }
+
+        // The coordinates are read sequentially and then verified in
+        // parallel.
+        LargeInteger[] xs = new LargeInteger[size];
+        LargeInteger[] ys = new LargeInteger[size];
+        try {
+            for (int i = 0; i < size; i++) {
+                ByteTreeReader pbtr = btr.getNextChild();
+                xs[i] = JECPGroupElement.readCoordinate(this, pbtr);
+                ys[i] = JECPGroupElement.readCoordinate(this, pbtr);
+            }
+        } catch (EIOException eioe) {
+            throw new ArithmFormatException("Malformed array!", eioe);
         }
 
+        if (!arePointsOnCurve(xs, ys)) {
+            throw new ArithmFormatException("Point is not on curve!");
+        }
+
+        PGroupElement[] res = new PGroupElement[size];
+        for (int i = 0; i < size; i++) {
+            res[i] = JECPGroupElement.unsafeElement(this, xs[i], ys[i]);
+        }
         return toElementArray(res);
     }
 
@@ -342,7 +425,60 @@ public class JECPGroup extends BPGroup {
     }
 
 
-    // This overrides a method in PGroup.java
+    /**
+     * Returns the affine coordinates of the given element, or
+     * <code>null</code> if it is the unit element.
+     *
+     * @param element Element of this group.
+     * @return Affine coordinates of the input.
+     */
+    BigInteger[] toAffine(PGroupElement element) {
+        JECPGroupElement el = (JECPGroupElement)element;
+        if (JECPGroupElement.isUnity(el.x, el.y)) {
+            return null;
+        } else {
+            return new BigInteger[] {el.x.value, el.y.value};
+        }
+    }
+
+    /**
+     * Returns the element with the given affine coordinates, where
+     * <code>null</code> represents the unit element.
+     *
+     * @param affine Affine coordinates of a point.
+     * @return Element with the given coordinates.
+     */
+    JECPGroupElement toElement(BigInteger[] affine) {
+        if (affine == null) {
+            return getONE();
+        }
+        try {
+            return new JECPGroupElement(this,
+                                        new LargeInteger(affine[0]),
+                                        new LargeInteger(affine[1]));
+        } catch (ArithmFormatException afe) {
+            throw new ArithmError("Unable to create point!", afe);
+        }
+    }
+
+    /**
+     * Returns the elements with the given Jacobian coordinates, where
+     * the elements are normalized using a single inversion.
+     *
+     * @param points Jacobian coordinates of points.
+     * @param res Destination of elements.
+     * @param offset Index in the destination of the first element.
+     */
+    void toElements(BigInteger[][] points, PGroupElement[] res, int offset) {
+        BigInteger[][] affines = jacobian.normalize(points);
+        for (int i = 0; i < affines.length; i++) {
+            res[offset + i] = toElement(affines[i]);
+        }
+    }
+
+    // These override methods in PGroup.java
+
+// Removed pure java code here.
 
 // Enabled calls to native code begins here.
     public PGroupElement expProd(final PGroupElement[] bases,
@@ -365,6 +501,38 @@ public class JECPGroup extends BPGroup {
 
                     int batchSize = end - start;
 
+                    BigInteger[] ks = new BigInteger[batchSize];
+                    int bitLength = 0;
+                    for (int i = 0, j = start; i < batchSize; i++, j++) {
+                        ks[i] = ((PFieldElement)exponents[j]).
+                            toLargeInteger().value;
+                        bitLength = Math.max(bitLength, ks[i].bitLength());
+                    }
+
+                    // Use the bucket method if it is cheaper for this
+                    // many bases.
+                    int bucketWidth =
+                        MultiExp.bucketWidth(batchSize, bitLength, true);
+                    long bucketCost = MultiExp.bucketCost(batchSize,
+                                                          bitLength,
+                                                          bucketWidth,
+                                                          true);
+                    long cost = MultiExp.interleavedCost(batchSize, bitLength);
+
+                    if (bitLength > 0
+                        && MultiExp.useBuckets(bucketCost, cost, true)) {
+
+                        BigInteger[][] affines = new BigInteger[batchSize][];
+                        for (int i = 0; i < batchSize; i++) {
+                            affines[i] = toAffine(bases[start + i]);
+                        }
+                        BigInteger[] sum =
+                            jacobian.bucketMulSum(affines, ks, 0, batchSize,
+                                                  bitLength, bucketWidth);
+                        parts.add(toElement(jacobian.normalize(sum)));
+                        return;
+                    }
+
                     byte[][] basesx = new byte[batchSize][];
                     byte[][] basesy = new byte[batchSize][];
                     byte[][] integers = new byte[batchSize][];
@@ -375,9 +543,7 @@ public class JECPGroup extends BPGroup {
                             ((JECPGroupElement)bases[j]).x.toByteArray();
                         basesy[i] =
                             ((JECPGroupElement)bases[j]).y.toByteArray();
-                        integers[i] =
-                            ((PFieldElement)exponents[j]).toLargeInteger().
-                            toByteArray();
+                        integers[i] = ks[i].toByteArray();
                     }
 
                     byte[][] res =
@@ -439,18 +605,90 @@ public class JECPGroup extends BPGroup {
         if (JECPGroupElement.isUnity(x, y)) {
             return true;
         }
-        if (x.compareTo(LargeInteger.ZERO) < 0 ||
-            y.compareTo(LargeInteger.ZERO) < 0) {
+        if (!isCoordinate(x) || !isCoordinate(y)) {
             return false;
         }
-        if (x.compareTo(field.getOrder()) >= 0 ||
-            y.compareTo(field.getOrder()) >= 0) {
-            return false;
+
+        // We only reduce (x^2 + a)x + b - y^2 once.
+        BigInteger d = x.value.multiply(x.value).add(a.value.value).
+            multiply(x.value).add(b.value.value).
+            subtract(y.value.multiply(y.value));
+
+        return d.mod(field.getOrder().value).signum() == 0;
+    }
+
+    /**
+     * Checks whether the points with the given coordinates are all
+     * on the curve as defined by this group. The points are verified
+     * in parallel, and using native code if available.
+     *
+     * @param x The x-coordinates of the points.
+     * @param y The y-coordinates of the points.
+     * @return true if all the points are on the curve.
+     */
+    public boolean arePointsOnCurve(final LargeInteger[] x,
+                                    final LargeInteger[] y) {
+        if (x.length != y.length) {
+            throw new ArithmError("Different lengths!");
         }
-        PFieldElement pfey = new PFieldElement(field, y);
-        PFieldElement right = f(x.value);
 
-        return right.equals(pfey.mul(pfey));
+        final List<Boolean> results =
+            Collections.synchronizedList(new LinkedList<Boolean>());
+
+        ArrayWorker worker =
+            new ArrayWorker(x.length) {
+                public void work(int start, int end) {
+
+// Removed pure java code here.
+// Enabled calls to native code begins here.
+
+                    // The unit element has no affine coordinates, so
+                    // we only pass the remaining points to native
+                    // code.
+                    byte[][] pointsx = new byte[end - start][];
+                    byte[][] pointsy = new byte[end - start][];
+                    int batchSize = 0;
+
+                    for (int i = start; i < end; i++) {
+                        if (!JECPGroupElement.isUnity(x[i], y[i])) {
+                            if (!isCoordinate(x[i]) || !isCoordinate(y[i])) {
+                                results.add(Boolean.FALSE);
+                                return;
+                            }
+                            pointsx[batchSize] = x[i].toByteArray();
+                            pointsy[batchSize] = y[i].toByteArray();
+                            batchSize++;
+                        }
+                    }
+                    pointsx = Arrays.copyOf(pointsx, batchSize);
+                    pointsy = Arrays.copyOf(pointsy, batchSize);
+
+                    if (!ECN.is_on_curve(fieldOrdera, aa, ba,
+                                         pointsx, pointsy)) {
+                        results.add(Boolean.FALSE);
+                        return;
+                    }
+
+// Enabled calls to native code ends here
+
+                    results.add(Boolean.TRUE);
+                }
+            };
+        worker.work(mulThreadThreshold);
+
+        return !results.contains(Boolean.FALSE);
+    }
+
+    /**
+     * Returns true if the input is a canonically reduced element of
+     * the underlying field.
+     *
+     * @param coordinate Candidate coordinate.
+     * @return true if the input is a coordinate.
+     */
+    private boolean isCoordinate(LargeInteger coordinate) {
+        return coordinate.compareTo(LargeInteger.ZERO) >= 0
+            && coordinate.compareTo(field.getOrder()) < 0;
     }
 
     /**
@@ -595,11 +833,15 @@ public class JECPGroup extends BPGroup {
 
         // p = 3 mod 4
         if (p.testBit(0) && p.testBit(1)) {
-            if (jacobi(a, p) == 1) { // a quadr. residue mod p
-                v = p.add(ONE); // v = p+1
-                v = v.shiftRight(2); // v = v/4
-                return a.modPow(v, p); // return a^v mod p
-                // return --> a^((p+1)/4) mod p
+
+            // The candidate root a^((p+1)/4) mod p is verified
+            // directly, which is cheaper than first computing the
+            // Jacobi symbol.
+            v = p.add(ONE); // v = p+1
+            v = v.shiftRight(2); // v = v/4
+            v = a.modPow(v, p); // v = a^v mod p
+            if (v.multiply(v).subtract(a).mod(p).signum() == 0) {
+                return v;
             }
             throw new ArithmException("sqrt(" + a.toString() + ") mod " +
                                       p.toString());
@@ -100,19 +100,8 @@ public class JECPGroupElement extends BPGroupElement {
         super(pGroup);
         try {
 
-            int fieldByteLength = pGroup.field.getByteLength();
-
-            ByteTreeReader btrx = btr.getNextChild();
-            if (btrx.getRemaining() != fieldByteLength) {
-                throw new ArithmFormatException("Wrong byte length!");
-            }
-            LargeInteger x = new LargeInteger(btrx);
-
-            ByteTreeReader btry = btr.getNextChild();
-            if (btry.getRemaining() != fieldByteLength) {
-                throw new ArithmFormatException("Wrong byte length!");
-            }
-            LargeInteger y = new LargeInteger(btry);
+            LargeInteger x = readCoordinate(pGroup, btr);
+            LargeInteger y = readCoordinate(pGroup, btr);
 
             if (!((JECPGroup)pGroup).isPointOnCurve(x, y)) {
                 throw new ArithmFormatException("Point is not on curve!");
@@ -124,6 +113,56 @@ public class JECPGroupElement extends BPGroupElement {
         }
     }
 
+    /**
+     * Creates an element of the group from coordinates that are
+     * already known to represent a point.
+     *
+     * @param pGroup Group to which the created element belongs.
+     */
+    private JECPGroupElement(JECPGroup pGroup) {
+        super(pGroup);
+    }
+
+    /**
+     * Returns the element with the given coordinates without
+     * verifying that it is a point on the curve. This must only be
+     * used with coordinates verified by other means, e.g., using
+     * {@link JECPGroup#arePointsOnCurve(LargeInteger[],LargeInteger[])}.
+     *
+     * @param pGroup Group to which the created element belongs.
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return Element with the given coordinates.
+     */
+    protected static JECPGroupElement unsafeElement(JECPGroup pGroup,
+                                                    LargeInteger x,
+                                                    LargeInteger y) {
+        JECPGroupElement element = new JECPGroupElement(pGroup);
+        element.unsafeInit(x, y);
+        return element;
+    }
+
+    /**
+     * Reads a coordinate of a point of the given group from the next
+     * child of the given representation.
+     *
+     * @param pGroup Group to which the point belongs.
+     * @param btr Representation of a point.
+     * @return Coordinate.
+     * @throws ArithmFormatException If the coordinate does not have
+     * the byte length of an element of the underlying field.
+     * @throws EIOException If the input is malformed.
+     */
+    protected static LargeInteger readCoordinate(JECPGroup pGroup,
+                                                 ByteTreeReader btr)
+        throws ArithmFormatException, EIOException {
+        ByteTreeReader cbtr = btr.getNextChild();
+        if (cbtr.getRemaining() != pGroup.field.getByteLength()) {
+            throw new ArithmFormatException("Wrong byte length!");
+        }
+        return new LargeInteger(cbtr);
+    }
+
     // public JECPGroupElement(JECPGroup pGroup, byte[] data)
     //     throws ArithmException {
     //     super(pGroup);
@@ -284,14 +323,16 @@ public class JECPGroupElement extends BPGroupElement {
         }
     }
 
-    // This method is used directly if we are compiled as pure java
-    // code and otherwise we keep it for testing purposes under the
-    // name "naiveExp".
-
-// Removed pure java code here.
-// Enabled calls to native code begins here.
+    /**
+     * Returns this element to the power of the input using affine
+     * coordinates and the square-and-multiply algorithm. This is
+     * kept for testing purposes.
+     *
+     * @param exponent Exponent to which power we take this
+     * instance.
+     * @return This element to the power of the input.
+     */
     public PGroupElement naiveExp(PRingElement exponent) {
-// Enabled calls to native code ends here
 
         LargeInteger e = ((PFieldElement)exponent).toLargeInteger();
 
@@ -306,6 +347,8 @@ public class JECPGroupElement extends BPGroupElement {
         return res;
     }
 
+// Removed pure java code here.
+
 // Enabled calls to native code begins here.
     public PGroupElement exp(PRingElement exponent) {
 
@@ -0,0 +1,558 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.arithm;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Pure java arithmetic for the curve of a {@link JECPGroup} using
+ * Jacobian coordinates, i.e., a point <i>(X, Y, Z)</i> represents
+ * the affine point <i>(X/Z^2, Y/Z^3)</i>. This avoids inverting a
+ * field element in each addition and doubling. Scalar
+ * multiplications use windowed non-adjacent forms, and points are
+ * converted to affine coordinates in batches using a single
+ * inversion for all points in a batch (Montgomery's trick).
+ *
+ * <p>
+ *
+ * A Jacobian point is represented as a <code>BigInteger[]</code> of
+ * length three and an affine point as a <code>BigInteger[]</code> of
+ * length two. The point at infinity is represented by
+ * <code>null</code> in both representations.
+ *
+ * @author Douglas Wikstrom
+ */
+final class JECPGroupJacobian {
+
+    /**
+     * Constant three.
+     */
+    final static BigInteger THREE = BigInteger.valueOf(3);
+
+    /**
+     * Order of the underlying field.
+     */
+    final BigInteger p;
+
+    /**
+     * x-coefficient of the curve.
+     */
+    final BigInteger a;
+
+    /**
+     * Indicates if the x-coefficient of the curve equals -3, in which
+     * case a faster doubling formula is used.
+     */
+    final boolean aIsMinusThree;
+
+    /**
+     * Creates an instance for the given curve.
+     *
+     * @param p Order of the underlying field.
+     * @param a x-coefficient of the curve.
+     */
+    JECPGroupJacobian(BigInteger p, BigInteger a) {
+        this.p = p;
+        this.a = a.mod(p);
+        this.aIsMinusThree = this.a.add(THREE).equals(p);
+    }
+
+    /**
+     * Returns the Jacobian representation of the given affine point.
+     *
+     * @param x x-coordinate of point.
+     * @param y y-coordinate of point.
+     * @return Jacobian representation of the point.
+     */
+    BigInteger[] toJacobian(BigInteger x, BigInteger y) {
+        return new BigInteger[] {x, y, BigInteger.ONE};
+    }
+
+    /**
+     * Returns the double of the input.
+     *
+     * @param P Jacobian point.
+     * @return Double of the input.
+     */
+    BigInteger[] dbl(BigInteger[] P) {
+        if (P == null || P[1].signum() == 0) {
+            return null;
+        }
+        BigInteger X = P[0];
+        BigInteger Y = P[1];
+        BigInteger Z = P[2];
+
+        BigInteger YY = Y.multiply(Y).mod(p);
+        BigInteger ZZ = Z.multiply(Z).mod(p);
+
+        // M = 3X^2 + aZ^4
+        BigInteger M;
+        if (aIsMinusThree) {
+            M = X.subtract(ZZ).multiply(X.add(ZZ)).multiply(THREE).mod(p);
+        } else {
+            BigInteger aZZZZ = ZZ.multiply(ZZ).mod(p).multiply(a);
+            M = X.multiply(X).multiply(THREE).add(aZZZZ).mod(p);
+        }
+
+        // S = 4XY^2
+        BigInteger S = X.multiply(YY).shiftLeft(2).mod(p);
+
+        BigInteger X3 = M.multiply(M).subtract(S.shiftLeft(1)).mod(p);
+        BigInteger Y3 = M.multiply(S.subtract(X3)).
+            subtract(YY.multiply(YY).shiftLeft(3)).mod(p);
+        BigInteger Z3 = Y.multiply(Z).shiftLeft(1).mod(p);
+
+        return new BigInteger[] {X3, Y3, Z3};
+    }
+
+    /**
+     * Returns the sum of a Jacobian point and an affine point.
+     *
+     * @param P Jacobian point.
+     * @param Q Affine point.
+     * @return Sum of the inputs.
+     */
+    BigInteger[] addMixed(BigInteger[] P, BigInteger[] Q) {
+        if (Q == null) {
+            return P;
+        }
+        if (P == null) {
+            return toJacobian(Q[0], Q[1]);
+        }
+        BigInteger ZZ = P[2].multiply(P[2]).mod(p);
+        BigInteger U2 = Q[0].multiply(ZZ).mod(p);
+        BigInteger S2 = Q[1].multiply(P[2]).mod(p).multiply(ZZ).mod(p);
+
+        return add(P[0], P[1], P[2], U2, S2, P[2]);
+    }
+
+    /**
+     * Returns the sum of two Jacobian points.
+     *
+     * @param P Jacobian point.
+     * @param Q Jacobian point.
+     * @return Sum of the inputs.
+     */
+    BigInteger[] add(BigInteger[] P, BigInteger[] Q) {
+        if (Q == null) {
+            return P;
+        }
+        if (P == null) {
+            return Q;
+        }
+        BigInteger Z1Z1 = P[2].multiply(P[2]).mod(p);
+        BigInteger Z2Z2 = Q[2].multiply(Q[2]).mod(p);
+
+        BigInteger U1 = P[0].multiply(Z2Z2).mod(p);
+        BigInteger U2 = Q[0].multiply(Z1Z1).mod(p);
+        BigInteger S1 = P[1].multiply(Q[2]).mod(p).multiply(Z2Z2).mod(p);
+        BigInteger S2 = Q[1].multiply(P[2]).mod(p).multiply(Z1Z1).mod(p);
+        BigInteger Z = P[2].multiply(Q[2]).mod(p);
+
+        return add(U1, S1, Z, U2, S2, Z);
+    }
+
+    /**
+     * Returns the sum of two points given in a common scale, i.e.,
+     * <i>(U1, S1)</i> and <i>(U2, S2)</i> are the points scaled to a
+     * common denominator given by the third coordinate
+     * <code>Z</code>.
+     *
+     * @param U1 Scaled x-coordinate of first point.
+     * @param S1 Scaled y-coordinate of first point.
+     * @param Z1 Third coordinate of first point.
+     * @param U2 Scaled x-coordinate of second point.
+     * @param S2 Scaled y-coordinate of second point.
+     * @param Z Third coordinate of the sum before it is multiplied
+     * by the difference of the x-coordinates.
+     * @return Sum of the inputs.
+     */
+    private BigInteger[] add(BigInteger U1, BigInteger S1, BigInteger Z1,
+                             BigInteger U2, BigInteger S2, BigInteger Z) {
+        BigInteger H = U2.subtract(U1).mod(p);
+        BigInteger r = S2.subtract(S1).mod(p);
+
+        if (H.signum() == 0) {
+            if (r.signum() == 0) {
+                return dbl(new BigInteger[] {U1, S1, Z1});
+            } else {
+                return null;
+            }
+        }
+
+        BigInteger HH = H.multiply(H).mod(p);
+        BigInteger HHH = H.multiply(HH).mod(p);
+        BigInteger V = U1.multiply(HH).mod(p);
+
+        BigInteger X3 =
+            r.multiply(r).subtract(HHH).subtract(V.shiftLeft(1)).mod(p);
+        BigInteger Y3 = r.multiply(V.subtract(X3)).
+            subtract(S1.multiply(HHH)).mod(p);
+        BigInteger Z3 = Z.multiply(H).mod(p);
+
+        return new BigInteger[] {X3, Y3, Z3};
+    }
+
+    /**
+     * Returns the affine representations of the given Jacobian
+     * points using a single inversion.
+     *
+     * @param points Jacobian points.
+     * @return Affine representations of the inputs.
+     */
+    BigInteger[][] normalize(BigInteger[][] points) {
+        BigInteger[][] res = new BigInteger[points.length][];
+
+        // Prefix products of all third coordinates.
+        BigInteger[] prefix = new BigInteger[points.length];
+        BigInteger acc = BigInteger.ONE;
+        for (int i = 0; i < points.length; i++) {
+            if (points[i] != null) {
+                acc = acc.multiply(points[i][2]).mod(p);
+            }
+            prefix[i] = acc;
+        }
+
+        BigInteger inv = acc.modInverse(p);
+
+        for (int i = points.length - 1; i >= 0; i--) {
+            if (points[i] != null) {
+
+                // Inverse of the third coordinate of this point, and
+                // the inverse of the prefix product of the remaining
+                // points.
+                BigInteger previous = i > 0 ? prefix[i - 1] : BigInteger.ONE;
+                BigInteger zInv = inv.multiply(previous).mod(p);
+                inv = inv.multiply(points[i][2]).mod(p);
+
+                BigInteger zInv2 = zInv.multiply(zInv).mod(p);
+                BigInteger x = points[i][0].multiply(zInv2).mod(p);
+                BigInteger y = points[i][1].multiply(zInv2).mod(p).
+                    multiply(zInv).mod(p);
+                res[i] = new BigInteger[] {x, y};
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Returns the affine representation of the given Jacobian point.
+     *
+     * @param P Jacobian point.
+     * @return Affine representation of the input.
+     */
+    BigInteger[] normalize(BigInteger[] P) {
+        return normalize(new BigInteger[][] {P})[0];
+    }
+
+    /**
+     * Returns the negative of the given affine point.
+     *
+     * @param Q Affine point.
+     * @return Negative of the input.
+     */
+    BigInteger[] neg(BigInteger[] Q) {
+        if (Q == null) {
+            return null;
+        }
+        return new BigInteger[] {Q[0], p.subtract(Q[1]).mod(p)};
+    }
+
+    /**
+     * Returns the width of the windowed non-adjacent forms that
+     * minimizes the expected running time of the given number of
+     * scalar multiplications of a fixed point by scalars of the given
+     * bit length. The table of odd multiples has <i>2^(w-2)</i>
+     * points, and each scalar multiplication requires roughly
+     * <i>bitLength/(w+1)</i> additions.
+     *
+     * @param bitLength Bit length of scalars.
+     * @param count Number of scalar multiplications.
+     * @return Optimal width.
+     */
+    static int optimalWidth(int bitLength, int count) {
+        int width = 2;
+        while (width < 16) {
+            long cost = (1L << (width - 2))
+                + (long)count * bitLength / (width + 1);
+            long nextCost = (1L << (width - 1))
+                + (long)count * bitLength / (width + 2);
+            if (nextCost >= cost) {
+                break;
+            }
+            width++;
+        }
+        return width;
+    }
+
+    /**
+     * Returns the windowed non-adjacent form of the given
+     * non-negative integer, i.e., odd digits in <i>(-2^(w-1),
+     * 2^(w-1))</i>, least significant first, such that any
+     * <code>w</code> consecutive digits have at most one non-zero
+     * digit.
+     *
+     * @param k Non-negative integer.
+     * @param width Width of the form.
+     * @return Windowed non-adjacent form of the input.
+     */
+    static int[] wNAF(BigInteger k, int width) {
+        int[] digits = new int[k.bitLength() + 1];
+        int mask = (1 << width) - 1;
+        int half = 1 << (width - 1);
+
+        int length = 0;
+        while (k.signum() > 0) {
+            if (k.testBit(0)) {
+                int d = k.intValue() & mask;
+                if (d >= half) {
+                    d -= 1 << width;
+                }
+                digits[length] = d;
+                k = k.subtract(BigInteger.valueOf(d));
+            }
+            k = k.shiftRight(1);
+            length++;
+        }
+        int[] res = new int[length];
+        System.arraycopy(digits, 0, res, 0, length);
+        return res;
+    }
+
+    /**
+     * Returns the affine odd multiples <i>P, 3P, 5P, ...,
+     * (2^(w-1)-1)P</i> of the given affine point, where <i>w</i> is
+     * the given width.
+     *
+     * @param Q Affine point.
+     * @param width Width of windowed non-adjacent forms.
+     * @return Affine odd multiples of the input.
+     */
+    BigInteger[][] oddMultiples(BigInteger[] Q, int width) {
+        BigInteger[][] table = new BigInteger[1 << (width - 2)][];
+
+        BigInteger[] P = toJacobian(Q[0], Q[1]);
+        BigInteger[] doubleP = dbl(P);
+
+        table[0] = P;
+        for (int i = 1; i < table.length; i++) {
+            table[i] = add(table[i - 1], doubleP);
+        }
+        return normalize(table);
+    }
+
+    /**
+     * Returns the product of the windowed non-adjacent form and the
+     * point with the given odd multiples.
+     *
+     * @param naf Windowed non-adjacent form.
+     * @param table Affine odd multiples of a point.
+     * @return Jacobian representation of the product.
+     */
+    BigInteger[] mul(int[] naf, BigInteger[][] table) {
+        BigInteger[] R = null;
+        for (int i = naf.length - 1; i >= 0; i--) {
+            R = dbl(R);
+            if (naf[i] > 0) {
+                R = addMixed(R, table[naf[i] >> 1]);
+            } else if (naf[i] < 0) {
+                R = addMixed(R, neg(table[(-naf[i]) >> 1]));
+            }
+        }
+        return R;
+    }
+
+    /**
+     * Returns the product of the integer and the affine point.
+     *
+     * @param Q Affine point.
+     * @param k Non-negative integer.
+     * @return Jacobian representation of the product.
+     */
+    BigInteger[] mul(BigInteger[] Q, BigInteger k) {
+        if (Q == null || k.signum() == 0) {
+            return null;
+        }
+        int width = optimalWidth(k.bitLength(), 1);
+        return mul(wNAF(k, width), oddMultiples(Q, width));
+    }
+
+    /**
+     * Returns the sum of the products of the integers and the affine
+     * points within the given range of indices. The products are
+     * interleaved, i.e., they share a single sequence of doublings,
+     * unless {@link MultiExp} chooses the bucket method for this many
+     * points.
+     *
+     * @param Qs Affine points.
+     * @param ks Non-negative integers.
+     * @param start Start index (inclusive).
+     * @param end End index (exclusive).
+     * @return Jacobian representation of the sum of products.
+     */
+    BigInteger[] mulSum(BigInteger[][] Qs, BigInteger[] ks,
+                        int start, int end) {
+        int size = end - start;
+
+        int bitLength = 0;
+        for (int i = start; i < end; i++) {
+            bitLength = Math.max(bitLength, ks[i].bitLength());
+        }
+        if (bitLength == 0) {
+            return null;
+        }
+
+        int bucketWidth = MultiExp.bucketWidth(size, bitLength, true);
+        if (MultiExp.useBuckets(MultiExp.bucketCost(size, bitLength,
+                                                    bucketWidth, true),
+                                MultiExp.interleavedCost(size, bitLength),
+                                false)) {
+            return bucketMulSum(Qs, ks, start, end, bitLength, bucketWidth);
+        }
+
+        // Each point is only used for its own scalar, so the width is
+        // chosen as for a single scalar multiplication.
+        int width = optimalWidth(bitLength, 1);
+
+        // Compute odd multiples of all points using a single
+        // inversion.
+        int tableSize = 1 << (width - 2);
+        BigInteger[][] jacobians = new BigInteger[size * tableSize][];
+        int[][] nafs = new int[size][];
+
+        for (int i = 0; i < size; i++) {
+            BigInteger[] Q = Qs[start + i];
+            if (Q == null || ks[start + i].signum() == 0) {
+                continue;
+            }
+            nafs[i] = wNAF(ks[start + i], width);
+
+            BigInteger[] P = toJacobian(Q[0], Q[1]);
+            BigInteger[] doubleP = dbl(P);
+
+            int offset = i * tableSize;
+            jacobians[offset] = P;
+            for (int j = 1; j < tableSize; j++) {
+                jacobians[offset + j] =
+                    add(jacobians[offset + j - 1], doubleP);
+            }
+        }
+        BigInteger[][] tables = normalize(jacobians);
+
+        // Interleaved evaluation of the non-adjacent forms.
+        BigInteger[] R = null;
+        for (int b = bitLength; b >= 0; b--) {
+            R = dbl(R);
+            for (int i = 0; i < size; i++) {
+                if (nafs[i] != null && b < nafs[i].length) {
+                    int d = nafs[i][b];
+                    if (d > 0) {
+                        R = addMixed(R, tables[i * tableSize + (d >> 1)]);
+                    } else if (d < 0) {
+                        BigInteger[] Q = tables[i * tableSize + ((-d) >> 1)];
+                        R = addMixed(R, neg(Q));
+                    }
+                }
+            }
+        }
+        return R;
+    }
+
+    /**
+     * Returns the sum of the products of the integers and the affine
+     * points within the given range of indices using the bucket
+     * method with signed digits, i.e., for each window the points are
+     * added to, or subtracted from, the buckets indexed by the
+     * absolute values of their digits, and the buckets are combined
+     * using running sums. The windows are processed from the least
+     * significant, since the carries of the signed digits propagate
+     * upwards, and the sums of the windows are combined at the end.
+     *
+     * @param Qs Affine points.
+     * @param ks Non-negative integers.
+     * @param start Start index (inclusive).
+     * @param end End index (exclusive).
+     * @param bitLength Maximal bit length of the integers.
+     * @param width Width of windows.
+     * @return Jacobian representation of the sum of products.
+     */
+    BigInteger[] bucketMulSum(BigInteger[][] Qs, BigInteger[] ks,
+                              int start, int end, int bitLength, int width) {
+        int size = end - start;
+
+        byte[][] bytes = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            if (Qs[start + i] != null) {
+                bytes[i] = ks[start + i].toByteArray();
+            }
+        }
+
+        int half = 1 << (width - 1);
+        int windows = MultiExp.windows(bitLength, width, true);
+
+        boolean[] carries = new boolean[size];
+        BigInteger[][] buckets = new BigInteger[half + 1][];
+        BigInteger[][] sums = new BigInteger[windows][];
+
+        for (int w = 0; w < windows; w++) {
+
+            Arrays.fill(buckets, null);
+            for (int i = 0; i < size; i++) {
+                if (bytes[i] == null) {
+                    continue;
+                }
+                int d = MultiExp.digit(bytes[i], w * width, width);
+                if (carries[i]) {
+                    d++;
+                }
+                carries[i] = d > half;
+                if (carries[i]) {
+                    d -= 1 << width;
+                }
+                if (d > 0) {
+                    buckets[d] = addMixed(buckets[d], Qs[start + i]);
+                } else if (d < 0) {
+                    buckets[-d] = addMixed(buckets[-d], neg(Qs[start + i]));
+                }
+            }
+
+            // The sum of the running sums of the buckets contains
+            // the contents of each bucket times its digit.
+            BigInteger[] running = null;
+            BigInteger[] sum = null;
+            for (int d = half; d > 0; d--) {
+                running = add(running, buckets[d]);
+                sum = add(sum, running);
+            }
+            sums[w] = sum;
+        }
+
+        BigInteger[] R = null;
+        for (int w = windows - 1; w >= 0; w--) {
+            for (int j = 0; j < width; j++) {
+                R = dbl(R);
+            }
+            R = add(R, sums[w]);
+        }
+        return R;
+    }
+}
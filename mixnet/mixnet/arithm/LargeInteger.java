@@ -75,6 +75,12 @@ public class LargeInteger implements Comparable<LargeInteger>,
      */
     public final static int CERTAINTY = 100;
 
+    /**
+     * Number of integers below which {@link
+     * #random(int,int,RandomSource)} does not use several cores.
+     */
+    public final static int PARALLEL_RANDOM_THRESHOLD = 1000;
+
     /**
      * An instance representing the integer zero.
      */
@@ -596,6 +602,41 @@ public class LargeInteger implements Comparable<LargeInteger>,
         }
     }
 
+// Enabled calls to native code begins here.
+    /**
+     * Returns the underlying integers of the given part of an array.
+     *
+     * @param integers Array of integers.
+     * @param start Index of first integer.
+     * @param end Index following the last integer.
+     * @return Array of underlying integers.
+     */
+    protected static BigInteger[] values(LargeInteger[] integers,
+                                         int start, int end) {
+        BigInteger[] res = new BigInteger[end - start];
+        for (int i = start, j = 0; i < end; i++, j++) {
+            res[j] = integers[i].value;
+        }
+        return res;
+    }
+
+    /**
+     * Wraps the given integers and stores them in the given part of
+     * the destination array.
+     *
+     * @param values Integers to be wrapped.
+     * @param destination Destination array.
+     * @param start Index of first destination integer.
+     */
+    protected static void wrap(BigInteger[] values,
+                               LargeInteger[] destination,
+                               int start) {
+        for (int i = 0; i < values.length; i++) {
+            destination[start + i] = new LargeInteger(values[i]);
+        }
+    }
+
+// Enabled calls to native code ends here
     /**
      * Returns an array of the given size where all elements equal the
      * given value.
@@ -621,14 +662,23 @@ public class LargeInteger implements Comparable<LargeInteger>,
     public static LargeInteger[] modPow(final LargeInteger[] bases,
                                         final LargeInteger[] exponents,
                                         final LargeInteger modulus) {
+        if (modulus.compareTo(LargeInteger.ZERO) <= 0) {
+            throw new ArithmError("Non-positive modulus!");
+        }
         final LargeInteger[] result = new LargeInteger[bases.length];
 
         ArrayWorker worker =
             new ArrayWorker(result.length) {
                 public void work(int start, int end) {
-                    for (int i = start; i < end; i++) {
-                        result[i] = bases[i].modPow(exponents[i], modulus);
-                    }
+// Removed pure java code here.
+// Enabled calls to native code begins here.
+
+                    // One native call for the whole part.
+                    wrap(JGMPMEE.powm(values(bases, start, end),
+                                      values(exponents, start, end),
+                                      modulus.value),
+                         result, start);
+// Enabled calls to native code ends here
                 }
             };
         worker.work();
@@ -646,14 +696,70 @@ public class LargeInteger implements Comparable<LargeInteger>,
     public static LargeInteger[] modPow(final LargeInteger[] bases,
                                         final LargeInteger exponent,
                                         final LargeInteger modulus) {
+        if (modulus.compareTo(LargeInteger.ZERO) <= 0) {
+            throw new ArithmError("Non-positive modulus!");
+        }
         final LargeInteger[] result = new LargeInteger[bases.length];
 
         ArrayWorker worker =
             new ArrayWorker(result.length) {
                 public void work(int start, int end) {
-                    for (int i = start; i < end; i++) {
-                        result[i] = bases[i].modPow(exponent, modulus);
+// Removed pure java code here.
+// Enabled calls to native code begins here.
+
+                    // One native call for the whole part.
+                    wrap(JGMPMEE.powm(values(bases, start, end),
+                                      exponent.value,
+                                      modulus.value),
+                         result, start);
+// Enabled calls to native code ends here
+                }
+            };
+        worker.work();
+        return result;
+    }
+
+    /**
+     * Takes the modular power of each basis of several arrays to its
+     * corresponding exponent in a single parallel pass, i.e., the
+     * bases in <code>bases[c]</code> are taken to the powers of the
+     * exponents in <code>exponents[c]</code>. Arrays of exponents
+     * that are identical to the preceding array are only converted
+     * once.
+     *
+     * @param bases Arrays of bases of equal lengths.
+     * @param exponents Arrays of exponents of the same lengths.
+     * @param modulus Modulus.
+     * @return Arrays of all the results.
+     */
+    public static LargeInteger[][] modPow(final LargeInteger[][] bases,
+                                          final LargeInteger[][] exponents,
+                                          final LargeInteger modulus) {
+        if (modulus.compareTo(LargeInteger.ZERO) <= 0) {
+            throw new ArithmError("Non-positive modulus!");
+        }
+        final int components = bases.length;
+        final int size = components == 0 ? 0 : bases[0].length;
+        final LargeInteger[][] result = new LargeInteger[components][size];
+
+        ArrayWorker worker =
+            new ArrayWorker(size) {
+                public void work(int start, int end) {
+// Removed pure java code here.
+// Enabled calls to native code begins here.
+
+                    // One native call for each component of the part.
+                    BigInteger[] exps = null;
+                    for (int c = 0; c < components; c++) {
+                        if (c == 0 || exponents[c] != exponents[c - 1]) {
+                            exps = values(exponents[c], start, end);
+                        }
+                        wrap(JGMPMEE.powm(values(bases[c], start, end),
+                                          exps,
+                                          modulus.value),
+                             result[c], start);
                     }
+// Enabled calls to native code ends here
                 }
             };
         worker.work();
@@ -707,19 +813,19 @@ public class LargeInteger implements Comparable<LargeInteger>,
                                                           exponents.length);
 
         final LargeIntegerFixModPowTab tab =
-            new LargeIntegerFixModPowTab(this, bitLength, width, modulus);
+            FixExpTabCache.getTab(this, modulus, bitLength, width);
 
         ArrayWorker worker =
             new ArrayWorker(result.length) {
                 public void work(int start, int end) {
-                    for (int i = start; i < end; i++) {
-
-                        result[i] = tab.modPow(exponents[i]);
-                    }
+                    tab.modPow(exponents, result, start, end);
                 }
             };
-        worker.work();
-        tab.free();
+        try {
+            worker.work();
+        } finally {
+            FixExpTabCache.release(tab);
+        }
 
         return result;
     }
@@ -825,6 +931,40 @@ public class LargeInteger implements Comparable<LargeInteger>,
         return res;
     }
 
+    /**
+     * Returns the modular element-wise products of several pairs of
+     * arrays in a single parallel pass.
+     *
+     * @param integers Arrays of integers of equal lengths.
+     * @param factors Arrays of integers of the same lengths.
+     * @param modulus Modulus.
+     * @return Arrays of modular element-wise products of the
+     * corresponding input arrays.
+     */
+    public static LargeInteger[][] modMul(final LargeInteger[][] integers,
+                                          final LargeInteger[][] factors,
+                                          final LargeInteger modulus) {
+        final int components = integers.length;
+        final int size = components == 0 ? 0 : integers[0].length;
+        final LargeInteger[][] res = new LargeInteger[components][size];
+
+        ArrayWorker worker =
+            new ArrayWorker(size) {
+                public void work(int start, int end) {
+
+                    for (int i = start; i < end; i++) {
+                        for (int c = 0; c < components; c++) {
+                            res[c][i] =
+                                integers[c][i].mul(factors[c][i]).mod(modulus);
+                        }
+                    }
+                }
+            };
+        worker.work();
+
+        return res;
+    }
+
     /**
      * Computes the element-wise modular product of the first input
      * times the second scalar input.
@@ -883,6 +1023,49 @@ public class LargeInteger implements Comparable<LargeInteger>,
 	return res;
     }
 
+    /**
+     * Computes the element-wise modular inverses of several arrays
+     * in a single parallel pass.
+     *
+     * @param integers Arrays of integers of equal lengths to invert.
+     * @param modulus Modulus.
+     * @return Arrays of element-wise modular inverses.
+     * @throws ArithmException If any integer is not invertible.
+     */
+    public static LargeInteger[][] modInv(final LargeInteger[][] integers,
+                                          final LargeInteger modulus)
+    throws ArithmException {
+        final int components = integers.length;
+        final int size = components == 0 ? 0 : integers[0].length;
+        final LargeInteger[][] res = new LargeInteger[components][size];
+
+        final List<ArithmException> exceptions =
+            Collections.synchronizedList(new LinkedList<ArithmException>());
+
+        ArrayWorker worker =
+            new ArrayWorker(size) {
+                public void work(int start, int end) {
+
+                    try {
+                        for (int i = start; i < end; i++) {
+                            for (int c = 0; c < components; c++) {
+                                res[c][i] = integers[c][i].modInv(modulus);
+                            }
+                        }
+                    } catch (ArithmException ae) {
+                        exceptions.add(ae);
+                    }
+                }
+            };
+        worker.work();
+
+        if (exceptions.size() > 0) {
+            throw exceptions.get(0);
+        }
+
+        return res;
+    }
+
     /**
      * Computes the modular inner product of the two input arrays.
      *
@@ -953,7 +1136,7 @@ public class LargeInteger implements Comparable<LargeInteger>,
                                           final LargeInteger[] exponents,
                                           final LargeInteger modulus) {
 
-// Removed pure java code here.
+        final int bitLength = bitLength(exponents);
 
         final List<LargeInteger> results =
             Collections.synchronizedList(new LinkedList<LargeInteger>());
@@ -961,32 +1144,170 @@ public class LargeInteger implements Comparable<LargeInteger>,
         ArrayWorker worker =
             new ArrayWorker(bases.length) {
                 public void work(int start, int end) {
+                    results.add(modPowProd(bases, exponents, start, end,
+                                           bitLength, modulus));
+                }
+            };
+        worker.work();
+
+        LargeInteger result = ONE;
+        for (LargeInteger li : results) {
+            result = result.mul(li).mod(modulus);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the maximal bit length of the given integers.
+     *
+     * @param integers Integers.
+     * @return Maximal bit length.
+     */
+    protected static int bitLength(LargeInteger[] integers) {
+        int bitLength = 0;
+        for (int i = 0; i < integers.length; i++) {
+            bitLength = Math.max(integers[i].bitLength(), bitLength);
+        }
+        return bitLength;
+    }
+
+    /**
+     * Returns true if and only if the bucket method should be used
+     * to compute a product of the given number of powers.
+     *
+     * @param size Number of bases.
+     * @param bitLength Maximal bit length of the exponents.
+     * @return True if and only if the bucket method should be used.
+     */
+    protected static boolean useBuckets(int size, int bitLength) {
+        int bucketWidth = MultiExp.bucketWidth(size, bitLength, false);
+        long bucketCost =
+            MultiExp.bucketCost(size, bitLength, bucketWidth, false);
+        long tableCost = MultiExp.tableCost(size, bitLength);
 
 // Removed pure java code here.
 // Enabled calls to native code begins here.
+        boolean nativeCode = true;
+// Enabled calls to native code ends here
 
-                    BigInteger[] biBases = new BigInteger[end - start];
-                    BigInteger[] biExponents = new BigInteger[end - start];
+        return size > 0
+            && MultiExp.useBuckets(bucketCost, tableCost, nativeCode);
+    }
 
-                    for (int i = start, j = 0; i < end; i++, j++) {
-                        biBases[j] = bases[i].value;
-                    }
-                    for (int i = start, j = 0; i < end; i++, j++) {
-                        biExponents[j] = exponents[i].value;
-                    }
+    /**
+     * Returns the modular product of the given part of the bases
+     * taken to the powers of the corresponding exponents.
+     *
+     * @param bases Array of basis integers.
+     * @param exponents Array of exponents.
+     * @param start Index of the first basis and exponent.
+     * @param end Index following the last basis and exponent.
+     * @param bitLength Maximal bit length of the exponents.
+     * @param modulus Modulus.
+     * @return Modular power product of the part of the input arrays.
+     */
+    protected static LargeInteger modPowProd(LargeInteger[] bases,
+                                             LargeInteger[] exponents,
+                                             int start,
+                                             int end,
+                                             int bitLength,
+                                             LargeInteger modulus) {
+        int size = end - start;
+
+        // Use the bucket method if it is cheaper for this many bases.
+        if (useBuckets(size, bitLength)) {
+            int bucketWidth = MultiExp.bucketWidth(size, bitLength, false);
+            return MultiExp.modPowProd(bases, exponents, start, size,
+                                       bitLength, bucketWidth, modulus);
+        }
+
+// Removed pure java code here.
+// Enabled calls to native code begins here.
 
-                    results.add(new LargeInteger(JGMPMEE.spowm(biBases,
-                                                               biExponents,
-                                                               modulus.value)));
+        if (start == end) {
+            return LargeInteger.ONE;
+        }
+
+        // The whole part is a single batch.
+        BigInteger[] batch = JGMPMEE.spowm(values(bases, start, end),
+                                           values(exponents, start, end),
+                                           modulus.value,
+                                           end - start);
+        return new LargeInteger(batch[0]);
 // Enabled calls to native code ends here
+    }
+
+    /**
+     * Computes the modular power products of several arrays of bases
+     * in a single parallel pass, i.e., for each index <i>c</i> the
+     * bases in <code>bases[c]</code> are taken to the powers of the
+     * corresponding exponents in <code>exponents[c]</code> and the
+     * product of the results is returned. When all arrays of
+     * exponents are identical, the digits of the exponents are
+     * extracted only once for all arrays of bases.
+     *
+     * @param bases Arrays of basis integers of equal lengths.
+     * @param exponents Arrays of exponents of the same lengths.
+     * @param modulus Modulus.
+     * @return Modular power products of the input arrays.
+     */
+    public static LargeInteger[] modPowProd(final LargeInteger[][] bases,
+                                            final LargeInteger[][] exponents,
+                                            final LargeInteger modulus) {
+        final int components = bases.length;
+
+        boolean tmpShared = true;
+        int tmpBitLength = 0;
+        for (int c = 0; c < components; c++) {
+            if (c == 0 || exponents[c] != exponents[c - 1]) {
+                tmpBitLength = Math.max(bitLength(exponents[c]),
+                                        tmpBitLength);
+            }
+            tmpShared &= exponents[c] == exponents[0];
+        }
+        final boolean shared = tmpShared;
+        final int bitLength = tmpBitLength;
+
+        final LargeInteger[] result = new LargeInteger[components];
+        for (int c = 0; c < components; c++) {
+            result[c] = LargeInteger.ONE.mod(modulus);
+        }
+
+        ArrayWorker worker =
+            new ArrayWorker(components == 0 ? 0 : bases[0].length) {
+                public void work(int start, int end) {
+
+                    int size = end - start;
+                    LargeInteger[] parts;
+
+                    if (shared && useBuckets(size, bitLength)) {
+
+                        int bucketWidth =
+                            MultiExp.bucketWidth(size, bitLength, false);
+                        parts = MultiExp.modPowProds(bases, exponents[0],
+                                                     start, size,
+                                                     bitLength,
+                                                     bucketWidth,
+                                                     modulus);
+                    } else {
+
+                        parts = new LargeInteger[components];
+                        for (int c = 0; c < components; c++) {
+                            parts[c] = modPowProd(bases[c], exponents[c],
+                                                  start, end,
+                                                  bitLength, modulus);
+                        }
+                    }
+
+                    synchronized (result) {
+                        for (int c = 0; c < components; c++) {
+                            result[c] = result[c].mul(parts[c]).mod(modulus);
+                        }
+                    }
                 }
             };
         worker.work();
 
-        LargeInteger result = ONE;
-        for (LargeInteger li : results) {
-            result = result.mul(li).mod(modulus);
-        }
         return result;
     }
 
@@ -1532,14 +1853,43 @@ public class LargeInteger implements Comparable<LargeInteger>,
      * the array.
      * @return Array of random integers.
      */
-    public static LargeInteger[] random(int size, int bitLength,
+    public static LargeInteger[] random(int size, final int bitLength,
                                         RandomSource randomSource) {
         if (size < 0) {
             throw new ArithmError("Negative size!");
         }
-        LargeInteger[] randoms = new LargeInteger[size];
-        for (int i = 0; i < size; i++) {
-            randoms[i] = new LargeInteger(bitLength, randomSource);
+        final LargeInteger[] randoms = new LargeInteger[size];
+
+        // Each integer consumes a fixed number of bytes, so with a
+        // seekable generator each core can compute its part of the
+        // output stream directly. This gives exactly the same
+        // integers as sequential generation.
+        if (randomSource instanceof PRGHeuristic
+            && ((PRGHeuristic)randomSource).allowsConcurrentCopies()) {
+
+            final PRGHeuristic prg = (PRGHeuristic)randomSource;
+            final long position = prg.getPosition();
+            final int byteLength = (bitLength + 7) / 8;
+
+            ArrayWorker worker =
+                new ArrayWorker(size) {
+                    public void work(int start, int end) {
+                        PRGHeuristic copy = prg.copy();
+                        copy.seek(position + (long)start * byteLength);
+                        for (int i = start; i < end; i++) {
+                            randoms[i] = new LargeInteger(bitLength, copy);
+                        }
+                    }
+                };
+            worker.work(PARALLEL_RANDOM_THRESHOLD);
+
+            prg.seek(position + (long)size * byteLength);
+
+        } else {
+
+            for (int i = 0; i < size; i++) {
+                randoms[i] = new LargeInteger(bitLength, randomSource);
+            }
         }
         return randoms;
     }
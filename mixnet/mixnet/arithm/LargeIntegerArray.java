@@ -77,6 +77,15 @@ public abstract class LargeIntegerArray implements ByteTreeConvertible {
         setDelegate(new LargeIntegerArrayWrapperF());
     }
 
+    /**
+     * Initializes the module to use representations stored as
+     * fixed-width records in memory-mapped files. This should only be
+     * used once.
+     */
+    public static void useMemoryMapped() {
+        setDelegate(new LargeIntegerArrayWrapperM());
+    }
+
     /**
      * Returns an instance containing the integers in the input.
      *
@@ -175,6 +184,214 @@ public abstract class LargeIntegerArray implements ByteTreeConvertible {
         return delegate.create(size, value);
     }
 
+    /**
+     * Returns the element-wise modular products of several pairs of
+     * arrays, i.e., the <i>c</i>th output array is the element-wise
+     * product of <code>arrays[c]</code> and
+     * <code>factors[c]</code>. All arrays are processed in a single
+     * interleaved pass.
+     *
+     * @param arrays Arrays of integers of equal sizes.
+     * @param factors Arrays of integers of the same sizes.
+     * @param modulus Modulus.
+     * @return Arrays of element-wise modular products.
+     */
+    public static LargeIntegerArray[] modMul(LargeIntegerArray[] arrays,
+                                             LargeIntegerArray[] factors,
+                                             final LargeInteger modulus) {
+        List<LargeIntegerArray> inputs = new ArrayList<LargeIntegerArray>();
+        Map<LargeIntegerArray,Integer> positions =
+            new IdentityHashMap<LargeIntegerArray,Integer>();
+        final int[] ai = addInputs(inputs, positions, arrays);
+        final int[] fi = addInputs(inputs, positions, factors);
+
+        LargeIntegerKernel kernel =
+            new LargeIntegerKernel(modulus) {
+                LargeInteger[][] apply(LargeInteger[][] batches) {
+                    return LargeInteger.modMul(select(batches, ai),
+                                               select(batches, fi),
+                                               modulus);
+                }
+            };
+        return unsafeFused(inputs, arrays.length, kernel);
+    }
+
+    /**
+     * Returns the element-wise modular inverses of several arrays,
+     * which are processed in a single interleaved pass.
+     *
+     * @param arrays Arrays of integers of equal sizes.
+     * @param modulus Modulus.
+     * @return Arrays of element-wise modular inverses.
+     * @throws ArithmException If any integer is not invertible.
+     */
+    public static LargeIntegerArray[] modInv(LargeIntegerArray[] arrays,
+                                             final LargeInteger modulus)
+        throws ArithmException {
+        List<LargeIntegerArray> inputs = new ArrayList<LargeIntegerArray>();
+        Map<LargeIntegerArray,Integer> positions =
+            new IdentityHashMap<LargeIntegerArray,Integer>();
+        final int[] ai = addInputs(inputs, positions, arrays);
+
+        LargeIntegerKernel kernel =
+            new LargeIntegerKernel(modulus) {
+                LargeInteger[][] apply(LargeInteger[][] batches)
+                    throws ArithmException {
+                    return LargeInteger.modInv(select(batches, ai), modulus);
+                }
+            };
+        return fused(inputs, arrays.length, kernel);
+    }
+
+    /**
+     * Takes several arrays to the element-wise powers of the
+     * corresponding arrays of exponents, i.e., the <i>c</i>th output
+     * array contains the integers of <code>bases[c]</code> to the
+     * powers of the integers of <code>exponents[c]</code>. All arrays
+     * are processed in a single interleaved pass and an array of
+     * exponents that is shared by several arrays of bases is only read
+     * once.
+     *
+     * @param bases Arrays of integers of equal sizes.
+     * @param exponents Arrays of exponents of the same sizes.
+     * @param modulus Modulus.
+     * @return Arrays of element-wise modular powers.
+     */
+    public static LargeIntegerArray[] modPow(LargeIntegerArray[] bases,
+                                             LargeIntegerArray[] exponents,
+                                             final LargeInteger modulus) {
+        List<LargeIntegerArray> inputs = new ArrayList<LargeIntegerArray>();
+        Map<LargeIntegerArray,Integer> positions =
+            new IdentityHashMap<LargeIntegerArray,Integer>();
+        final int[] bi = addInputs(inputs, positions, bases);
+        final int[] ei = addInputs(inputs, positions, exponents);
+
+        LargeIntegerKernel kernel =
+            new LargeIntegerKernel(modulus) {
+                LargeInteger[][] apply(LargeInteger[][] batches) {
+                    return LargeInteger.modPow(select(batches, bi),
+                                               select(batches, ei),
+                                               modulus);
+                }
+            };
+        return unsafeFused(inputs, bases.length, kernel);
+    }
+
+    /**
+     * Returns the modular power products of several arrays, i.e., the
+     * <i>c</i>th output is the product of the integers of
+     * <code>bases[c]</code> to the powers of the integers of
+     * <code>exponents[c]</code>. All arrays are processed in a single
+     * interleaved pass and when an array of exponents is shared by
+     * all arrays of bases, the exponents are only recoded once.
+     *
+     * @param bases Arrays of integers of equal sizes.
+     * @param exponents Arrays of exponents of the same sizes.
+     * @param modulus Modulus.
+     * @return Modular power products.
+     */
+    public static LargeInteger[] modPowProd(LargeIntegerArray[] bases,
+                                            LargeIntegerArray[] exponents,
+                                            final LargeInteger modulus) {
+        List<LargeIntegerArray> inputs = new ArrayList<LargeIntegerArray>();
+        Map<LargeIntegerArray,Integer> positions =
+            new IdentityHashMap<LargeIntegerArray,Integer>();
+        final int[] bi = addInputs(inputs, positions, bases);
+        final int[] ei = addInputs(inputs, positions, exponents);
+
+        final LargeInteger[] res = new LargeInteger[bases.length];
+        Arrays.fill(res, LargeInteger.ONE.mod(modulus));
+
+        LargeIntegerKernel kernel =
+            new LargeIntegerKernel(modulus) {
+                LargeInteger[][] apply(LargeInteger[][] batches) {
+                    LargeInteger[] parts =
+                        LargeInteger.modPowProd(select(batches, bi),
+                                                select(batches, ei),
+                                                modulus);
+                    for (int c = 0; c < res.length; c++) {
+                        res[c] = res[c].mul(parts[c]).mod(modulus);
+                    }
+                    return new LargeInteger[0][];
+                }
+            };
+        unsafeFused(inputs, 0, kernel);
+        return res;
+    }
+
+    /**
+     * Adds the given arrays to the list of inputs unless they are
+     * already contained in the list, and returns the positions of the
+     * arrays in the list. Arrays are compared by reference.
+     *
+     * @param inputs List of distinct input arrays.
+     * @param positions Positions of the arrays in the list.
+     * @param arrays Arrays to be added.
+     * @return Positions of the given arrays in the list.
+     */
+    protected static int[] addInputs(List<LargeIntegerArray> inputs,
+                                     Map<LargeIntegerArray,Integer> positions,
+                                     LargeIntegerArray[] arrays) {
+        int[] res = new int[arrays.length];
+        for (int i = 0; i < arrays.length; i++) {
+            Integer position = positions.get(arrays[i]);
+            if (position == null) {
+                position = Integer.valueOf(inputs.size());
+                positions.put(arrays[i], position);
+                inputs.add(arrays[i]);
+            }
+            res[i] = position.intValue();
+        }
+        return res;
+    }
+
+    /**
+     * Applies the kernel to batches of integers of the given input
+     * arrays in a single interleaved pass.
+     *
+     * @param inputs Input arrays of equal sizes.
+     * @param outputs Number of arrays output by the kernel.
+     * @param kernel Operation applied to each batch.
+     * @return Arrays of integers output by the kernel.
+     * @throws ArithmException If the kernel fails.
+     */
+    protected static LargeIntegerArray[] fused(List<LargeIntegerArray> inputs,
+                                               int outputs,
+                                               LargeIntegerKernel kernel)
+        throws ArithmException {
+        if (inputs.size() == 0) {
+            return new LargeIntegerArray[outputs];
+        }
+        LargeIntegerArray[] arrays =
+            inputs.toArray(new LargeIntegerArray[inputs.size()]);
+        for (int i = 1; i < arrays.length; i++) {
+            if (arrays[i].size() != arrays[0].size()) {
+                throw new ArithmError("Different lengths!");
+            }
+        }
+        return arrays[0].fused(arrays, outputs, kernel);
+    }
+
+    /**
+     * Applies a kernel that never fails to batches of integers of the
+     * given input arrays in a single interleaved pass.
+     *
+     * @param inputs Input arrays of equal sizes.
+     * @param outputs Number of arrays output by the kernel.
+     * @param kernel Operation applied to each batch.
+     * @return Arrays of integers output by the kernel.
+     */
+    protected static LargeIntegerArray[]
+        unsafeFused(List<LargeIntegerArray> inputs,
+                    int outputs,
+                    LargeIntegerKernel kernel) {
+        try {
+            return fused(inputs, outputs, kernel);
+        } catch (ArithmException ae) {
+            throw new ArithmError("This is a bug!", ae);
+        }
+    }
+
     /**
      * Returns an iterator over the integers of this array.
      *
@@ -427,6 +644,25 @@ public abstract class LargeIntegerArray implements ByteTreeConvertible {
      */
     public abstract void free();
 
+    /**
+     * Applies the kernel to batches of integers read at the same
+     * indices of the given arrays, and returns arrays containing the
+     * batches of integers output by the kernel. A batch is read from
+     * every input array before the kernel is invoked, i.e., all
+     * arrays are processed in a single interleaved pass.
+     *
+     * @param arrays Input arrays of equal sizes of the same class as
+     * this instance, where the first array is this instance.
+     * @param outputs Number of arrays output by the kernel.
+     * @param kernel Operation applied to each batch.
+     * @return Arrays of integers output by the kernel.
+     * @throws ArithmException If the kernel fails.
+     */
+    protected abstract LargeIntegerArray[] fused(LargeIntegerArray[] arrays,
+                                                 int outputs,
+                                                 LargeIntegerKernel kernel)
+        throws ArithmException;
+
 
     // Implemented in terms of the above.
 
@@ -575,4 +811,4 @@ public abstract class LargeIntegerArray implements ByteTreeConvertible {
 
         return res;
     }
-}
\ No newline at end of file
+}
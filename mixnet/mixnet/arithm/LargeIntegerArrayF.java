@@ -162,10 +162,16 @@ public class LargeIntegerArrayF extends LargeIntegerArray {
     LargeIntegerArrayF(int size, int bitLength, RandomSource randomSource) {
         this(size);
 
+        // Generate the integers in batches to allow parallel
+        // generation.
         ByteTreeWriterF btw = getWriter();
-        for (int i = 0; i < size; i++) {
-            LargeInteger li = new LargeInteger(bitLength, randomSource);
-            btw.unsafeWrite(li);
+        int remaining = size;
+        while (remaining > 0) {
+
+            int len = Math.min(batchSize, remaining);
+            btw.unsafeWrite(LargeInteger.random(len, bitLength,
+                                                randomSource));
+            remaining -= len;
         }
         btw.close();
     }
@@ -412,6 +418,33 @@ public class LargeIntegerArrayF extends LargeIntegerArray {
             throw new ArithmError("Wrong size!");
         }
 
+        LargeIntegerArrayF res = new LargeIntegerArrayF(size);
+        try {
+            permutation.permute(file, res.file);
+        } catch (EIOException eioe) {
+            throw new ArithmError("Unable to permute array!", eioe);
+        } catch (IOException ioe) {
+            throw new ArithmError("Unable to permute array!", ioe);
+        }
+        res.expectedByteLength = expectedByteLength;
+        return res;
+    }
+
+    /**
+     * Permutes this instance by sorting a text file of hexadecimal
+     * encoded integers. This is slower than {@link
+     * #permute(Permutation)}, which gives an identical result, and is
+     * only kept for comparison.
+     *
+     * @param permutation Permutation to apply.
+     * @return Permuted array.
+     */
+    public LargeIntegerArray permuteText(Permutation permutation) {
+
+        if (size != permutation.size()) {
+            throw new ArithmError("Wrong size!");
+        }
+
         LargeIntegerIterator lii = getIterator();
 
         File fileIn = TempFile.getFile();
@@ -809,4 +842,56 @@ public class LargeIntegerArrayF extends LargeIntegerArray {
     public void free() {
         file.delete();
     }
+
+    protected LargeIntegerArray[] fused(LargeIntegerArray[] arrays,
+                                        int outputs,
+                                        LargeIntegerKernel kernel)
+        throws ArithmException {
+
+        // Keep the total number of integers in memory bounded.
+        int len = Math.max(1, batchSize / arrays.length);
+
+        ByteTreeReader[] btrs = new ByteTreeReader[arrays.length];
+        for (int i = 0; i < arrays.length; i++) {
+            btrs[i] = ((LargeIntegerArrayF)arrays[i]).getReader();
+        }
+        LargeIntegerArrayF[] res = new LargeIntegerArrayF[outputs];
+        ByteTreeWriterF[] btws = new ByteTreeWriterF[outputs];
+        for (int i = 0; i < outputs; i++) {
+            res[i] = new LargeIntegerArrayF(size);
+            btws[i] = res[i].getWriter();
+        }
+
+        try {
+
+            LargeInteger[][] batches = new LargeInteger[arrays.length][];
+            for (int j = 0; j < size; j += len) {
+
+                int batchLen = Math.min(len, size - j);
+                for (int i = 0; i < arrays.length; i++) {
+                    batches[i] = readBatch(batchLen, btrs[i]);
+                }
+
+                LargeInteger[][] integers = kernel.apply(batches);
+                for (int i = 0; i < outputs; i++) {
+                    btws[i].unsafeWrite(integers[i]);
+                }
+            }
+
+        } catch (ArithmException ae) {
+            for (int i = 0; i < outputs; i++) {
+                btws[i].close();
+                res[i].free();
+            }
+            throw ae;
+        } finally {
+            for (int i = 0; i < arrays.length; i++) {
+                btrs[i].close();
+            }
+        }
+        for (int i = 0; i < outputs; i++) {
+            btws[i].close();
+        }
+        return res;
+    }
 }
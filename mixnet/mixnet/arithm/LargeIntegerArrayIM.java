@@ -284,6 +284,23 @@ public class LargeIntegerArrayIM extends LargeIntegerArray {
         li = null;
     }
 
+    protected LargeIntegerArray[] fused(LargeIntegerArray[] arrays,
+                                        int outputs,
+                                        LargeIntegerKernel kernel)
+        throws ArithmException {
+        LargeInteger[][] batches = new LargeInteger[arrays.length][];
+        for (int i = 0; i < arrays.length; i++) {
+            batches[i] = ((LargeIntegerArrayIM)arrays[i]).li;
+        }
+        LargeInteger[][] integers = kernel.apply(batches);
+
+        LargeIntegerArray[] res = new LargeIntegerArray[outputs];
+        for (int i = 0; i < outputs; i++) {
+            res[i] = new LargeIntegerArrayIM(integers[i]);
+        }
+        return res;
+    }
+
     public int compareTo(LargeIntegerArray array) {
 	return LargeInteger.compareTo(li, ((LargeIntegerArrayIM)array).li);
     }
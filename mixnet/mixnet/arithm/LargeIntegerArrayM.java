@@ -0,0 +1,996 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.arithm;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import mixnet.crypto.*;
+import mixnet.eio.*;
+import mixnet.util.*;
+
+/**
+ * Huge array of integers stored as fixed-width records in a
+ * memory-mapped file. Each integer is stored in two's complement,
+ * sign-extended to the width of the records of the array. This gives
+ * random access in constant time, which allows the integers of an
+ * array to be read and written in parallel, and ranges to be shared
+ * between arrays without copying.
+ *
+ * @author Douglas Wikstrom
+ */
+public class LargeIntegerArrayM extends LargeIntegerArray {
+
+    /**
+     * Default number of integers processed in each batch.
+     */
+    public final static int DEFAULT_BATCH_SIZE = 100000;
+
+    /**
+     * Number of integers below which records are read and written by
+     * a single thread.
+     */
+    public final static int THREAD_THRESHOLD = 1024;
+
+    /**
+     * Underlying records. These may be shared with other instances.
+     */
+    protected MappedRecords records;
+
+    /**
+     * Index of the first record of this instance.
+     */
+    protected int offset;
+
+    /**
+     * Number of elements in this instance.
+     */
+    protected int size;
+
+    /**
+     * Number of elements processed in each batch.
+     */
+    public int batchSize;
+
+    /**
+     * File holding a byte tree representation of this instance, or
+     * <code>null</code> if no such representation has been
+     * requested.
+     */
+    protected File byteTreeFile;
+
+    /**
+     * Expected byte length of the representation stored in {@link
+     * #byteTreeFile}, or zero if the representation is not of fixed
+     * size.
+     */
+    protected int byteTreeLength;
+
+    /**
+     * Creates an instance with the given number of records of the
+     * given width. It is the responsibility of the programmer to fill
+     * this instance with data.
+     *
+     * @param size Number of elements in array.
+     * @param width Number of bytes in each record.
+     */
+    protected LargeIntegerArrayM(int size, int width) {
+        this(new MappedRecords(size, width), 0, size);
+    }
+
+    /**
+     * Creates an instance viewing the given range of the given
+     * records. The caller must hold a reference to the records which
+     * is transferred to this instance.
+     *
+     * @param records Underlying records.
+     * @param offset Index of first record.
+     * @param size Number of elements in array.
+     */
+    protected LargeIntegerArrayM(MappedRecords records, int offset, int size) {
+        this.records = records;
+        this.offset = offset;
+        this.size = size;
+        this.batchSize = DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Constructs an instance with the given integers.
+     *
+     * @param integers Integers of this instance.
+     */
+    LargeIntegerArrayM(LargeInteger[] integers) {
+        this(integers.length, width(integers));
+        write(0, integers);
+    }
+
+    /**
+     * Constructs the concatenation of the given inputs.
+     *
+     * @param arrays Source arrays.
+     */
+    LargeIntegerArrayM(LargeIntegerArray ... arrays) {
+        this(LargeIntegerArrayF.totalSize(arrays), width(arrays));
+
+        int index = 0;
+        for (int i = 0; i < arrays.length; i++) {
+            LargeIntegerArrayM array = (LargeIntegerArrayM)arrays[i];
+            array.copyTo(0, this, index, array.size);
+            index += array.size;
+        }
+    }
+
+    /**
+     * Constructs an array of random integers.
+     *
+     * @param size Number of integers to generate.
+     * @param bitLength Number of bits in each integer.
+     * @param randomSource Source of random bits used to initialize
+     * the array.
+     */
+    LargeIntegerArrayM(int size, int bitLength, RandomSource randomSource) {
+        this(size, bitLength / 8 + 1);
+
+        for (int i = 0; i < size; i += batchSize) {
+            int len = Math.min(batchSize, size - i);
+            write(i, LargeInteger.random(len, bitLength, randomSource));
+        }
+    }
+
+    /**
+     * Constructs an array of random integers.
+     *
+     * @param size Number of integers to generate.
+     * @param modulus Modulus.
+     * @param statDist Decides the statistical distance from the
+     * uniform distribution.
+     * @param randomSource Source of random bits used to initialize
+     * the array.
+     */
+    LargeIntegerArrayM(int size, LargeInteger modulus, int statDist,
+                       RandomSource randomSource) {
+        this(size, width(modulus));
+
+        for (int i = 0; i < size; i += batchSize) {
+            int len = Math.min(batchSize, size - i);
+            write(i, LargeInteger.random(len, modulus, statDist,
+                                         randomSource));
+        }
+    }
+
+    /**
+     * Constructs an array containing copies of a value.
+     *
+     * @param size Number of elements in this instance.
+     * @param value Value used to initialize this instance.
+     */
+    LargeIntegerArrayM(int size, LargeInteger value) {
+        this(size, width(value));
+
+        byte[] record = new byte[records.width];
+        encode(value, record);
+        for (int i = 0; i < size; i++) {
+            records.write(i, record);
+        }
+    }
+
+    /**
+     * Returns the array of integers represented by the input. This
+     * constructor requires that each integer falls into the given
+     * interval, but also that the representation of each integer is
+     * of equal size to the byte tree representation of the upper
+     * bound.
+     *
+     * @param size Expected number of elements in array.
+     * @param btr Should contain a representation of an array of
+     * integers.
+     * @param lb Non-negative inclusive lower bound for integers.
+     * @param ub Positive exclusive upper bound for integers.
+     *
+     * @throws ArithmFormatException If the input does not represent a
+     * an array of integers satisfying the given bounds.
+     */
+    LargeIntegerArrayM(int size, ByteTreeReader btr,
+                       LargeInteger lb, LargeInteger ub)
+        throws IOException, EIOException, ArithmFormatException {
+
+        // It is important to not mix up size and this.size, since the
+        // former may be zero when the latter is not.
+        this(LargeIntegerArrayF.zeroMapped(size, btr.getRemaining()),
+             width(ub));
+
+        if (size != 0 && btr.getRemaining() != size) {
+            free();
+            throw new ArithmFormatException("Unexpected number of integers!");
+        }
+
+        int expectedByteLength = records.width;
+
+        try {
+            for (int i = 0; i < this.size; i += batchSize) {
+
+                int len = Math.min(batchSize, this.size - i);
+
+                LargeInteger[] integers = new LargeInteger[len];
+                for (int l = 0; l < len; l++) {
+
+                    integers[l] = new LargeInteger(expectedByteLength,
+                                                   btr.getNextChild(),
+                                                   null);
+
+                    if (lb.compareTo(integers[l]) > 0
+                        || integers[l].compareTo(ub) >= 0) {
+                        throw new ArithmFormatException("Integer outside " +
+                                                        "interval!");
+                    }
+                }
+                write(i, integers);
+            }
+        } catch (ArithmFormatException afe) {
+            free();
+            throw afe;
+        } catch (EIOException eioe) {
+            free();
+            throw eioe;
+        }
+    }
+
+    /**
+     * Returns the number of bytes needed to store the given integer
+     * in two's complement.
+     *
+     * @param integer Integer.
+     * @return Number of bytes needed.
+     */
+    protected static int width(LargeInteger integer) {
+        return integer.toByteArray().length;
+    }
+
+    /**
+     * Returns the number of bytes needed to store any of the given
+     * integers in two's complement.
+     *
+     * @param integers Integers.
+     * @return Number of bytes needed.
+     */
+    protected static int width(LargeInteger[] integers) {
+        int width = 1;
+        for (int i = 0; i < integers.length; i++) {
+            width = Math.max(width, width(integers[i]));
+        }
+        return width;
+    }
+
+    /**
+     * Returns the largest record width of the given arrays.
+     *
+     * @param arrays Arrays.
+     * @return Largest record width.
+     */
+    protected static int width(LargeIntegerArray ... arrays) {
+        int width = 1;
+        for (int i = 0; i < arrays.length; i++) {
+            width = Math.max(width,
+                             ((LargeIntegerArrayM)arrays[i]).records.width);
+        }
+        return width;
+    }
+
+    /**
+     * Writes the given integer sign-extended into the given record.
+     *
+     * @param integer Integer to encode.
+     * @param record Destination of encoding.
+     */
+    protected static void encode(LargeInteger integer, byte[] record) {
+        byte[] tmp = integer.toByteArray();
+        if (tmp.length > record.length) {
+            throw new ArithmError("Integer does not fit in record!");
+        }
+        int pad = record.length - tmp.length;
+        Arrays.fill(record, 0, pad, tmp[0] < 0 ? (byte)0xFF : 0);
+        System.arraycopy(tmp, 0, record, pad, tmp.length);
+    }
+
+    /**
+     * Returns the index of the first byte of the shortest two's
+     * complement representation contained in the given record.
+     *
+     * @param record Record.
+     * @return Index of first significant byte.
+     */
+    protected static int significantStart(byte[] record) {
+        int start = 0;
+        while (start < record.length - 1
+               && (record[start] == 0 && record[start + 1] >= 0
+                   || record[start] == (byte)0xFF && record[start + 1] < 0)) {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Reads the given number of integers starting at the given index.
+     *
+     * @param index Index of first integer.
+     * @param len Number of integers to read.
+     * @return Array of integers.
+     */
+    protected LargeInteger[] read(final int index, int len) {
+        final LargeInteger[] res = new LargeInteger[len];
+
+        ArrayWorker worker = new ArrayWorker(len) {
+                public void work(int start, int end) {
+                    byte[] record = new byte[records.width];
+                    for (int i = start; i < end; i++) {
+                        records.read(offset + index + i, record);
+                        res[i] = new LargeInteger(record);
+                    }
+                }
+            };
+        worker.work(THREAD_THRESHOLD);
+
+        return res;
+    }
+
+    /**
+     * Writes the given integers starting at the given index.
+     *
+     * @param index Index of first integer.
+     * @param integers Integers to write.
+     */
+    protected void write(final int index, final LargeInteger[] integers) {
+        ArrayWorker worker = new ArrayWorker(integers.length) {
+                public void work(int start, int end) {
+                    byte[] record = new byte[records.width];
+                    for (int i = start; i < end; i++) {
+                        encode(integers[i], record);
+                        records.write(offset + index + i, record);
+                    }
+                }
+            };
+        worker.work(THREAD_THRESHOLD);
+    }
+
+    /**
+     * Copies records from this instance to the destination, changing
+     * the width of the records if needed.
+     *
+     * @param index Index of first integer in this instance.
+     * @param dest Destination array.
+     * @param destIndex Index of first integer in destination.
+     * @param len Number of integers to copy.
+     */
+    protected void copyTo(final int index, final LargeIntegerArrayM dest,
+                          final int destIndex, int len) {
+
+        ArrayWorker worker = new ArrayWorker(len) {
+                public void work(int start, int end) {
+                    byte[] record = new byte[records.width];
+                    byte[] destRecord = new byte[dest.records.width];
+                    for (int i = start; i < end; i++) {
+                        records.read(offset + index + i, record);
+                        if (record.length == destRecord.length) {
+                            dest.records.write(dest.offset + destIndex + i,
+                                               record);
+                        } else {
+                            encode(new LargeInteger(record), destRecord);
+                            dest.records.write(dest.offset + destIndex + i,
+                                               destRecord);
+                        }
+                    }
+                }
+            };
+        worker.work(THREAD_THRESHOLD);
+    }
+
+    /**
+     * Returns the underlying array of the given array, which must be
+     * of this class and of the same size as this instance.
+     *
+     * @param array Array.
+     * @return Input cast to this class.
+     */
+    protected LargeIntegerArrayM sameSize(LargeIntegerArray array) {
+        if (size != array.size()) {
+            throw new ArithmError("Different lengths!");
+        }
+        return (LargeIntegerArrayM)array;
+    }
+
+    /**
+     * Returns a new instance of the given size with records wide
+     * enough to hold integers reduced modulo the given modulus.
+     *
+     * @param size Number of integers.
+     * @param modulus Modulus.
+     * @return Array of the given size.
+     */
+    protected static LargeIntegerArrayM modArray(int size,
+                                                 LargeInteger modulus) {
+        return new LargeIntegerArrayM(size, width(modulus));
+    }
+
+    /**
+     * Writes a byte tree representing this instance to the given
+     * file. If the expected byte length is zero, then each integer is
+     * represented by its shortest representation.
+     *
+     * @param file Destination file.
+     * @param expectedByteLength Number of bytes in the representation
+     * of each integer, or zero.
+     *
+     * @throws IOException If an I/O error occurs.
+     * @throws ArithmError If an integer does not fit in the expected
+     * number of bytes.
+     */
+    protected void writeByteTree(File file, int expectedByteLength)
+        throws IOException {
+
+        DataOutputStream dos = null;
+        try {
+            dos = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), ExtPermutation.BUFFER_SIZE));
+
+            dos.writeByte(ByteTreeBasic.NODE);
+            dos.writeInt(size);
+
+            byte[] record = new byte[records.width];
+            for (int i = 0; i < size; i++) {
+
+                records.read(offset + i, record);
+
+                if (expectedByteLength == 0) {
+
+                    int start = significantStart(record);
+                    dos.writeByte(ByteTreeBasic.LEAF);
+                    dos.writeInt(record.length - start);
+                    dos.write(record, start, record.length - start);
+
+                } else {
+
+                    dos.writeByte(ByteTreeBasic.LEAF);
+                    dos.writeInt(expectedByteLength);
+
+                    int diff = expectedByteLength - record.length;
+                    if (diff >= 0) {
+                        byte pad = record[0] < 0 ? (byte)0xFF : 0;
+                        for (int l = 0; l < diff; l++) {
+                            dos.writeByte(pad);
+                        }
+                        dos.write(record);
+                    } else if (significantStart(record) >= -diff) {
+                        dos.write(record, -diff, expectedByteLength);
+                    } else {
+                        throw new ArithmError("Integer does not fit in "
+                                              + "expected byte length!");
+                    }
+                }
+            }
+        } finally {
+            ExtIO.strictClose(dos);
+        }
+    }
+
+    // Documented in LargeIntegerArray.java
+
+    public LargeIntegerIterator getIterator() {
+        return new LargeIntegerIteratorM(this);
+    }
+
+    public LargeIntegerArray modInv(LargeInteger modulus)
+        throws ArithmException {
+
+        LargeIntegerArrayM res = modArray(size, modulus);
+        try {
+            for (int i = 0; i < size; i += batchSize) {
+                int len = Math.min(batchSize, size - i);
+                res.write(i, LargeInteger.modInv(read(i, len), modulus));
+            }
+        } catch (ArithmException ae) {
+            res.free();
+            throw ae;
+        }
+        return res;
+    }
+
+    public LargeIntegerArray copyOfRange(int startIndex, int endIndex) {
+        if (startIndex < 0 || endIndex > size || endIndex < startIndex) {
+            throw new ArithmError("Illegal range!");
+        }
+        records.retain();
+        return new LargeIntegerArrayM(records,
+                                      offset + startIndex,
+                                      endIndex - startIndex);
+    }
+
+    public LargeInteger[] integers() {
+        return read(0, size);
+    }
+
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof LargeIntegerArrayM)) {
+            return false;
+        }
+        LargeIntegerArrayM array = (LargeIntegerArrayM)obj;
+        return size == array.size && compareTo(array) == 0;
+    }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}.
+     * Integers are compared by value and the records of equal arrays
+     * may have different widths, so only the shortest representation
+     * of each integer is hashed.
+     *
+     * @return Hash code of this instance.
+     */
+    public int hashCode() {
+        int hash = size;
+        byte[] record = new byte[records.width];
+        for (int i = 0; i < size; i++) {
+            records.read(offset + i, record);
+            for (int j = significantStart(record); j < record.length; j++) {
+                hash = 31 * hash + record[j];
+            }
+        }
+        return hash;
+    }
+
+    public LargeIntegerArray extract(boolean[] valid) {
+        if (size != valid.length) {
+            throw new ArithmError("Different lengths!");
+        }
+
+        int total = 0;
+        for (int i = 0; i < valid.length; i++) {
+            if (valid[i]) {
+                total++;
+            }
+        }
+
+        LargeIntegerArrayM res = new LargeIntegerArrayM(total, records.width);
+
+        byte[] record = new byte[records.width];
+        int l = 0;
+        for (int i = 0; i < valid.length; i++) {
+            if (valid[i]) {
+                records.read(offset + i, record);
+                res.records.write(l++, record);
+            }
+        }
+        return res;
+    }
+
+    public LargeIntegerArray permute(final Permutation permutation) {
+
+        if (size != permutation.size()) {
+            throw new ArithmError("Wrong size!");
+        }
+
+        final LargeIntegerArrayM res =
+            new LargeIntegerArrayM(size, records.width);
+
+        ArrayWorker worker = new ArrayWorker(size) {
+                public void work(int start, int end) {
+                    byte[] record = new byte[records.width];
+                    for (int i = start; i < end; i++) {
+                        records.read(offset + i, record);
+                        res.records.write(permutation.map(i), record);
+                    }
+                }
+            };
+        worker.work(THREAD_THRESHOLD);
+
+        return res;
+    }
+
+    public LargeIntegerArray modAdd(LargeIntegerArray termsArray,
+                                    LargeInteger modulus) {
+        LargeIntegerArrayM terms = sameSize(termsArray);
+
+        LargeIntegerArrayM res = modArray(size, modulus);
+        for (int i = 0; i < size; i += batchSize) {
+            int len = Math.min(batchSize, size - i);
+            res.write(i, LargeInteger.modAdd(read(i, len),
+                                             terms.read(i, len),
+                                             modulus));
+        }
+        return res;
+    }
+
+    public LargeIntegerArray modNeg(LargeInteger modulus) {
+
+        LargeIntegerArrayM res = modArray(size, modulus);
+        for (int i = 0; i < size; i += batchSize) {
+            int len = Math.min(batchSize, size - i);
+            res.write(i, LargeInteger.modNeg(read(i, len), modulus));
+        }
+        return res;
+    }
+
+    public LargeIntegerArray modMul(LargeIntegerArray factorsArray,
+                                    LargeInteger modulus) {
+        LargeIntegerArrayM factors = sameSize(factorsArray);
+
+        LargeIntegerArrayM res = modArray(size, modulus);
+        for (int i = 0; i < size; i += batchSize) {
+            int len = Math.min(batchSize, size - i);
+            res.write(i, LargeInteger.modMul(read(i, len),
+                                             factors.read(i, len),
+                                             modulus));
+        }
+        return res;
+    }
+
+    public LargeIntegerArray modMul(LargeInteger scalar, LargeInteger modulus) {
+
+        LargeIntegerArrayM res = modArray(size, modulus);
+        for (int i = 0; i < size; i += batchSize) {
+            int len = Math.min(batchSize, size - i);
+            res.write(i, LargeInteger.modMul(read(i, len), scalar, modulus));
+        }
+        return res;
+    }
+
+    public LargeIntegerArray modPow(LargeIntegerArray exponentsArray,
+                                    LargeInteger modulus) {
+        LargeIntegerArrayM exponents = sameSize(exponentsArray);
+
+        LargeIntegerArrayM res = modArray(size, modulus);
+        for (int i = 0; i < size; i += batchSize) {
+            int len = Math.min(batchSize, size - i);
+            res.write(i, LargeInteger.modPow(read(i, len),
+                                             exponents.read(i, len),
+                                             modulus));
+        }
+        return res;
+    }
+
+    public LargeIntegerArray modPow(LargeInteger exponent,
+                                    LargeInteger modulus) {
+
+        LargeIntegerArrayM res = modArray(size, modulus);
+        for (int i = 0; i < size; i += batchSize) {
+            int len = Math.min(batchSize, size - i);
+            res.write(i, LargeInteger.modPow(read(i, len), exponent, modulus));
+        }
+        return res;
+    }
+
+    public LargeIntegerArray modPowVariant(LargeInteger basis,
+                                           LargeInteger modulus) {
+
+        LargeIntegerArrayM res = modArray(size, modulus);
+        for (int i = 0; i < size; i += batchSize) {
+            int len = Math.min(batchSize, size - i);
+            res.write(i, basis.modPow(read(i, len), modulus));
+        }
+        return res;
+    }
+
+    public LargeInteger modPowProd(LargeIntegerArray exponentsArray,
+                                   LargeInteger modulus) {
+        LargeIntegerArrayM exponents = sameSize(exponentsArray);
+
+        LargeInteger res = LargeInteger.ONE;
+        for (int i = 0; i < size; i += batchSize) {
+            int len = Math.min(batchSize, size - i);
+            LargeInteger part = LargeInteger.modPowProd(read(i, len),
+                                                        exponents.read(i, len),
+                                                        modulus);
+            res = res.mul(part).mod(modulus);
+        }
+        return res;
+    }
+
+    public LargeIntegerArray modProds(LargeInteger modulus) {
+
+        LargeIntegerArrayM res = modArray(size, modulus);
+
+        LargeInteger agg = LargeInteger.ONE;
+        for (int i = 0; i < size; i += batchSize) {
+            int len = Math.min(batchSize, size - i);
+            LargeInteger[] tmp = LargeInteger.modProds(agg, read(i, len),
+                                                       modulus);
+            agg = tmp[tmp.length - 1];
+            res.write(i, tmp);
+        }
+        return res;
+    }
+
+    public LargeInteger get(int index) {
+        if (index < 0 || index >= size) {
+            throw new ArithmError("Index out of bounds!");
+        }
+        byte[] record = new byte[records.width];
+        records.read(offset + index, record);
+        return new LargeInteger(record);
+    }
+
+    public LargeIntegerArray shiftPush(LargeInteger integer) {
+
+        LargeIntegerArrayM res =
+            new LargeIntegerArrayM(size, Math.max(records.width,
+                                                  width(integer)));
+        res.write(0, new LargeInteger[] {integer});
+        copyTo(0, res, 1, size - 1);
+
+        return res;
+    }
+
+    public Pair<LargeIntegerArray,LargeInteger>
+        modRecLin(LargeIntegerArray array, LargeInteger modulus) {
+        LargeIntegerArrayM arrayM = sameSize(array);
+
+        LargeIntegerArrayM res = modArray(size, modulus);
+
+        LargeInteger agg = LargeInteger.ZERO;
+        for (int i = 0; i < size; i += batchSize) {
+            int len = Math.min(batchSize, size - i);
+
+            LargeInteger[] integers1 = read(i, len);
+            LargeInteger[] integers2 = arrayM.read(i, len);
+
+            LargeInteger[] tmp = new LargeInteger[len];
+            for (int l = 0; l < len; l++) {
+                agg = agg.mul(integers2[l]).add(integers1[l]).mod(modulus);
+                tmp[l] = agg;
+            }
+            res.write(i, tmp);
+        }
+        return new Pair<LargeIntegerArray, LargeInteger>(res, agg);
+    }
+
+    public ByteTreeBasic toByteTree() {
+        return toByteTreeAux(0);
+    }
+
+    public ByteTreeBasic toByteTree(int expectedByteLength) {
+        return toByteTreeAux(expectedByteLength);
+    }
+
+    /**
+     * Returns a file based representation of this instance, where
+     * the number of bytes of each integer is fixed unless the input
+     * is zero. The representation is cached until {@link #free()} is
+     * called.
+     *
+     * @param expectedByteLength Number of bytes in the representation
+     * of each integer, or zero.
+     * @return Representation of this instance.
+     */
+    protected synchronized ByteTreeBasic toByteTreeAux(int expectedByteLength) {
+        if (byteTreeFile == null || byteTreeLength != expectedByteLength) {
+            if (byteTreeFile != null) {
+                byteTreeFile.delete();
+            }
+            byteTreeFile = null;
+
+            // The representation is only cached if it is complete.
+            File file = TempFile.getFile();
+            try {
+                writeByteTree(file, expectedByteLength);
+            } catch (IOException ioe) {
+                file.delete();
+                throw new ArithmError("Unable to write representation!", ioe);
+            } catch (ArithmError ae) {
+                file.delete();
+                throw ae;
+            }
+            byteTreeFile = file;
+            byteTreeLength = expectedByteLength;
+        }
+        return new ByteTreeF(byteTreeFile);
+    }
+
+    public boolean quadraticResidues(LargeInteger prime) {
+
+        boolean res = true;
+        for (int i = 0; res && i < size; i += batchSize) {
+            int len = Math.min(batchSize, size - i);
+            res = LargeInteger.quadraticResidues(read(i, len), prime);
+        }
+        return res;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public synchronized void free() {
+        if (records != null) {
+            records.release();
+            records = null;
+        }
+        if (byteTreeFile != null) {
+            byteTreeFile.delete();
+            byteTreeFile = null;
+        }
+    }
+
+    protected LargeIntegerArray[] fused(LargeIntegerArray[] arrays,
+                                        int outputs,
+                                        LargeIntegerKernel kernel)
+        throws ArithmException {
+
+        // Keep the total number of integers in memory bounded.
+        int len = Math.max(1, batchSize / arrays.length);
+
+        LargeIntegerArrayM[] inputs = new LargeIntegerArrayM[arrays.length];
+        for (int i = 0; i < arrays.length; i++) {
+            inputs[i] = sameSize(arrays[i]);
+        }
+        LargeIntegerArrayM[] res = new LargeIntegerArrayM[outputs];
+        for (int i = 0; i < outputs; i++) {
+            res[i] = modArray(size, kernel.modulus);
+        }
+
+        try {
+
+            LargeInteger[][] batches = new LargeInteger[arrays.length][];
+            for (int j = 0; j < size; j += len) {
+
+                int batchLen = Math.min(len, size - j);
+                for (int i = 0; i < arrays.length; i++) {
+                    batches[i] = inputs[i].read(j, batchLen);
+                }
+
+                LargeInteger[][] integers = kernel.apply(batches);
+                for (int i = 0; i < outputs; i++) {
+                    res[i].write(j, integers[i]);
+                }
+            }
+
+        } catch (ArithmException ae) {
+            for (int i = 0; i < outputs; i++) {
+                res[i].free();
+            }
+            throw ae;
+        }
+        return res;
+    }
+}
+
+/**
+ * Fixed-width records stored in a memory-mapped file. The file is
+ * mapped in several parts, since a single mapping is limited to
+ * less than two gigabytes. The records can be read and written
+ * concurrently by multiple threads. The file is deleted when the
+ * last reference is released.
+ */
+class MappedRecords {
+
+    /**
+     * Maximal number of bytes in each mapped part of the file.
+     */
+    final static int MAX_PART_BYTE_SIZE = 1 << 30;
+
+    /**
+     * Underlying file.
+     */
+    File file;
+
+    /**
+     * Number of bytes in each record.
+     */
+    final int width;
+
+    /**
+     * Number of records in each mapped part.
+     */
+    final int perPart;
+
+    /**
+     * Mapped parts of the file.
+     */
+    final MappedByteBuffer[] parts;
+
+    /**
+     * Number of instances referencing these records.
+     */
+    int references;
+
+    /**
+     * Creates the given number of zeroed records of the given width
+     * in a new temporary file.
+     *
+     * @param size Number of records.
+     * @param width Number of bytes in each record.
+     */
+    MappedRecords(int size, int width) {
+        this.file = TempFile.getFile();
+        this.width = Math.max(1, width);
+        this.perPart = Math.max(1, MAX_PART_BYTE_SIZE / this.width);
+        this.parts = new MappedByteBuffer[(size + perPart - 1) / perPart];
+        this.references = 1;
+
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength((long)size * this.width);
+            FileChannel fc = raf.getChannel();
+
+            for (int p = 0; p < parts.length; p++) {
+                long position = (long)p * perPart * this.width;
+                long length = (long)Math.min(perPart, size - p * perPart)
+                    * this.width;
+                parts[p] =
+                    fc.map(FileChannel.MapMode.READ_WRITE, position, length);
+            }
+        } catch (IOException ioe) {
+            file.delete();
+            throw new ArithmError("Unable to map file!", ioe);
+        } finally {
+            ExtIO.strictClose(raf);
+        }
+    }
+
+    /**
+     * Reads the record at the given index.
+     *
+     * @param index Index of record.
+     * @param record Destination of record.
+     */
+    void read(int index, byte[] record) {
+        ByteBuffer bb = parts[index / perPart].duplicate();
+        bb.position((index % perPart) * width);
+        bb.get(record, 0, width);
+    }
+
+    /**
+     * Writes the record at the given index.
+     *
+     * @param index Index of record.
+     * @param record Source of record.
+     */
+    void write(int index, byte[] record) {
+        ByteBuffer bb = parts[index / perPart].duplicate();
+        bb.position((index % perPart) * width);
+        bb.put(record, 0, width);
+    }
+
+    /**
+     * Adds a reference to these records.
+     */
+    synchronized void retain() {
+        references++;
+    }
+
+    /**
+     * Removes a reference to these records and deletes the underlying
+     * file if there are no references left. Java provides no way to
+     * unmap a file explicitly, so we only drop our references to the
+     * mapped parts and the mapping is released when they are garbage
+     * collected. The records must not be accessed after this.
+     */
+    synchronized void release() {
+        references--;
+        if (references == 0) {
+            Arrays.fill(parts, null);
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.arithm;
+
+import java.io.*;
+
+import mixnet.crypto.*;
+import mixnet.eio.*;
+
+/**
+ * Wrapper for {@link LargeIntegerArrayM}.
+ *
+ * @author Douglas Wikstrom
+ */
+public class LargeIntegerArrayWrapperM extends LargeIntegerArrayWrapper {
+
+    public LargeIntegerArray create(LargeInteger[] integers) {
+        return new LargeIntegerArrayM(integers);
+    }
+
+    public LargeIntegerArray create(LargeIntegerArray ... arrays) {
+        return new LargeIntegerArrayM(arrays);
+    }
+
+    public LargeIntegerArray create(int size,
+                                    ByteTreeReader btr,
+                                    LargeInteger lb,
+                                    LargeInteger ub)
+        throws IOException, EIOException, ArithmFormatException {
+        return new LargeIntegerArrayM(size, btr, lb, ub);
+    }
+
+    public LargeIntegerArray create(int size,
+                                    LargeInteger modulus,
+                                    int statDist,
+                                    RandomSource randomSource) {
+        return new LargeIntegerArrayM(size, modulus, statDist, randomSource);
+    }
+
+    public LargeIntegerArray create(int size,
+                                    int bitLength,
+                                    RandomSource randomSource) {
+        return new LargeIntegerArrayM(size, bitLength, randomSource);
+    }
+
+    public LargeIntegerArray create(int size, LargeInteger value) {
+        return new LargeIntegerArrayM(size, value);
+    }
+}
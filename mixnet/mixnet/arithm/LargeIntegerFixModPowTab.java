@@ -75,16 +75,16 @@ public class LargeIntegerFixModPowTab {
             oldCost = cost;
 
             // Amortized cost for table.
-            double t = ((1 << width) - width + bitLength) / size;
+            double t = ((1 << width) - width + bitLength) / (double)size;
 
             // Cost for multiplication.
-            double m = (bitLength / width);
+            double m = bitLength / (double)width;
 
             cost = t + m;
 
             width++;
 
-        } while (cost < oldCost);
+        } while (width < 31 && cost < oldCost);
 
         // We reduce the theoretical value by one to account for the
         // overhead.
@@ -128,6 +128,30 @@ public class LargeIntegerFixModPowTab {
 
         return new LargeInteger(tab.fpowm(integer.value));
 
+// Enabled calls to native code ends here
+
+    }
+
+    /**
+     * Compute powers using the given part of an array of integers
+     * and store the results in the same part of the destination
+     * array.
+     *
+     * @param integers Integer exponents.
+     * @param destination Destination of results.
+     * @param start Index of first exponent.
+     * @param end Index following the last exponent.
+     */
+    public void modPow(LargeInteger[] integers, LargeInteger[] destination,
+                       int start, int end) {
+
+// Removed pure java code here.
+// Enabled calls to native code begins here.
+
+        // One native call for the whole part.
+        LargeInteger.wrap(tab.fpowm(LargeInteger.values(integers, start, end)),
+                          destination, start);
+
 // Enabled calls to native code ends here
 
     }
@@ -0,0 +1,68 @@
+
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.arithm;
+
+/**
+ * Iterator over a {@link LargeIntegerArrayM}. Since the records of
+ * the array can be accessed directly, no resources are held by the
+ * iterator.
+ *
+ * @author Douglas Wikstrom
+ */
+public class LargeIntegerIteratorM implements LargeIntegerIterator {
+
+    /**
+     * Current index.
+     */
+    protected int current;
+
+    /**
+     * Underlying array.
+     */
+    protected LargeIntegerArrayM array;
+
+    /**
+     * Creates an iterator reading from the given array.
+     *
+     * @param array Underlying array.
+     */
+    public LargeIntegerIteratorM(LargeIntegerArrayM array) {
+        this.array = array;
+        this.current = 0;
+    }
+
+    // Documented in LargeIntegerIterator.java
+
+    public LargeInteger next() {
+        if (current < array.size()) {
+            return array.get(current++);
+        } else {
+            return null;
+        }
+    }
+
+    public boolean hasNext() {
+        return current < array.size();
+    }
+
+    public void close() {}
+}
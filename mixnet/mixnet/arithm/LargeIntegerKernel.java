@@ -0,0 +1,73 @@
+
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.arithm;
+
+/**
+ * Operation applied to batches of integers at the same indices of
+ * several arrays by {@link
+ * LargeIntegerArray#fused(LargeIntegerArray[],int,LargeIntegerKernel)}.
+ *
+ * @author Douglas Wikstrom
+ */
+abstract class LargeIntegerKernel {
+
+    /**
+     * Modulus bounding the integers output by this kernel.
+     */
+    final LargeInteger modulus;
+
+    /**
+     * Creates a kernel that outputs integers bounded by the given
+     * modulus.
+     *
+     * @param modulus Modulus bounding the output integers.
+     */
+    LargeIntegerKernel(LargeInteger modulus) {
+        this.modulus = modulus;
+    }
+
+    /**
+     * Returns the batches of the given indices.
+     *
+     * @param batches Batches of integers.
+     * @param indices Indices of batches.
+     * @return Selected batches.
+     */
+    static LargeInteger[][] select(LargeInteger[][] batches, int[] indices) {
+        LargeInteger[][] res = new LargeInteger[indices.length][];
+        for (int i = 0; i < indices.length; i++) {
+            res[i] = batches[indices[i]];
+        }
+        return res;
+    }
+
+    /**
+     * Applies this kernel to batches of integers at the same indices
+     * of the input arrays.
+     *
+     * @param batches Batches of integers of equal lengths.
+     * @return Batches of output integers of the same lengths.
+     * @throws ArithmException If the operation fails.
+     */
+    abstract LargeInteger[][] apply(LargeInteger[][] batches)
+        throws ArithmException;
+}
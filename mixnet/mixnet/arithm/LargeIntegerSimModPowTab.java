@@ -71,7 +71,7 @@ public class LargeIntegerSimModPowTab {
 
             width++;
             int widthExp = 1 << width;
-            cost = (widthExp + (2 - 1 / widthExp) * bitLength) / width;
+            cost = (widthExp + (2 - 1.0 / widthExp) * bitLength) / width;
 
         } while (cost < oldCost);
 
@@ -120,10 +120,18 @@ public class LargeIntegerSimModPowTab {
     public LargeInteger modPowProd(LargeInteger[] integers, int offset,
                                    int bitLength) {
 
-        // Loop over bits in integers starting at bitLength - 1.
+        // Loop over bits in integers starting at the most
+        // significant bit of the longest exponent used, since this
+        // may be shorter than bitLength, e.g., for short exponents.
         LargeInteger res = LargeInteger.ONE;
+        boolean unit = true;
 
-        for (int i = bitLength - 1; i >= 0; i--) {
+        int maxBitLength = 0;
+        for (int j = offset; j < offset + width; j++) {
+            maxBitLength = Math.max(maxBitLength, integers[j].bitLength());
+        }
+
+        for (int i = Math.min(bitLength, maxBitLength) - 1; i >= 0; i--) {
 
             int I = 0;
 
@@ -137,11 +145,14 @@ public class LargeIntegerSimModPowTab {
                 }
             }
 
-            // Square.
-            res = res.mul(res).mod(modulus);
-
-            // Multiply.
-            res = res.mul(pre[I]).mod(modulus);
+            // Square and multiply, but not the unit.
+            if (!unit) {
+                res = res.mul(res).mod(modulus);
+            }
+            if (I != 0) {
+                res = unit ? pre[I] : res.mul(pre[I]).mod(modulus);
+                unit = false;
+            }
         }
         return res;
     }
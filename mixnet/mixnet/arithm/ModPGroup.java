@@ -75,6 +75,20 @@ public class ModPGroup extends PGroup {
      */
     public final static int MAXIMAL_COGROUP_BITLEN = 10;
 
+    /**
+     * Decides the soundness of batched membership tests of arrays,
+     * i.e., an array containing a non-member is accepted with
+     * probability at most
+     * 2<sup>-<code>MEMBERSHIP_STAT_DIST</code></sup>.
+     */
+    public final static int MEMBERSHIP_STAT_DIST = 100;
+
+    /**
+     * Bound on the odd integers used for trial division when looking
+     * for the smallest odd prime factor of {@link #coOrder}.
+     */
+    protected final static int MEMBERSHIP_TRIAL_BOUND = 1 << 12;
+
     /**
      * Bounds the byte length of a modulus.
      */
@@ -140,6 +154,34 @@ public class ModPGroup extends PGroup {
      */
     protected int encodingAttempts;
 
+    /**
+     * Indicates if Legendre symbols are used to verify that elements
+     * have no component of order two in batched membership tests.
+     */
+    protected boolean membershipLegendre;
+
+    /**
+     * Bit length of the random exponents used in batched membership
+     * tests, or zero if this has not been determined yet.
+     */
+    protected int membershipBitLength;
+
+    /**
+     * Number of independent repetitions of a batched membership test.
+     */
+    protected int membershipRepetitions;
+
+    /**
+     * Indicates if batched membership tests are cheaper than
+     * verifying each element separately.
+     */
+    protected boolean membershipBatched;
+
+    /**
+     * Source of randomness used in batched membership tests.
+     */
+    protected static RandomSource membershipRandomSource;
+
     /**
      * Returns the encoding of this group.
      *
@@ -600,6 +642,210 @@ public class ModPGroup extends PGroup {
         }
     }
 
+    /**
+     * Returns a boolean array that indicates which of the integers
+     * in the input represent group elements. The input must consist
+     * of canonically reduced positive integers, e.g., the output of
+     * {@link LargeIntegerArray#toLargeIntegerArray(int,ByteTreeReader,
+     * LargeInteger,LargeInteger)}.
+     *
+     * <p>
+     *
+     * A random product of the integers is raised to the order of the
+     * group instead of verifying each integer separately, and the
+     * array is bisected to isolate the non-members when this test
+     * fails. A member is never rejected and a non-member is
+     * accepted with probability at most
+     * 2<sup>-{@link #MEMBERSHIP_STAT_DIST}</sup>.
+     *
+     * @param values Representatives of candidate group elements.
+     * @param rs Source of randomness.
+     * @return Array indicating which integers are group elements.
+     */
+    public boolean[] contains(LargeIntegerArray values, RandomSource rs) {
+        setupMembership(rs);
+
+        boolean[] members = new boolean[values.size()];
+        Arrays.fill(members, true);
+        members(values, 0, members, rs);
+
+        return members;
+    }
+
+    /**
+     * Returns a boolean array that indicates which of the integers
+     * in the input represent group elements. This is equivalent to
+     * {@link #contains(LargeIntegerArray,RandomSource)} using a
+     * random device as source of randomness.
+     *
+     * @param values Representatives of candidate group elements.
+     * @return Array indicating which integers are group elements.
+     */
+    public boolean[] contains(LargeIntegerArray values) {
+        return contains(values, getMembershipRandomSource());
+    }
+
+    /**
+     * Returns the source of randomness used in batched membership
+     * tests when no source is given.
+     *
+     * @return Source of randomness.
+     */
+    protected static synchronized RandomSource getMembershipRandomSource() {
+        if (membershipRandomSource == null) {
+            membershipRandomSource = new RandomDevice();
+        }
+        return membershipRandomSource;
+    }
+
+    /**
+     * Determines the parameters of batched membership tests. The
+     * probability that a test accepts an element with a non-trivial
+     * component of prime order <i>r</i> is at most
+     * 2<sup>-<i>k</i></sup> when the exponents have <i>k</i> bits and
+     * 2<sup><i>k</i></sup> &lt;= <i>r</i>. Thus, the bit length of the
+     * exponents is bounded by the smallest prime factor of {@link
+     * #coOrder} and the test is repeated to reach the required
+     * soundness. If the index is two modulo four, then components of
+     * order two are eliminated using Legendre symbols instead. Groups
+     * where this requires too many repetitions are verified
+     * element-wise.
+     *
+     * @param rs Source of randomness used to check primality.
+     */
+    protected synchronized void setupMembership(RandomSource rs) {
+        if (membershipBitLength > 0) {
+            return;
+        }
+
+        // Bit length of a lower bound of the smallest prime factor
+        // of the co-order, not counting two if Legendre symbols are
+        // used.
+        int factorBitLength = 2;
+
+        membershipLegendre = coOrder.testBit(1);
+
+        if (membershipLegendre) {
+
+            LargeInteger oddCoOrder = coOrder.shiftRight(1);
+
+            if (oddCoOrder.equals(LargeInteger.ONE)) {
+
+                // Safe prime, so the Legendre symbols suffice.
+                membershipBitLength = MEMBERSHIP_STAT_DIST;
+                membershipRepetitions = 0;
+                membershipBatched = true;
+                return;
+            }
+
+            factorBitLength = 0;
+            for (int d = 3; d < MEMBERSHIP_TRIAL_BOUND; d += 2) {
+                LargeInteger divisor = new LargeInteger(d);
+                if (oddCoOrder.mod(divisor).equals(LargeInteger.ZERO)) {
+                    factorBitLength = divisor.bitLength();
+                    break;
+                }
+            }
+            if (factorBitLength == 0) {
+                if (oddCoOrder.isProbablePrime(rs)) {
+                    factorBitLength = oddCoOrder.bitLength();
+                } else {
+                    factorBitLength =
+                        new LargeInteger(MEMBERSHIP_TRIAL_BOUND).bitLength();
+                }
+            }
+        }
+
+        int bitLength = Math.min(factorBitLength - 1, MEMBERSHIP_STAT_DIST);
+        membershipRepetitions =
+            (MEMBERSHIP_STAT_DIST + bitLength - 1) / bitLength;
+        membershipBitLength = bitLength;
+
+        // The batched test is only used if the total bit length of
+        // the random exponents of an element is less than a quarter
+        // of the bit length of the order. This leaves room for the
+        // Legendre symbols and the overhead of the simultaneous
+        // exponentiations, also in pure Java mode.
+        membershipBatched = 4 * membershipRepetitions * (bitLength + 1)
+            < getElementOrder().bitLength();
+    }
+
+    /**
+     * Clears the entries of the given boolean array corresponding to
+     * integers in the input that do not represent group elements.
+     *
+     * @param values Representatives of candidate group elements.
+     * @param offset Index in the boolean array corresponding to the
+     * first integer of the input.
+     * @param members Destination of the result.
+     * @param rs Source of randomness.
+     */
+    protected void members(LargeIntegerArray values, int offset,
+                           boolean[] members, RandomSource rs) {
+        int size = values.size();
+
+        // Each repetition of a batched test costs at least one
+        // exponentiation, so small arrays are verified element-wise.
+        if (!membershipBatched
+            || size <= Math.max(1, membershipRepetitions)) {
+
+            LargeIntegerArray powers =
+                values.modPow(getElementOrder(), modulus);
+            LargeIntegerIterator iterator = powers.getIterator();
+            for (int i = 0; i < size; i++) {
+                members[offset + i] =
+                    iterator.next().equals(LargeInteger.ONE);
+            }
+            iterator.close();
+            powers.free();
+
+        } else if (!batchContains(values, rs)) {
+
+            int half = size / 2;
+
+            LargeIntegerArray left = values.copyOfRange(0, half);
+            members(left, offset, members, rs);
+            left.free();
+
+            LargeIntegerArray right = values.copyOfRange(half, size);
+            members(right, offset + half, members, rs);
+            right.free();
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the test indicates that all the
+     * integers in the input represent group elements. This is always
+     * the case if they do.
+     *
+     * @param values Representatives of candidate group elements.
+     * @param rs Source of randomness.
+     * @return Verdict of the test.
+     */
+    protected boolean batchContains(LargeIntegerArray values,
+                                    RandomSource rs) {
+        if (membershipLegendre && !values.quadraticResidues(modulus)) {
+            return false;
+        }
+
+        LargeInteger order = getElementOrder();
+
+        for (int i = 0; i < membershipRepetitions; i++) {
+
+            LargeIntegerArray exponents =
+                LargeIntegerArray.random(values.size(),
+                                         membershipBitLength,
+                                         rs);
+            LargeInteger product = values.modPowProd(exponents, modulus);
+            exponents.free();
+
+            if (!product.modPow(order, modulus).equals(LargeInteger.ONE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns the modulus of this instance.
      *
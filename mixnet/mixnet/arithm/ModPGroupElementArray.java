@@ -163,8 +163,14 @@ public class ModPGroupElementArray extends PGroupElementArray {
         values = LargeIntegerArray.
             toLargeIntegerArray(size, btr, LargeInteger.ONE, modulus);
 
-        if (!values.quadraticResidues(modulus)) {
-            throw new ArithmFormatException("Quadratic non-residue!");
+        boolean[] members = pGroup.contains(values);
+        for (int i = 0; i < members.length; i++) {
+            if (!members[i]) {
+                values.free();
+                throw new ArithmFormatException("Element " + i
+                                                + " is not contained in "
+                                                + "the group!");
+            }
         }
     }
 
@@ -0,0 +1,367 @@
+
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.arithm;
+
+import java.util.*;
+
+/**
+ * Chooses between algorithms for computing products of powers, i.e.,
+ * multi-exponentiation, and implements the bucket method of
+ * Pippenger.
+ *
+ * <p>
+ *
+ * The simultaneous exponentiation of {@link LargeIntegerSimModPowTab}
+ * and the interleaved non-adjacent forms used for elliptic curves
+ * require a number of group operations that is roughly linear in the
+ * number of bases times the bit length of the exponents divided by a
+ * small width, since the width of the tables must be small. The
+ * bucket method instead processes the exponents in windows of a
+ * width <i>w</i>. For each window, every basis is multiplied into the
+ * bucket indexed by its digit and the buckets are then combined using
+ * running products. Thus, the number of group operations is roughly
+ * <i>(b/w)(N + 2^(w+1))</i> for <i>N</i> bases and exponents of
+ * bit length <i>b</i>, and the width can grow with <i>N</i>. For
+ * groups where inversion is cheap, e.g., elliptic curves, signed
+ * digits halve the number of buckets.
+ *
+ * <p>
+ *
+ * The algorithm is chosen by comparing estimates of the number of
+ * group operations of the algorithms for the given number of bases
+ * and bit length. The choice can also be forced by {@link
+ * #setAlgorithm(int)}, e.g., to benchmark the algorithms against
+ * each other.
+ *
+ * @author Douglas Wikstrom
+ */
+public class MultiExp {
+
+    /**
+     * Indicates that the algorithm is chosen automatically.
+     */
+    public final static int AUTOMATIC = 0;
+
+    /**
+     * Indicates that simultaneous exponentiation, or interleaved
+     * non-adjacent forms, are always used.
+     */
+    public final static int TABLES = 1;
+
+    /**
+     * Indicates that the bucket method is always used.
+     */
+    public final static int BUCKETS = 2;
+
+    /**
+     * Names of the algorithms, indexed by their constants.
+     */
+    public final static String[] ALGORITHMS =
+    {"auto", "tables", "buckets"};
+
+    /**
+     * Maximal width of windows, which bounds the number of buckets.
+     */
+    public final static int MAX_WIDTH = 16;
+
+    /**
+     * Factor by which the estimated cost of the bucket method, which
+     * is implemented in Java, must be smaller than the cost of the
+     * native simultaneous exponentiation for the bucket method to be
+     * chosen when native code is used.
+     */
+    public final static int NATIVE_FACTOR = 4;
+
+    /**
+     * Algorithm used for multi-exponentiation.
+     */
+    protected static volatile int algorithm = AUTOMATIC;
+
+    /**
+     * Sets the algorithm used for multi-exponentiation.
+     *
+     * @param algorithm One of {@link #AUTOMATIC}, {@link #TABLES},
+     * and {@link #BUCKETS}.
+     *
+     * @throws ArithmError If the input is not a valid algorithm.
+     */
+    public static void setAlgorithm(int algorithm) {
+        if (algorithm < AUTOMATIC || algorithm > BUCKETS) {
+            throw new ArithmError("Unknown algorithm! (" + algorithm + ")");
+        }
+        MultiExp.algorithm = algorithm;
+    }
+
+    /**
+     * Returns the algorithm used for multi-exponentiation.
+     *
+     * @return Algorithm used for multi-exponentiation.
+     */
+    public static int getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns the number of windows of the given width needed to
+     * cover the given bit length, where signed digits may need an
+     * additional bit.
+     *
+     * @param bitLength Bit length of exponents.
+     * @param width Width of windows.
+     * @param signed Decides if signed digits are used.
+     * @return Number of windows.
+     */
+    static int windows(int bitLength, int width, boolean signed) {
+        if (signed) {
+            return bitLength / width + 1;
+        } else {
+            return (bitLength + width - 1) / width;
+        }
+    }
+
+    /**
+     * Returns the estimated number of group operations of the bucket
+     * method.
+     *
+     * @param size Number of bases.
+     * @param bitLength Bit length of exponents.
+     * @param width Width of windows.
+     * @param signed Decides if signed digits are used.
+     * @return Estimated number of group operations.
+     */
+    static long bucketCost(int size, int bitLength, int width,
+                           boolean signed) {
+        long buckets = signed ? 1L << (width - 1) : 1L << width;
+        return windows(bitLength, width, signed) * (size + 2 * buckets)
+            + bitLength;
+    }
+
+    /**
+     * Returns the width of windows that minimizes the estimated
+     * number of group operations of the bucket method.
+     *
+     * @param size Number of bases.
+     * @param bitLength Bit length of exponents.
+     * @param signed Decides if signed digits are used.
+     * @return Optimal width of windows.
+     */
+    static int bucketWidth(int size, int bitLength, boolean signed) {
+        int width = signed ? 2 : 1;
+        long cost = bucketCost(size, bitLength, width, signed);
+        while (width < MAX_WIDTH) {
+            long nextCost = bucketCost(size, bitLength, width + 1, signed);
+            if (nextCost >= cost) {
+                break;
+            }
+            cost = nextCost;
+            width++;
+        }
+        return width;
+    }
+
+    /**
+     * Returns the estimated number of group operations of
+     * simultaneous exponentiation as implemented by {@link
+     * LargeIntegerSimModPowTab} and {@link PGroupSimExpTab}.
+     *
+     * @param size Number of bases.
+     * @param bitLength Bit length of exponents.
+     * @return Estimated number of group operations.
+     */
+    static long tableCost(int size, int bitLength) {
+        int width = LargeIntegerSimModPowTab.optimalWidth(bitLength);
+        long batches = (size + width - 1) / width;
+        return batches * ((1L << width) + 2L * bitLength);
+    }
+
+    /**
+     * Returns the estimated number of group operations of the
+     * interleaved windowed non-adjacent forms used for elliptic
+     * curves.
+     *
+     * @param size Number of bases.
+     * @param bitLength Bit length of exponents.
+     * @return Estimated number of group operations.
+     */
+    static long interleavedCost(int size, int bitLength) {
+        int width = JECPGroupJacobian.optimalWidth(bitLength, 1);
+        return size * ((1L << (width - 2)) + bitLength / (width + 1))
+            + bitLength;
+    }
+
+    /**
+     * Decides if the bucket method should be used.
+     *
+     * @param bucketCost Estimated cost of the bucket method.
+     * @param cost Estimated cost of the alternative.
+     * @param nativeCode Indicates that the alternative is implemented
+     * in native code.
+     * @return True if and only if the bucket method should be used.
+     */
+    static boolean useBuckets(long bucketCost, long cost,
+                              boolean nativeCode) {
+        switch (algorithm) {
+        case TABLES:
+            return false;
+        case BUCKETS:
+            return true;
+        default:
+            long factor = nativeCode ? NATIVE_FACTOR : 1;
+            return factor * bucketCost < cost;
+        }
+    }
+
+    /**
+     * Returns the window of bits at the given position of the given
+     * non-negative integer represented in two's complement
+     * big-endian byte order as output by
+     * <code>BigInteger.toByteArray()</code>.
+     *
+     * @param bytes Representation of non-negative integer.
+     * @param position Position of the least significant bit of the
+     * window.
+     * @param width Width of the window, at most {@link #MAX_WIDTH}.
+     * @return Window of bits.
+     */
+    static int digit(byte[] bytes, int position, int width) {
+        int index = bytes.length - 1 - (position >>> 3);
+        int word = 0;
+        for (int k = 0; k < 3 && index - k >= 0; k++) {
+            word |= (bytes[index - k] & 0xFF) << (8 * k);
+        }
+        return (word >>> (position & 7)) & ((1 << width) - 1);
+    }
+
+    /**
+     * Returns the product of the bases to the powers of the
+     * exponents modulo the modulus, using the bucket method with
+     * the given width of windows.
+     *
+     * @param bases Bases.
+     * @param exponents Non-negative exponents.
+     * @param offset Index of the first basis and exponent used.
+     * @param size Number of bases and exponents used.
+     * @param bitLength Maximal bit length of the exponents.
+     * @param width Width of windows.
+     * @param modulus Modulus.
+     * @return Product of powers.
+     */
+    public static LargeInteger modPowProd(LargeInteger[] bases,
+                                          LargeInteger[] exponents,
+                                          int offset,
+                                          int size,
+                                          int bitLength,
+                                          int width,
+                                          LargeInteger modulus) {
+        LargeInteger[][] allBases = new LargeInteger[][] {bases};
+        return modPowProds(allBases, exponents, offset, size,
+                           bitLength, width, modulus)[0];
+    }
+
+    /**
+     * Returns the products of each array of bases to the powers of
+     * the common exponents modulo the modulus, using the bucket
+     * method with the given width of windows. The digits of the
+     * exponents are only extracted once for all arrays of bases.
+     *
+     * @param bases Arrays of bases.
+     * @param exponents Non-negative exponents.
+     * @param offset Index of the first basis and exponent used.
+     * @param size Number of bases and exponents used.
+     * @param bitLength Maximal bit length of the exponents.
+     * @param width Width of windows.
+     * @param modulus Modulus.
+     * @return Products of powers.
+     */
+    public static LargeInteger[] modPowProds(LargeInteger[][] bases,
+                                             LargeInteger[] exponents,
+                                             int offset,
+                                             int size,
+                                             int bitLength,
+                                             int width,
+                                             LargeInteger modulus) {
+        byte[][] bytes = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = exponents[offset + i].toByteArray();
+        }
+
+        LargeInteger[] buckets = new LargeInteger[1 << width];
+        LargeInteger[] res = new LargeInteger[bases.length];
+        int[] digits = new int[size];
+
+        for (int w = windows(bitLength, width, false) - 1; w >= 0; w--) {
+
+            for (int i = 0; i < size; i++) {
+                digits[i] = digit(bytes[i], w * width, width);
+            }
+
+            for (int c = 0; c < bases.length; c++) {
+
+                if (res[c] != null) {
+                    for (int j = 0; j < width; j++) {
+                        res[c] = res[c].mul(res[c]).mod(modulus);
+                    }
+                }
+
+                // Multiply each basis into the bucket of its digit.
+                Arrays.fill(buckets, null);
+                for (int i = 0; i < size; i++) {
+                    int d = digits[i];
+                    if (d > 0) {
+                        LargeInteger basis = bases[c][offset + i];
+                        if (buckets[d] == null) {
+                            buckets[d] = basis;
+                        } else {
+                            buckets[d] = buckets[d].mul(basis).mod(modulus);
+                        }
+                    }
+                }
+
+                // The product of the running products of the buckets
+                // contains the contents of each bucket to the power
+                // of its digit.
+                LargeInteger running = null;
+                LargeInteger sum = null;
+                for (int d = buckets.length - 1; d > 0; d--) {
+                    if (buckets[d] != null) {
+                        running = running == null ?
+                            buckets[d] : running.mul(buckets[d]).mod(modulus);
+                    }
+                    if (running != null) {
+                        sum = sum == null ?
+                            running : sum.mul(running).mod(modulus);
+                    }
+                }
+                if (sum != null) {
+                    res[c] = res[c] == null ?
+                        sum : res[c].mul(sum).mod(modulus);
+                }
+            }
+        }
+        for (int c = 0; c < res.length; c++) {
+            if (res[c] == null) {
+                res[c] = LargeInteger.ONE.mod(modulus);
+            }
+        }
+        return res;
+    }
+}
@@ -181,7 +181,8 @@ public abstract class PGroupElement
         // exponents.
         int width = PGroupFixExpTab.optimalWidth(bitLength, integers.length);
 
-        final PGroupFixExpTab tab = new PGroupFixExpTab(this, bitLength, width);
+        final PGroupFixExpTab tab =
+            FixExpTabCache.getTab(this, bitLength, width);
 
         // Compute result.
         final PGroupElement[] res = new PGroupElement[integers.length];
@@ -195,7 +196,11 @@ public abstract class PGroupElement
                     }
                 }
             };
-        worker.work(pGroup.expThreadThreshold);
+        try {
+            worker.work(pGroup.expThreadThreshold);
+        } finally {
+            FixExpTabCache.release(tab);
+        }
 
         return res;
     }
@@ -65,10 +65,10 @@ public class PGroupFixExpTab {
             oldCost = cost;
 
             // Amortized cost for table.
-            double t = ((1 << width) - width + bitLength) / size;
+            double t = ((1 << width) - width + bitLength) / (double)size;
 
             // Cost for multiplication.
-            double m = (bitLength / width);
+            double m = bitLength / (double)width;
 
             cost = t + m;
 
@@ -146,10 +146,18 @@ public class PGroupFixExpTab {
 
         int[] sliced = slice(integer);
 
+        // Leading zero slices, e.g., of an exponent that is shorter
+        // than the bit length of the table, are skipped.
         PGroupElement res = tab.pre[0].getPGroup().getONE();
+        boolean unit = true;
         for (int i = sliced.length - 1; i >= 0; i--) {
-            res = res.mul(res);
-            res = res.mul(tab.pre[sliced[i]]);
+            if (!unit) {
+                res = res.mul(res);
+            }
+            if (sliced[i] != 0) {
+                res = unit ? tab.pre[sliced[i]] : res.mul(tab.pre[sliced[i]]);
+                unit = false;
+            }
         }
         return res;
     }
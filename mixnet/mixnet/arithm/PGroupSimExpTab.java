@@ -66,7 +66,7 @@ public class PGroupSimExpTab {
 
             width++;
             int widthExp = 1 << width;
-            cost = (widthExp + (2 - 1 / widthExp) * bitLength) / width;
+            cost = (widthExp + (2 - 1.0 / widthExp) * bitLength) / width;
 
         } while (width < 31 && cost < oldCost);
 
@@ -112,10 +112,18 @@ public class PGroupSimExpTab {
     public PGroupElement expProd(LargeInteger[] integers, int offset,
                                  int bitLength) {
 
-        // Loop over bits in integers starting at bitLength - 1.
+        // Loop over bits in integers starting at the most
+        // significant bit of the longest exponent used, since this
+        // may be shorter than bitLength, e.g., for short exponents.
         PGroupElement res = pre[0].getPGroup().getONE();
+        boolean unit = true;
 
-        for (int i = bitLength - 1; i >= 0; i--) {
+        int maxBitLength = 0;
+        for (int j = offset; j < offset + width; j++) {
+            maxBitLength = Math.max(maxBitLength, integers[j].bitLength());
+        }
+
+        for (int i = Math.min(bitLength, maxBitLength) - 1; i >= 0; i--) {
 
             int I = 0;
 
@@ -129,11 +137,14 @@ public class PGroupSimExpTab {
                 }
             }
 
-            // Square.
-            res = res.mul(res);
-
-            // Multiply.
-            res = res.mul(pre[I]);
+            // Square and multiply, but not the unit.
+            if (!unit) {
+                res = res.mul(res);
+            }
+            if (I != 0) {
+                res = unit ? pre[I] : res.mul(pre[I]);
+                unit = false;
+            }
         }
         return res;
     }
@@ -124,6 +124,155 @@ public class PPGroupElementArray extends PGroupElementArray {
     }
 
 
+    /**
+     * Collects the underlying arrays of integers of the factors of
+     * the given array, which may be nested, and those of the
+     * corresponding factors and exponents, in the order of the
+     * factors. Factors that do not belong to the group of a product
+     * array are used for all of its factors, and exponents that do
+     * not belong to its ring are used for all of its factors, exactly
+     * as when the operations are applied recursively. Thus, shared
+     * exponents give identical arrays of integers. This allows
+     * operations to be computed in a single pass over all factors
+     * when they are all arrays of the same {@link ModPGroup}.
+     *
+     * @param array Array of group elements.
+     * @param factors Factors of group elements or null.
+     * @param exponents Exponents or null.
+     * @param integers Destination of arrays of integers of the array.
+     * @param fintegers Destination of arrays of integers of the
+     * factors, or null.
+     * @param eintegers Destination of arrays of integers of the
+     * exponents, or null.
+     * @return Group of all the factors of the array, or null if the
+     * factors are not all arrays of the same {@link ModPGroup}, or if
+     * the factors or exponents are not compatible with them.
+     */
+    protected static ModPGroup flatten(PGroupElementArray array,
+                                       PGroupElementArray factors,
+                                       PRingElementArray exponents,
+                                       List<LargeIntegerArray> integers,
+                                       List<LargeIntegerArray> fintegers,
+                                       List<LargeIntegerArray> eintegers) {
+
+        if (array instanceof PPGroupElementArray) {
+
+            PPGroupElementArray pparray = (PPGroupElementArray)array;
+            ModPGroup modPGroup = null;
+
+            for (int i = 0; i < pparray.values.length; i++) {
+
+                PGroupElementArray f = factors;
+                if (factors != null && factors.pGroup.equals(array.pGroup)) {
+                    f = ((PPGroupElementArray)factors).values[i];
+                }
+                PRingElementArray e = exponents;
+                if (exponents != null
+                    && exponents.pRing.equals(array.pGroup.pRing)) {
+                    e = ((PPRingElementArray)exponents).values[i];
+                }
+
+                ModPGroup g = flatten(pparray.values[i], f, e,
+                                      integers, fintegers, eintegers);
+                if (g == null || modPGroup != null && !g.equals(modPGroup)) {
+                    return null;
+                }
+                modPGroup = g;
+            }
+            return modPGroup;
+
+        } else if (array instanceof ModPGroupElementArray) {
+
+            ModPGroup modPGroup = (ModPGroup)array.pGroup;
+
+            if (factors != null) {
+                if (!(factors instanceof ModPGroupElementArray)
+                    || !factors.pGroup.equals(modPGroup)) {
+                    return null;
+                }
+                fintegers.add(((ModPGroupElementArray)factors).values);
+            }
+            if (exponents != null) {
+                if (!(exponents instanceof PFieldElementArray)
+                    || !exponents.pRing.equals(modPGroup.pRing)) {
+                    return null;
+                }
+                eintegers.add(((PFieldElementArray)exponents).values);
+            }
+            integers.add(((ModPGroupElementArray)array).values);
+            return modPGroup;
+
+        } else {
+
+            return null;
+        }
+    }
+
+    /**
+     * Returns an array of the same structure as the given array,
+     * with factors formed from the given arrays of integers in the
+     * order they are collected by {@link #flatten}.
+     *
+     * @param array Array determining the structure of the result.
+     * @param integers Arrays of integers of the factors.
+     * @return Array formed from the given arrays of integers.
+     */
+    protected static PGroupElementArray
+        unflattenArray(PGroupElementArray array,
+                       Iterator<LargeIntegerArray> integers) {
+        if (array instanceof PPGroupElementArray) {
+
+            PPGroupElementArray pparray = (PPGroupElementArray)array;
+            PGroupElementArray[] res =
+                new PGroupElementArray[pparray.values.length];
+            for (int i = 0; i < res.length; i++) {
+                res[i] = unflattenArray(pparray.values[i], integers);
+            }
+            return new PPGroupElementArray(array.pGroup, res);
+
+        } else {
+            return new ModPGroupElementArray(array.pGroup, integers.next());
+        }
+    }
+
+    /**
+     * Returns an element of the group of the given array, with
+     * factors formed from the given integers in the order they are
+     * collected by {@link #flatten}.
+     *
+     * @param array Array determining the structure of the result.
+     * @param integers Integers of the factors.
+     * @return Element formed from the given integers.
+     */
+    protected static PGroupElement
+        unflattenElement(PGroupElementArray array,
+                         Iterator<LargeInteger> integers) {
+        if (array instanceof PPGroupElementArray) {
+
+            PPGroupElementArray pparray = (PPGroupElementArray)array;
+            PGroupElement[] res = new PGroupElement[pparray.values.length];
+            for (int i = 0; i < res.length; i++) {
+                res[i] = unflattenElement(pparray.values[i], integers);
+            }
+            return ((PPGroup)array.pGroup).toElement(res);
+
+        } else {
+            return new ModPGroupElement(array.pGroup, integers.next());
+        }
+    }
+
+    /**
+     * Returns the arrays of integers in the given list as an array.
+     *
+     * @param integers List of arrays of integers.
+     * @return Array of arrays of integers.
+     */
+    protected static LargeIntegerArray[]
+        toArray(List<LargeIntegerArray> integers) {
+        return integers.toArray(new LargeIntegerArray[integers.size()]);
+    }
+
+
     // Documented in PGroupElementArray.java
 
     public PGroupElementIterator getIterator() {
@@ -162,6 +311,20 @@ public class PPGroupElementArray extends PGroupElementArray {
     }
 
     public PGroupElementArray mul(PGroupElementArray factors) {
+
+        // Fused pass over all factors if possible.
+        List<LargeIntegerArray> integers = new ArrayList<LargeIntegerArray>();
+        List<LargeIntegerArray> fintegers = new ArrayList<LargeIntegerArray>();
+        ModPGroup modPGroup =
+            flatten(this, factors, null, integers, fintegers, null);
+        if (modPGroup != null) {
+            LargeIntegerArray[] res =
+                LargeIntegerArray.modMul(toArray(integers),
+                                         toArray(fintegers),
+                                         modPGroup.modulus);
+            return unflattenArray(this, Arrays.asList(res).iterator());
+        }
+
         PGroupElementArray[] res = new PGroupElementArray[values.length];
 
         if (factors.pGroup.equals(pGroup)) {
@@ -184,6 +347,21 @@ public class PPGroupElementArray extends PGroupElementArray {
     }
 
     public PGroupElementArray inv() {
+
+        // Fused pass over all factors if possible.
+        List<LargeIntegerArray> integers = new ArrayList<LargeIntegerArray>();
+        ModPGroup modPGroup = flatten(this, null, null, integers, null, null);
+        if (modPGroup != null) {
+            try {
+                LargeIntegerArray[] res =
+                    LargeIntegerArray.modInv(toArray(integers),
+                                             modPGroup.modulus);
+                return unflattenArray(this, Arrays.asList(res).iterator());
+            } catch (ArithmException ae) {
+                throw new ArithmError("This is a bug!", ae);
+            }
+        }
+
         PGroupElementArray[] res = new PGroupElementArray[values.length];
 
         for (int i = 0; i < values.length; i++) {
@@ -193,6 +371,20 @@ public class PPGroupElementArray extends PGroupElementArray {
     }
 
     public PGroupElementArray exp(PRingElementArray exponents) {
+
+        // Fused pass over all factors if possible.
+        List<LargeIntegerArray> integers = new ArrayList<LargeIntegerArray>();
+        List<LargeIntegerArray> eintegers = new ArrayList<LargeIntegerArray>();
+        ModPGroup modPGroup =
+            flatten(this, null, exponents, integers, null, eintegers);
+        if (modPGroup != null) {
+            LargeIntegerArray[] res =
+                LargeIntegerArray.modPow(toArray(integers),
+                                         toArray(eintegers),
+                                         modPGroup.modulus);
+            return unflattenArray(this, Arrays.asList(res).iterator());
+        }
+
         PGroupElementArray[] res = new PGroupElementArray[values.length];
 
         if (exponents.pRing.equals(pGroup.pRing)) {
@@ -242,6 +434,20 @@ public class PPGroupElementArray extends PGroupElementArray {
     }
 
     public PGroupElement expProd(PRingElementArray exponents) {
+
+        // Fused pass over all factors if possible.
+        List<LargeIntegerArray> integers = new ArrayList<LargeIntegerArray>();
+        List<LargeIntegerArray> eintegers = new ArrayList<LargeIntegerArray>();
+        ModPGroup modPGroup =
+            flatten(this, null, exponents, integers, null, eintegers);
+        if (modPGroup != null) {
+            LargeInteger[] res =
+                LargeIntegerArray.modPowProd(toArray(integers),
+                                             toArray(eintegers),
+                                             modPGroup.modulus);
+            return unflattenElement(this, Arrays.asList(res).iterator());
+        }
+
         PGroupElement[] res = new PGroupElement[values.length];
 
         if (exponents.pRing.equals(pGroup.pRing)) {
@@ -21,10 +21,12 @@
 
 package mixnet.arithm;
 
+import java.io.*;
 import java.util.*;
 
 import mixnet.crypto.*;
 import mixnet.eio.*;
+import mixnet.util.*;
 
 /**
  * Represents an immutable permutation which allows the permutation
@@ -39,6 +41,13 @@ public class Permutation implements ByteTreeConvertible {
      */
     protected int[] table;
 
+    /**
+     * Creates an instance without a table. This is used by
+     * subclasses and by methods that compute the table themselves.
+     */
+    protected Permutation() {
+    }
+
     /**
      * Generates the identity permutation of a given size.
      *
@@ -58,6 +67,12 @@ public class Permutation implements ByteTreeConvertible {
      * Generates a random permutation of suitable size using the given
      * source of randomness.
      *
+     * <p>
+     *
+     * A random key is generated for each index and the indices are
+     * sorted by their keys, where ties are broken by the indices
+     * themselves. The keys are kept in primitive arrays.
+     *
      * @param numberOfElements Number of elements to permute.
      * @param statDist Decides the statistical distance from the
      * uniform distribution.
@@ -67,27 +82,13 @@ public class Permutation implements ByteTreeConvertible {
     public Permutation(int numberOfElements, RandomSource randomSource,
                        int statDist) {
 
-        if (statDist < 0) {
-            throw new ArithmError("Negative statistical distance parameter!");
-        }
-
-        int aprLog = MathExt.log2c(numberOfElements);
-
-        // The union bound gives this overly conservative bit size.
-        int bits = statDist + aprLog + aprLog;
+        int bits = PermutationKeys.bitLength(numberOfElements, statDist);
 
-        PermutationPair[] randomTable = new PermutationPair[numberOfElements];
+        PermutationKeys keys = new PermutationKeys(bits, numberOfElements);
+        keys.generate(0, numberOfElements, randomSource);
+        keys.sort();
 
-        for (int i = 0; i < numberOfElements; i++) {
-            randomTable[i] = new PermutationPair(i, bits, randomSource);
-        }
-
-        Arrays.sort(randomTable);
-
-        table = new int[numberOfElements];
-        for (int i = 0; i < numberOfElements; i++) {
-            table[i] = randomTable[i].index;
-        }
+        table = keys.indices;
     }
 
     /**
@@ -132,17 +133,81 @@ public class Permutation implements ByteTreeConvertible {
         table = Arrays.copyOf(permutationTable, permutationTable.length);
     }
 
+    /**
+     * Returns true if and only if permutations should be stored on
+     * file, i.e., if arrays of integers are not kept in memory.
+     *
+     * @return True if and only if permutations should be stored on
+     * file.
+     */
+    protected static boolean useFile() {
+        return !(LargeIntegerArray.getDelegate()
+                 instanceof LargeIntegerArrayWrapperIM);
+    }
+
+    /**
+     * Generates a random permutation exactly as {@link
+     * #Permutation(int,RandomSource,int)}, but stored on file if
+     * arrays of integers are stored on file.
+     *
+     * @param numberOfElements Number of elements to permute.
+     * @param randomSource Source of randomness used to generate the
+     * permutation.
+     * @param statDist Decides the statistical distance from the
+     * uniform distribution.
+     * @return Random permutation.
+     */
+    public static Permutation random(int numberOfElements,
+                                     RandomSource randomSource,
+                                     int statDist) {
+        if (useFile()) {
+            return new PermutationF(numberOfElements, randomSource, statDist);
+        } else {
+            return new Permutation(numberOfElements, randomSource, statDist);
+        }
+    }
+
+    /**
+     * Creates a permutation from the input representation as {@link
+     * #Permutation(int,ByteTreeReader)}, but stored on file if arrays
+     * of integers are stored on file.
+     *
+     * @param size Expected size of the permutation.
+     * @param btr Representation of permutation.
+     * @return Permutation represented by the input.
+     * @throws ArithmFormatException If the input is incorrect or has
+     * wrong size.
+     */
+    public static Permutation read(int size, ByteTreeReader btr)
+        throws ArithmFormatException {
+        if (useFile()) {
+            return new PermutationF(size, btr);
+        } else {
+            return new Permutation(size, btr);
+        }
+    }
+
     /**
      * Returns the inverse of this permutation.
      *
      * @return Inverse of this permutation.
      */
     public Permutation inv() {
-        int[] invtable = new int[table.length];
-        for (int i = 0; i < table.length; i++) {
-            invtable[table[i]] = i;
-        }
-        return new Permutation(invtable);
+        final int[] invtable = new int[table.length];
+
+        ArrayWorker worker =
+            new ArrayWorker(table.length) {
+                public void work(int start, int end) {
+                    for (int i = start; i < end; i++) {
+                        invtable[table[i]] = i;
+                    }
+                }
+            };
+        worker.work();
+
+        Permutation res = new Permutation();
+        res.table = invtable;
+        return res;
     }
 
     /**
@@ -170,7 +235,7 @@ public class Permutation implements ByteTreeConvertible {
      *
      * @return Representation of this instance.
      */
-    public ByteTree toByteTree() {
+    public ByteTreeBasic toByteTree() {
         return ByteTree.intArrayToByteTree(table);
     }
 
@@ -212,6 +277,23 @@ public class Permutation implements ByteTreeConvertible {
         }
     }
 
+    /**
+     * Writes a byte tree to <code>destination</code> with the
+     * children of the byte tree in <code>source</code> permuted by
+     * this permutation, without reading the children into memory.
+     *
+     * @param source Byte tree with children to be permuted.
+     * @param destination Destination of permuted byte tree.
+     *
+     * @throws EIOException If the source is not a node with the same
+     * number of children as the size of this permutation.
+     * @throws IOException If an I/O error occurs.
+     */
+    protected void permute(File source, File destination)
+        throws IOException, EIOException {
+        ExtPermutation.permute(source, destination, table);
+    }
+
     /**
      * Returns <code>true</code> or <code>false</code> depending on if
      * the input represents the same permutation as this instance or
@@ -222,8 +304,22 @@ public class Permutation implements ByteTreeConvertible {
      * the input permutation is equal to this permutation or not.
      */
     public boolean equals(Object p) {
-        return p instanceof Permutation
-            && Arrays.equals(table, ((Permutation)p).table);
+        if (!(p instanceof Permutation)) {
+            return false;
+        }
+        Permutation q = (Permutation)p;
+        if (table != null && q.table != null) {
+            return Arrays.equals(table, q.table);
+        }
+        if (size() != q.size()) {
+            return false;
+        }
+        for (int i = 0; i < size(); i++) {
+            if (map(i) != q.map(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -253,19 +349,11 @@ public class Permutation implements ByteTreeConvertible {
 
         return new Permutation(newTable);
     }
-}
-
-class PermutationPair implements Comparable {
-    LargeInteger randomPrefix;
-    int index;
-
-    PermutationPair(int index, int bits, RandomSource randomSource) {
-        this.randomPrefix = new LargeInteger(bits, randomSource);
-        this.index = index;
-    }
 
-    public int compareTo(Object permutationPair) {
-        return randomPrefix.
-            compareTo(((PermutationPair)permutationPair).randomPrefix);
+    /**
+     * Releases any resources allocated by this instance. This
+     * instance must not be used afterwards.
+     */
+    public void free() {
     }
 }
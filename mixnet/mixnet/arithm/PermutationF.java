@@ -0,0 +1,524 @@
+
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.arithm;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import mixnet.crypto.*;
+import mixnet.eio.*;
+import mixnet.util.*;
+
+/**
+ * Permutation stored on file, which is used when arrays of integers
+ * are stored on file. The file contains the representation of the
+ * permutation as a byte tree, i.e., a leaf holding the table as
+ * four-byte integers, and it is memory-mapped for random access.
+ *
+ * <p>
+ *
+ * A random permutation is generated exactly as by {@link
+ * Permutation#Permutation(int,RandomSource,int)}, but the keys of at
+ * most {@link #RUN_SIZE} indices are kept in memory at any given
+ * time. Larger permutations are generated by sorting runs of keys in
+ * memory and merging the sorted runs on file.
+ *
+ * @author Douglas Wikstrom
+ */
+public class PermutationF extends Permutation {
+
+    /**
+     * Number of bytes of the header of a byte tree leaf that precedes
+     * the table in the file.
+     */
+    final static int HEADER_BYTE_SIZE = 5;
+
+    /**
+     * Maximal number of integers in each memory-mapped part of the
+     * file.
+     */
+    final static int INTS_PER_PART = 1 << 28;
+
+    /**
+     * Number of integers read from a representation in each batch.
+     */
+    final static int READ_BATCH_SIZE = 1 << 16;
+
+    /**
+     * Maximal number of keys sorted in memory when a random
+     * permutation is generated.
+     */
+    public final static int RUN_SIZE = 1 << 20;
+
+    /**
+     * Size of buffers used when writing and reading runs of keys.
+     */
+    final static int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * File containing the representation of this instance.
+     */
+    protected File file;
+
+    /**
+     * Number of permuted elements.
+     */
+    protected int size;
+
+    /**
+     * Memory-mapped parts of the table.
+     */
+    protected IntBuffer[] parts;
+
+    /**
+     * Creates an instance without any table. The table must be
+     * allocated using {@link #allocate(int)}.
+     */
+    protected PermutationF() {
+    }
+
+    /**
+     * Creates a copy of the given permutation stored on file.
+     *
+     * @param permutation Permutation to copy.
+     */
+    public PermutationF(Permutation permutation) {
+        allocate(permutation.size());
+        for (int i = 0; i < size; i++) {
+            put(i, permutation.map(i));
+        }
+    }
+
+    /**
+     * Generates a random permutation of suitable size using the given
+     * source of randomness. The result is identical to that of
+     * {@link Permutation#Permutation(int,RandomSource,int)} for the
+     * same random bytes.
+     *
+     * @param numberOfElements Number of elements to permute.
+     * @param randomSource Source of randomness used to generate the
+     * permutation.
+     * @param statDist Decides the statistical distance from the
+     * uniform distribution.
+     */
+    public PermutationF(int numberOfElements, RandomSource randomSource,
+                        int statDist) {
+        this(numberOfElements, randomSource, statDist, RUN_SIZE);
+    }
+
+    /**
+     * Generates a random permutation of suitable size using the given
+     * source of randomness, where at most the given number of keys
+     * are sorted in memory.
+     *
+     * @param numberOfElements Number of elements to permute.
+     * @param randomSource Source of randomness used to generate the
+     * permutation.
+     * @param statDist Decides the statistical distance from the
+     * uniform distribution.
+     * @param runSize Maximal number of keys sorted in memory.
+     */
+    PermutationF(int numberOfElements, RandomSource randomSource,
+                 int statDist, int runSize) {
+
+        int bits = PermutationKeys.bitLength(numberOfElements, statDist);
+        allocate(numberOfElements);
+
+        PermutationKeys keys =
+            new PermutationKeys(bits, Math.min(numberOfElements, runSize));
+
+        if (numberOfElements <= runSize) {
+
+            keys.generate(0, numberOfElements, randomSource);
+            keys.sort();
+            for (int i = 0; i < numberOfElements; i++) {
+                put(i, keys.indices[i]);
+            }
+            return;
+        }
+
+        File[] runFiles = new File[(numberOfElements + runSize - 1)
+                                   / runSize];
+        try {
+
+            // Sort runs of keys in memory and write them to file.
+            for (int r = 0; r < runFiles.length; r++) {
+
+                int first = r * runSize;
+                int count = Math.min(runSize, numberOfElements - first);
+
+                keys.generate(first, count, randomSource);
+                keys.sort();
+
+                runFiles[r] = TempFile.getFile();
+                writeRun(runFiles[r], keys);
+            }
+
+            // Merge the sorted runs.
+            merge(runFiles, runSize, keys.words);
+
+        } catch (IOException ioe) {
+            free();
+            throw new ArithmError("Unable to generate permutation!", ioe);
+        } finally {
+            for (int r = 0; r < runFiles.length; r++) {
+                if (runFiles[r] != null) {
+                    runFiles[r].delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a permutation from the input representation.
+     *
+     * @param size Expected size of the permutation.
+     * @param btr Representation of permutation.
+     * @throws ArithmFormatException If the input is incorrect or has
+     * wrong size.
+     */
+    public PermutationF(int size, ByteTreeReader btr)
+        throws ArithmFormatException {
+
+        allocate(size);
+
+        BitSet used = new BitSet(size);
+        byte[] bytes = new byte[4 * Math.min(size, READ_BATCH_SIZE)];
+
+        try {
+
+            for (int i = 0; i < size; i += READ_BATCH_SIZE) {
+
+                int batch = Math.min(READ_BATCH_SIZE, size - i);
+                btr.read(bytes, 0, 4 * batch);
+
+                // Verify that this is a permutation.
+                for (int j = 0; j < batch; j++) {
+
+                    int index = ExtIO.readInt(bytes, 4 * j);
+                    if (!(0 <= index && index < size)) {
+                        throw new ArithmFormatException("Index outside "
+                                                        + "interval!");
+                    }
+                    if (used.get(index)) {
+                        throw new ArithmFormatException("Index is reused!");
+                    }
+                    used.set(index);
+                    put(i + j, index);
+                }
+            }
+
+        } catch (EIOException eioe) {
+            free();
+            throw new ArithmFormatException("Not an integer array!", eioe);
+        } catch (ArithmFormatException afe) {
+            free();
+            throw afe;
+        }
+    }
+
+    /**
+     * Allocates a file for a table of the given size and maps it
+     * into memory.
+     *
+     * @param size Number of permuted elements.
+     */
+    protected void allocate(int size) {
+        if (size < 0) {
+            throw new ArithmError("Negative number of elements!");
+        }
+        if (size > Integer.MAX_VALUE / 4) {
+            throw new ArithmError("Too many elements!");
+        }
+        this.size = size;
+        this.file = TempFile.getFile();
+        this.parts = new IntBuffer[(size + INTS_PER_PART - 1)
+                                   / INTS_PER_PART];
+
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(HEADER_BYTE_SIZE + 4L * size);
+            raf.writeByte(ByteTreeBasic.LEAF);
+            raf.writeInt(4 * size);
+
+            FileChannel fc = raf.getChannel();
+            for (int p = 0; p < parts.length; p++) {
+                long position = HEADER_BYTE_SIZE + 4L * p * INTS_PER_PART;
+                long length = 4L * Math.min(INTS_PER_PART,
+                                            size - p * INTS_PER_PART);
+                parts[p] =
+                    fc.map(FileChannel.MapMode.READ_WRITE, position, length).
+                    asIntBuffer();
+            }
+        } catch (IOException ioe) {
+            file.delete();
+            throw new ArithmError("Unable to map file!", ioe);
+        } finally {
+            ExtIO.strictClose(raf);
+        }
+    }
+
+    /**
+     * Sets the image of the given index.
+     *
+     * @param index Index.
+     * @param value Image of the index.
+     */
+    protected void put(int index, int value) {
+        parts[index / INTS_PER_PART].put(index % INTS_PER_PART, value);
+    }
+
+    /**
+     * Writes the sorted keys and indices to the given file.
+     *
+     * @param runFile Destination file.
+     * @param keys Sorted keys.
+     * @throws IOException If the run can not be written.
+     */
+    protected static void writeRun(File runFile, PermutationKeys keys)
+        throws IOException {
+        DataOutputStream dos = null;
+        try {
+            OutputStream os = new FileOutputStream(runFile);
+            dos = new DataOutputStream(new BufferedOutputStream(os,
+                                                                BUFFER_SIZE));
+            for (int i = 0; i < keys.size; i++) {
+                for (int w = 0; w < keys.words; w++) {
+                    dos.writeLong(keys.keys[i * keys.words + w]);
+                }
+                dos.writeInt(keys.indices[i]);
+            }
+        } finally {
+            ExtIO.strictClose(dos);
+        }
+    }
+
+    /**
+     * Merges the given sorted runs and stores the resulting indices
+     * in the table.
+     *
+     * @param runFiles Files containing sorted runs.
+     * @param runSize Number of keys in each run except the last.
+     * @param words Number of words in each key.
+     * @throws IOException If a run can not be read.
+     */
+    protected void merge(File[] runFiles, int runSize, int words)
+        throws IOException {
+
+        PriorityQueue<PermutationRun> queue =
+            new PriorityQueue<PermutationRun>(runFiles.length);
+        PermutationRun[] runs = new PermutationRun[runFiles.length];
+
+        try {
+
+            for (int r = 0; r < runFiles.length; r++) {
+                int count = Math.min(runSize, size - r * runSize);
+                runs[r] = new PermutationRun(runFiles[r], count, words);
+                if (runs[r].next()) {
+                    queue.add(runs[r]);
+                }
+            }
+
+            for (int i = 0; i < size; i++) {
+                PermutationRun run = queue.poll();
+                put(i, run.index);
+                if (run.next()) {
+                    queue.add(run);
+                }
+            }
+
+        } finally {
+            for (int r = 0; r < runs.length; r++) {
+                if (runs[r] != null) {
+                    runs[r].close();
+                }
+            }
+        }
+    }
+
+    // Documented in Permutation.java
+
+    public Permutation inv() {
+        final PermutationF res = new PermutationF();
+        res.allocate(size);
+
+        ArrayWorker worker =
+            new ArrayWorker(size) {
+                public void work(int start, int end) {
+                    for (int i = start; i < end; i++) {
+                        res.put(map(i), i);
+                    }
+                }
+            };
+        worker.work();
+
+        return res;
+    }
+
+    public ByteTreeBasic toByteTree() {
+        return new ByteTreeF(file);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int map(int index) {
+        return parts[index / INTS_PER_PART].get(index % INTS_PER_PART);
+    }
+
+    public void applyPermutation(Object[] array,
+                                 Object[] permutedArray) {
+        if (array.length != size || permutedArray.length != size) {
+            throw new ArithmError("Wrong or different lengths!");
+        }
+        for (int i = 0; i < size; i++) {
+            permutedArray[map(i)] = array[i];
+        }
+    }
+
+    protected void permute(File source, File destination)
+        throws IOException, EIOException {
+        ExtPermutation.permute(source, destination, file);
+    }
+
+    public Permutation shrink(int newSize) {
+        PermutationF tmp = new PermutationF();
+        tmp.allocate(size);
+        for (int i = 0; i < size; i++) {
+            tmp.put(i, -1);
+        }
+        for (int i = 0; i < newSize; i++) {
+            tmp.put(map(i), i);
+        }
+
+        PermutationF res = new PermutationF();
+        res.allocate(newSize);
+
+        int l = 0;
+        for (int i = 0; i < size; i++) {
+            int index = tmp.map(i);
+            if (index != -1) {
+                res.put(index, l);
+                l++;
+            }
+        }
+        tmp.free();
+
+        return res;
+    }
+
+    public void free() {
+
+        // There is no way to unmap the file explicitly, so we drop
+        // our references to the mapped parts before deleting the
+        // file and the mapping is released when they are garbage
+        // collected.
+        parts = null;
+        if (file != null) {
+            file.delete();
+        }
+    }
+}
+
+/**
+ * Reader of a sorted run of keys and indices written by {@link
+ * PermutationF#writeRun(File,PermutationKeys)}. Runs are ordered by
+ * their current keys, where ties are broken by the indices.
+ *
+ * @author Douglas Wikstrom
+ */
+class PermutationRun implements Comparable<PermutationRun> {
+
+    /**
+     * Source of keys and indices.
+     */
+    DataInputStream dis;
+
+    /**
+     * Number of keys and indices that remain to be read.
+     */
+    int remaining;
+
+    /**
+     * Current key.
+     */
+    long[] key;
+
+    /**
+     * Current index.
+     */
+    int index;
+
+    /**
+     * Opens the given run.
+     *
+     * @param runFile File containing the run.
+     * @param count Number of keys in the run.
+     * @param words Number of words in each key.
+     * @throws IOException If the file can not be opened.
+     */
+    PermutationRun(File runFile, int count, int words) throws IOException {
+        InputStream is = new FileInputStream(runFile);
+        this.dis = new DataInputStream(new BufferedInputStream(is,
+                                            PermutationF.BUFFER_SIZE));
+        this.remaining = count;
+        this.key = new long[words];
+    }
+
+    /**
+     * Reads the next key and index if there is one.
+     *
+     * @return True if and only if a key and index was read.
+     * @throws IOException If the run can not be read.
+     */
+    boolean next() throws IOException {
+        if (remaining == 0) {
+            return false;
+        }
+        for (int w = 0; w < key.length; w++) {
+            key[w] = dis.readLong();
+        }
+        index = dis.readInt();
+        remaining--;
+        return true;
+    }
+
+    /**
+     * Closes the underlying stream.
+     */
+    void close() {
+        ExtIO.strictClose(dis);
+    }
+
+    public int compareTo(PermutationRun run) {
+        for (int w = 0; w < key.length; w++) {
+            if (key[w] != run.key[w]) {
+                return key[w] < run.key[w] ? -1 : 1;
+            }
+        }
+        return index < run.index ? -1 : index > run.index ? 1 : 0;
+    }
+}
@@ -0,0 +1,246 @@
+
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.arithm;
+
+import mixnet.crypto.*;
+
+/**
+ * Random keys of a range of indices together with the indices. The
+ * keys are stored as big endian words of bits in a single array,
+ * where the sign bit of each word is flipped to allow signed
+ * comparison. Keys are generated exactly as {@link
+ * LargeInteger#LargeInteger(int,RandomSource)} generates integers,
+ * and the keys compare in the same way as such integers.
+ *
+ * @author Douglas Wikstrom
+ */
+class PermutationKeys {
+
+    /**
+     * Number of keys generated from each call to the source of
+     * randomness.
+     */
+    final static int GENERATE_BATCH_SIZE = 4096;
+
+    /**
+     * Size of ranges sorted by insertion sort.
+     */
+    final static int INSERTION_THRESHOLD = 16;
+
+    /**
+     * Number of bytes of each key.
+     */
+    final int byteLength;
+
+    /**
+     * Mask applied to the most significant byte of each key.
+     */
+    final int mask;
+
+    /**
+     * Number of words of each key.
+     */
+    final int words;
+
+    /**
+     * Words of the keys.
+     */
+    final long[] keys;
+
+    /**
+     * Indices of the keys.
+     */
+    final int[] indices;
+
+    /**
+     * Number of keys.
+     */
+    int size;
+
+    /**
+     * Returns the bit length of the keys used to generate a random
+     * permutation.
+     *
+     * @param numberOfElements Number of elements to permute.
+     * @param statDist Decides the statistical distance from the
+     * uniform distribution.
+     * @return Bit length of keys.
+     */
+    static int bitLength(int numberOfElements, int statDist) {
+        if (statDist < 0) {
+            throw new ArithmError("Negative statistical distance parameter!");
+        }
+        int aprLog = MathExt.log2c(numberOfElements);
+
+        // The union bound gives this overly conservative bit size.
+        return statDist + aprLog + aprLog;
+    }
+
+    /**
+     * Creates room for the given number of keys of the given bit
+     * length.
+     *
+     * @param bits Bit length of keys.
+     * @param capacity Maximal number of keys.
+     */
+    PermutationKeys(int bits, int capacity) {
+        if (bits <= 0 && capacity > 0) {
+            throw new ArithmError("Non-positive bit-length!");
+        }
+        this.byteLength = (bits + 7) / 8;
+        this.mask = bits % 8 == 0 ? 0xFF : 0xFF >>> (8 - bits % 8);
+        this.words = (byteLength + 7) / 8;
+        this.keys = new long[capacity * words];
+        this.indices = new int[capacity];
+    }
+
+    /**
+     * Generates keys of the given number of consecutive indices and
+     * replaces the current keys.
+     *
+     * @param firstIndex First index.
+     * @param count Number of indices.
+     * @param randomSource Source of randomness.
+     */
+    void generate(int firstIndex, int count, RandomSource randomSource) {
+        size = count;
+
+        byte[] bytes = new byte[Math.min(count, GENERATE_BATCH_SIZE)
+                                * byteLength];
+
+        for (int i = 0; i < count; i += GENERATE_BATCH_SIZE) {
+
+            int batch = Math.min(GENERATE_BATCH_SIZE, count - i);
+            if (batch * byteLength != bytes.length) {
+                bytes = new byte[batch * byteLength];
+            }
+            randomSource.getBytes(bytes);
+
+            for (int j = 0; j < batch; j++) {
+
+                int offset = j * byteLength;
+                int pos = (i + j) * words;
+
+                for (int w = 0; w < words; w++) {
+
+                    long word = 0;
+                    for (int b = 8 * w; b < 8 * w + 8; b++) {
+                        word <<= 8;
+                        if (b < byteLength) {
+                            int v = bytes[offset + b] & 0xFF;
+                            word |= b == 0 ? v & mask : v;
+                        }
+                    }
+                    keys[pos + w] = word ^ Long.MIN_VALUE;
+                }
+                indices[i + j] = firstIndex + i + j;
+            }
+        }
+    }
+
+    /**
+     * Compares the keys at the given positions, where ties are
+     * broken by the indices.
+     *
+     * @param a First position.
+     * @param b Second position.
+     * @return Negative, zero, or positive integer depending on if
+     * the first key is smaller, equal, or larger than the second.
+     */
+    int compare(int a, int b) {
+        int pa = a * words;
+        int pb = b * words;
+        for (int w = 0; w < words; w++) {
+            if (keys[pa + w] != keys[pb + w]) {
+                return keys[pa + w] < keys[pb + w] ? -1 : 1;
+            }
+        }
+        return indices[a] < indices[b] ? -1 : indices[a] > indices[b] ? 1 : 0;
+    }
+
+    /**
+     * Swaps the keys and indices at the given positions.
+     *
+     * @param a First position.
+     * @param b Second position.
+     */
+    void swap(int a, int b) {
+        int pa = a * words;
+        int pb = b * words;
+        for (int w = 0; w < words; w++) {
+            long tmp = keys[pa + w];
+            keys[pa + w] = keys[pb + w];
+            keys[pb + w] = tmp;
+        }
+        int tmp = indices[a];
+        indices[a] = indices[b];
+        indices[b] = tmp;
+    }
+
+    /**
+     * Sorts the keys and the indices in increasing order of the
+     * keys, where ties are broken by the indices.
+     */
+    void sort() {
+        sort(0, size);
+    }
+
+    /**
+     * Sorts the keys in the given range.
+     *
+     * @param start Start of range.
+     * @param end End of range.
+     */
+    void sort(int start, int end) {
+
+        while (end - start > INSERTION_THRESHOLD) {
+
+            // The keys are random, so the middle element is a good
+            // pivot. It is moved to the end of the range.
+            swap((start + end) >>> 1, end - 1);
+
+            int store = start;
+            for (int i = start; i < end - 1; i++) {
+                if (compare(i, end - 1) < 0) {
+                    swap(i, store);
+                    store++;
+                }
+            }
+            swap(store, end - 1);
+
+            // Recurse on the smaller part to bound the depth.
+            if (store - start < end - store - 1) {
+                sort(start, store);
+                start = store + 1;
+            } else {
+                sort(store + 1, end);
+                end = store;
+            }
+        }
+
+        for (int i = start + 1; i < end; i++) {
+            for (int j = i; j > start && compare(j - 1, j) > 0; j--) {
+                swap(j - 1, j);
+            }
+        }
+    }
+}
@@ -110,6 +110,147 @@ public class TestJECPGroup {
         return true;
     }
 
+    /**
+     * Returns random exponents including corner cases.
+     */
+    protected static PRingElement[] exponents(PGroup pGroup, int size) {
+        PField pField = pGroup.getPRing().getPField();
+        PRingElement[] res =
+            pGroup.getPRing().randomElementArray(size, rs, 50).elements();
+        res[0] = pField.getZERO();
+        res[1] = pField.getONE();
+        res[2] = pField.getONE().neg();
+        res[3] = pField.toElement(new LargeInteger(2));
+        return res;
+    }
+
+    /**
+     * Verifies the arithmetic based on Jacobian coordinates against
+     * square-and-multiply in affine coordinates for curves where the
+     * x-coefficient is -3 and zero respectively.
+     */
+    public static boolean jacobianExp(TestParameters tp) throws Exception {
+
+        setupPGroup(tp);
+
+        String[] names = {"prime256v1", "secp256k1"};
+
+        for (String name : names) {
+
+            JECPGroup group = JECPGroupParams.getJECPGroup(name);
+            PGroupElement one = group.getONE();
+
+            PRingElement[] exponents = exponents(group, 10);
+            PGroupElement[] bases =
+                group.randomElementArray(10, rs, 50).elements();
+            bases[1] = one;
+
+            JECPGroupElement el = (JECPGroupElement)bases[0];
+
+            // Single exponentiations.
+            for (int i = 0; i < exponents.length; i++) {
+                if (!el.exp(exponents[i]).equals(el.naiveExp(exponents[i]))) {
+                    return false;
+                }
+                if (!one.exp(exponents[i]).equals(one)) {
+                    return false;
+                }
+            }
+
+            // Fixed base exponentiation.
+            PGroupElement[] res = el.exp(exponents);
+            for (int i = 0; i < exponents.length; i++) {
+                if (!res[i].equals(el.naiveExp(exponents[i]))) {
+                    return false;
+                }
+            }
+
+            // Exponentiation of arrays of bases.
+            res = group.exp(bases, exponents);
+            PGroupElement[] res2 = group.exp(bases, exponents[5]);
+            for (int i = 0; i < bases.length; i++) {
+                JECPGroupElement base = (JECPGroupElement)bases[i];
+                if (!res[i].equals(base.naiveExp(exponents[i]))
+                    || !res2[i].equals(base.naiveExp(exponents[5]))) {
+                    return false;
+                }
+            }
+
+            // Exponentiated product.
+            if (!group.expProd(bases, exponents).
+                equals(group.naiveExpProd(bases, exponents))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Verifies that random arrays are identical to elements sampled
+     * one by one, and that arrays are validated when read, for curves
+     * where the modulus is three and one modulo four respectively.
+     */
+    public static boolean elementArrays(TestParameters tp)
+        throws Exception {
+
+        setupPGroup(tp);
+
+        String[] names = {"prime256v1", "P-224"};
+
+        for (String name : names) {
+
+            JECPGroup group = JECPGroupParams.getJECPGroup(name);
+            int size = 2 * tp.testSize;
+
+            byte[] seed = rs.getBytes(32);
+            PGroupElement[] elements =
+                group.randomElementArray(size, new PRGHeuristic(seed), 50).
+                elements();
+
+            RandomSource rs2 = new PRGHeuristic(seed);
+            for (int i = 0; i < size; i++) {
+                if (!elements[i].equals(group.randomElement(rs2, 50))) {
+                    return false;
+                }
+            }
+
+            PGroupElementArray array = group.toElementArray(elements);
+            ByteTreeReader btr = array.toByteTree().getByteTreeReader();
+            if (!group.toElementArray(size, btr).equals(array)) {
+                return false;
+            }
+
+            // Replace a point by one which is not on the curve.
+            LargeInteger[] xs = new LargeInteger[size];
+            LargeInteger[] ys = new LargeInteger[size];
+            for (int i = 0; i < size; i++) {
+                xs[i] = ((JECPGroupElement)elements[i]).getX();
+                ys[i] = ((JECPGroupElement)elements[i]).getY();
+            }
+            if (!group.arePointsOnCurve(xs, ys)) {
+                return false;
+            }
+            ys[size - 1] = ys[size - 1].add(LargeInteger.ONE).
+                mod(group.getModulusField().getOrder());
+            if (group.arePointsOnCurve(xs, ys)) {
+                return false;
+            }
+
+            elements[size - 1] =
+                JECPGroupElement.unsafeElement(group,
+                                               xs[size - 1],
+                                               ys[size - 1]);
+            array = group.toElementArray(elements);
+            btr = array.toByteTree().getByteTreeReader();
+            try {
+                group.toElementArray(size, btr);
+                return false;
+            } catch (ArithmFormatException afe) {
+            }
+        }
+        return true;
+    }
+
 // Enabled calls to native code begins here.
 
     public static boolean exp(TestParameters tp)
@@ -199,6 +199,42 @@ public class TestLargeInteger {
         return true;
     }
 
+    public static boolean fixedModPowShort(TestParameters tp)
+        throws Exception {
+
+        RandomSource rs =
+            new PRGHeuristic(tp.prgseed.getBytes());
+
+        LargeInteger modulus = SafePrimeTable.safePrime(1024);
+        LargeInteger basis = new LargeInteger(1124, rs).mod(modulus);
+
+        // Exponents of all lengths up to the bit length of the
+        // table, including zero.
+        int bitLength = 160;
+        LargeInteger[] exponents = new LargeInteger[bitLength + 1];
+        exponents[0] = LargeInteger.ZERO;
+        for (int i = 1; i < exponents.length; i++) {
+            exponents[i] = new LargeInteger(i, rs);
+        }
+
+        for (int width = 1; width < 12; width += 3) {
+
+            LargeIntegerFixModPowTab tab =
+                new LargeIntegerFixModPowTab(basis, bitLength, width, modulus);
+
+            LargeInteger[] res = new LargeInteger[exponents.length];
+            tab.modPow(exponents, res, 0, exponents.length);
+            tab.free();
+
+            for (int i = 0; i < exponents.length; i++) {
+                if (!res[i].equals(basis.modPow(exponents[i], modulus))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     public static boolean legendre(TestParameters tp) throws Exception {
 
         RandomSource rs =
@@ -234,4 +270,41 @@ public class TestLargeInteger {
         }
         return true;
     }
+
+    public static boolean randomParallel(TestParameters tp)
+        throws Exception {
+
+        byte[] seed = tp.prgseed.getBytes();
+        int[] sizes = {0, 1, 999, 5000};
+        int[] bitLengths = {1, 7, 128, 130};
+
+        for (int size : sizes) {
+            for (int bitLength : bitLengths) {
+
+                PRGHeuristic prg = new PRGHeuristic(seed);
+                PRGHeuristic seqPRG = new PRGHeuristic(seed);
+
+                // Start inside a block of the output stream.
+                prg.getBytes(5);
+                seqPRG.getBytes(5);
+
+                LargeInteger[] integers =
+                    LargeInteger.random(size, bitLength, prg);
+
+                for (int i = 0; i < size; i++) {
+                    LargeInteger li = new LargeInteger(bitLength, seqPRG);
+                    if (!integers[i].equals(li)) {
+                        return false;
+                    }
+                }
+
+                // The generator continues where sequential generation
+                // would have stopped.
+                if (!Arrays.equals(prg.getBytes(40), seqPRG.getBytes(40))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
 }
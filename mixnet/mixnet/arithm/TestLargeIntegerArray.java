@@ -29,6 +29,7 @@ import java.util.*;
 import mixnet.arithm.*;
 import mixnet.crypto.*;
 import mixnet.eio.*;
+import mixnet.util.*;
 
 import mixnet.test.*;
 
@@ -91,6 +92,14 @@ public class TestLargeIntegerArray {
 	return new LargeIntegerArrayF(lia.integers());
     }
 
+    protected static boolean same(LargeIntegerArray x1, LargeIntegerArray x2) {
+	return Arrays.equals(x1.integers(), x2.integers());
+    }
+
+    protected static LargeIntegerArrayM toM(LargeIntegerArray lia) {
+	return new LargeIntegerArrayM(lia.integers());
+    }
+
     public static boolean permuteElements(TestParameters tp) throws Exception {
         setTestDir(tp.tmpDir);
         generateArrays(tp);
@@ -105,6 +114,197 @@ public class TestLargeIntegerArray {
         return a.equals(aa);
     }
 
+    public static boolean permuteBinaryAsText(TestParameters tp)
+        throws Exception {
+        setTestDir(tp.tmpDir);
+        generateArrays(tp);
+
+        RandomSource rs = new PRGHeuristic(tp.prgseed.getBytes());
+
+        Permutation permutation = new Permutation(a.size(), rs, 100);
+        LargeIntegerArrayF fa = toF(a);
+
+        LargeIntegerArrayF binary = (LargeIntegerArrayF)fa.permute(permutation);
+        LargeIntegerArrayF text =
+            (LargeIntegerArrayF)fa.permuteText(permutation);
+
+        return ExtIO.equals(binary.file, text.file);
+    }
+
+    public static boolean mappedArithmetic(TestParameters tp)
+        throws Exception {
+        setTestDir(tp.tmpDir);
+        generateArrays(tp);
+
+        RandomSource rs = new PRGHeuristic(tp.prgseed.getBytes());
+        Permutation permutation = new Permutation(a.size(), rs, 100);
+
+        LargeIntegerArray ia = toIM(a);
+        LargeIntegerArray ib = toIM(b);
+        LargeIntegerArrayM ma = toM(a);
+        LargeIntegerArrayM mb = toM(b);
+
+        // Use a small batch size to exercise the batching.
+        ma.batchSize = 3;
+
+        Pair<LargeIntegerArray,LargeInteger> ip = ia.modRecLin(ib, modulus);
+        Pair<LargeIntegerArray,LargeInteger> mp = ma.modRecLin(mb, modulus);
+
+        return same(ia.modMul(ib, modulus), ma.modMul(mb, modulus))
+            && same(ia.modPow(ib, modulus), ma.modPow(mb, modulus))
+            && same(ia.modProds(modulus), ma.modProds(modulus))
+            && same(ia.modNeg(modulus), ma.modNeg(modulus))
+            && same(ip.first, mp.first)
+            && ip.second.equals(mp.second)
+            && ia.modPowProd(ib, modulus).equals(ma.modPowProd(mb, modulus))
+            && same(ia.permute(permutation), ma.permute(permutation))
+            && same(ia.shiftPush(x), ma.shiftPush(x));
+    }
+
+    public static boolean mappedRanges(TestParameters tp)
+        throws Exception {
+        setTestDir(tp.tmpDir);
+        generateArrays(tp);
+
+        LargeIntegerArrayM ma = toM(a);
+        LargeIntegerArrayM mb = toM(b);
+
+        LargeIntegerArray range = ma.copyOfRange(5, 15);
+
+        // The range must survive freeing the array it was taken from.
+        ma.free();
+
+        LargeIntegerArray ab = new LargeIntegerArrayM(range, mb);
+        LargeIntegerArray ba = ab.copyOfRange(10, 20).shiftPush(x);
+
+        LargeInteger[] as = a.integers();
+        LargeInteger[] bs = b.integers();
+        for (int i = 0; i < 10; i++) {
+            if (!ab.get(i).equals(as[5 + i])
+                || !ab.get(10 + i).equals(bs[i])
+                || !ba.get(i).equals(i == 0 ? x : bs[i - 1])) {
+                return false;
+            }
+        }
+        return ab.size() == 30;
+    }
+
+    public static boolean mappedByteTree(TestParameters tp)
+        throws Exception {
+        setTestDir(tp.tmpDir);
+        generateArrays(tp);
+
+        // Mix in negative and short integers, since these are stored
+        // sign-extended in the records.
+        LargeInteger[] integers = a.integers();
+        integers[0] = integers[0].neg();
+        integers[1] = LargeInteger.ZERO;
+        integers[2] = new LargeInteger(-1);
+        integers[3] = new LargeInteger(128);
+
+        LargeIntegerArray ia = new LargeIntegerArrayIM(integers);
+        LargeIntegerArray ma = new LargeIntegerArrayM(integers);
+
+        int byteLength = modulus.toByteArray().length;
+
+        ByteTreeReader btr = a.toByteTree(byteLength).getByteTreeReader();
+        LargeIntegerArray ra = new LargeIntegerArrayM(0, btr,
+                                                      LargeInteger.ZERO,
+                                                      modulus);
+
+        return Arrays.equals(ia.toByteTree().toByteArray(),
+                             ma.toByteTree().toByteArray())
+            && Arrays.equals(ia.toByteTree(byteLength).toByteArray(),
+                             ma.toByteTree(byteLength).toByteArray())
+            && same(ra, toIM(a));
+    }
+
+    public static boolean mappedHashCode(TestParameters tp)
+        throws Exception {
+        setTestDir(tp.tmpDir);
+        generateArrays(tp);
+
+        // Equal arrays stored in records of different widths.
+        LargeInteger[] small = {LargeInteger.ZERO,
+                                new LargeInteger(-1),
+                                new LargeInteger(128)};
+        LargeInteger[] integers = {small[0], small[1], small[2], x};
+
+        LargeIntegerArray ma = new LargeIntegerArrayM(small);
+        LargeIntegerArray mb =
+            new LargeIntegerArrayM(integers).copyOfRange(0, small.length);
+
+        return ma.equals(mb) && ma.hashCode() == mb.hashCode()
+            && !ma.equals(toM(a));
+    }
+
+    public static boolean mappedByteTreeOverflow(TestParameters tp)
+        throws Exception {
+        setTestDir(tp.tmpDir);
+
+        LargeInteger[] integers = {new LargeInteger(-1),
+                                   new LargeInteger(128)};
+        LargeIntegerArray ia = new LargeIntegerArrayIM(integers);
+        LargeIntegerArray ma = new LargeIntegerArrayM(integers);
+
+        // The integer 128 needs two bytes as a signed integer.
+        try {
+            ma.toByteTree(1);
+            return false;
+        } catch (ArithmError ae) {
+        }
+        return Arrays.equals(ia.toByteTree(2).toByteArray(),
+                             ma.toByteTree(2).toByteArray());
+    }
+
+
+    public static boolean fused(TestParameters tp)
+        throws Exception {
+        setTestDir(tp.tmpDir);
+        generateArrays(tp);
+
+        LargeIntegerArrayF[] fs = {toF(a), toF(b), toF(c)};
+        LargeIntegerArrayM[] ms = {toM(a), toM(b), toM(c)};
+
+        // Use small batch sizes to exercise the interleaved batching.
+        for (int i = 0; i < 3; i++) {
+            fs[i].batchSize = 5;
+            ms[i].batchSize = 5;
+        }
+
+        LargeIntegerArray[][] arrays = {{toIM(a), toIM(b), toIM(c)}, fs, ms};
+
+        for (int j = 0; j < arrays.length; j++) {
+
+            LargeIntegerArray[] bases = {arrays[j][0], arrays[j][1]};
+            LargeIntegerArray[] shared = {arrays[j][2], arrays[j][2]};
+            LargeIntegerArray[] factors = {arrays[j][1], arrays[j][2]};
+
+            LargeIntegerArray[] mul =
+                LargeIntegerArray.modMul(bases, factors, modulus);
+            LargeIntegerArray[] inv = LargeIntegerArray.modInv(bases, modulus);
+            LargeIntegerArray[] pow =
+                LargeIntegerArray.modPow(bases, shared, modulus);
+            LargeInteger[] sharedProd =
+                LargeIntegerArray.modPowProd(bases, shared, modulus);
+            LargeInteger[] prod =
+                LargeIntegerArray.modPowProd(bases, factors, modulus);
+
+            for (int i = 0; i < bases.length; i++) {
+                if (!same(mul[i], bases[i].modMul(factors[i], modulus))
+                    || !same(inv[i], bases[i].modInv(modulus))
+                    || !same(pow[i], bases[i].modPow(shared[i], modulus))
+                    || !sharedProd[i].equals(bases[i].modPowProd(shared[i],
+                                                                 modulus))
+                    || !prod[i].equals(bases[i].modPowProd(factors[i],
+                                                           modulus))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
 
     protected static void printPara(LargeIntegerArray x1Array,
 				    LargeIntegerArray x2Array) {
@@ -65,4 +65,86 @@ public class TestModPGroup {
         }
         return true;
     }
+
+    public static boolean batchedMembership(TestParameters tp)
+        throws Exception {
+
+        setupModPGroup(tp);
+
+        // Group with co-order two times a large prime.
+        LargeInteger order = new LargeInteger(256, rs).nextPrime(rs, 20);
+        LargeInteger modulus;
+        do {
+            LargeInteger prime = new LargeInteger(200, rs).nextPrime(rs, 20);
+            modulus = order.mul(prime).shiftLeft(1).add(LargeInteger.ONE);
+        } while (!modulus.isProbablePrime(rs, 20));
+        LargeInteger gli = new LargeInteger(modulus.bitLength() + 50, rs).
+            modPow(modulus.sub(LargeInteger.ONE).divide(order), modulus);
+
+        // Groups with co-orders of different forms.
+        ModPGroup[] pGroups = new ModPGroup[4];
+        pGroups[0] = pGroup;
+        pGroups[1] = new ModPGroup(256, 128, ModPGroup.RO_ENCODING, rs, 20);
+        pGroups[2] = new ModPGroup(256, 250, ModPGroup.SUBGROUP_ENCODING,
+                                   rs, 20);
+        pGroups[3] = new ModPGroup(modulus, order, gli,
+                                   ModPGroup.RO_ENCODING, rs, 20);
+
+        int size = 3 * tp.testSize;
+
+        for (int j = 0; j < pGroups.length; j++) {
+
+            modulus = pGroups[j].getModulus();
+
+            PGroupElementArray elements =
+                pGroups[j].randomElementArray(size, rs, 50);
+            LargeInteger[] integers =
+                ((ModPGroupElementArray)elements).values.integers();
+
+            // Replace some of the elements by non-members.
+            boolean[] expected = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                if (i % 7 == 3) {
+                    do {
+                        integers[i] = new LargeInteger(modulus.bitLength()
+                                                       + 50, rs).mod(modulus);
+                    } while (pGroups[j].contains(integers[i]));
+                }
+                expected[i] = pGroups[j].contains(integers[i]);
+            }
+
+            LargeIntegerArray values =
+                LargeIntegerArray.toLargeIntegerArray(integers);
+            boolean[] members = pGroups[j].contains(values, rs);
+
+            // Force batched tests also when they are not cheaper.
+            pGroups[j].membershipBatched = true;
+            boolean[] batchedMembers = pGroups[j].contains(values, rs);
+            values.free();
+
+            if (!Arrays.equals(members, expected)
+                || !Arrays.equals(batchedMembers, expected)) {
+                return false;
+            }
+
+            // Valid representations are accepted and invalid are not.
+            ByteTreeReader btr = elements.toByteTree().getByteTreeReader();
+            PGroupElementArray copy = pGroups[j].toElementArray(size, btr);
+            if (!copy.equals(elements)) {
+                return false;
+            }
+            copy.free();
+
+            values = LargeIntegerArray.toLargeIntegerArray(integers);
+            btr = values.toByteTree().getByteTreeReader();
+            values.free();
+            try {
+                pGroups[j].toElementArray(size, btr);
+                return false;
+            } catch (ArithmFormatException afe) {
+            }
+            elements.free();
+        }
+        return true;
+    }
 }
@@ -0,0 +1,100 @@
+
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.arithm;
+
+import mixnet.crypto.*;
+import mixnet.test.*;
+
+/**
+ * Tests some of the functionality of {@link MultiExp}.
+ *
+ * @author Douglas Wikstrom
+ */
+public class TestMultiExp {
+
+    /**
+     * Verifies that every algorithm computes exponentiated products
+     * correctly in the given group, including products with unit
+     * bases, zero exponents, and short exponents.
+     *
+     * @param pGroup Underlying group.
+     * @param rs Source of randomness.
+     * @return True if and only if all products are correct.
+     */
+    protected static boolean algorithms(PGroup pGroup, RandomSource rs) {
+
+        PField pField = pGroup.getPRing().getPField();
+        int[] sizes = new int[] {1, 2, 14, 60};
+
+        for (int size : sizes) {
+
+            PGroupElement[] bases =
+                pGroup.randomElementArray(size, rs, 20).elements();
+            PFieldElement[] exponents =
+                pField.randomElementArray(size, rs, 20).elements();
+            PFieldElement[] shortExponents = new PFieldElement[size];
+
+            for (int i = 0; i < size; i++) {
+                shortExponents[i] =
+                    pField.toElement(new LargeInteger(1 + i % 20, rs));
+            }
+            if (size > 1) {
+                bases[1] = pGroup.getONE();
+                exponents[0] = pField.getZERO();
+            }
+
+            PGroupElement expected = pGroup.naiveExpProd(bases, exponents);
+            PGroupElement shortExpected =
+                pGroup.naiveExpProd(bases, shortExponents);
+
+            for (int algorithm = MultiExp.AUTOMATIC;
+                 algorithm <= MultiExp.BUCKETS;
+                 algorithm++) {
+
+                MultiExp.setAlgorithm(algorithm);
+                try {
+                    PGroupElement res = pGroup.expProd(bases, exponents);
+                    PGroupElement shortRes =
+                        pGroup.expProd(bases, shortExponents);
+
+                    if (!expected.equals(res)
+                        || !shortExpected.equals(shortRes)) {
+                        return false;
+                    }
+                } finally {
+                    MultiExp.setAlgorithm(MultiExp.AUTOMATIC);
+                }
+            }
+        }
+        return true;
+    }
+
+    public static boolean modPGroup(TestParameters tp) throws Exception {
+        RandomSource rs = new PRGHeuristic(tp.prgseed.getBytes());
+        return algorithms(new ModPGroup(tp.testSize), rs);
+    }
+
+    public static boolean jecpGroup(TestParameters tp) throws Exception {
+        RandomSource rs = new PRGHeuristic(tp.prgseed.getBytes());
+        return algorithms(JECPGroupParams.getJECPGroup("prime256v1"), rs);
+    }
+}
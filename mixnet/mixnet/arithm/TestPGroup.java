@@ -103,4 +103,43 @@ public class TestPGroup {
         }
         return true;
     }
+
+    public static boolean fixedBaseExpCache(TestParameters tp)
+        throws Exception {
+        setupPGroup(tp);
+
+        // Elements of elliptic curve groups use their own fixed base
+        // exponentiation, so we use the generic one of a modular
+        // group.
+        PGroup modPGroup = new ModPGroup(tp.testSize);
+
+        PField pField = modPGroup.getPRing().getPField();
+
+        PGroupElement basis = modPGroup.randomElement(rs, 20);
+        PFieldElement[] exponents =
+            pField.randomElementArray(50, rs, 20).elements();
+
+        PGroupElement[] res = basis.naiveExp(exponents);
+
+        long maxByteSize = FixExpTabCache.getMaxByteSize();
+        try {
+
+            // The second exponentiation must use the cached table.
+            long hits = FixExpTabCache.getHits();
+            if (!Arrays.equals(res, basis.exp(exponents))
+                || !Arrays.equals(res, basis.exp(exponents))
+                || FixExpTabCache.getHits() <= hits) {
+                return false;
+            }
+
+            // Evicting the table must not change the result.
+            FixExpTabCache.setMaxByteSize(0);
+            hits = FixExpTabCache.getHits();
+            return Arrays.equals(res, basis.exp(exponents))
+                && FixExpTabCache.getHits() == hits;
+
+        } finally {
+            FixExpTabCache.setMaxByteSize(maxByteSize);
+        }
+    }
 }
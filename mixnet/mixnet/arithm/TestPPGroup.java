@@ -81,4 +81,60 @@ public class TestPPGroup {
             }
             return true;
     }
+
+    public static boolean fusedArithmetic(TestParameters tp)
+        throws Exception {
+
+        setupPGroup(tp);
+
+        int size = 2 * tp.testSize;
+
+        PGroupElementArray a = pGroup.randomElementArray(size, rs, 50);
+        PGroupElementArray b = pGroup.randomElementArray(size, rs, 50);
+        PRingElementArray e =
+            pGroup.getPRing().randomElementArray(size, rs, 50);
+        PRingElementArray f =
+            modPGroup.getPRing().randomElementArray(size, rs, 50);
+
+        PGroupElement[] as = a.elements();
+        PGroupElement[] bs = b.elements();
+        PRingElement[] es = e.elements();
+        PRingElement[] fs = f.elements();
+
+        PGroupElement[] mul = a.mul(b).elements();
+        PGroupElement[] inv = a.inv().elements();
+        PGroupElement[] expe = a.exp(e).elements();
+        PGroupElement[] expf = a.exp(f).elements();
+
+        PGroupElement prode = pGroup.getONE();
+        PGroupElement prodf = pGroup.getONE();
+
+        for (int i = 0; i < size; i++) {
+            if (!mul[i].equals(as[i].mul(bs[i]))
+                || !inv[i].equals(as[i].inv())
+                || !expe[i].equals(as[i].exp(es[i]))
+                || !expf[i].equals(as[i].exp(fs[i]))) {
+                return false;
+            }
+            prode = prode.mul(as[i].exp(es[i]));
+            prodf = prodf.mul(as[i].exp(fs[i]));
+        }
+
+        // Shared exponents are recoded once when buckets are used.
+        for (int algorithm = MultiExp.AUTOMATIC;
+             algorithm <= MultiExp.BUCKETS;
+             algorithm++) {
+
+            MultiExp.setAlgorithm(algorithm);
+            try {
+                if (!a.expProd(e).equals(prode)
+                    || !a.expProd(f).equals(prodf)) {
+                    return false;
+                }
+            } finally {
+                MultiExp.setAlgorithm(MultiExp.AUTOMATIC);
+            }
+        }
+        return true;
+    }
 }
@@ -74,8 +74,7 @@ public class TestPermutation {
         for (int i = 0; i < tp.testSize; i++) {
 
             Permutation p = new Permutation(tp.testSize, rs, 10);
-            ByteTree bt = p.toByteTree();
-            ByteTreeReader btr = new ByteTreeReaderBT(bt);
+            ByteTreeReader btr = p.toByteTree().getByteTreeReader();
             Permutation q = new Permutation(p.size(), btr);
             if (!p.equals(q)) {
                 return false;
@@ -83,4 +82,119 @@ public class TestPermutation {
         }
         return true;
     }
+
+    /**
+     * Generates a random permutation by sorting pairs of random
+     * integers and indices, i.e., in the way permutations were
+     * originally generated.
+     */
+    protected static int[] referenceTable(int size, RandomSource rs,
+                                          int statDist) {
+        int aprLog = MathExt.log2c(size);
+        final int bits = statDist + aprLog + aprLog;
+
+        LargeInteger[] keys = new LargeInteger[size];
+        Integer[] indices = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = new LargeInteger(bits, rs);
+            indices[i] = Integer.valueOf(i);
+        }
+
+        final LargeInteger[] fkeys = keys;
+        Arrays.sort(indices, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b) {
+                    return fkeys[a.intValue()].compareTo(fkeys[b.intValue()]);
+                }
+            });
+
+        int[] table = new int[size];
+        for (int i = 0; i < size; i++) {
+            table[i] = indices[i].intValue();
+        }
+        return table;
+    }
+
+    public static boolean generation(TestParameters tp)
+        throws Exception {
+
+        byte[] seed = new PRGHeuristic(tp.prgseed.getBytes()).getBytes(32);
+        int[] sizes = {0, 1, 2, 17, 100 * tp.testSize + 3};
+        int[] statDists = {0, 3, 10, 50};
+
+        for (int i = 0; i < sizes.length; i++) {
+            for (int j = 0; j < statDists.length; j++) {
+
+                if (sizes[i] < 2 && statDists[j] == 0) {
+                    continue;
+                }
+
+                int[] table =
+                    referenceTable(sizes[i], new PRGHeuristic(seed),
+                                   statDists[j]);
+                Permutation p = new Permutation(sizes[i],
+                                                new PRGHeuristic(seed),
+                                                statDists[j]);
+                if (!Arrays.equals(table, p.table)) {
+                    return false;
+                }
+
+                // File-based generation with several merged runs.
+                PermutationF pf = new PermutationF(sizes[i],
+                                                   new PRGHeuristic(seed),
+                                                   statDists[j], 7);
+                boolean equal = p.equals(pf);
+                pf.free();
+                if (!equal) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public static boolean fileBased(TestParameters tp)
+        throws Exception {
+
+        RandomSource rs = new PRGHeuristic(tp.prgseed.getBytes());
+        int size = 10 * tp.testSize;
+
+        Permutation p = new Permutation(size, rs, 10);
+        PermutationF pf = new PermutationF(p);
+
+        Permutation inv = pf.inv();
+        boolean res = p.inv().equals(inv);
+        inv.free();
+
+        ByteTreeReader btr = pf.toByteTree().getByteTreeReader();
+        PermutationF qf = new PermutationF(size, btr);
+        res = res && p.equals(qf);
+        qf.free();
+
+        Permutation shrunk = pf.shrink(size / 2);
+        res = res && p.shrink(size / 2).equals(shrunk);
+        shrunk.free();
+
+        Integer[] a = new Integer[size];
+        Integer[] b = new Integer[size];
+        Integer[] c = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            a[i] = Integer.valueOf(i);
+        }
+        p.applyPermutation(a, b);
+        pf.applyPermutation(a, c);
+        res = res && Arrays.equals(b, c);
+
+        // Tables that are not permutations are rejected.
+        int[] table = p.table.clone();
+        table[0] = table[1];
+        btr = ByteTree.intArrayToByteTree(table).getByteTreeReader();
+        try {
+            new PermutationF(size, btr);
+            res = false;
+        } catch (ArithmFormatException afe) {
+        }
+
+        pf.free();
+        return res;
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.arithm;
+
+import java.io.*;
+
+import mixnet.crypto.*;
+import mixnet.eio.*;
+
+/**
+ * Times the binary permutation {@link
+ * LargeIntegerArrayF#permute(Permutation)} against the text based
+ * permutation {@link LargeIntegerArrayF#permuteText(Permutation)},
+ * and verifies that they give identical files.
+ *
+ * @author Douglas Wikstrom
+ */
+public class TimePermute {
+
+    public static void usage() {
+        System.out.println("Usage: <tmp dir> <size> <bit length>");
+        System.exit(0);
+    }
+
+    public static void main(String args[]) throws Exception {
+        if (args.length < 3) {
+            usage();
+        }
+
+        File tmpDir = new File(args[0]);
+        int size = Integer.parseInt(args[1]);
+        int bitLength = Integer.parseInt(args[2]);
+
+        tmpDir.mkdirs();
+        TempFile.init(tmpDir);
+
+        RandomSource rs = new PRGHeuristic();
+
+        LargeIntegerArrayF array =
+            new LargeIntegerArrayF(size, bitLength, rs);
+        Permutation permutation = new Permutation(size, rs, 50);
+
+        long start = System.currentTimeMillis();
+        LargeIntegerArrayF text =
+            (LargeIntegerArrayF)array.permuteText(permutation);
+        long textTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        LargeIntegerArrayF binary =
+            (LargeIntegerArrayF)array.permute(permutation);
+        long binaryTime = System.currentTimeMillis() - start;
+
+        boolean identical = ExtIO.equals(text.file, binary.file);
+
+        System.out.println("Size:      " + size);
+        System.out.println("Bits:      " + bitLength);
+        System.out.println("Text (ms): " + textTime);
+        System.out.println("Bin. (ms): " + binaryTime);
+        System.out.println("Identical: " + identical);
+
+        array.free();
+        text.free();
+        binary.free();
+        TempFile.free();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.bench;
+
+import java.io.*;
+
+import mixnet.arithm.*;
+import mixnet.crypto.*;
+import mixnet.eio.*;
+
+/**
+ * Benchmarks of a single operation on arrays of group elements,
+ * i.e., element-wise exponentiation, exponentiated product,
+ * element-wise multiplication, permutation, and conversion to a byte
+ * tree written to file.
+ *
+ * @author Douglas Wikstrom
+ */
+public class ArrayBenchmark extends Benchmark {
+
+    /**
+     * Names of the operations that can be benchmarked.
+     */
+    public final static String[] OPERATIONS =
+    {"exp", "expProd", "mul", "permute", "toByteTree"};
+
+    /**
+     * Index of the benchmarked operation in {@link #OPERATIONS}.
+     */
+    protected int operation;
+
+    /**
+     * Array of random group elements.
+     */
+    protected PGroupElementArray array;
+
+    /**
+     * Second array of random group elements.
+     */
+    protected PGroupElementArray factors;
+
+    /**
+     * Array of random exponents.
+     */
+    protected PRingElementArray exponents;
+
+    /**
+     * Random permutation.
+     */
+    protected Permutation permutation;
+
+    /**
+     * Creates a benchmark of the given operation.
+     *
+     * @param operationName Name of operation in {@link #OPERATIONS}.
+     *
+     * @throws BenchError If the operation is unknown.
+     */
+    public ArrayBenchmark(String operationName) {
+        operation = -1;
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            if (OPERATIONS[i].equals(operationName)) {
+                operation = i;
+            }
+        }
+        if (operation < 0) {
+            throw new BenchError("Unknown operation! (" + operationName + ")");
+        }
+    }
+
+    public String getName() {
+        return OPERATIONS[operation];
+    }
+
+    public void setup(PGroup pGroup, int size, RandomSource rs) {
+        super.setup(pGroup, size, rs);
+
+        array = pGroup.randomElementArray(size, rs, STAT_DIST);
+        factors = pGroup.randomElementArray(size, rs, STAT_DIST);
+        exponents = pGroup.getPRing().randomElementArray(size, rs, STAT_DIST);
+        permutation = new Permutation(size, rs, STAT_DIST);
+    }
+
+    public void run() {
+        switch (operation) {
+        case 0:
+            array.exp(exponents).free();
+            break;
+        case 1:
+            array.expProd(exponents);
+            break;
+        case 2:
+            array.mul(factors).free();
+            break;
+        case 3:
+            array.permute(permutation).free();
+            break;
+        default:
+            File file = TempFile.getFile();
+            array.toByteTree().unsafeWriteTo(file);
+            file.delete();
+        }
+    }
+
+    public void tearDown() {
+        array.free();
+        factors.free();
+        exponents.free();
+    }
+}
@@ -0,0 +1,593 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.bench;
+
+import java.io.*;
+import java.util.*;
+
+import mixnet.*;
+import mixnet.arithm.*;
+import mixnet.crypto.*;
+import mixnet.eio.*;
+import mixnet.ui.*;
+import mixnet.ui.opt.*;
+import mixnet.util.*;
+
+/**
+ * Command line interface for executing benchmarks. Each benchmark is
+ * executed for every combination of group, array representation, and
+ * size. For each combination, the benchmark is set up, executed a
+ * number of warmup iterations, and then executed and timed a number
+ * of measurement iterations, where each iteration executes the
+ * benchmarked operation once.
+ *
+ * <p>
+ *
+ * The results can be written to file in the JSON format of the Java
+ * Microbenchmark Harness (JMH) in average time mode, i.e., as an
+ * array of objects each with fields <code>benchmark</code>,
+ * <code>params</code>, and <code>primaryMetric</code>, where the
+ * latter holds the average time in milliseconds along with the
+ * measurements. Thus, tools that track JMH results can track these
+ * results as well.
+ *
+ * @author Douglas Wikstrom
+ */
+public class Bench {
+
+    /**
+     * Groups used by default.
+     */
+    public final static String DEFAULT_GROUPS =
+        "ModPGroup-2048,ModPGroup-3072,P-256,P-521";
+
+    /**
+     * Array representations used by default.
+     */
+    public final static String DEFAULT_ARRAYS = "ram,file";
+
+    /**
+     * Sizes used by default.
+     */
+    public final static String DEFAULT_SIZES = "1000,10000";
+
+    /**
+     * Prefix of the names of modular groups.
+     */
+    public final static String MODPGROUP_PREFIX = "ModPGroup-";
+
+    /**
+     * Two-sided 99.9% quantile of the normal distribution used to
+     * compute the error of a score.
+     */
+    public final static double QUANTILE = 3.2905;
+
+    /**
+     * Returns the names of all benchmarks.
+     *
+     * @return Names of all benchmarks.
+     */
+    public static String[] benchmarkNames() {
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < ArrayBenchmark.OPERATIONS.length; i++) {
+            names.add(ArrayBenchmark.OPERATIONS[i]);
+        }
+        names.add("expProd.tables");
+        names.add("expProd.buckets");
+        names.add("PoSBasicTW.commit");
+        names.add("PoSBasicTW.verify");
+        names.add("CCPoSBasicW.commit");
+        names.add("CCPoSBasicW.verify");
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * Returns the comma-separated concatenation of the given strings.
+     *
+     * @param strings Strings to be concatenated.
+     * @return Concatenation of the strings.
+     */
+    static String concat(String[] strings) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < strings.length; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append(strings[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the benchmark with the given name.
+     *
+     * @param name Name of benchmark.
+     * @return Benchmark with the given name.
+     *
+     * @throws BenchError If there is no benchmark with the given
+     * name.
+     */
+    public static Benchmark newBenchmark(String name) {
+        if (name.equals("expProd.tables")) {
+            return new MultiExpBenchmark(MultiExp.TABLES);
+        } else if (name.equals("expProd.buckets")) {
+            return new MultiExpBenchmark(MultiExp.BUCKETS);
+        } else if (name.equals("PoSBasicTW.commit")) {
+            return new PoSBasicTWBenchmark(false);
+        } else if (name.equals("PoSBasicTW.verify")) {
+            return new PoSBasicTWBenchmark(true);
+        } else if (name.equals("CCPoSBasicW.commit")) {
+            return new CCPoSBasicWBenchmark(false);
+        } else if (name.equals("CCPoSBasicW.verify")) {
+            return new CCPoSBasicWBenchmark(true);
+        } else {
+            return new ArrayBenchmark(name);
+        }
+    }
+
+    /**
+     * Returns the group with the given name. This is either a name
+     * of a standard elliptic curve, or {@link #MODPGROUP_PREFIX}
+     * followed by the bit length of a modular group defined by a
+     * safe prime from {@link SafePrimeTable}.
+     *
+     * @param name Name of group.
+     * @return Group with the given name.
+     *
+     * @throws ArithmFormatException If there is no group with the
+     * given name.
+     */
+    public static PGroup newPGroup(String name)
+        throws ArithmFormatException {
+        if (name.startsWith(MODPGROUP_PREFIX)) {
+            try {
+                String bits = name.substring(MODPGROUP_PREFIX.length());
+                return new ModPGroup(Integer.parseInt(bits));
+            } catch (NumberFormatException nfe) {
+                throw new ArithmFormatException("Unknown group! (" +
+                                                name + ")", nfe);
+            }
+        } else {
+            return JECPGroupParams.getJECPGroup(name);
+        }
+    }
+
+    /**
+     * Sets the array representation with the given name, i.e.,
+     * "ram", "file", or "mmap".
+     *
+     * @param arrays Name of array representation.
+     *
+     * @throws BenchError If the name is unknown.
+     */
+    public static void setArrays(String arrays) {
+        if (arrays.equals("ram")) {
+            LargeIntegerArray.setDelegate(new LargeIntegerArrayWrapperIM());
+        } else if (arrays.equals("file")) {
+            LargeIntegerArray.useFileBased();
+        } else if (arrays.equals("mmap")) {
+            LargeIntegerArray.useMemoryMapped();
+        } else {
+            throw new BenchError("Unknown array representation! (" +
+                                 arrays + ")");
+        }
+    }
+
+    /**
+     * Executes the benchmark for the given parameters.
+     *
+     * @param benchmark Benchmark to be executed.
+     * @param pGroup Group in which the benchmark is executed.
+     * @param groupName Name of group.
+     * @param arrays Name of array representation.
+     * @param size Number of elements in the arrays.
+     * @param warmupIterations Number of warmup iterations.
+     * @param iterations Number of measurement iterations.
+     * @param rs Source of randomness.
+     * @return Result of the benchmark.
+     */
+    static BenchResult run(Benchmark benchmark,
+                           PGroup pGroup,
+                           String groupName,
+                           String arrays,
+                           int size,
+                           int warmupIterations,
+                           int iterations,
+                           RandomSource rs) {
+        setArrays(arrays);
+
+        benchmark.setup(pGroup, size, rs);
+
+        for (int i = 0; i < warmupIterations; i++) {
+            benchmark.run();
+        }
+
+        double[] times = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            benchmark.run();
+            times[i] = (System.nanoTime() - start) / 1000000.0;
+        }
+
+        benchmark.tearDown();
+
+        return new BenchResult(benchmark.getName(), groupName, arrays, size,
+                               warmupIterations, times);
+    }
+
+    /**
+     * Returns the results in JSON format.
+     *
+     * @param results Results of benchmarks.
+     * @return Results in JSON format.
+     */
+    static String toJSON(List<BenchResult> results) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            if (i > 0) {
+                sb.append(",\n");
+            }
+            results.get(i).toJSON(sb);
+        }
+        sb.append("\n]\n");
+        return sb.toString();
+    }
+
+    /**
+     * Generates an option instance containing suitable options and
+     * description.
+     *
+     * @param commandName Name of the command executed by the user.
+     * @return Option instance.
+     */
+    static Opt opt(String commandName) {
+
+        String defaultErrorString =
+            "Invalid invocation. Please use \"" + commandName +
+            " -h\" for usage information!";
+
+        Opt opt = new Opt(commandName, defaultErrorString);
+
+        opt.addOption("-h", "", "Print usage information.");
+        opt.addOption("-groups", "list",
+                      "Comma-separated list of groups, where a group is " +
+                      "either a named elliptic curve, e.g., P-256, or " +
+                      "ModPGroup-<bits> for a modular group of the given " +
+                      "bit length. Default is \"" + DEFAULT_GROUPS + "\".");
+        opt.addOption("-arrays", "list",
+                      "Comma-separated list of array representations, " +
+                      "each of which is \"ram\", \"file\", or \"mmap\". " +
+                      "Default is \"" + DEFAULT_ARRAYS + "\".");
+        opt.addOption("-sizes", "list",
+                      "Comma-separated list of sizes of arrays. Default " +
+                      "is \"" + DEFAULT_SIZES + "\".");
+        opt.addOption("-bench", "list",
+                      "Comma-separated list of benchmarks. Default is " +
+                      "all benchmarks, i.e., \"" +
+                      concat(benchmarkNames()) + "\".");
+        opt.addOption("-wi", "value",
+                      "Number of warmup iterations. Default is 1.");
+        opt.addOption("-i", "value",
+                      "Number of measurement iterations. Default is 5.");
+        opt.addOption("-json", "file",
+                      "Write the results in JSON format to the given file.");
+        opt.addOption("-wd", "dir",
+                      "Directory for temporary files (default is " +
+                      "/tmp/mixnet_bench). This directory is deleted on " +
+                      "exit.");
+        opt.addOption("-c", "value",
+                      "Number of threads used for arithmetic on arrays. " +
+                      "Default is one thread for each core.");
+
+        opt.addUsageForm();
+        opt.appendToUsageForm(0, "-h###");
+
+        opt.addUsageForm();
+        opt.appendToUsageForm(1, "#-groups,-arrays,-sizes,-bench,-wi,-i," +
+                              "-json,-wd,-c##");
+
+        String s = "Executes benchmarks of arithmetic on arrays and of " +
+            "proofs of shuffles for every combination of group, array " +
+            "representation, and size, and reports the average time of " +
+            "each benchmark in milliseconds.";
+        opt.appendDescription(s);
+
+        return opt;
+    }
+
+    /**
+     * Command line interface.
+     *
+     * @param args Command line arguments.
+     */
+    public static void main(String[] args) {
+
+        Opt opt = opt("bench");
+        try {
+            opt.parse(args);
+        } catch (OptException oe) {
+            String e = "\n" + "ERROR: " + oe.getMessage() + "\n";
+            System.err.println(e);
+            System.exit(1);
+        }
+
+        if (opt.getBooleanValue("-h")) {
+            System.out.println(opt.usage());
+            System.exit(0);
+        }
+
+        String[] groupNames =
+            Util.split(opt.getStringValue("-groups", DEFAULT_GROUPS), ",");
+        String[] arraysNames =
+            Util.split(opt.getStringValue("-arrays", DEFAULT_ARRAYS), ",");
+        String[] sizeStrings =
+            Util.split(opt.getStringValue("-sizes", DEFAULT_SIZES), ",");
+        String[] benchmarkNames = benchmarkNames();
+        if (opt.valueIsGiven("-bench")) {
+            benchmarkNames = Util.split(opt.getStringValue("-bench"), ",");
+        }
+        int warmupIterations = opt.getIntValue("-wi", 1);
+        int iterations = opt.getIntValue("-i", 5);
+
+        File tmpDir = new File(opt.getStringValue("-wd", "/tmp/mixnet_bench"));
+        tmpDir.mkdirs();
+        TempFile.init(tmpDir);
+
+        if (opt.valueIsGiven("-c")) {
+            ArrayWorker.setParallelism(opt.getIntValue("-c"));
+        }
+
+        RandomSource rs = new PRGHeuristic();
+        List<BenchResult> results = new ArrayList<BenchResult>();
+
+        try {
+
+            int[] sizes = new int[sizeStrings.length];
+            for (int i = 0; i < sizes.length; i++) {
+                sizes[i] = Integer.parseInt(sizeStrings[i]);
+            }
+
+            Benchmark[] benchmarks = new Benchmark[benchmarkNames.length];
+            for (int i = 0; i < benchmarks.length; i++) {
+                benchmarks[i] = newBenchmark(benchmarkNames[i]);
+            }
+
+            System.out.println(BenchResult.HEADER);
+
+            for (String groupName : groupNames) {
+
+                PGroup pGroup = newPGroup(groupName);
+
+                for (String arrays : arraysNames) {
+                    for (int size : sizes) {
+                        for (Benchmark benchmark : benchmarks) {
+
+                            BenchResult result =
+                                run(benchmark, pGroup, groupName, arrays,
+                                    size, warmupIterations, iterations, rs);
+                            System.out.println(result);
+                            results.add(result);
+                        }
+                    }
+                }
+            }
+
+            if (opt.valueIsGiven("-json")) {
+                File jsonFile = new File(opt.getStringValue("-json"));
+                ExtIO.writeString(jsonFile, toJSON(results));
+            }
+
+        } catch (NumberFormatException nfe) {
+            System.err.println("\nERROR: Sizes must be integers!\n");
+            System.exit(1);
+        } catch (ArithmFormatException afe) {
+            System.err.println("\nERROR: " + afe.getMessage() + "\n");
+            System.exit(1);
+        } catch (BenchError be) {
+            System.err.println("\nERROR: " + be.getMessage() + "\n");
+            System.exit(1);
+        } catch (IOException ioe) {
+            System.err.println("\nERROR: Unable to write results! (" +
+                               ioe.getMessage() + ")\n");
+            System.exit(1);
+        } finally {
+            TempFile.free();
+        }
+        System.exit(0);
+    }
+}
+
+/**
+ * Result of executing a benchmark for a given set of parameters.
+ */
+class BenchResult {
+
+    /**
+     * Header of the table formed by the string representations of
+     * results.
+     */
+    final static String HEADER =
+        String.format("%-20s %-16s %-8s %8s %4s %12s %12s %s",
+                      "Benchmark", "(group)", "(arrays)", "(size)",
+                      "Cnt", "Score", "Error", "Units");
+
+    /**
+     * Name of benchmark.
+     */
+    String name;
+
+    /**
+     * Name of group.
+     */
+    String groupName;
+
+    /**
+     * Name of array representation.
+     */
+    String arrays;
+
+    /**
+     * Number of elements in the arrays.
+     */
+    int size;
+
+    /**
+     * Number of warmup iterations.
+     */
+    int warmupIterations;
+
+    /**
+     * Time in milliseconds of each measurement iteration.
+     */
+    double[] times;
+
+    /**
+     * Average time in milliseconds.
+     */
+    double score;
+
+    /**
+     * Half the width of the 99.9% confidence interval of the average
+     * time, where the average is assumed to be normally distributed.
+     */
+    double scoreError;
+
+    /**
+     * Creates a result.
+     *
+     * @param name Name of benchmark.
+     * @param groupName Name of group.
+     * @param arrays Name of array representation.
+     * @param size Number of elements in the arrays.
+     * @param warmupIterations Number of warmup iterations.
+     * @param times Time in milliseconds of each measurement iteration.
+     */
+    BenchResult(String name, String groupName, String arrays, int size,
+                int warmupIterations, double[] times) {
+        this.name = name;
+        this.groupName = groupName;
+        this.arrays = arrays;
+        this.size = size;
+        this.warmupIterations = warmupIterations;
+        this.times = times;
+
+        double sum = 0;
+        for (int i = 0; i < times.length; i++) {
+            sum += times[i];
+        }
+        score = sum / times.length;
+
+        if (times.length > 1) {
+            double squares = 0;
+            for (int i = 0; i < times.length; i++) {
+                squares += (times[i] - score) * (times[i] - score);
+            }
+            double stdDev = Math.sqrt(squares / (times.length - 1));
+            scoreError = Bench.QUANTILE * stdDev / Math.sqrt(times.length);
+        } else {
+            scoreError = Double.NaN;
+        }
+    }
+
+    /**
+     * Returns the given string as a JSON string.
+     *
+     * @param s String.
+     * @return JSON string.
+     */
+    static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * Returns the given number as a JSON number, where an undefined
+     * number is represented by the string "NaN" as in JMH.
+     *
+     * @param d Number.
+     * @return JSON number.
+     */
+    static String number(double d) {
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            return quote("NaN");
+        } else {
+            return String.format(Locale.US, "%.6f", d);
+        }
+    }
+
+    /**
+     * Appends a JSON representation of this result to the string
+     * builder.
+     *
+     * @param sb Destination of representation.
+     */
+    void toJSON(StringBuilder sb) {
+        sb.append("    {\n");
+        sb.append("        \"benchmark\" : ")
+            .append(quote("mixnet.bench." + name)).append(",\n");
+        sb.append("        \"mode\" : \"avgt\",\n");
+        sb.append("        \"threads\" : 1,\n");
+        sb.append("        \"forks\" : 1,\n");
+        sb.append("        \"jdkVersion\" : ")
+            .append(quote(System.getProperty("java.version"))).append(",\n");
+        sb.append("        \"vmName\" : ")
+            .append(quote(System.getProperty("java.vm.name"))).append(",\n");
+        sb.append("        \"packageVersion\" : ")
+            .append(quote(Version.packageVersion)).append(",\n");
+        sb.append("        \"warmupIterations\" : ")
+            .append(warmupIterations).append(",\n");
+        sb.append("        \"measurementIterations\" : ")
+            .append(times.length).append(",\n");
+        sb.append("        \"params\" : {\n");
+        sb.append("            \"group\" : ")
+            .append(quote(groupName)).append(",\n");
+        sb.append("            \"arrays\" : ")
+            .append(quote(arrays)).append(",\n");
+        sb.append("            \"size\" : ")
+            .append(quote(Integer.toString(size))).append("\n");
+        sb.append("        },\n");
+        sb.append("        \"primaryMetric\" : {\n");
+        sb.append("            \"score\" : ")
+            .append(number(score)).append(",\n");
+        sb.append("            \"scoreError\" : ")
+            .append(number(scoreError)).append(",\n");
+        sb.append("            \"scoreUnit\" : \"ms/op\",\n");
+        sb.append("            \"rawData\" : [\n");
+        sb.append("                [\n");
+        for (int i = 0; i < times.length; i++) {
+            sb.append("                    ").append(number(times[i]));
+            sb.append(i < times.length - 1 ? ",\n" : "\n");
+        }
+        sb.append("                ]\n");
+        sb.append("            ]\n");
+        sb.append("        },\n");
+        sb.append("        \"secondaryMetrics\" : {\n");
+        sb.append("        }\n");
+        sb.append("    }");
+    }
+
+    public String toString() {
+        return String.format(Locale.US,
+                             "%-20s %-16s %-8s %8d %4d %12.3f %12.3f %s",
+                             name, groupName, arrays, size, times.length,
+                             score, scoreError, "ms/op");
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.bench;
+
+import mixnet.arithm.*;
+import mixnet.crypto.*;
+
+/**
+ * A benchmark is set up once for each combination of parameters,
+ * i.e., group, array representation, and size, and then the
+ * operation that is measured is executed repeatedly by {@link
+ * #run()}. The time spent in {@link #setup(PGroup,int,RandomSource)}
+ * and {@link #tearDown()} is not measured.
+ *
+ * @author Douglas Wikstrom
+ */
+public abstract class Benchmark {
+
+    /**
+     * Decides the statistical distance from the uniform distribution
+     * of random elements.
+     */
+    public final static int STAT_DIST = 50;
+
+    /**
+     * Group in which the benchmark is executed.
+     */
+    protected PGroup pGroup;
+
+    /**
+     * Number of elements in the arrays.
+     */
+    protected int size;
+
+    /**
+     * Source of randomness.
+     */
+    protected RandomSource rs;
+
+    /**
+     * Returns the name of this benchmark.
+     *
+     * @return Name of this benchmark.
+     */
+    public abstract String getName();
+
+    /**
+     * Sets up the instance of the benchmark. Subclasses that
+     * override this method must call it.
+     *
+     * @param pGroup Group in which the benchmark is executed.
+     * @param size Number of elements in the arrays.
+     * @param rs Source of randomness.
+     */
+    public void setup(PGroup pGroup, int size, RandomSource rs) {
+        this.pGroup = pGroup;
+        this.size = size;
+        this.rs = rs;
+    }
+
+    /**
+     * Executes the measured operation once. Any output of the
+     * operation is released before this method returns, since
+     * otherwise file based arrays would accumulate on disk.
+     */
+    public abstract void run();
+
+    /**
+     * Releases the resources allocated by {@link
+     * #setup(PGroup,int,RandomSource)}.
+     */
+    public abstract void tearDown();
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.bench;
+
+import java.util.*;
+
+import mixnet.arithm.*;
+import mixnet.crypto.*;
+import mixnet.eio.*;
+import mixnet.protocol.hvzk.*;
+
+/**
+ * Benchmarks the commitment phase of the prover, or the complete
+ * verification, of {@link CCPoSBasicW} for a re-encryption shuffle
+ * of El Gamal ciphertexts of width one. The instance, and in the
+ * case of verification a transcript, is computed during setup.
+ *
+ * @author Douglas Wikstrom
+ */
+public class CCPoSBasicWBenchmark extends Benchmark {
+
+    /**
+     * Decides if the verifier or the prover is benchmarked.
+     */
+    protected boolean verify;
+
+    /**
+     * Standard generator.
+     */
+    protected PGroupElement g;
+
+    /**
+     * Independent generators.
+     */
+    protected PGroupElementArray h;
+
+    /**
+     * Permutation commitment.
+     */
+    protected PGroupElementArray u;
+
+    /**
+     * Random exponents of the permutation commitment.
+     */
+    protected PRingElementArray r;
+
+    /**
+     * Committed permutation.
+     */
+    protected Permutation pi;
+
+    /**
+     * Encryption homomorphism.
+     */
+    protected HomPRingPGroup hom;
+
+    /**
+     * Input ciphertexts.
+     */
+    protected PGroupElementArray w;
+
+    /**
+     * Output ciphertexts.
+     */
+    protected PGroupElementArray wp;
+
+    /**
+     * Re-encryption exponents.
+     */
+    protected PRingElementArray s;
+
+    /**
+     * Seed of batching vector.
+     */
+    protected byte[] prgSeed;
+
+    /**
+     * Prover used to compute the transcript that is verified.
+     */
+    protected CCPoSBasicW P;
+
+    /**
+     * Commitment of the transcript.
+     */
+    protected ByteTreeBasic commitment;
+
+    /**
+     * Challenge of the transcript.
+     */
+    protected LargeInteger integerChallenge;
+
+    /**
+     * Reply of the transcript.
+     */
+    protected ByteTreeBasic reply;
+
+    /**
+     * Creates a benchmark of the prover or of the verifier.
+     *
+     * @param verify Decides if the verifier or the prover is
+     * benchmarked.
+     */
+    public CCPoSBasicWBenchmark(boolean verify) {
+        this.verify = verify;
+    }
+
+    public String getName() {
+        return verify ? "CCPoSBasicW.verify" : "CCPoSBasicW.commit";
+    }
+
+    public void setup(PGroup pGroup, int size, RandomSource rs) {
+        super.setup(pGroup, size, rs);
+
+        PRing pRing = pGroup.getPRing();
+
+        // Permutation commitment.
+        g = pGroup.getg();
+        h = pGroup.randomElementArray(size, rs, STAT_DIST);
+        r = pRing.randomElementArray(size, rs, STAT_DIST);
+        pi = new Permutation(size, rs, STAT_DIST);
+
+        PGroupElementArray gr = g.exp(r);
+        PGroupElementArray grh = gr.mul(h);
+        u = grh.permute(pi);
+        gr.free();
+        grh.free();
+
+        // Full El Gamal public key.
+        ElGamalReencShuffle shuffle =
+            new ElGamalReencShuffleStandard(pGroup, 1);
+        PGroupElement basicPublicKey =
+            shuffle.getBiKey().getPGroupDomain().getg();
+        PGroupElement publicKey =
+            basicPublicKey.exp(pRing.randomElement(rs, STAT_DIST));
+        PGroupElement fullPublicKey =
+            new PPGroup(basicPublicKey.getPGroup(), publicKey.getPGroup()).
+            product(basicPublicKey, publicKey);
+
+        // Re-encryption exponents and factors.
+        BiKeyedArrayMap encryptor = shuffle.getEncryptor(size);
+        PPGroup pGroupDomain = (PPGroup)encryptor.getPGroupDomain();
+        APGroup aPGroupDomain = (APGroup)pGroupDomain.project(1);
+
+        PRingElement pRingElement =
+            encryptor.getPRingDomain().randomElement(rs, STAT_DIST);
+        s = ((APRingElement)((PPRingElement)pRingElement).project(1)).
+            getContent();
+
+        PGroupElement keys =
+            pGroupDomain.product(fullPublicKey, aPGroupDomain.getONE());
+        PGroupElement kcPair = encryptor.map(pRingElement, keys);
+        PGroupElementArray reencFactors =
+            ((APGroupElement)((PPGroupElement)kcPair).project(1)).
+            getContent();
+
+        // Input and output ciphertexts.
+        w = encryptor.getArrayRange().randomElementArray(size, rs, STAT_DIST);
+        PGroupElementArray reencList = w.mul(reencFactors);
+        wp = reencList.permute(pi.inv());
+        reencList.free();
+        reencFactors.free();
+        keys.free();
+
+        // Homomorphism used by the proof.
+        BiKeyedArrayMap encryptor1 = shuffle.getEncryptor(1);
+        PPGroup pGroupDomain1 = (PPGroup)encryptor1.getPGroupDomain();
+        APGroup aPGroupDomain1 = (APGroup)pGroupDomain1.project(1);
+        hom = encryptor1.restrict(pGroupDomain1.product(fullPublicKey,
+                                                        aPGroupDomain1.
+                                                        getONE()));
+
+        prgSeed = new byte[newPRG().minNoSeedBytes()];
+        Arrays.fill(prgSeed, (byte)0);
+
+        if (verify) {
+            P = newInstance();
+            P.setInstance(g, h, u, hom, w, wp, r, pi, s);
+            commitment = P.commit(prgSeed, rs);
+            integerChallenge =
+                new LargeInteger(PoSBasicTWBenchmark.BIT_LENGTH, rs);
+            reply = P.reply(integerChallenge);
+        }
+    }
+
+    /**
+     * Returns a fresh pseudo-random generator.
+     *
+     * @return Pseudo-random generator.
+     */
+    protected PRG newPRG() {
+        return new PRGHeuristic();
+    }
+
+    /**
+     * Returns a fresh instance of the protocol.
+     *
+     * @return Instance of the protocol.
+     */
+    protected CCPoSBasicW newInstance() {
+        return new CCPoSBasicW(PoSBasicTWBenchmark.BIT_LENGTH,
+                               PoSBasicTWBenchmark.BIT_LENGTH,
+                               STAT_DIST,
+                               newPRG());
+    }
+
+    public void run() {
+        if (verify) {
+
+            CCPoSBasicW V = newInstance();
+            V.setInstance(g, h, u, hom, w, wp);
+            V.setBatchVector(prgSeed);
+
+            ByteTreeReader btr = commitment.getByteTreeReader();
+            V.setCommitment(btr);
+            btr.close();
+
+            V.setChallenge(integerChallenge);
+
+            btr = reply.getByteTreeReader();
+            boolean verdict = V.verify(btr);
+            btr.close();
+            V.free();
+
+            if (!verdict) {
+                throw new BenchError("Verification failed!");
+            }
+
+        } else {
+
+            CCPoSBasicW P = newInstance();
+            P.setInstance(g, h, u, hom, w, wp, r, pi, s);
+            P.commit(prgSeed, rs);
+            P.free();
+        }
+    }
+
+    public void tearDown() {
+        if (P != null) {
+            P.free();
+            P = null;
+        }
+        h.free();
+        r.free();
+        u.free();
+        w.free();
+        wp.free();
+        s.free();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+
+package mixnet.bench;
+
+import mixnet.arithm.*;
+import mixnet.crypto.*;
+
+/**
+ * Benchmarks the exponentiated product of an array of group elements
+ * computed with a given algorithm of {@link MultiExp}, i.e., the
+ * simultaneous exponentiation tables or the bucket method, which
+ * allows comparing the algorithms with each other and with the
+ * automatic choice benchmarked by {@link ArrayBenchmark}.
+ *
+ * @author Douglas Wikstrom
+ */
+public class MultiExpBenchmark extends Benchmark {
+
+    /**
+     * Algorithm of {@link MultiExp} that is benchmarked.
+     */
+    protected int algorithm;
+
+    /**
+     * Array of random group elements.
+     */
+    protected PGroupElementArray array;
+
+    /**
+     * Array of random exponents.
+     */
+    protected PRingElementArray exponents;
+
+    /**
+     * Creates a benchmark of the given algorithm.
+     *
+     * @param algorithm Algorithm of {@link MultiExp}, i.e., {@link
+     * MultiExp#TABLES} or {@link MultiExp#BUCKETS}.
+     */
+    public MultiExpBenchmark(int algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public String getName() {
+        return "expProd." + MultiExp.ALGORITHMS[algorithm];
+    }
+
+    public void setup(PGroup pGroup, int size, RandomSource rs) {
+        super.setup(pGroup, size, rs);
+
+        array = pGroup.randomElementArray(size, rs, STAT_DIST);
+        exponents = pGroup.getPRing().randomElementArray(size, rs, STAT_DIST);
+    }
+
+    public void run() {
+        int previous = MultiExp.getAlgorithm();
+        MultiExp.setAlgorithm(algorithm);
+        try {
+            array.expProd(exponents);
+        } finally {
+            MultiExp.setAlgorithm(previous);
+        }
+    }
+
+    public void tearDown() {
+        array.free();
+        exponents.free();
+    }
+}
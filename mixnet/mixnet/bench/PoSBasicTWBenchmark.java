@@ -0,0 +1,199 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.bench;
+
+import java.util.*;
+
+import mixnet.arithm.*;
+import mixnet.crypto.*;
+import mixnet.eio.*;
+import mixnet.protocol.hvzk.*;
+
+/**
+ * Benchmarks the commitment phase of the prover, or the complete
+ * verification, of {@link PoSBasicTW}. The instance, and in the case
+ * of verification a transcript, is computed during setup.
+ *
+ * @author Douglas Wikstrom
+ */
+public class PoSBasicTWBenchmark extends Benchmark {
+
+    /**
+     * Bit length of challenges and components of batching vectors.
+     */
+    public final static int BIT_LENGTH = 128;
+
+    /**
+     * Decides if the verifier or the prover is benchmarked.
+     */
+    protected boolean verify;
+
+    /**
+     * Standard generator.
+     */
+    protected PGroupElement g;
+
+    /**
+     * Independent generators.
+     */
+    protected PGroupElementArray h;
+
+    /**
+     * Permutation commitment.
+     */
+    protected PGroupElementArray u;
+
+    /**
+     * Random exponents of the permutation commitment.
+     */
+    protected PRingElementArray r;
+
+    /**
+     * Committed permutation.
+     */
+    protected Permutation pi;
+
+    /**
+     * Seed of batching vector.
+     */
+    protected byte[] prgSeed;
+
+    /**
+     * Prover used to compute the transcript that is verified.
+     */
+    protected PoSBasicTW P;
+
+    /**
+     * Commitment of the transcript.
+     */
+    protected ByteTreeBasic commitment;
+
+    /**
+     * Challenge of the transcript.
+     */
+    protected LargeInteger integerChallenge;
+
+    /**
+     * Reply of the transcript.
+     */
+    protected ByteTreeBasic reply;
+
+    /**
+     * Creates a benchmark of the prover or of the verifier.
+     *
+     * @param verify Decides if the verifier or the prover is
+     * benchmarked.
+     */
+    public PoSBasicTWBenchmark(boolean verify) {
+        this.verify = verify;
+    }
+
+    public String getName() {
+        return verify ? "PoSBasicTW.verify" : "PoSBasicTW.commit";
+    }
+
+    public void setup(PGroup pGroup, int size, RandomSource rs) {
+        super.setup(pGroup, size, rs);
+
+        PRing pRing = pGroup.getPRing();
+
+        g = pGroup.getg();
+        h = pGroup.randomElementArray(size, rs, STAT_DIST);
+        r = pRing.randomElementArray(size, rs, STAT_DIST);
+        pi = new Permutation(size, rs, STAT_DIST);
+
+        PGroupElementArray gr = g.exp(r);
+        PGroupElementArray grh = gr.mul(h);
+        u = grh.permute(pi);
+        gr.free();
+        grh.free();
+
+        prgSeed = new byte[newPRG().minNoSeedBytes()];
+        Arrays.fill(prgSeed, (byte)0);
+
+        if (verify) {
+            P = newInstance();
+            P.setInstance(g, h, u, r, pi);
+            commitment = P.commit(prgSeed, rs);
+            integerChallenge = new LargeInteger(BIT_LENGTH, rs);
+            reply = P.reply(integerChallenge);
+        }
+    }
+
+    /**
+     * Returns a fresh pseudo-random generator.
+     *
+     * @return Pseudo-random generator.
+     */
+    protected PRG newPRG() {
+        return new PRGHeuristic();
+    }
+
+    /**
+     * Returns a fresh instance of the protocol.
+     *
+     * @return Instance of the protocol.
+     */
+    protected PoSBasicTW newInstance() {
+        return new PoSBasicTW(BIT_LENGTH, BIT_LENGTH, STAT_DIST, newPRG());
+    }
+
+    public void run() {
+        if (verify) {
+
+            PoSBasicTW V = newInstance();
+            V.setInstance(g, h, u);
+            V.setBatchVector(prgSeed);
+
+            ByteTreeReader btr = commitment.getByteTreeReader();
+            V.setCommitment(btr);
+            btr.close();
+
+            V.setChallenge(integerChallenge);
+
+            btr = reply.getByteTreeReader();
+            boolean verdict = V.verify(btr);
+            btr.close();
+            V.free();
+
+            if (!verdict) {
+                throw new BenchError("Verification failed!");
+            }
+
+        } else {
+
+            PoSBasicTW P = newInstance();
+            P.setInstance(g, h, u, r, pi);
+            P.commit(prgSeed, rs);
+            P.free();
+        }
+    }
+
+    public void tearDown() {
+        if (P != null) {
+            P.free();
+            P = null;
+        }
+        h.free();
+        r.free();
+        u.free();
+    }
+}
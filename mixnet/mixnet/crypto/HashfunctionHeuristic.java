@@ -46,9 +46,11 @@ public class HashfunctionHeuristic implements Hashfunction {
     protected String algorithm;
 
     /**
-     * Underlying hash digest.
+     * Underlying hash digests. Each thread uses its own instance,
+     * since the implementations of the standard hashfunctions are
+     * not thread safe.
      */
-    protected MessageDigest md;
+    protected ThreadLocal<MessageDigest> mds;
 
     /**
      * Length of output.
@@ -97,8 +99,22 @@ public class HashfunctionHeuristic implements Hashfunction {
         } else {
             throw new CryptoError("Unsupported algorithm!");
         }
+        newMessageDigest();
+        mds = new ThreadLocal<MessageDigest>() {
+            protected MessageDigest initialValue() {
+                return newMessageDigest();
+            }
+        };
+    }
+
+    /**
+     * Returns a new instance of the underlying message digest.
+     *
+     * @return Message digest.
+     */
+    protected MessageDigest newMessageDigest() {
         try {
-            md = MessageDigest.getInstance(algorithm);
+            return MessageDigest.getInstance(algorithm);
         } catch (NoSuchAlgorithmException nsae) {
             throw new CryptoError("Unsupported algorithm!", nsae);
         }
@@ -107,17 +123,13 @@ public class HashfunctionHeuristic implements Hashfunction {
     // Documented in Hashfunction.java
 
     public Hashdigest getDigest() {
-        try {
-            MessageDigest md = MessageDigest.getInstance(algorithm);
-            return new HashdigestHeuristic(md);
-        } catch (NoSuchAlgorithmException nsae) {
-            throw new CryptoError("Unsupported algorithm!", nsae);
-        }
+        return new HashdigestHeuristic(newMessageDigest());
     }
 
     // Apparently Sun did not make a thread safe implementation of
-    // SHA-2. Thus, we need to add some synchronization here.
-    public synchronized byte[] hash(byte[] ... datas) {
+    // SHA-2. Thus, each thread uses its own message digest.
+    public byte[] hash(byte[] ... datas) {
+        MessageDigest md = mds.get();
         md.reset();
 
         for (int i = 0; i < datas.length; i++) {
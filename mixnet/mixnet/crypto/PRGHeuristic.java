@@ -33,6 +33,15 @@ import mixnet.ui.*;
  * concatenated with a counter, i.e., a natural construction of a PRG
  * from a pseudo-random function.
  *
+ * <p>
+ *
+ * Since each block of output is computed independently from the
+ * seed and its index, the generator is seekable, i.e., it can be
+ * positioned at any byte of its output stream using {@link
+ * #seek(long)}. Together with {@link #copy()}, this allows
+ * consecutive parts of the output stream to be computed in parallel
+ * with exactly the same result as when it is computed sequentially.
+ *
  * @author Douglas Wikstrom
  */
 public class PRGHeuristic extends PRG {
@@ -169,6 +178,79 @@ public class PRGHeuristic extends PRG {
         return hashfunction.getOutputLength() / 8;
     }
 
+    /**
+     * Returns the number of bytes output since the generator was
+     * seeded, i.e., the position in the output stream.
+     *
+     * @return Position in the output stream.
+     */
+    public long getPosition() {
+        return (counter & 0xFFFFFFFFL) * data.length - (data.length - datapos);
+    }
+
+    /**
+     * Positions the generator at the given byte of the output stream
+     * of the current seed. The block of the output stream containing
+     * the byte is computed directly from the seed and the index of
+     * the block.
+     *
+     * @param position Position in the output stream.
+     */
+    public void seek(long position) {
+        if (position < 0) {
+            throw new CryptoError("Negative position!");
+        }
+        int blockLength = hashfunction.getOutputLength() / 8;
+
+        // The counter is truncated to 32 bits exactly as when it
+        // wraps around during sequential generation.
+        counter = (int)(position / blockLength);
+        datapos = (int)(position % blockLength);
+
+        if (datapos == 0) {
+            data = new byte[blockLength];
+            datapos = blockLength;
+        } else {
+            int i = minNoSeedBytes();
+            input[i++] = (byte)(counter >>> 24 & 0xff);
+            input[i++] = (byte)(counter >>> 16 & 0xff);
+            input[i++] = (byte)(counter >>> 8 & 0xff);
+            input[i++] = (byte)(counter & 0xff);
+
+            data = hashfunction.hash(input);
+            counter++;
+        }
+    }
+
+    /**
+     * Returns an independent copy of this generator with the same
+     * seed and position. The copy shares the underlying
+     * hashfunction, so copies may only be used in different threads
+     * if {@link #allowsConcurrentCopies()} returns true.
+     *
+     * @return Copy of this generator.
+     */
+    public PRGHeuristic copy() {
+        PRGHeuristic prg = new PRGHeuristic(hashfunction);
+        System.arraycopy(input, 0, prg.input, 0, input.length);
+        prg.counter = counter;
+        prg.data = Arrays.copyOf(data, data.length);
+        prg.datapos = datapos;
+        return prg;
+    }
+
+    /**
+     * Returns true if copies of this generator may be used
+     * concurrently by several threads, i.e., if the underlying
+     * hashfunction is known to be thread safe.
+     *
+     * @return <code>true</code> if copies may be used concurrently
+     * and <code>false</code> otherwise.
+     */
+    public boolean allowsConcurrentCopies() {
+        return hashfunction instanceof HashfunctionHeuristic;
+    }
+
     // Documented in Marshalizable.java
 
     public ByteTreeBasic toByteTree() {
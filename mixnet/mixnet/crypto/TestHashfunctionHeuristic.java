@@ -66,4 +66,44 @@ public class TestHashfunctionHeuristic {
         }
         return true;
     }
+
+    public static boolean concurrentHash(TestParameters tp)
+        throws Exception {
+
+        final RandomSource rs = new PRGHeuristic(tp.prgseed.getBytes());
+        final Hashfunction hf = new HashfunctionHeuristic("SHA-512");
+
+        final byte[][] inputs = new byte[64][];
+        final byte[][] expected = new byte[inputs.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = rs.getBytes(1000 * i);
+            Hashdigest d = hf.getDigest();
+            d.update(inputs[i]);
+            expected[i] = d.digest();
+        }
+
+        final boolean[] res = new boolean[4];
+        Thread[] threads = new Thread[res.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int index = t;
+            threads[t] = new Thread() {
+                    public void run() {
+                        res[index] = true;
+                        for (int j = 0; j < 20; j++) {
+                            for (int i = 0; i < inputs.length; i++) {
+                                res[index] &= Arrays.equals(expected[i],
+                                                            hf.hash(inputs[i]));
+                            }
+                        }
+                    }
+                };
+            threads[t].start();
+        }
+        boolean verdict = true;
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            verdict &= res[t];
+        }
+        return verdict;
+    }
 }
@@ -70,4 +70,42 @@ public class TestPRGHeuristic {
         return true;
     }
 
+    public static boolean seek(TestParameters tp) throws Exception {
+
+        byte[] seed = tp.prgseed.getBytes();
+        PRGHeuristic prg = new PRGHeuristic(seed);
+
+        int length = 1000;
+        byte[] stream = prg.getBytes(length);
+        if (prg.getPosition() != length) {
+            return false;
+        }
+
+        int[] positions = {0, 1, 31, 32, 33, 64, 500, 999, 1000};
+        for (int position : positions) {
+
+            PRGHeuristic seekPRG = new PRGHeuristic(seed);
+            seekPRG.getBytes(17);
+            seekPRG.seek(position);
+            if (seekPRG.getPosition() != position) {
+                return false;
+            }
+
+            byte[] tail = seekPRG.getBytes(length - position);
+            if (!Arrays.equals(tail,
+                               Arrays.copyOfRange(stream, position, length))) {
+                return false;
+            }
+
+            // A copy continues independently from the same position.
+            seekPRG.seek(position);
+            PRGHeuristic copy = seekPRG.copy();
+            if (!Arrays.equals(copy.getBytes(length - position), tail)
+                || !Arrays.equals(seekPRG.getBytes(length - position),
+                                  tail)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -193,7 +193,7 @@ public class ByteTree extends ByteTreeBasic {
             ic.i += 4;
 
             // Copy data
-            if (data.length - ic.i < length) {
+            if (length < 0 || data.length - ic.i < length) {
                 throw new EIOException("Missing data!");
             }
             value = Arrays.copyOfRange(data, ic.i, ic.i + length);
@@ -209,6 +209,11 @@ public class ByteTree extends ByteTreeBasic {
             int length = ExtIO.readInt(data, ic.i);
             ic.i += 4;
 
+            // Every child occupies at least five bytes.
+            if (length < 0 || (data.length - ic.i) / 5 < length) {
+                throw new EIOException("Missing data!");
+            }
+
             // Read each child.
             children = new ByteTree[length];
             for (int j = 0; j < children.length; j++) {
@@ -36,11 +36,6 @@ import mixnet.ui.*;
  */
 public class ByteTreeF extends ByteTreeBasic {
 
-    /**
-     * Number of bytes in buffer used for computing digests.
-     */
-    final static int DIGEST_BUFFER_SIZE = 4096;
-
     /**
      * Number of bytes in buffer used for converting data on file to a
      * byte[].
@@ -74,22 +69,10 @@ public class ByteTreeF extends ByteTreeBasic {
     }
 
     public void update(Hashdigest digest) {
-        FileInputStream fis = null;
-
         try {
-
-            fis = new FileInputStream(file);
-
-            byte[] buf = new byte[DIGEST_BUFFER_SIZE];
-            int len = 0;
-            while ((len = fis.read(buf)) != -1) {
-                digest.update(buf, 0, len);
-            }
-
+            PipelinedDigest.update(file, digest);
         } catch (IOException ioe) {
             throw new EIOError("Internal error!", ioe);
-        } finally {
-            ExtIO.strictClose(fis);
         }
     }
 
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.eio;
+
+/**
+ * Verifies incrementally that a sequence of bytes, given in parts, is
+ * the byte array representation of a byte tree of bounded recursive
+ * depth with no spurious bytes at the end. This is equivalent to
+ * {@link ByteTreeF#verifyFormat(java.io.File,int)}, except that
+ * negative lengths are rejected, but it allows verifying data as it
+ * is received, e.g., over a network.
+ *
+ * @author Douglas Wikstrom
+ */
+public class ByteTreeFormatVerifier {
+
+    /**
+     * Maximal recursive depth of the byte tree.
+     */
+    protected int maximalRecursiveDepth;
+
+    /**
+     * Buffer for the header of the current byte tree.
+     */
+    protected byte[] header;
+
+    /**
+     * Number of bytes of the header of the current byte tree that
+     * have been read.
+     */
+    protected int headerLength;
+
+    /**
+     * Number of bytes remaining of the data of the current leaf.
+     */
+    protected long leafRemaining;
+
+    /**
+     * Number of children remaining to be read for each open node.
+     */
+    protected int[] childrenRemaining;
+
+    /**
+     * Number of open nodes.
+     */
+    protected int depth;
+
+    /**
+     * Indicates that a complete byte tree has been read.
+     */
+    protected boolean complete;
+
+    /**
+     * Indicates that the bytes read so far can not be the beginning
+     * of a valid byte tree.
+     */
+    protected boolean malformed;
+
+    /**
+     * Creates an instance.
+     *
+     * @param maximalRecursiveDepth Maximal recursive depth of the
+     * byte tree.
+     */
+    public ByteTreeFormatVerifier(int maximalRecursiveDepth) {
+        this.maximalRecursiveDepth = maximalRecursiveDepth;
+        this.header = new byte[5];
+        this.childrenRemaining = new int[8];
+    }
+
+    /**
+     * Processes the next part of the sequence of bytes.
+     *
+     * @param data Source of bytes.
+     * @param offset Index of first byte to process.
+     * @param length Number of bytes to process.
+     */
+    public void update(byte[] data, int offset, int length) {
+        int end = offset + length;
+
+        while (offset < end && !malformed) {
+
+            if (complete) {
+
+                // Spurious bytes at the end.
+                malformed = true;
+
+            } else if (leafRemaining > 0) {
+
+                int len = (int)Math.min(leafRemaining, end - offset);
+                offset += len;
+                leafRemaining -= len;
+
+                if (leafRemaining == 0) {
+                    endOfByteTree();
+                }
+
+            } else {
+
+                header[headerLength++] = data[offset++];
+
+                if (headerLength == header.length) {
+                    headerLength = 0;
+                    processHeader();
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes a complete header of a byte tree.
+     */
+    protected void processHeader() {
+        byte type = header[0];
+        int length = ExtIO.readInt(header, 1);
+
+        if (length < 0) {
+
+            malformed = true;
+
+        } else if (type == ByteTreeBasic.LEAF) {
+
+            leafRemaining = length;
+            if (length == 0) {
+                endOfByteTree();
+            }
+
+        } else if (type == ByteTreeBasic.NODE) {
+
+            if (depth == maximalRecursiveDepth) {
+
+                // Too deep recursion.
+                malformed = true;
+
+            } else if (length == 0) {
+
+                endOfByteTree();
+
+            } else {
+
+                if (depth == childrenRemaining.length) {
+                    int[] tmp = new int[2 * depth];
+                    System.arraycopy(childrenRemaining, 0, tmp, 0, depth);
+                    childrenRemaining = tmp;
+                }
+                childrenRemaining[depth++] = length;
+            }
+
+        } else {
+            malformed = true;
+        }
+    }
+
+    /**
+     * Registers that a byte tree has been read completely, which
+     * completes every enclosing node of which it is the last child.
+     */
+    protected void endOfByteTree() {
+        while (depth > 0) {
+            if (--childrenRemaining[depth - 1] > 0) {
+                return;
+            }
+            depth--;
+        }
+        complete = true;
+    }
+
+    /**
+     * Returns true or false depending on if the bytes processed so
+     * far form a valid byte tree or not.
+     *
+     * @return <code>true</code> if the processed bytes form a valid
+     * byte tree and <code>false</code> otherwise.
+     */
+    public boolean verify() {
+        return complete && !malformed;
+    }
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.eio;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * Permutes the children of a byte tree stored on file without
+ * holding more than a bounded part of it in memory, and without
+ * converting the children to any other representation.
+ *
+ * <p>
+ *
+ * The permutation is done in two passes. In the first pass, the
+ * children are read sequentially and each child is appended, in
+ * binary form and tagged with its destination index, to the segment
+ * file responsible for a contiguous range of destination
+ * indices. In the second pass, each segment file is memory-mapped,
+ * the offsets of its records are indexed by destination, and the
+ * children are written to the destination file in order.
+ *
+ * <p>
+ *
+ * The result is byte-identical to writing a node with the permuted
+ * children using {@link ByteTreeWriterF}.
+ *
+ * @author Douglas Wikstrom
+ */
+public class ExtPermutation {
+
+    /**
+     * Approximate number of bytes stored in each segment file. This
+     * bounds the amount of memory mapped at any given time.
+     */
+    public final static int SEGMENT_BYTE_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Maximal number of segment files written simultaneously.
+     */
+    public final static int MAX_SEGMENTS = 256;
+
+    /**
+     * Size of buffers used when reading and writing streams.
+     */
+    public final static int BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Size of buffers used when appending to segment files.
+     */
+    public final static int SEGMENT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Writes a byte tree to <code>destination</code> with the
+     * children of the byte tree in <code>source</code> permuted by
+     * the given table, i.e., the <code>i</code>th child of the source
+     * is the <code>table[i]</code>th child of the destination. It is
+     * the responsibility of the programmer to make sure that the
+     * table is indeed a permutation.
+     *
+     * @param source Byte tree with children to be permuted.
+     * @param destination Destination of permuted byte tree.
+     * @param table Permutation table.
+     *
+     * @throws EIOException If the source is not a node with the same
+     * number of children as the length of the table.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void permute(File source, File destination, int[] table)
+        throws IOException, EIOException {
+        permute(source, destination, table, SEGMENT_BYTE_SIZE);
+    }
+
+    /**
+     * Writes a byte tree to <code>destination</code> with the
+     * children of the byte tree in <code>source</code> permuted by
+     * the given table using segment files of approximately the given
+     * byte size.
+     *
+     * @param source Byte tree with children to be permuted.
+     * @param destination Destination of permuted byte tree.
+     * @param table Permutation table.
+     * @param segmentByteSize Approximate number of bytes stored in
+     * each segment file.
+     *
+     * @throws EIOException If the source is not a node with the same
+     * number of children as the length of the table.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void permute(File source, File destination, int[] table,
+                               int segmentByteSize)
+        throws IOException, EIOException {
+        permute(source, destination, table, null, segmentByteSize);
+    }
+
+    /**
+     * Writes a byte tree to <code>destination</code> with the
+     * children of the byte tree in <code>source</code> permuted by
+     * the table stored in <code>tableFile</code>. The table file must
+     * contain a byte tree leaf holding the table as four-byte
+     * integers, i.e., the representation given by {@link
+     * ByteTree#intArrayToByteTree(int[])}, and it is read
+     * sequentially. It is the responsibility of the programmer to
+     * make sure that the table is indeed a permutation.
+     *
+     * @param source Byte tree with children to be permuted.
+     * @param destination Destination of permuted byte tree.
+     * @param tableFile File containing the permutation table.
+     *
+     * @throws EIOException If the table file does not contain a
+     * table, or if the source is not a node with the same number of
+     * children as the length of the table.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void permute(File source, File destination, File tableFile)
+        throws IOException, EIOException {
+        permute(source, destination, null, tableFile, SEGMENT_BYTE_SIZE);
+    }
+
+    /**
+     * Writes a byte tree to <code>destination</code> with the
+     * children of the byte tree in <code>source</code> permuted by
+     * the given table, or by the table stored in the given file if
+     * the table is <code>null</code>.
+     *
+     * @param source Byte tree with children to be permuted.
+     * @param destination Destination of permuted byte tree.
+     * @param table Permutation table or <code>null</code>.
+     * @param tableFile File containing the permutation table, or
+     * <code>null</code>.
+     * @param segmentByteSize Approximate number of bytes stored in
+     * each segment file.
+     *
+     * @throws EIOException If the inputs are malformed.
+     * @throws IOException If an I/O error occurs.
+     */
+    protected static void permute(File source, File destination,
+                                  int[] table, File tableFile,
+                                  int segmentByteSize)
+        throws IOException, EIOException {
+
+        DataInputStream dis = null;
+        DataInputStream tableStream = null;
+        DataOutputStream[] segmentStreams = null;
+        File[] segmentFiles = null;
+
+        try {
+
+            int size;
+            if (table == null) {
+
+                InputStream is = new FileInputStream(tableFile);
+                tableStream =
+                    new DataInputStream(new BufferedInputStream(is,
+                                                                BUFFER_SIZE));
+                if (tableStream.readByte() != ByteTreeBasic.LEAF) {
+                    throw new EIOException("Table is not a leaf!");
+                }
+                int length = tableStream.readInt();
+                if (length < 0 || length % 4 != 0) {
+                    throw new EIOException("Malformed table!");
+                }
+                size = length / 4;
+
+            } else {
+                size = table.length;
+            }
+
+            InputStream is = new FileInputStream(source);
+            dis = new DataInputStream(new BufferedInputStream(is,
+                                                              BUFFER_SIZE));
+
+            if (dis.readByte() != ByteTreeBasic.NODE) {
+                throw new EIOException("Source is not a node!");
+            }
+            if (dis.readInt() != size) {
+                throw new EIOException("Wrong number of children!");
+            }
+
+            // Decide how many destination indices are handled by each
+            // segment based on the average size of a child.
+            long averageSize =
+                Math.max(1, (source.length() - 5) / Math.max(1, size)) + 8;
+            long perSegment = Math.max(1, segmentByteSize / averageSize);
+            perSegment = Math.max(perSegment,
+                                  (size + MAX_SEGMENTS - 1) / MAX_SEGMENTS);
+            int segmentSize = (int)Math.min(perSegment, Math.max(1, size));
+            int noSegments = (size + segmentSize - 1) / segmentSize;
+
+            // Scatter the children into the segment files.
+            segmentFiles = new File[noSegments];
+            segmentStreams = new DataOutputStream[noSegments];
+            for (int s = 0; s < noSegments; s++) {
+                segmentFiles[s] = TempFile.getFile();
+                OutputStream os = new FileOutputStream(segmentFiles[s]);
+                segmentStreams[s] =
+                    new DataOutputStream(new BufferedOutputStream(os,
+                                                SEGMENT_BUFFER_SIZE));
+            }
+
+            ChildBuffer child = new ChildBuffer();
+            for (int i = 0; i < size; i++) {
+
+                child.readChild(dis);
+
+                int index = table == null ? tableStream.readInt() : table[i];
+                if (index < 0 || index >= size) {
+                    throw new EIOException("Index outside interval!");
+                }
+
+                DataOutputStream dos = segmentStreams[index / segmentSize];
+                dos.writeInt(index);
+                dos.writeInt(child.length);
+                dos.write(child.bytes, 0, child.length);
+            }
+            for (int s = 0; s < noSegments; s++) {
+                segmentStreams[s].close();
+            }
+            ExtIO.strictClose(dis);
+
+            // Gather the children in order from the segment files.
+            gather(destination, size, segmentSize, segmentFiles);
+
+        } finally {
+            ExtIO.strictClose(dis);
+            ExtIO.strictClose(tableStream);
+            if (segmentStreams != null) {
+                for (int s = 0; s < segmentStreams.length; s++) {
+                    ExtIO.strictClose(segmentStreams[s]);
+                }
+            }
+            if (segmentFiles != null) {
+                for (int s = 0; s < segmentFiles.length; s++) {
+                    if (segmentFiles[s] != null) {
+                        segmentFiles[s].delete();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the children stored in the segment files in order of
+     * their destination indices to the destination file.
+     *
+     * @param destination Destination of permuted byte tree.
+     * @param size Number of children.
+     * @param segmentSize Number of destination indices handled by
+     * each segment.
+     * @param segmentFiles Segment files.
+     *
+     * @throws EIOException If a segment file is malformed.
+     * @throws IOException If an I/O error occurs.
+     */
+    protected static void gather(File destination, int size,
+                                 int segmentSize, File[] segmentFiles)
+        throws IOException, EIOException {
+
+        DataOutputStream dos = null;
+        try {
+
+            OutputStream os = new FileOutputStream(destination);
+            dos = new DataOutputStream(new BufferedOutputStream(os,
+                                                                BUFFER_SIZE));
+            dos.writeByte(ByteTreeBasic.NODE);
+            dos.writeInt(size);
+
+            int[] offsets = new int[segmentSize];
+            byte[] buffer = new byte[0];
+
+            for (int s = 0; s < segmentFiles.length; s++) {
+
+                int base = s * segmentSize;
+                int count = Math.min(segmentSize, size - base);
+
+                ByteBuffer bb = map(segmentFiles[s]);
+
+                // Index the records of this segment by destination.
+                int offset = 0;
+                for (int i = 0; i < count; i++) {
+                    int index = bb.getInt(offset) - base;
+                    if (index < 0 || index >= count) {
+                        throw new EIOException("Malformed segment!");
+                    }
+                    offsets[index] = offset + 4;
+                    offset += 8 + bb.getInt(offset + 4);
+                }
+
+                // Copy the records in order.
+                for (int i = 0; i < count; i++) {
+                    int length = bb.getInt(offsets[i]);
+                    if (buffer.length < length) {
+                        buffer = new byte[length];
+                    }
+                    bb.position(offsets[i] + 4);
+                    bb.get(buffer, 0, length);
+                    dos.write(buffer, 0, length);
+                }
+            }
+        } finally {
+            ExtIO.strictClose(dos);
+        }
+    }
+
+    /**
+     * Maps the given file into memory for reading.
+     *
+     * @param file File to be mapped.
+     * @return Mapped contents of the file.
+     *
+     * @throws EIOException If the file is too large to be mapped.
+     * @throws IOException If an I/O error occurs.
+     */
+    protected static ByteBuffer map(File file)
+        throws IOException, EIOException {
+
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            FileChannel fc = raf.getChannel();
+            if (fc.size() > Integer.MAX_VALUE) {
+                throw new EIOException("Segment is too large!");
+            }
+            return fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+        } finally {
+            ExtIO.strictClose(raf);
+        }
+    }
+}
+
+/**
+ * Growable buffer holding the binary representation of a single
+ * byte tree read from a stream.
+ */
+class ChildBuffer {
+
+    /**
+     * Bytes of the byte tree.
+     */
+    byte[] bytes = new byte[1024];
+
+    /**
+     * Number of bytes used.
+     */
+    int length;
+
+    /**
+     * Makes sure that there is room for the given number of
+     * additional bytes.
+     *
+     * @param len Number of additional bytes.
+     */
+    void ensure(int len) {
+        if (length + len > bytes.length) {
+            int newLength = Math.max(2 * bytes.length, length + len);
+            byte[] tmp = new byte[newLength];
+            System.arraycopy(bytes, 0, tmp, 0, length);
+            bytes = tmp;
+        }
+    }
+
+    /**
+     * Reads a complete byte tree from the stream into this buffer,
+     * replacing its previous contents.
+     *
+     * @param dis Source of byte tree.
+     *
+     * @throws EIOException If the input is not a byte tree.
+     * @throws IOException If an I/O error occurs.
+     */
+    void readChild(DataInputStream dis) throws IOException, EIOException {
+        length = 0;
+        readTree(dis);
+    }
+
+    /**
+     * Appends a complete byte tree from the stream to this buffer.
+     *
+     * @param dis Source of byte tree.
+     *
+     * @throws EIOException If the input is not a byte tree.
+     * @throws IOException If an I/O error occurs.
+     */
+    void readTree(DataInputStream dis) throws IOException, EIOException {
+
+        ensure(5);
+        dis.readFully(bytes, length, 5);
+        byte type = bytes[length];
+        int value = ExtIO.readInt(bytes, length + 1);
+        length += 5;
+
+        if (value < 0) {
+            throw new EIOException("Negative length!");
+        }
+
+        if (type == ByteTreeBasic.LEAF) {
+
+            ensure(value);
+            dis.readFully(bytes, length, value);
+            length += value;
+
+        } else if (type == ByteTreeBasic.NODE) {
+
+            for (int i = 0; i < value; i++) {
+                readTree(dis);
+            }
+
+        } else {
+            throw new EIOException("Unknown type!");
+        }
+    }
+}
@@ -0,0 +1,57 @@
+
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.eio;
+
+import mixnet.crypto.*;
+
+/**
+ * Interface of factories that recover instances of classes that
+ * implement {@link Marshalizable}. A factory can be registered with
+ * {@link Marshalizer#register(Class,MarshalizableFactory)} to avoid
+ * that the static <code>newInstance</code>-methods of the class are
+ * located using reflection.
+ *
+ * @author Douglas Wikstrom
+ */
+public interface MarshalizableFactory {
+
+    /**
+     * Recovers an instance from the given representation.
+     *
+     * @param btr Representation of an instance.
+     * @param rs Random source used to probabilistically check the
+     * validity of an input, or <code>null</code> if the instance is
+     * recovered without any randomness.
+     * @param certainty Certainty with which an input is deemed
+     * correct, i.e., an incorrect input is accepted with probability
+     * at most 2<sup>-<code>certainty</code></sup>.
+     * @return Instance recovered from the input representation.
+     *
+     * @throws Exception If the input can not be interpreted as an
+     * instance. The exception is converted into an {@link
+     * EIOException} by {@link Marshalizer}.
+     */
+    public Object newInstance(ByteTreeReader btr,
+                              RandomSource rs,
+                              int certainty)
+        throws Exception;
+}
@@ -23,7 +23,7 @@
 package mixnet.eio;
 
 import java.io.*;
-import java.lang.reflect.*;
+import java.util.concurrent.*;
 
 import mixnet.arithm.*;
 import mixnet.crypto.*;
@@ -64,6 +64,16 @@ import mixnet.ui.gen.*;
  * automatically generated. Audits can then be performed on the
  * generated Java source which is type-safe.
  *
+ * <p>
+ *
+ * Each class name is resolved only once into a {@link
+ * MarshalizableFactory} which is kept in a registry. Factories of the
+ * classes in this library are registered explicitly, so they are
+ * recovered without reflection, and other modules may register
+ * factories of their own classes using {@link
+ * #register(Class,MarshalizableFactory)}. The factories of any other
+ * classes are resolved using reflection.
+ *
  * @author Douglas Wikstrom
  */
 public class Marshalizer {
@@ -73,6 +83,334 @@ public class Marshalizer {
      */
     final static int MAX_CLASSNAME_LENGTH = 2048;
 
+    /**
+     * Factories indexed by the names of the classes of the instances
+     * they recover. Only names of existing classes are stored, so the
+     * size is bounded even if the names are read from untrusted
+     * inputs.
+     */
+    private static ConcurrentMap<String,MarshalizableFactory> factories =
+        new ConcurrentHashMap<String,MarshalizableFactory>();
+
+    static {
+        register(ModPGroup.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return ModPGroup.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(PPGroup.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return PPGroup.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(JECPGroup.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return JECPGroup.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(CryptoKeyGenCramerShoup.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return CryptoKeyGenCramerShoup.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(CryptoKeyPair.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return CryptoKeyPair.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(CryptoPKeyCramerShoup.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return CryptoPKeyCramerShoup.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(CryptoPKeyTrivial.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return CryptoPKeyTrivial.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(CryptoSKeyCramerShoup.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return CryptoSKeyCramerShoup.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(HashfunctionMerkleDamgaard.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return HashfunctionMerkleDamgaard.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(HashfunctionPedersen.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return HashfunctionPedersen.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(RandomOracle.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return RandomOracle.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(SignatureKeyGenCS.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return SignatureKeyGenCS.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(SignatureKeyPair.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return SignatureKeyPair.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(SignaturePKeyCS.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return SignaturePKeyCS.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(SignatureSKeyCS.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return SignatureSKeyCS.
+                        newInstance(btr, checkRandomSource(rs), certainty);
+                }
+            });
+        register(HashfunctionHeuristic.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return HashfunctionHeuristic.newInstance(btr);
+                }
+            });
+        register(PRGCombiner.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return PRGCombiner.newInstance(btr);
+                }
+            });
+        register(PRGElGamal.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return PRGElGamal.newInstance(btr);
+                }
+            });
+        register(PRGHeuristic.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return PRGHeuristic.newInstance(btr);
+                }
+            });
+        register(RandomDevice.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return RandomDevice.newInstance(btr);
+                }
+            });
+        register(RandomSourceCombiner.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return RandomSourceCombiner.newInstance(btr);
+                }
+            });
+        register(SignatureKeyGenHeuristic.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return SignatureKeyGenHeuristic.newInstance(btr);
+                }
+            });
+        register(SignaturePKeyHeuristic.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return SignaturePKeyHeuristic.newInstance(btr);
+                }
+            });
+        register(SignatureSKeyHeuristic.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return SignatureSKeyHeuristic.newInstance(btr);
+                }
+            });
+        register(GeneratorTemplate.class, new MarshalizableFactory() {
+                public Object newInstance(ByteTreeReader btr,
+                                          RandomSource rs,
+                                          int certainty)
+                    throws Exception {
+                    return GeneratorTemplate.newInstance(btr);
+                }
+            });
+    }
+
+    /**
+     * Registers a factory of instances of the given class. This
+     * replaces any factory previously registered or resolved for the
+     * class.
+     *
+     * @param klass Class of the instances recovered by the factory.
+     * @param factory Factory of instances of the class.
+     */
+    public static void register(Class<?> klass,
+                                MarshalizableFactory factory) {
+        factories.put(klass.getName(), factory);
+    }
+
+    /**
+     * Returns the input random source unless it is <code>null</code>,
+     * i.e., this is used by factories of classes that can only be
+     * recovered using randomness.
+     *
+     * @param rs Random source or <code>null</code>.
+     * @return Input random source.
+     *
+     * @throws EIOException If the input is <code>null</code>.
+     */
+    protected static RandomSource checkRandomSource(RandomSource rs)
+        throws EIOException {
+        if (rs == null) {
+            throw new EIOException("Unable to interpret, no method!");
+        }
+        return rs;
+    }
+
+    /**
+     * Returns the factory of instances of the named class. If no
+     * factory has been registered for the class, then a factory is
+     * resolved using reflection and registered.
+     *
+     * @param className Name of class.
+     * @return Factory of instances of the named class.
+     *
+     * @throws EIOException If there is no such class or if it does
+     * not have any <code>newInstance</code>-method.
+     */
+    protected static MarshalizableFactory getFactory(String className)
+        throws EIOException {
+
+        MarshalizableFactory factory = factories.get(className);
+
+        if (factory == null) {
+            try {
+
+                factory = new ReflectedFactory(Class.forName(className));
+
+            } catch (ClassNotFoundException cnfe) {
+                throw new EIOException("Unable to interpret, unknown class (" +
+                                       className + ")!", cnfe);
+            }
+
+            MarshalizableFactory previous =
+                factories.putIfAbsent(className, factory);
+            if (previous != null) {
+                factory = previous;
+            }
+        }
+        return factory;
+    }
+
+    /**
+     * Recovers an instance from the given representation using the
+     * factory of the class named in the representation.
+     *
+     * @param btr Representation of an instance.
+     * @param rs Random source used to probabilistically check the
+     * validity of an input, or <code>null</code>.
+     * @param certainty Certainty with which an input is deemed
+     * correct, i.e., an incorrect input is accepted with probability
+     * at most 2<sup>-<code>certainty</code></sup>.
+     * @return Instance recovered from the input representation.
+     *
+     * @throws EIOException If the input can not be
+     * interpreted as an instance.
+     */
+    private static Object newInstance(ByteTreeReader btr,
+                                      RandomSource rs,
+                                      int certainty)
+        throws EIOException {
+
+        ByteTreeReader cnbtr = btr.getNextChild();
+        if (cnbtr.getRemaining() > MAX_CLASSNAME_LENGTH) {
+            throw new EIOException("Too long classname!");
+        }
+        MarshalizableFactory factory = getFactory(cnbtr.readString());
+
+        try {
+            return factory.newInstance(btr.getNextChild(), rs, certainty);
+        } catch (EIOException eioe) {
+            throw eioe;
+        } catch (Exception e) {
+            throw new EIOException("Unable to interpret, unknown target!", e);
+        }
+    }
+
     /**
      * Reads a <code>ByteTreeBasic</code> representation output by
      * {@link #marshal(Marshalizable)} and returns the corresponding
@@ -91,46 +429,11 @@ public class Marshalizer {
      * @throws EIOException If the input can not be
      * interpreted as an instance.
      */
-    @SuppressWarnings("unchecked")
     protected static Object unmarshalAux(ByteTreeReader btr,
                                          RandomSource rs,
                                          int certainty)
         throws EIOException {
-
-        String className = "ingen";
-        try {
-
-            ByteTreeReader cnbtr = btr.getNextChild();
-            if (cnbtr.getRemaining() > MAX_CLASSNAME_LENGTH) {
-                throw new EIOException("Too long classname!");
-            }
-            className = cnbtr.readString();
-
-            Class klass = Class.forName(className);
-
-            try {
-                Method method = klass.getMethod("newInstance",
-                                                ByteTreeReader.class,
-                                                RandomSource.class,
-                                                java.lang.Integer.TYPE);
-
-                return method.invoke(null, btr.getNextChild(),
-                                     rs, certainty);
-            } catch (NoSuchMethodException nsme) {
-                Method method =
-                    klass.getMethod("newInstance", ByteTreeReader.class);
-                return method.invoke(null, btr.getNextChild());
-            }
-        } catch (InvocationTargetException ite) {
-            throw new EIOException("Unable to interpret, unknown target!", ite);
-        } catch (IllegalAccessException iae) {
-            throw new EIOException("Unable to interpret, illegal access!", iae);
-        } catch (ClassNotFoundException cnfe) {
-            throw new EIOException("Unable to interpret, unknown class (" +
-                                   className + ")!", cnfe);
-        } catch (NoSuchMethodException nsme) {
-            throw new EIOException("Unable to interpret, no method!", nsme);
-        }
+        return newInstance(btr, rs, certainty);
     }
 
     /**
@@ -144,34 +447,9 @@ public class Marshalizer {
      * @throws EIOException If the input can not be
      * interpreted as an instance.
      */
-    @SuppressWarnings("unchecked")
     protected static Object unmarshal(ByteTreeReader btr)
         throws EIOException {
-        String className = "";
-        try {
-
-            ByteTreeReader cnbtr = btr.getNextChild();
-            if (cnbtr.getRemaining() > MAX_CLASSNAME_LENGTH) {
-                throw new EIOException("Too long classname!");
-            }
-            className = cnbtr.readString();
-
-            Class klass = Class.forName(className);
-            Method method =
-                klass.getMethod("newInstance", ByteTreeReader.class);
-
-            return method.invoke(null, btr.getNextChild());
-
-        } catch (InvocationTargetException ite) {
-            throw new EIOException("Unable to interpret, unknown target!", ite);
-        } catch (IllegalAccessException iae) {
-            throw new EIOException("Unable to interpret, illegal access!", iae);
-        } catch (ClassNotFoundException cnfe) {
-            throw new EIOException("Unable to interpret, unknown class (" +
-                                   className + ")!", cnfe);
-        } catch (NoSuchMethodException nsme) {
-            throw new EIOException("Unable to interpret, no method!", nsme);
-        }
+        return newInstance(btr, null, 0);
     }
 
     /**
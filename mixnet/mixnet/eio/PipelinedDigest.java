@@ -0,0 +1,286 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.eio;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import mixnet.crypto.*;
+
+/**
+ * Updates a digest with the contents of a file, where the file is
+ * read by a separate thread into large buffers while the calling
+ * thread hashes the buffers that have already been read. Thus, disk
+ * reads and hashing overlap. Small files are simply read and hashed
+ * by the calling thread.
+ *
+ * @author Douglas Wikstrom
+ */
+public class PipelinedDigest {
+
+    /**
+     * Number of bytes in each buffer.
+     */
+    public final static int BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Number of buffers, i.e., the number of buffers that may be
+     * read in advance is one less than this.
+     */
+    public final static int NO_BUFFERS = 4;
+
+    /**
+     * Files with fewer bytes than this are hashed without a separate
+     * reading thread.
+     */
+    public final static long PIPELINE_THRESHOLD = 4 * BUFFER_SIZE;
+
+    /**
+     * Updates the digest with the contents of the file.
+     *
+     * @param file File to be hashed.
+     * @param digest Digest to be updated.
+     *
+     * @throws IOException If the file can not be read.
+     */
+    public static void update(File file, Hashdigest digest)
+        throws IOException {
+        if (file.length() < PIPELINE_THRESHOLD) {
+            updateSequential(file, digest, BUFFER_SIZE);
+        } else {
+            update(file, digest, BUFFER_SIZE, NO_BUFFERS);
+        }
+    }
+
+    /**
+     * Updates the digest with the contents of the file using the
+     * calling thread to both read and hash the file.
+     *
+     * @param file File to be hashed.
+     * @param digest Digest to be updated.
+     * @param bufferSize Number of bytes in buffer.
+     *
+     * @throws IOException If the file can not be read.
+     */
+    public static void updateSequential(File file,
+                                        Hashdigest digest,
+                                        int bufferSize)
+        throws IOException {
+        FileInputStream fis = null;
+        try {
+
+            fis = new FileInputStream(file);
+
+            byte[] buf = new byte[(int)Math.min(bufferSize,
+                                                Math.max(1, file.length()))];
+            int len = 0;
+            while ((len = fis.read(buf)) != -1) {
+                digest.update(buf, 0, len);
+            }
+
+        } finally {
+            ExtIO.strictClose(fis);
+        }
+    }
+
+    /**
+     * Updates the digest with the contents of the file using a
+     * separate thread to read the file into the given number of
+     * buffers of the given size.
+     *
+     * @param file File to be hashed.
+     * @param digest Digest to be updated.
+     * @param bufferSize Number of bytes in each buffer.
+     * @param noBuffers Number of buffers.
+     *
+     * @throws IOException If the file can not be read.
+     */
+    public static void update(File file,
+                              Hashdigest digest,
+                              int bufferSize,
+                              int noBuffers)
+        throws IOException {
+
+        BlockingQueue<DigestChunk> free =
+            new ArrayBlockingQueue<DigestChunk>(noBuffers);
+        BlockingQueue<DigestChunk> full =
+            new ArrayBlockingQueue<DigestChunk>(noBuffers + 1);
+
+        for (int i = 0; i < noBuffers; i++) {
+            free.add(new DigestChunk(bufferSize));
+        }
+
+        DigestReader reader = new DigestReader(file, free, full);
+        reader.start();
+
+        boolean completed = false;
+        try {
+
+            DigestChunk chunk = full.take();
+            while (chunk.length >= 0) {
+                digest.update(chunk.bytes, 0, chunk.length);
+                free.put(chunk);
+                chunk = full.take();
+            }
+            completed = true;
+
+        } catch (InterruptedException ie) {
+            throw new EIOError("Interrupted while hashing file!", ie);
+        } finally {
+
+            // If we failed to hash the data, then the reader may be
+            // waiting for a free buffer.
+            if (!completed) {
+                reader.interrupt();
+            }
+            try {
+                reader.join();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (reader.exception != null) {
+            throw reader.exception;
+        }
+    }
+}
+
+/**
+ * Buffer holding a part of a file.
+ */
+class DigestChunk {
+
+    /**
+     * Contents of the buffer.
+     */
+    byte[] bytes;
+
+    /**
+     * Number of bytes used, or -1 if this marks the end of the file.
+     */
+    int length;
+
+    /**
+     * Creates a buffer of the given size.
+     *
+     * @param size Size of buffer.
+     */
+    DigestChunk(int size) {
+        bytes = new byte[size];
+    }
+
+    /**
+     * Creates a buffer marking the end of the file.
+     */
+    DigestChunk() {
+        length = -1;
+    }
+}
+
+/**
+ * Thread reading a file into free buffers and passing them on to be
+ * hashed.
+ */
+class DigestReader extends Thread {
+
+    /**
+     * File to be read.
+     */
+    File file;
+
+    /**
+     * Buffers available for reading.
+     */
+    BlockingQueue<DigestChunk> free;
+
+    /**
+     * Buffers that have been read.
+     */
+    BlockingQueue<DigestChunk> full;
+
+    /**
+     * Exception thrown while reading, if any.
+     */
+    IOException exception;
+
+    /**
+     * Creates a reader.
+     *
+     * @param file File to be read.
+     * @param free Buffers available for reading.
+     * @param full Buffers that have been read.
+     */
+    DigestReader(File file,
+                 BlockingQueue<DigestChunk> free,
+                 BlockingQueue<DigestChunk> full) {
+        this.file = file;
+        this.free = free;
+        this.full = full;
+        setName("DigestReader");
+        setDaemon(true);
+    }
+
+    public void run() {
+        FileInputStream fis = null;
+        try {
+
+            try {
+
+                fis = new FileInputStream(file);
+
+                DigestChunk chunk = free.take();
+                chunk.length = fis.read(chunk.bytes);
+                while (chunk.length != -1) {
+
+                    // Fill the buffer to make the updates of the
+                    // digest as large as possible.
+                    int len = 0;
+                    while (chunk.length < chunk.bytes.length
+                           && (len = fis.read(chunk.bytes, chunk.length,
+                                              chunk.bytes.length
+                                              - chunk.length)) != -1) {
+                        chunk.length += len;
+                    }
+                    full.put(chunk);
+
+                    if (len == -1) {
+                        break;
+                    }
+                    chunk = free.take();
+                    chunk.length = fis.read(chunk.bytes);
+                }
+
+            } catch (IOException ioe) {
+                exception = ioe;
+            } finally {
+                ExtIO.strictClose(fis);
+            }
+
+            // Mark the end of the file.
+            full.put(new DigestChunk());
+
+        } catch (InterruptedException ie) {
+            // The hashing thread has given up, so there is no one to
+            // notify.
+        }
+    }
+}
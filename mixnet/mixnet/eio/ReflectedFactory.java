@@ -0,0 +1,99 @@
+
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.eio;
+
+import java.lang.reflect.*;
+
+import mixnet.crypto.*;
+
+/**
+ * Factory that recovers instances of a class by invoking its static
+ * <code>newInstance</code>-methods using reflection. The methods are
+ * located once when the factory is created.
+ *
+ * @author Douglas Wikstrom
+ */
+class ReflectedFactory implements MarshalizableFactory {
+
+    /**
+     * Method that also takes a source of randomness and a certainty,
+     * or <code>null</code> if the class has no such method.
+     */
+    protected Method auxMethod;
+
+    /**
+     * Method that only takes a representation, or <code>null</code>
+     * if the class has no such method.
+     */
+    protected Method method;
+
+    /**
+     * Locates the methods of the given class.
+     *
+     * @param klass Class of recovered instances.
+     *
+     * @throws EIOException If the class does not have any
+     * <code>newInstance</code>-method.
+     */
+    ReflectedFactory(Class<?> klass) throws EIOException {
+        try {
+            auxMethod = klass.getMethod("newInstance",
+                                        ByteTreeReader.class,
+                                        RandomSource.class,
+                                        java.lang.Integer.TYPE);
+        } catch (NoSuchMethodException nsme) {
+            auxMethod = null;
+        }
+        try {
+            method = klass.getMethod("newInstance", ByteTreeReader.class);
+        } catch (NoSuchMethodException nsme) {
+            if (auxMethod == null) {
+                throw new EIOException("Unable to interpret, no method!",
+                                       nsme);
+            }
+            method = null;
+        }
+    }
+
+    public Object newInstance(ByteTreeReader btr,
+                              RandomSource rs,
+                              int certainty)
+        throws Exception {
+        try {
+
+            if (rs != null && auxMethod != null) {
+                return auxMethod.invoke(null, btr, rs, certainty);
+            } else if (method != null) {
+                return method.invoke(null, btr);
+            } else {
+                throw new EIOException("Unable to interpret, no method!");
+            }
+
+        } catch (InvocationTargetException ite) {
+            throw new EIOException("Unable to interpret, unknown target!",
+                                   ite);
+        } catch (IllegalAccessException iae) {
+            throw new EIOException("Unable to interpret, illegal access!",
+                                   iae);
+        }
+    }
+}
\ No newline at end of file
@@ -178,4 +178,142 @@ public class TestByteTree {
         }
         return true;
     }
+
+    /**
+     * Returns true if and only if no byte tree can be read from the
+     * given bytes.
+     *
+     * @param data Bytes to read from.
+     * @return Verdict on the input.
+     */
+    protected static boolean rejected(byte[] data) {
+        try {
+            new ByteTree(data, null);
+            return false;
+        } catch (EIOException eioe) {
+            return true;
+        }
+    }
+
+    public static boolean malformedLength(TestParameters tp)
+        throws Exception {
+
+        // Leaf with negative length.
+        byte[] leaf = new byte[] {ByteTree.LEAF, (byte)0xFF, 0, 0, 0, 0};
+
+        // Node with negative number of children.
+        byte[] negative =
+            new byte[] {ByteTree.NODE, (byte)0xFF, (byte)0xFF, 0, 0};
+
+        // Node with more children than there are bytes.
+        byte[] large = new byte[] {ByteTree.NODE, 0x7F, 0, 0, 0};
+
+        return rejected(leaf) && rejected(negative) && rejected(large);
+    }
+
+    public static boolean pipelinedDigest(TestParameters tp)
+        throws Exception {
+
+        RandomSource rs = new PRGHeuristic(tp.prgseed.getBytes());
+        Hashfunction hf = new HashfunctionHeuristic("SHA-256");
+
+        File file = TempFile.getFile();
+
+        for (int size = 0; size < 300000; size = 7 * size + 1) {
+
+            ByteTree bt = new ByteTree(rs.getBytes(size));
+            bt.unsafeWriteTo(file);
+
+            Hashdigest d = hf.getDigest();
+            bt.update(d);
+            byte[] expected = d.digest();
+
+            d = hf.getDigest();
+            new ByteTreeF(file).update(d);
+            if (!java.util.Arrays.equals(expected, d.digest())) {
+                return false;
+            }
+
+            // Use small buffers to make sure that the file is passed
+            // over in several parts.
+            d = hf.getDigest();
+            PipelinedDigest.update(file, d, 4093, 3);
+            if (!java.util.Arrays.equals(expected, d.digest())) {
+                return false;
+            }
+        }
+        file.delete();
+
+        return true;
+    }
+
+    /**
+     * Processes the given bytes in parts of random lengths.
+     *
+     * @param verifier Verifier of the bytes.
+     * @param data Bytes to process.
+     * @param length Number of bytes to process.
+     * @param rs Source of randomness.
+     * @return Verdict of the verifier.
+     */
+    protected static boolean verifyInParts(ByteTreeFormatVerifier verifier,
+                                           byte[] data,
+                                           int length,
+                                           RandomSource rs) {
+        byte[] r = new byte[1];
+        int offset = 0;
+        while (offset < length) {
+            rs.getBytes(r);
+            int len = Math.min(length - offset, (r[0] & 0xFF) % 17);
+            verifier.update(data, offset, len);
+            offset += len;
+        }
+        return verifier.verify();
+    }
+
+    public static boolean formatVerifier(TestParameters tp)
+        throws Exception {
+
+        RandomSource rs = new PRGHeuristic(tp.prgseed.getBytes());
+
+        File file = TempFile.getFile();
+
+        for (int i = 0; i < 10; i++) {
+
+            ByteTree bt = generateByteTree(rs, 30 + 10 * i);
+            byte[] data = bt.toByteArray();
+            bt.unsafeWriteTo(file);
+
+            // The verdict on a complete byte tree agrees with the
+            // verdict of the verification of a file for every depth.
+            for (int depth = 0; depth < 6; depth++) {
+                boolean expected = ByteTreeF.verifyFormat(file, depth);
+                ByteTreeFormatVerifier verifier =
+                    new ByteTreeFormatVerifier(depth);
+                if (verifyInParts(verifier, data, data.length, rs)
+                    != expected) {
+                    return false;
+                }
+            }
+
+            // Prefixes are rejected.
+            for (int length = 0; length < data.length; length++) {
+                ByteTreeFormatVerifier verifier =
+                    new ByteTreeFormatVerifier(100);
+                if (verifyInParts(verifier, data, length, rs)) {
+                    return false;
+                }
+            }
+
+            // Spurious bytes at the end are rejected.
+            byte[] longer = java.util.Arrays.copyOf(data, data.length + 1);
+            ByteTreeFormatVerifier verifier = new ByteTreeFormatVerifier(100);
+            if (verifyInParts(verifier, longer, longer.length, rs)) {
+                return false;
+            }
+        }
+        file.delete();
+
+        return true;
+    }
 }
@@ -22,7 +22,9 @@
 package mixnet.eio;
 
 import java.io.BufferedWriter;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 
 import mixnet.crypto.PRGHeuristic;
@@ -77,6 +79,70 @@ public class TestExtIO {
     //     	return true;
     //     }
 
+    public static boolean permute(TestParameters tp) throws Exception {
+
+        TempFile.init(tp.tmpDir);
+        RandomSource rs = new PRGHeuristic(tp.prgseed.getBytes());
+
+        int size = 200;
+        byte[] r = new byte[2 * size];
+        rs.getBytes(r);
+
+        // Children of varying sizes, some of which are nodes.
+        ByteTree[] children = new ByteTree[size];
+        for (int i = 0; i < size; i++) {
+            ByteTree leaf = generateRandomByteTree(rs, r[i] & 0x3F);
+            if (i % 7 == 0) {
+                children[i] = new ByteTree(leaf, new ByteTree(leaf));
+            } else {
+                children[i] = leaf;
+            }
+        }
+
+        // Random permutation table.
+        int[] table = new int[size];
+        for (int i = 0; i < size; i++) {
+            table[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = ((r[size + i] & 0xFF) << 8 | (r[i] & 0xFF)) % (i + 1);
+            int tmp = table[i];
+            table[i] = table[j];
+            table[j] = tmp;
+        }
+
+        ByteTree[] permuted = new ByteTree[size];
+        for (int i = 0; i < size; i++) {
+            permuted[table[i]] = children[i];
+        }
+
+        File source = TempFile.getFile();
+        File expected = TempFile.getFile();
+        File destination = TempFile.getFile();
+
+        writeByteTree(new ByteTree(children), source);
+        writeByteTree(new ByteTree(permuted), expected);
+
+        // Use small segments to exercise the bucketing.
+        ExtPermutation.permute(source, destination, table, 512);
+
+        boolean res = ExtIO.equals(expected, destination);
+
+        source.delete();
+        expected.delete();
+        destination.delete();
+
+        return res;
+    }
+
+    protected static void writeByteTree(ByteTree bt, File file)
+        throws Exception {
+        DataOutputStream dos =
+            new DataOutputStream(new FileOutputStream(file));
+        bt.writeTo(dos);
+        dos.close();
+    }
+
     protected static ByteTree generateRandomByteTree(RandomSource rs,
                                                int totalSize) {
         byte[] content = new byte[totalSize];
@@ -0,0 +1,144 @@
+
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.eio;
+
+import java.util.*;
+
+import mixnet.arithm.*;
+import mixnet.crypto.*;
+import mixnet.test.*;
+
+/**
+ * Tests some of the functionality of {@link Marshalizer}.
+ *
+ * @author Douglas Wikstrom
+ */
+public class TestMarshalizer {
+
+    /**
+     * Returns the marshalled representation of the given instance as
+     * an array of bytes.
+     *
+     * @param m Instance.
+     * @return Marshalled representation.
+     */
+    protected static byte[] bytes(Marshalizable m) {
+        return Marshalizer.marshal(m).toByteArray();
+    }
+
+    /**
+     * Returns a reader of the given bytes.
+     *
+     * @param bytes Representation of a byte tree.
+     * @return Reader of the byte tree.
+     */
+    protected static ByteTreeReader reader(byte[] bytes) throws Exception {
+        return new ByteTree(bytes, null).getByteTreeReader();
+    }
+
+    public static boolean registered(TestParameters tp) throws Exception {
+
+        RandomSource rs = new PRGHeuristic(tp.prgseed.getBytes());
+
+        PRG prg = new PRGHeuristic();
+        PGroup pGroup = new ModPGroup(tp.testSize);
+
+        // The registry is global, so the explicit factories are
+        // restored when we are done.
+        MarshalizableFactory prgFactory =
+            Marshalizer.getFactory(PRGHeuristic.class.getName());
+        MarshalizableFactory pGroupFactory =
+            Marshalizer.getFactory(ModPGroup.class.getName());
+
+        try {
+            return recovered(rs, prg, pGroup);
+        } finally {
+            Marshalizer.register(PRGHeuristic.class, prgFactory);
+            Marshalizer.register(ModPGroup.class, pGroupFactory);
+        }
+    }
+
+    /**
+     * Verifies that the given instances can be recovered, first using
+     * the registered factories and then using reflected factories.
+     *
+     * @param rs Source of randomness.
+     * @param prg Instance of {@link PRGHeuristic}.
+     * @param pGroup Instance of {@link ModPGroup}.
+     * @return True if the instances are recovered.
+     */
+    protected static boolean recovered(RandomSource rs,
+                                       PRG prg,
+                                       PGroup pGroup)
+        throws Exception {
+
+        for (int i = 0; i < 2; i++) {
+
+            // Replace the explicit factories by reflected factories.
+            if (i == 1) {
+                Marshalizer.register(PRGHeuristic.class,
+                                     new ReflectedFactory(PRGHeuristic.class));
+                Marshalizer.register(ModPGroup.class,
+                                     new ReflectedFactory(ModPGroup.class));
+            }
+
+            byte[] prgBytes = bytes(prg);
+            PRG prg2 = Marshalizer.unmarshal_PRG(reader(prgBytes));
+            if (!Arrays.equals(prgBytes, bytes(prg2))) {
+                return false;
+            }
+
+            byte[] pGroupBytes = bytes(pGroup);
+            PGroup pGroup2 =
+                Marshalizer.unmarshalAux_PGroup(reader(pGroupBytes), rs, 20);
+            if (!Arrays.equals(pGroupBytes, bytes(pGroup2))) {
+                return false;
+            }
+
+            // Groups can only be recovered using randomness.
+            try {
+                Marshalizer.unmarshal(reader(pGroupBytes));
+                return false;
+            } catch (EIOException eioe) {
+            }
+        }
+        return true;
+    }
+
+    public static boolean unknown(TestParameters tp) throws Exception {
+
+        String[] classNames = new String[] {"mixnet.eio.NoSuchClass",
+                                            "java.lang.String"};
+
+        for (int i = 0; i < classNames.length; i++) {
+            ByteTree bt =
+                new ByteTree(new ByteTree(classNames[i].getBytes("UTF8")),
+                             new ByteTree(new byte[1]));
+            try {
+                Marshalizer.unmarshal(bt.getByteTreeReader());
+                return false;
+            } catch (EIOException eioe) {
+            }
+        }
+        return true;
+    }
+}
@@ -200,6 +200,10 @@ public abstract class BullBoardBasicDist extends BullBoardBasic {
             log.info("Stopping http server.");
             httpServer.stop();
 
+            for (TransferStatistics ts : SimpleHTTPClient.getStatistics()) {
+                log.info("Transfers from " + ts);
+            }
+
             running = false;
         }
     }
@@ -255,6 +259,45 @@ public abstract class BullBoardBasicDist extends BullBoardBasic {
                                      int maximalRecursiveDepth,
                                      int readTimeout,
                                      Log log) {
+        return readData(loc, relativeFileName, maximalByteLength,
+                        maximalRecursiveDepth, readTimeout, log, null);
+    }
+
+    /**
+     * Reads the given data from the party with index
+     * <code>loc</code>. The output is guaranteed to represent a
+     * proper byte tree with no spurious bytes at the end. The format
+     * is verified, and the data is passed to the digests, while the
+     * data is received, i.e., the data is never read back from file.
+     *
+     * @param loc Index of party that should have put the data on its
+     * HTTP server.
+     * @param relativeFileName Relative filename of requested data.
+     * @param maximalByteLength Maximal number of bytes in the
+     * published message.
+     * @param maximalRecursiveDepth Maximal recursive depth of
+     * downloaded message.
+     * @param readTimeout Maximal time spent waiting for the data.
+     * @param log Log context.
+     * @param digests Digests updated with the data, or
+     * <code>null</code>.
+     * @return Byte tree representation of the data downloaded from
+     * the HTTP server of the party with index <code>loc</code>, or
+     * <code>null</code> if the download failed.
+     */
+    protected ByteTreeF readData(int loc,
+                                 String relativeFileName,
+                                 long maximalByteLength,
+                                 int maximalRecursiveDepth,
+                                 int readTimeout,
+                                 Log log,
+                                 MessageDigests digests) {
+
+        // Verify that the data represents a byte tree that is not
+        // too deep as it is received.
+        ByteTreeFormatVerifier verifier =
+            new ByteTreeFormatVerifier(maximalRecursiveDepth);
+        OutputStream observer = new ReceivedDataStream(verifier, digests);
 
         // Attempt to fetch the data.
         boolean result = SimpleHTTPClient.fetchFile(http(loc),
@@ -262,23 +305,16 @@ public abstract class BullBoardBasicDist extends BullBoardBasic {
                                                     relativeFileName,
                                                     readTimeout,
                                                     maximalByteLength,
-                                                    log);
+                                                    log,
+                                                    observer);
 
         // Did we download anything?
-        if (result) {
-
-            // Verify that the downloaded file represents a byte tree
-            // that is not too deep.
-            File file = new File(directory, relativeFileName);
-
-            if (!ByteTreeF.verifyFormat(file, maximalRecursiveDepth)) {
-                return null;
-            }
+        if (result && verifier.verify()) {
 
             // If everything is ok we return data that is now
             // guaranteed to represent a proper byte tree of limited
             // total size and with limited depth.
-            return new ByteTreeF(file);
+            return new ByteTreeF(new File(directory, relativeFileName));
 
         }
         return null;
@@ -352,10 +388,17 @@ public abstract class BullBoardBasicDist extends BullBoardBasic {
                                     parent + ")");
         }
 
-        // Write data atomically.
-        File tmpFile = getFile("tmp");
+        // Write data atomically. Data may be written by several
+        // threads, so each call uses its own temporary file.
+        File tmpFile;
+        try {
+            tmpFile = File.createTempFile("tmp", null, directory);
+        } catch (IOException ioe) {
+            throw new ProtocolError("Unable to create temporary file!", ioe);
+        }
         data.unsafeWriteTo(tmpFile);
         if (!tmpFile.renameTo(file)) {
+            tmpFile.delete();
             throw new ProtocolError("Unable to write file atomically!");
         }
 
@@ -432,6 +475,72 @@ public abstract class BullBoardBasicDist extends BullBoardBasic {
                         maximalByteLength, maximalRecursiveDepth, timer, log);
     }
 
+    /**
+     * Spends at most the time given by the timer reading the given
+     * message from the party with index <code>loc</code>. The digests
+     * of the message needed to verify signatures are computed while
+     * the message is received and they are kept in the returned byte
+     * tree. If <code>jointHashfunction</code> is not null, then only
+     * the joint digest is computed, and otherwise the digests of all
+     * parties are computed.
+     *
+     * @param loc Index of party that should have put the file on its
+     * HTTP server.
+     * @param l Index of supposed producer of message.
+     * @param messageLabel Message label of requested message.
+     * @param maximalByteLength Maximal number of bytes in the
+     * published message.
+     * @param maximalRecursiveDepth Maximal recursive depth of
+     * downloaded message.
+     * @param timer Timer that keeps track of how long we may try to
+     * download.
+     * @param log Log context.
+     * @param jointHashfunction Joint hashfunction, or
+     * <code>null</code>.
+     * @return Byte tree representation of the file downloaded from
+     * the HTTP server of the party with index <code>loc</code>, or
+     * <code>null</code> if the download failed.
+     */
+    protected ByteTreeBasic readMessage(int loc,
+                                        int l,
+                                        String messageLabel,
+                                        int maximalByteLength,
+                                        int maximalRecursiveDepth,
+                                        Timer timer,
+                                        Log log,
+                                        Hashfunction jointHashfunction) {
+
+        String relativeFileName = partyPrefix(l, messageLabel);
+
+        while (!timer.timeIsUp()) {
+
+            // Digests can not be reused, so every attempt starts with
+            // fresh digests.
+            MessageDigests digests =
+                newMessageDigests(l, messageLabel, jointHashfunction);
+
+            ByteTreeF data =
+                readData(loc, relativeFileName, maximalByteLength,
+                         maximalRecursiveDepth, timer.remainingTime(),
+                         log, digests);
+
+            if (data != null) {
+
+                digests.finish();
+                return new ReceivedMessage(new File(directory,
+                                                    relativeFileName),
+                                           digests);
+
+            } else {
+
+                int waitTime = Math.min(pauseTime, timer.remainingTime());
+                waitForAtMost(loc, waitTime);
+
+            }
+        }
+        return null;
+    }
+
 
     /**
      * Returns a full message that embeds the index of the signer, the
@@ -459,6 +568,51 @@ public abstract class BullBoardBasicDist extends BullBoardBasic {
 
     // ############### Computes digests ###########################
 
+    /**
+     * Returns digests of the full message derived from the index of
+     * the publisher, the message label, and a message that is about
+     * to be received. The digests have already been updated with the
+     * part of the full message that precedes the message.
+     *
+     * @param l Index of original sender.
+     * @param messageLabel Message label under which the message is
+     * published.
+     * @param jointHashfunction Joint hashfunction, or
+     * <code>null</code>. If it is not null, then only the joint
+     * digest is computed, and otherwise the digests of all parties
+     * are computed.
+     * @return Digests of the full message.
+     */
+    protected MessageDigests newMessageDigests(int l,
+                                               String messageLabel,
+                                               Hashfunction
+                                               jointHashfunction) {
+        Hashdigest[] digests = new Hashdigest[k + 1];
+        if (jointHashfunction == null) {
+            for (int s = 1; s <= k; s++) {
+                digests[s] = pkeys[s].getDigest();
+            }
+        } else {
+            digests[0] = jointHashfunction.getDigest();
+        }
+
+        // This must agree with how fullMessage() is encoded.
+        byte[] prefix = new byte[5];
+        prefix[0] = ByteTreeBasic.NODE;
+        ExtIO.writeInt(prefix, 1, 2);
+        ByteTree labelByteTree =
+            new ByteTree(partyPrefix(l, messageLabel).getBytes());
+
+        for (int s = 0; s <= k; s++) {
+            if (digests[s] != null) {
+                digests[s].update(prefix);
+                labelByteTree.update(digests[s]);
+            }
+        }
+        return new MessageDigests(l, messageLabel, jointHashfunction,
+                                  digests);
+    }
+
     /**
      * Computes a digest of a message.
      *
@@ -474,6 +628,17 @@ public abstract class BullBoardBasicDist extends BullBoardBasic {
                                      String messageLabel,
                                      ByteTreeBasic message,
                                      int s) {
+
+        // Use the digest computed when the message was received if
+        // possible.
+        if (message instanceof ReceivedMessage) {
+            byte[] digest =
+                ((ReceivedMessage)message).digest(l, messageLabel, s);
+            if (digest != null) {
+                return digest;
+            }
+        }
+
         Hashdigest hd = pkeys[s].getDigest();
         fullMessage(l, messageLabel, message).update(hd);
         return hd.digest();
@@ -494,6 +659,18 @@ public abstract class BullBoardBasicDist extends BullBoardBasic {
                                           String messageLabel,
                                           ByteTreeBasic message,
                                           Hashfunction jointHashfunction) {
+
+        // Use the digest computed when the message was received if
+        // possible.
+        if (message instanceof ReceivedMessage) {
+            byte[] digest =
+                ((ReceivedMessage)message).jointDigest(l, messageLabel,
+                                                       jointHashfunction);
+            if (digest != null) {
+                return digest;
+            }
+        }
+
         Hashdigest hd = jointHashfunction.getDigest();
         fullMessage(l, messageLabel, message).update(hd);
         return hd.digest();
@@ -676,7 +853,8 @@ public abstract class BullBoardBasicDist extends BullBoardBasic {
 
             // Try to download the message.
             message = readMessage(loc, l, messageLabel, maximalByteLength,
-                                  maximalRecursiveDepth, timer, log);
+                                  maximalRecursiveDepth, timer, log,
+                                  jointHashfunction);
 
             // Download and verify signature.
             if (message != null) {
@@ -702,3 +880,227 @@ public abstract class BullBoardBasicDist extends BullBoardBasic {
         return new Pair<ByteTreeBasic,byte[]>(message, jointDigest);
     }
 }
+
+/**
+ * Digests of a full message that are computed while the message is
+ * received, i.e., without reading the message back from file.
+ *
+ * @author Douglas Wikstrom
+ */
+class MessageDigests {
+
+    /**
+     * Index of original sender.
+     */
+    int l;
+
+    /**
+     * Message label under which the message is published.
+     */
+    String messageLabel;
+
+    /**
+     * Joint hashfunction, or <code>null</code>.
+     */
+    Hashfunction jointHashfunction;
+
+    /**
+     * Digest of the joint hashfunction at index zero and the digests
+     * of the parties at their indices, where unused digests are
+     * <code>null</code>.
+     */
+    Hashdigest[] digests;
+
+    /**
+     * Finalized digests.
+     */
+    byte[][] results;
+
+    /**
+     * Creates an instance.
+     *
+     * @param l Index of original sender.
+     * @param messageLabel Message label under which the message is
+     * published.
+     * @param jointHashfunction Joint hashfunction, or
+     * <code>null</code>.
+     * @param digests Digests of the joint hashfunction and the
+     * parties.
+     */
+    MessageDigests(int l,
+                   String messageLabel,
+                   Hashfunction jointHashfunction,
+                   Hashdigest[] digests) {
+        this.l = l;
+        this.messageLabel = messageLabel;
+        this.jointHashfunction = jointHashfunction;
+        this.digests = digests;
+    }
+
+    /**
+     * Updates all digests with more of the message.
+     *
+     * @param data Source of bytes.
+     * @param offset Index of first byte.
+     * @param length Number of bytes.
+     */
+    void update(byte[] data, int offset, int length) {
+        for (int s = 0; s < digests.length; s++) {
+            if (digests[s] != null) {
+                digests[s].update(data, offset, length);
+            }
+        }
+    }
+
+    /**
+     * Finalizes the digests.
+     */
+    void finish() {
+        results = new byte[digests.length][];
+        for (int s = 0; s < digests.length; s++) {
+            if (digests[s] != null) {
+                results[s] = digests[s].digest();
+            }
+        }
+    }
+
+    /**
+     * Returns the digest computed by the given party, or
+     * <code>null</code> if it is not available.
+     *
+     * @param l Index of original sender.
+     * @param messageLabel Message label under which the message is
+     * published.
+     * @param s Index of owner of the hashfunction used to compute
+     * digest.
+     * @return Digest or <code>null</code>.
+     */
+    byte[] digest(int l, String messageLabel, int s) {
+        if (results == null || this.l != l
+            || !this.messageLabel.equals(messageLabel)
+            || s <= 0 || s >= results.length || results[s] == null) {
+            return null;
+        }
+        return results[s].clone();
+    }
+
+    /**
+     * Returns the joint digest, or <code>null</code> if it is not
+     * available.
+     *
+     * @param l Index of original sender.
+     * @param messageLabel Message label under which the message is
+     * published.
+     * @param jointHashfunction Joint hashfunction.
+     * @return Joint digest or <code>null</code>.
+     */
+    byte[] jointDigest(int l,
+                       String messageLabel,
+                       Hashfunction jointHashfunction) {
+        if (results == null || this.l != l
+            || !this.messageLabel.equals(messageLabel)
+            || this.jointHashfunction != jointHashfunction
+            || results[0] == null) {
+            return null;
+        }
+        return results[0].clone();
+    }
+}
+
+/**
+ * Stream that verifies the format of data, and updates digests with
+ * the data, as it is received.
+ *
+ * @author Douglas Wikstrom
+ */
+class ReceivedDataStream extends OutputStream {
+
+    /**
+     * Verifier of the format of the data.
+     */
+    ByteTreeFormatVerifier verifier;
+
+    /**
+     * Digests of the data, or <code>null</code>.
+     */
+    MessageDigests digests;
+
+    /**
+     * Creates an instance.
+     *
+     * @param verifier Verifier of the format of the data.
+     * @param digests Digests of the data, or <code>null</code>.
+     */
+    ReceivedDataStream(ByteTreeFormatVerifier verifier,
+                       MessageDigests digests) {
+        this.verifier = verifier;
+        this.digests = digests;
+    }
+
+    public void write(int b) {
+        write(new byte[] {(byte)b}, 0, 1);
+    }
+
+    public void write(byte[] data, int offset, int length) {
+        verifier.update(data, offset, length);
+        if (digests != null) {
+            digests.update(data, offset, length);
+        }
+    }
+}
+
+/**
+ * Message stored on file along with the digests that were computed
+ * when it was received.
+ *
+ * @author Douglas Wikstrom
+ */
+class ReceivedMessage extends ByteTreeF {
+
+    /**
+     * Digests of the message.
+     */
+    MessageDigests digests;
+
+    /**
+     * Creates an instance.
+     *
+     * @param file File containing the message.
+     * @param digests Finalized digests of the message.
+     */
+    ReceivedMessage(File file, MessageDigests digests) {
+        super(file);
+        this.digests = digests;
+    }
+
+    /**
+     * Returns the digest computed by the given party, or
+     * <code>null</code> if it is not available.
+     *
+     * @param l Index of original sender.
+     * @param messageLabel Message label under which the message is
+     * published.
+     * @param s Index of owner of the hashfunction used to compute
+     * digest.
+     * @return Digest or <code>null</code>.
+     */
+    byte[] digest(int l, String messageLabel, int s) {
+        return digests.digest(l, messageLabel, s);
+    }
+
+    /**
+     * Returns the joint digest, or <code>null</code> if it is not
+     * available.
+     *
+     * @param l Index of original sender.
+     * @param messageLabel Message label under which the message is
+     * published.
+     * @param jointHashfunction Joint hashfunction.
+     * @return Joint digest or <code>null</code>.
+     */
+    byte[] jointDigest(int l,
+                       String messageLabel,
+                       Hashfunction jointHashfunction) {
+        return digests.jointDigest(l, messageLabel, jointHashfunction);
+    }
+}
@@ -24,6 +24,7 @@ package mixnet.protocol.com;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import mixnet.eio.*;
 import mixnet.crypto.*;
@@ -282,7 +283,9 @@ public class BullBoardBasicDistW extends BullBoardBasicDist {
 
     /**
      * Waits for a posting on the bulletin board as specified by the
-     * parameters. This method does not block.
+     * parameters. This method does not block. The signatures of all
+     * parties are downloaded and verified concurrently within a
+     * common deadline.
      *
      * @param l Index of the party that wrote the message to be
      * read.
@@ -310,17 +313,19 @@ public class BullBoardBasicDistW extends BullBoardBasicDist {
                                     ByteTreeBasic message,
                                     byte[] jointDigest) {
 
-        // Zero indicates that we download a signature from the
-        // publisher.
-        int signatureIndex = 0;
-        int waitTime = signatureWaitTime;
+        // Indicates that we have the message and a valid signature
+        // of the publisher.
+        boolean received = false;
+
+        // Keeps track of the parties from which we have a valid
+        // signature, or from which we do not need any.
+        boolean[] verified = null;
 
-        int exceptionType = 0;
-        int count = 0;
+        int waitTime = signatureWaitTime;
 
         for (;;) {
 
-            if (signatureIndex == 0) {
+            if (!received) {
 
                 if (l == j) {
 
@@ -328,7 +333,7 @@ public class BullBoardBasicDistW extends BullBoardBasicDist {
                     // anything. We obviously produced a valid
                     // signature of our own message.
 
-                    signatureIndex++;
+                    received = true;
 
                 } else {
 
@@ -354,72 +359,38 @@ public class BullBoardBasicDistW extends BullBoardBasicDist {
 
                     // If a message and signature was successfully
                     // downloaded, then we try to download signatures.
-                    if (message != null) {
-                        signatureIndex++;
-                    }
+                    received = message != null;
                 }
-            }
-
-            // This is false iff a valid signature could not be
-            // downloaded from some party.
-            boolean verdict = true;
-
-            // Provided that we have successfully downloaded a message
-            // and valid signature from the publisher, we try to
-            // download the signatures of other parties and sign the
-            // message downloaded from the publisher.
-            while (0 < signatureIndex && signatureIndex <= k && verdict) {
-
-                if (corrupted[signatureIndex]) {
-
-                    // Ignore parties that are marked as corrupted.
-
-                } else if (signatureIndex == l) {
-
-                    // Valid signature of the publisher is already
-                    // downloaded, so we do nothing.
 
-                } else if (signatureIndex == j) {
+                if (received) {
 
-                    // If it is our turn, we make our signature of the
-                    // message available on our HTTP server.
-
-                    writeSignature(l, messageLabel, message, jointDigest, log);
-
-                } else {
-
-                    // Otherwise, we try to download a valid signature
-                    // from Party <signatureIndex>.
-
-                    Timer timer = new Timer(waitTime);
-
-                    verdict = readSignature(signatureIndex,
-                                            l,
-                                            messageLabel,
-                                            signatureIndex,
-                                            message,
-                                            jointDigest,
-                                            maximalSignatureByteLength,
-                                            timer,
-                                            log);
-                }
+                    // Parties marked as corrupted are ignored and the
+                    // valid signature of the publisher is already
+                    // downloaded.
+                    verified = new boolean[k + 1];
+                    for (int i = 1; i <= k; i++) {
+                        verified[i] = corrupted[i] || i == l;
+                    }
 
-                //catch (Throwable ce) {
-                    //     if (exceptionType != 2 || count > exceptionCount) {
-                    //         exceptionType = 2;
-                    //         count = 0;
-                    //     }
-                    //     if (count == 0) {
-                    //         log.info("Unable to connect to " + http(l) + "!");
-                    //     }
-                    //     verdict = false;
-                    // }
-                if (verdict) {
-                    signatureIndex++;
+                    // We make our signature of the message available
+                    // on our HTTP server before we wait for the
+                    // signatures of others, since they may be waiting
+                    // for ours.
+                    if (!verified[j]) {
+                        writeSignature(l, messageLabel, message, jointDigest,
+                                       log);
+                        verified[j] = true;
+                    }
                 }
             }
 
-            if (signatureIndex > k) {
+            // Provided that we have successfully downloaded a message
+            // and valid signature from the publisher, we try to
+            // download the signatures of all remaining parties
+            // concurrently.
+            if (received
+                && readSignatures(l, messageLabel, message, jointDigest,
+                                  verified, waitTime, log)) {
 
                 // If we have downloaded the message and valid
                 // signatures from all parties, then we simply return
@@ -442,4 +413,104 @@ public class BullBoardBasicDistW extends BullBoardBasicDist {
             waitTime = errorSignatureWaitTime;
         }
     }
+
+    /**
+     * Downloads and verifies, concurrently and within a common
+     * deadline, the signatures of the given message or joint digest
+     * of all parties that are not marked as verified. A party is
+     * marked as verified as soon as its signature has been verified.
+     *
+     * @param l Index of the publisher of the message.
+     * @param messageLabel Label under which the message is published.
+     * @param message Message of which we seek signatures. This should
+     * be null to use the joint digest instead.
+     * @param jointDigest Joint digest of the message. This should be
+     * null if the message is used directly.
+     * @param verified Parties from which we have a valid signature,
+     * or from which we need none.
+     * @param waitTime Time to wait for all signatures.
+     * @param log Log context.
+     * @return <code>true</code> if all parties are marked as verified
+     * when this method returns and <code>false</code> otherwise.
+     */
+    protected boolean readSignatures(final int l,
+                                     final String messageLabel,
+                                     final ByteTreeBasic message,
+                                     final byte[] jointDigest,
+                                     boolean[] verified,
+                                     int waitTime,
+                                     final Log log) {
+
+        int missing = 0;
+        for (int i = 1; i <= k; i++) {
+            if (!verified[i]) {
+                missing++;
+            }
+        }
+        if (missing == 0) {
+            return true;
+        }
+
+        // All downloads share a single deadline.
+        final Timer timer = new Timer(waitTime);
+
+        ExecutorService executor = Executors.newFixedThreadPool(missing);
+        CompletionService<Integer> completion =
+            new ExecutorCompletionService<Integer>(executor);
+
+        try {
+
+            for (int i = 1; i <= k; i++) {
+                if (!verified[i]) {
+
+                    final int s = i;
+
+                    completion.submit(new Callable<Integer>() {
+                            public Integer call() {
+                                boolean verdict =
+                                    readSignature(s,
+                                                  l,
+                                                  messageLabel,
+                                                  s,
+                                                  message,
+                                                  jointDigest,
+                                                  maximalSignatureByteLength,
+                                                  timer,
+                                                  log);
+                                return verdict ? s : 0;
+                            }
+                        });
+                }
+            }
+
+            // Collect the verdicts as they arrive.
+            int remaining = missing;
+            while (remaining > 0) {
+
+                int s = completion.take().get();
+                if (s > 0) {
+                    verified[s] = true;
+                    missing--;
+                }
+                remaining--;
+            }
+
+        } catch (InterruptedException ie) {
+            throw new ProtocolError("Interrupted while waiting for " +
+                                    "signatures!", ie);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            } else {
+                throw new ProtocolError("Unable to download signatures!",
+                                        cause);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return missing == 0;
+    }
 }
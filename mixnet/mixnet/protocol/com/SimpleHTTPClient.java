@@ -23,6 +23,9 @@ package mixnet.protocol.com;
 
 import java.io.*;
 import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
 
 import mixnet.eio.*;
 import mixnet.ui.*;
@@ -32,6 +35,14 @@ import mixnet.protocol.*;
  * Simplistic HTTP client. It can only download files as
  * binary/octet-streams.
  *
+ * <p>
+ *
+ * Connections are left open after complete transfers, so that the
+ * underlying keep-alive connections are reused. A download to file
+ * that is interrupted is kept and resumed using a range request the
+ * next time the same file is fetched. The latency and throughput of
+ * the transfers from each peer are recorded.
+ *
  * @author Douglas Wikstrom
  */
 public class SimpleHTTPClient {
@@ -39,7 +50,50 @@ public class SimpleHTTPClient {
     /**
      * Size in bytes of buffer used for streaming.
      */
-    public static int BUFFER_SIZE = 4096;
+    public static int BUFFER_SIZE = 65536;
+
+    /**
+     * Status code of a response to a range request that can not be
+     * satisfied.
+     */
+    public final static int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+    /**
+     * Statistics of the transfers from each peer, indexed by the
+     * authority part of the URL of the peer.
+     */
+    protected static Map<String,TransferStatistics> statistics =
+        new TreeMap<String,TransferStatistics>();
+
+    /**
+     * Returns the statistics of the transfers from the peer of the
+     * given URL.
+     *
+     * @param url URL of a file of the peer.
+     * @return Statistics of transfers from the peer.
+     */
+    public static TransferStatistics getStatistics(URL url) {
+        synchronized (statistics) {
+            String peer = url.getAuthority();
+            TransferStatistics ts = statistics.get(peer);
+            if (ts == null) {
+                ts = new TransferStatistics(peer);
+                statistics.put(peer, ts);
+            }
+            return ts;
+        }
+    }
+
+    /**
+     * Returns the statistics of the transfers from all peers.
+     *
+     * @return Statistics of transfers from all peers.
+     */
+    public static List<TransferStatistics> getStatistics() {
+        synchronized (statistics) {
+            return new ArrayList<TransferStatistics>(statistics.values());
+        }
+    }
 
     /**
      * Fetches a remote file and writes it to the given output stream.
@@ -58,9 +112,61 @@ public class SimpleHTTPClient {
                                     int readTimeOut,
                                     long maximalByteLength,
                                     Log log) {
+        return fetchFile(Channels.newChannel(os), 0, url, readTimeOut,
+                         maximalByteLength, log, null);
+    }
+
+    /**
+     * Fetches a remote file, or the part of it that starts at the
+     * given offset, and writes it to the given channel. If the
+     * channel is a file channel, then the data is written at the
+     * offset of the file. If the server responds with the complete
+     * file, or if the range is not satisfiable, then the file is
+     * truncated and the complete file is written, or nothing is
+     * written, respectively.
+     *
+     * <p>
+     *
+     * If an observer is given, then it is passed every byte of the
+     * complete file in order while the data is received, including
+     * the bytes of a resumed file that were already written. The
+     * observer is only guaranteed to see the complete file if the
+     * download succeeds.
+     *
+     * @param channel Channel where the fetched data is written.
+     * @param offset Offset in the remote file of the first byte to be
+     * fetched. This must be zero unless the channel is a file
+     * channel.
+     * @param url URL of file to be fetched.
+     * @param readTimeOut Longest waiting time in milliseconds before
+     * assuming that transfer failed.
+     * @param maximalByteLength Maximal number of bytes of the
+     * complete file.
+     * @param log Logging context
+     * @param observer Observer of the received data, or
+     * <code>null</code>.
+     * @return <code>true</code> or <code>false</code> depending on if
+     * the download succeeded or not.
+     */
+    protected static boolean fetchFile(WritableByteChannel channel,
+                                       long offset,
+                                       URL url,
+                                       int readTimeOut,
+                                       long maximalByteLength,
+                                       Log log,
+                                       OutputStream observer) {
 
         boolean result = true;
 
+        // Indicates that the response was consumed completely, so
+        // that the connection can be reused.
+        boolean reusable = false;
+
+        TransferStatistics ts = getStatistics(url);
+        long startTime = System.currentTimeMillis();
+        long latency = 0;
+        long received = 0;
+
         HttpURLConnection connection = null;
         InputStream is = null;
         try {
@@ -71,66 +177,115 @@ public class SimpleHTTPClient {
             connection = (HttpURLConnection)url.openConnection();
             connection.setRequestMethod("GET");
             connection.setReadTimeout(readTimeOut);
+            if (offset > 0) {
+                connection.setRequestProperty("Range",
+                                              "bytes=" + offset + "-");
+            }
             connection.connect();
 
-            if (!timer.timeIsUp() &&
-                connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
+            int responseCode = connection.getResponseCode();
+            latency = System.currentTimeMillis() - startTime;
 
-                int contentLength = connection.getContentLength();
+            // Length of the complete file and offset of the first
+            // byte in the response.
+            long contentLength = -1;
+            long responseOffset = 0;
 
-                if (contentLength < 0) {
+            if (timer.timeIsUp()) {
 
-                    log.info("Unknown content length!");
-                    result = false;
+                result = false;
 
-                } else if (contentLength > maximalByteLength) {
+            } else if (responseCode == HttpURLConnection.HTTP_OK) {
 
-                    log.info("Requested file is too long! (more than " +
-                             maximalByteLength + " bytes)");
+                contentLength = connection.getContentLengthLong();
+
+            } else if (responseCode == HttpURLConnection.HTTP_PARTIAL
+                       && offset > 0) {
+
+                String contentRange =
+                    connection.getHeaderField("Content-Range");
+                long[] range = parseContentRange(contentRange);
+                if (range == null || range[0] != offset
+                    || range[1] != range[2] - 1) {
+
+                    log.info("Invalid content range!");
                     result = false;
 
                 } else {
 
-                    is = connection.getInputStream();
+                    contentLength = range[2];
+                    responseOffset = offset;
+                }
 
-                    byte[] buf = new byte[BUFFER_SIZE];
-                    int remaining = contentLength;
-                    for (;;) {
+            } else if (responseCode == HTTP_RANGE_NOT_SATISFIABLE
+                       && offset > 0) {
 
-                        int rlen = Math.min(remaining, BUFFER_SIZE);
-                        int len = is.read(buf, 0, rlen);
+                // The partial file can not be resumed, so we discard
+                // it and start over the next time.
+                log.info("Unable to resume download, starting over!");
+                ((FileChannel)channel).truncate(0);
+                reusable = discard(connection.getErrorStream());
+                result = false;
 
-                        if (timer.timeIsUp() || len == -1 || remaining == 0) {
+            } else {
 
-                            break;
+                // Typically the file is not available yet, and we
+                // expect to poll again soon.
+                reusable = discard(connection.getErrorStream());
+                result = false;
+            }
 
-                        } else {
+            if (!result) {
 
-                            os.write(buf, 0, len);
-                            remaining -= len;
+                // Nothing to do.
 
-                        }
-                    }
+            } else if (contentLength < 0) {
 
-                    // It is possible to send files using the HTTP
-                    // protocol without any length embedded. If you
-                    // use an external HTTP-server and your protocol
-                    // fails at this point, then the likely cause is
-                    // that your server incorrectly sets the header to
-                    // 0 or -1.
-
-                    if (remaining > 0) {
-                        log.info("Expected " + contentLength +
-                                 " bytes, but " + remaining +
-                                 " bytes are missing! Does your HTTP " +
-                                 "server set the content length correctly?");
-                        result = false;
-                    }
-                }
+                log.info("Unknown content length!");
+                result = false;
 
-            } else {
+            } else if (contentLength > maximalByteLength) {
+
+                log.info("Requested file is too long! (more than " +
+                         maximalByteLength + " bytes)");
                 result = false;
+
+            } else {
+
+                // If the server ignored our range request, then we
+                // start over. Otherwise the observer is first given
+                // the part of the file we already have.
+                if (responseOffset == 0 && offset > 0) {
+                    ((FileChannel)channel).truncate(0);
+                } else if (responseOffset > 0 && observer != null) {
+                    replay((FileChannel)channel, responseOffset, observer);
+                }
+
+                is = connection.getInputStream();
+
+                long remaining = contentLength - responseOffset;
+                long length = remaining;
+                remaining = copy(is, channel, responseOffset, remaining,
+                                 timer, observer);
+                received = length - remaining;
+
+                // It is possible to send files using the HTTP
+                // protocol without any length embedded. If you use
+                // an external HTTP-server and your protocol fails at
+                // this point, then the likely cause is that your
+                // server incorrectly sets the header to 0 or -1.
+
+                if (remaining == 0) {
+                    reusable = true;
+                } else {
+                    log.info("Expected " + length +
+                             " bytes, but " + remaining +
+                             " bytes are missing! Does your HTTP " +
+                             "server set the content length correctly?");
+                    result = false;
+                }
             }
+
         } catch (MalformedURLException murle) {
             throw new ProtocolError("Not a valid URL!", murle);
         } catch (SocketTimeoutException ste) {
@@ -150,17 +305,196 @@ public class SimpleHTTPClient {
             result = false;
         } finally {
             ExtIO.strictClose(is);
-            if (connection != null) {
+
+            // A connection of a completely consumed response is left
+            // open to allow reuse.
+            if (connection != null && !reusable) {
                 connection.disconnect();
             }
         }
 
+        long transferTime =
+            System.currentTimeMillis() - startTime - latency;
+        ts.record(result, received, latency, transferTime);
+
         return result;
     }
 
+    /**
+     * Reads and discards a short body of a response.
+     *
+     * @param is Source of the body, or <code>null</code> if there is
+     * no body.
+     * @return <code>true</code> if the complete body was read and
+     * <code>false</code> if it is longer than {@link #BUFFER_SIZE}
+     * bytes.
+     * @throws IOException If reading fails.
+     */
+    protected static boolean discard(InputStream is) throws IOException {
+        if (is == null) {
+            return true;
+        }
+        try {
+            byte[] buf = new byte[BUFFER_SIZE];
+            int total = 0;
+            while (total < BUFFER_SIZE) {
+                int len = is.read(buf, total, BUFFER_SIZE - total);
+                if (len == -1) {
+                    return true;
+                }
+                total += len;
+            }
+            return is.read() == -1;
+        } finally {
+            ExtIO.strictClose(is);
+        }
+    }
+
+    /**
+     * Passes the given number of bytes at the beginning of the file
+     * to the observer.
+     *
+     * @param fc Source of bytes.
+     * @param length Number of bytes to pass.
+     * @param observer Destination of bytes.
+     * @throws IOException If reading or writing fails.
+     */
+    protected static void replay(FileChannel fc,
+                                 long length,
+                                 OutputStream observer)
+        throws IOException {
+
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+
+        long position = 0;
+        while (position < length) {
+
+            buf.clear();
+            buf.limit((int)Math.min(length - position, BUFFER_SIZE));
+
+            int len = fc.read(buf, position);
+            if (len == -1) {
+                throw new EOFException("Partial file is too short!");
+            }
+            observer.write(buf.array(), 0, len);
+            position += len;
+        }
+    }
+
+    /**
+     * Copies at most the given number of bytes from the stream to the
+     * channel, or until the time is up. If the channel is a file
+     * channel, then the bytes are written starting at the given
+     * position of the file. If an observer is given, then every byte
+     * is also written to the observer.
+     *
+     * @param is Source of bytes.
+     * @param channel Destination of bytes.
+     * @param position Position in the file if the channel is a file
+     * channel.
+     * @param remaining Number of bytes to copy.
+     * @param timer Timer that keeps track of how long we may copy.
+     * @param observer Observer of the copied bytes, or
+     * <code>null</code>.
+     * @return Number of bytes that were not copied.
+     * @throws IOException If copying fails.
+     */
+    protected static long copy(InputStream is,
+                               WritableByteChannel channel,
+                               long position,
+                               long remaining,
+                               Timer timer,
+                               OutputStream observer)
+        throws IOException {
+
+        ReadableByteChannel rbc = Channels.newChannel(is);
+
+        if (channel instanceof FileChannel && observer == null) {
+
+            FileChannel fc = (FileChannel)channel;
+
+            while (remaining > 0 && !timer.timeIsUp()) {
+
+                long len = fc.transferFrom(rbc, position,
+                                           Math.min(remaining, BUFFER_SIZE));
+                if (len == 0) {
+                    break;
+                }
+                position += len;
+                remaining -= len;
+            }
+
+        } else {
+
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+
+            while (remaining > 0 && !timer.timeIsUp()) {
+
+                buf.clear();
+                buf.limit((int)Math.min(remaining, BUFFER_SIZE));
+
+                int len = rbc.read(buf);
+                if (len == -1) {
+                    break;
+                }
+
+                if (observer != null) {
+                    observer.write(buf.array(), 0, len);
+                }
+
+                buf.flip();
+                if (channel instanceof FileChannel) {
+                    FileChannel fc = (FileChannel)channel;
+                    while (buf.hasRemaining()) {
+                        position += fc.write(buf, position);
+                    }
+                } else {
+                    while (buf.hasRemaining()) {
+                        channel.write(buf);
+                    }
+                }
+                remaining -= len;
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Parses the value of a header of the form "bytes
+     * first-last/length".
+     *
+     * @param contentRange Value of header.
+     * @return Array containing the first position, the last
+     * position, and the length, or <code>null</code> if the value is
+     * not of the expected form.
+     */
+    protected static long[] parseContentRange(String contentRange) {
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return null;
+        }
+        String s = contentRange.substring(6).trim();
+
+        int dash = s.indexOf('-');
+        int slash = s.indexOf('/');
+        if (dash < 0 || slash < dash) {
+            return null;
+        }
+        try {
+            long[] res = new long[3];
+            res[0] = Long.parseLong(s.substring(0, dash));
+            res[1] = Long.parseLong(s.substring(dash + 1, slash));
+            res[2] = Long.parseLong(s.substring(slash + 1));
+            return res;
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+    }
+
     /**
      * Fetches a remote file and stores it under the same name in the
      * given directory. The reason for any failing to do so is logged.
+     * If a previous attempt to fetch the file was interrupted, then
+     * the download is resumed.
      *
      * @param rootURL Location of remote file.
      * @param destinationDir Local directory where the file is stored
@@ -179,8 +513,41 @@ public class SimpleHTTPClient {
                                     int readTimeOut,
                                     long maximalByteLength,
                                     Log log) {
+        return fetchFile(rootURL, destinationDir, fileName, readTimeOut,
+                         maximalByteLength, log, null);
+    }
+
+    /**
+     * Fetches a remote file and stores it under the same name in the
+     * given directory, and passes every byte of the file to the
+     * observer as it is received. The reason for any failing to do so
+     * is logged. If a previous attempt to fetch the file was
+     * interrupted, then the download is resumed, and the observer is
+     * first given the bytes already received.
+     *
+     * @param rootURL Location of remote file.
+     * @param destinationDir Local directory where the file is stored
+     * after download.
+     * @param fileName Name of file.
+     * @param readTimeOut Longest waiting time in milliseconds before
+     * assuming that transfer failed.
+     * @param maximalByteLength Maximal number of bytes to be downloaded.
+     * @param log Logging context
+     * @param observer Observer of the received data, or
+     * <code>null</code>. It has seen exactly the bytes of the file if
+     * the download succeeds.
+     * @return <code>true</code> or <code>false</code> depending on if
+     * the download succeeded or not.
+     */
+    public static boolean fetchFile(URL rootURL,
+                                    File destinationDir,
+                                    String fileName,
+                                    int readTimeOut,
+                                    long maximalByteLength,
+                                    Log log,
+                                    OutputStream observer) {
 
-        FileOutputStream fos = null;
+        RandomAccessFile raf = null;
         boolean result = true;
 
         try {
@@ -192,36 +559,50 @@ public class SimpleHTTPClient {
             File tmpDestinationFile =
                 new File(fullDestinationDir, "_" + name);
 
-            // Make sure destination directory exists.
+            // Make sure destination directory exists. Another thread
+            // may create it concurrently, so we only fail if it is
+            // still missing.
             if (!fullDestinationDir.exists() &&
-                !fullDestinationDir.mkdirs()) {
+                !fullDestinationDir.mkdirs() &&
+                !fullDestinationDir.isDirectory()) {
                 throw new ProtocolError("Unable to make directories! (" +
                                         fullDestinationDir + ")");
             }
 
-            // Open temporary destination file.
-            fos = new FileOutputStream(tmpDestinationFile);
+            // Open temporary destination file and resume from its
+            // end, unless it is already too long.
+            raf = new RandomAccessFile(tmpDestinationFile, "rw");
+            FileChannel fc = raf.getChannel();
+            long offset = fc.size();
+            if (offset >= maximalByteLength) {
+                fc.truncate(0);
+                offset = 0;
+            }
 
             // Attempt to fetch data.
             URL url = new URL(rootURL, fileName);
-            result = fetchFile(fos, url, readTimeOut, maximalByteLength, log);
-            ExtIO.strictClose(fos);
+            result = fetchFile(fc, offset, url, readTimeOut,
+                               maximalByteLength, log, observer);
+            ExtIO.strictClose(raf);
 
-            // Final destination of data.
-            File destinationFile = new File(fullDestinationDir, name);
+            if (result) {
 
-            // Delete destination file if it exists.
-            if (destinationFile.exists()) {
-                destinationFile.delete();
-            }
+                // Final destination of data.
+                File destinationFile = new File(fullDestinationDir, name);
+
+                // Delete destination file if it exists.
+                if (destinationFile.exists()) {
+                    destinationFile.delete();
+                }
 
-            // Rename temporary file to target file.
-            if (!tmpDestinationFile.renameTo(destinationFile)) {
-                String description =
-                    "Unable to rename temporary file \""
-                    + tmpDestinationFile + " to \""
-                    + destinationFile + "\"!";
-                throw new ProtocolError(description);
+                // Rename temporary file to target file.
+                if (!tmpDestinationFile.renameTo(destinationFile)) {
+                    String description =
+                        "Unable to rename temporary file \""
+                        + tmpDestinationFile + " to \""
+                        + destinationFile + "\"!";
+                    throw new ProtocolError(description);
+                }
             }
         } catch (MalformedURLException murle) {
             throw new ProtocolError("Not a valid URL!", murle);
@@ -230,7 +611,7 @@ public class SimpleHTTPClient {
             log.register(ioe);
             result = false;
         } finally {
-            ExtIO.strictClose(fos);
+            ExtIO.strictClose(raf);
         }
         return result;
     }
@@ -23,10 +23,13 @@ package mixnet.protocol.com;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
 
 import static java.net.HttpURLConnection.HTTP_OK;
 import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+import static java.net.HttpURLConnection.HTTP_PARTIAL;
+import static mixnet.protocol.com.SimpleHTTPClient.HTTP_RANGE_NOT_SATISFIABLE;
 
 import com.sun.net.httpserver.*;
 
@@ -43,7 +46,7 @@ public class SimpleHTTPHandler implements HttpHandler {
     /**
      * Size of buffer used for streaming.
      */
-    final static int BUFFER_SIZE = 4096;
+    final static int BUFFER_SIZE = 65536;
 
     /**
      * Directory containing files that may be requested by clients.
@@ -65,8 +68,10 @@ public class SimpleHTTPHandler implements HttpHandler {
      * consists only of digits, letters, and the special symbols "/",
      * "_", and ".", and does not have any subsequences of more than
      * one ".", then it is checked if the file exists in our
-     * directory. If so, the file is streamed to the client. Otherwise
-     * a failure message is streamed instead.
+     * directory. If so, the file is streamed to the client, or only
+     * the requested part of the file if the client sends a range
+     * request of the form "bytes=first-" or "bytes=first-last".
+     * Otherwise a failure message is streamed instead.
      *
      * @param exchange Exchange to be handled.
      * @throws IOException If the handler fails due to IO problems.
@@ -116,10 +121,9 @@ public class SimpleHTTPHandler implements HttpHandler {
         // Initialize datastructures for our response.
         Headers headers = exchange.getResponseHeaders();
         headers.set("Content-Type", "binary/octet-stream");
+        headers.set("Accept-Ranges", "bytes");
 
-        IOException ee = null;
         OutputStream os = null;
-        BufferedInputStream bis = null;
         FileInputStream fis = null;
         try {
 
@@ -127,26 +131,55 @@ public class SimpleHTTPHandler implements HttpHandler {
             // and is readable, or inform client that the request failed.
             if (requestMethod.equals("GET") && requestFile.canRead()) {
 
-                long requestLen = requestFile.length();
+                fis = new FileInputStream(requestFile);
+                FileChannel fc = fis.getChannel();
 
-                exchange.sendResponseHeaders(HTTP_OK, requestLen);
-                os = exchange.getResponseBody();
+                long requestLen = fc.size();
 
-                fis = new FileInputStream(requestFile);
+                // First and last position of the requested range.
+                long[] range =
+                    parseRange(exchange.getRequestHeaders().getFirst("Range"),
+                               requestLen);
+
+                if (range == null) {
+
+                    // Zero indicates chunked encoding, so an empty
+                    // file is sent without any body.
+                    exchange.sendResponseHeaders(HTTP_OK,
+                                                 requestLen == 0 ?
+                                                 -1 : requestLen);
+                    range = new long[] {0, requestLen - 1};
+
+                } else if (range[0] <= range[1]) {
 
-                byte[] buf = new byte[BUFFER_SIZE];
-                int remaining = (int)requestLen;
-                for (;;) {
+                    headers.set("Content-Range",
+                                "bytes " + range[0] + "-" + range[1] +
+                                "/" + requestLen);
+                    exchange.sendResponseHeaders(HTTP_PARTIAL,
+                                                 range[1] - range[0] + 1);
 
-                    int rlen = Math.min(remaining, BUFFER_SIZE);
-                    int len = fis.read(buf, 0, rlen);
+                } else {
 
-                    if (len == -1) {
+                    headers.set("Content-Range", "bytes */" + requestLen);
+                    exchange.sendResponseHeaders(HTTP_RANGE_NOT_SATISFIABLE,
+                                                 -1);
+                }
+
+                os = exchange.getResponseBody();
+                WritableByteChannel channel = Channels.newChannel(os);
+
+                long position = range[0];
+                long remaining = range[1] - range[0] + 1;
+                while (remaining > 0) {
+
+                    long len = fc.transferTo(position,
+                                             Math.min(remaining, BUFFER_SIZE),
+                                             channel);
+                    if (len == 0) {
                         break;
-                    } else {
-                        os.write(buf, 0, len);
-                        remaining -= len;
                     }
+                    position += len;
+                    remaining -= len;
                 }
 
                 if (remaining > 0) {
@@ -167,8 +200,49 @@ public class SimpleHTTPHandler implements HttpHandler {
         } finally {
 
             ExtIO.strictClose(fis);
-            ExtIO.strictClose(bis);
             exchange.close();
         }
     }
+
+    /**
+     * Parses the value of a range header of the form "bytes=first-"
+     * or "bytes=first-last". Any other form, e.g., multiple ranges or
+     * suffix ranges, is ignored and the complete file is sent.
+     *
+     * @param rangeHeader Value of the header, or <code>null</code> if
+     * there is none.
+     * @param length Length of the requested file.
+     * @return First and last position of the requested part of the
+     * file, where the last position is smaller than the first if the
+     * range is not satisfiable, or <code>null</code> if the complete
+     * file should be sent.
+     */
+    static long[] parseRange(String rangeHeader, long length) {
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=")) {
+            return null;
+        }
+        String s = rangeHeader.substring(6).trim();
+
+        int dash = s.indexOf('-');
+        if (dash <= 0 || s.indexOf(',') >= 0) {
+            return null;
+        }
+        try {
+            long first = Long.parseLong(s.substring(0, dash));
+            long last = length - 1;
+            if (dash < s.length() - 1) {
+                long requestedLast = Long.parseLong(s.substring(dash + 1));
+                if (requestedLast < first) {
+                    return null;
+                }
+                last = Math.min(last, requestedLast);
+            }
+            if (first >= length) {
+                return new long[] {first, first - 1};
+            }
+            return new long[] {first, last};
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+    }
 }
@@ -24,6 +24,7 @@ package mixnet.protocol.com;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import com.sun.net.httpserver.*;
 
@@ -63,6 +64,12 @@ public final class SimpleHTTPServer {
      */
     protected HttpServer server;
 
+    /**
+     * Executes the handlers of requests, so that several clients can
+     * download files concurrently.
+     */
+    protected ExecutorService executor;
+
     /**
      * Creates a server.
      *
@@ -113,6 +120,8 @@ public final class SimpleHTTPServer {
         try {
             server = HttpServer.create(socketAddress, backLog);
             server.createContext("/", new SimpleHTTPHandler(directory));
+            executor = Executors.newCachedThreadPool();
+            server.setExecutor(executor);
             server.start();
         } catch (IOException ioe) {
             throw new ProtocolError("Unable to start server!", ioe);
@@ -125,6 +134,8 @@ public final class SimpleHTTPServer {
     public void stop() {
         server.stop(0);
         server = null;
+        executor.shutdown();
+        executor = null;
     }
 
     /**
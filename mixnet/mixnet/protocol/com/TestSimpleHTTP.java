@@ -0,0 +1,202 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.protocol.com;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+import mixnet.crypto.*;
+import mixnet.eio.*;
+import mixnet.test.*;
+import mixnet.ui.*;
+
+/**
+ * Tests {@link SimpleHTTPClient} against {@link SimpleHTTPServer},
+ * including resumption of interrupted downloads.
+ *
+ * @author Douglas Wikstrom
+ */
+public class TestSimpleHTTP {
+
+    /**
+     * Returns a free port on the local host.
+     *
+     * @return Free port.
+     * @throws IOException If no port can be found.
+     */
+    static int freePort() throws IOException {
+        ServerSocket ss = new ServerSocket(0);
+        int port = ss.getLocalPort();
+        ss.close();
+        return port;
+    }
+
+    /**
+     * Writes random bytes to a file in the root directory of the
+     * server.
+     *
+     * @param root Root directory of the server.
+     * @param name Name of file.
+     * @param tp Test parameters.
+     * @return Bytes written to the file.
+     * @throws IOException If writing fails.
+     */
+    static byte[] publish(File root, String name, TestParameters tp)
+        throws IOException {
+
+        RandomSource rs = new PRGHeuristic(tp.prgseed.getBytes());
+        byte[] data = rs.getBytes(1000 * tp.testSize + 17);
+
+        File file = new File(root, name);
+        file.getParentFile().mkdirs();
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write(data);
+        fos.close();
+
+        return data;
+    }
+
+    /**
+     * Reads the complete content of a file.
+     *
+     * @param file File to be read.
+     * @return Content of the file.
+     * @throws IOException If reading fails.
+     */
+    static byte[] read(File file) throws IOException {
+        byte[] data = new byte[(int)file.length()];
+        DataInputStream dis = new DataInputStream(new FileInputStream(file));
+        dis.readFully(data);
+        dis.close();
+        return data;
+    }
+
+    /**
+     * Writes the given part of the data to a file.
+     *
+     * @param file Destination file.
+     * @param data Data to write.
+     * @param length Number of bytes to write.
+     * @throws IOException If writing fails.
+     */
+    static void write(File file, byte[] data, int length)
+        throws IOException {
+        file.getParentFile().mkdirs();
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write(data, 0, length);
+        fos.close();
+    }
+
+    public static boolean fetchAndResume(TestParameters tp)
+        throws Exception {
+
+        File root = new File(tp.tmpDir, "http");
+        File dest = new File(tp.tmpDir, "dest");
+        String name = "dir/file";
+        byte[] data = publish(root, name, tp);
+
+        int port = freePort();
+        URL url = new URL("http://127.0.0.1:" + port + "/");
+        SimpleHTTPServer server =
+            new SimpleHTTPServer(root, "127.0.0.1", port, 10);
+        server.start();
+
+        Log log = new Log();
+        File file = new File(dest, name);
+        File partial = new File(dest, "dir/_file");
+
+        try {
+
+            // Complete download.
+            if (!SimpleHTTPClient.fetchFile(url, dest, name, 10000,
+                                            data.length, log)
+                || !Arrays.equals(read(file), data)) {
+                return false;
+            }
+
+            // Too long files are rejected.
+            if (SimpleHTTPClient.fetchFile(url, dest, name, 10000,
+                                           data.length - 1, log)) {
+                return false;
+            }
+            partial.delete();
+
+            // Resumed download.
+            write(partial, data, data.length / 2);
+            if (!SimpleHTTPClient.fetchFile(url, dest, name, 10000,
+                                            data.length, log)
+                || !Arrays.equals(read(file), data)
+                || partial.exists()) {
+                return false;
+            }
+
+            // A partial file that can not be resumed is discarded.
+            byte[] longer = Arrays.copyOf(data, data.length + 1);
+            write(partial, longer, longer.length);
+            if (SimpleHTTPClient.fetchFile(url, dest, name, 10000,
+                                           data.length + 2, log)
+                || partial.length() != 0) {
+                return false;
+            }
+            if (!SimpleHTTPClient.fetchFile(url, dest, name, 10000,
+                                            data.length, log)
+                || !Arrays.equals(read(file), data)) {
+                return false;
+            }
+
+            // The byte array interface.
+            byte[] fetched =
+                SimpleHTTPClient.fetchFile(url, name, 10000, data.length,
+                                           log);
+            if (!Arrays.equals(fetched, data)) {
+                return false;
+            }
+
+            // Missing files.
+            if (SimpleHTTPClient.fetchFile(url, dest, "dir/missing", 10000,
+                                           data.length, log)) {
+                return false;
+            }
+
+            return SimpleHTTPClient.getStatistics(url).getTransfers() >= 4;
+
+        } finally {
+            server.stop();
+        }
+    }
+
+    public static boolean parseRange(TestParameters tp) throws Exception {
+        return SimpleHTTPHandler.parseRange(null, 10) == null
+            && SimpleHTTPHandler.parseRange("bytes=-3", 10) == null
+            && SimpleHTTPHandler.parseRange("bytes=1-2,4-5", 10) == null
+            && SimpleHTTPHandler.parseRange("bytes=5-3", 10) == null
+            && SimpleHTTPHandler.parseRange("bytes=x-", 10) == null
+            && Arrays.equals(SimpleHTTPHandler.parseRange("bytes=3-", 10),
+                             new long[] {3, 9})
+            && Arrays.equals(SimpleHTTPHandler.parseRange("bytes=3-5", 10),
+                             new long[] {3, 5})
+            && Arrays.equals(SimpleHTTPHandler.parseRange("bytes=3-50", 10),
+                             new long[] {3, 9})
+            && Arrays.equals(SimpleHTTPHandler.parseRange("bytes=10-", 10),
+                             new long[] {10, 9});
+    }
+}
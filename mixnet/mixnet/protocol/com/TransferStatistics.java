@@ -0,0 +1,150 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.protocol.com;
+
+/**
+ * Accumulates the number of transfers, the number of bytes, the
+ * latency, and the throughput of the transfers from a single peer.
+ * The latency of a transfer is the time until the response header
+ * is received and the transfer time is the time spent receiving the
+ * body. All methods are thread safe.
+ *
+ * @author Douglas Wikstrom
+ */
+public class TransferStatistics {
+
+    /**
+     * Description of the peer.
+     */
+    protected String peer;
+
+    /**
+     * Number of successful transfers.
+     */
+    protected long transfers;
+
+    /**
+     * Number of failed transfers.
+     */
+    protected long failures;
+
+    /**
+     * Total number of bytes received.
+     */
+    protected long bytes;
+
+    /**
+     * Total latency in milliseconds.
+     */
+    protected long latency;
+
+    /**
+     * Total time in milliseconds spent receiving bodies.
+     */
+    protected long transferTime;
+
+    /**
+     * Creates an empty instance.
+     *
+     * @param peer Description of the peer.
+     */
+    public TransferStatistics(String peer) {
+        this.peer = peer;
+    }
+
+    /**
+     * Records a transfer.
+     *
+     * @param success Indicates if the transfer succeeded.
+     * @param bytes Number of bytes received, including the bytes of a
+     * failed transfer that are kept to resume it.
+     * @param latency Latency in milliseconds.
+     * @param transferTime Time in milliseconds spent receiving the
+     * body.
+     */
+    public synchronized void record(boolean success,
+                                    long bytes,
+                                    long latency,
+                                    long transferTime) {
+        if (success) {
+            transfers++;
+        } else {
+            failures++;
+        }
+        this.bytes += bytes;
+        this.latency += latency;
+        this.transferTime += transferTime;
+    }
+
+    /**
+     * Returns the number of successful transfers.
+     *
+     * @return Number of successful transfers.
+     */
+    public synchronized long getTransfers() {
+        return transfers;
+    }
+
+    /**
+     * Returns the number of failed transfers.
+     *
+     * @return Number of failed transfers.
+     */
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Returns the total number of bytes received.
+     *
+     * @return Total number of bytes received.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the average latency in milliseconds over all transfers.
+     *
+     * @return Average latency.
+     */
+    public synchronized double getAverageLatency() {
+        long total = transfers + failures;
+        return total == 0 ? 0.0 : (double)latency / total;
+    }
+
+    /**
+     * Returns the throughput in bytes per second while receiving
+     * bodies.
+     *
+     * @return Throughput in bytes per second.
+     */
+    public synchronized double getThroughput() {
+        return transferTime == 0 ? 0.0 : 1000.0 * bytes / transferTime;
+    }
+
+    public synchronized String toString() {
+        return String.format("%s: %d transfers, %d failures, %d bytes, "
+                             + "%.1f ms average latency, %.1f kB/s",
+                             peer, transfers, failures, bytes,
+                             getAverageLatency(), getThroughput() / 1000);
+    }
+}
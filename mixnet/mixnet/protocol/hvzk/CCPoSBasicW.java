@@ -336,7 +336,9 @@ public class CCPoSBasicW {
 
         // ################# Permuted Batching Vector #############
 
-        ipe = e.permute(pi.inv());
+        Permutation piInv = pi.inv();
+        ipe = e.permute(piInv);
+        piInv.free();
 
         // ################# Proof Commitments ####################
 
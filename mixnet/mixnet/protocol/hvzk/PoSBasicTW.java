@@ -47,7 +47,8 @@ public class PoSBasicTW {
     // ####################### Context ############################
 
     /**
-     * Source of random bits.
+     * Source of random bits used for batched verification, or
+     * <code>null</code> if equations are verified one by one.
      */
     protected RandomSource randomSource;
 
@@ -250,6 +251,16 @@ public class PoSBasicTW {
      */
     protected PFieldElementArray k_E;
 
+
+
+    // ################## Verification ##########################
+
+    /**
+     * Index of the first equation of the bridging commitments found
+     * to be false during verification, or -1.
+     */
+    protected int failedIndex;
+
     /**
      * BOTH: Constructor to instantiate the protocol.
      *
@@ -291,6 +302,7 @@ public class PoSBasicTW {
         this.k_C = null;
         this.k_D = null;
         this.k_E = null;
+        this.failedIndex = -1;
     }
 
     /**
@@ -344,9 +356,14 @@ public class PoSBasicTW {
      * extract the random vector.
      */
     public void setBatchVector(byte[] prgSeed) {
-        prg.setSeed(prgSeed);
-        LargeIntegerArray lia =
-            LargeIntegerArray.random(size, batchBitLength, prg);
+
+        // The pseudo-random generator may be shared by instances
+        // executed concurrently.
+        LargeIntegerArray lia;
+        synchronized (prg) {
+            prg.setSeed(prgSeed);
+            lia = LargeIntegerArray.random(size, batchBitLength, prg);
+        }
         this.e = pField.unsafeToElementArray(lia);
     }
 
@@ -363,7 +380,9 @@ public class PoSBasicTW {
 
         // ################# Permuted Batching Vector #############
 
-        ipe = e.permute(pi.inv());
+        Permutation piInv = pi.inv();
+        ipe = e.permute(piInv);
+        piInv.free();
 
         // ################# Bridging Commitments #################
 
@@ -677,22 +696,20 @@ public class PoSBasicTW {
             // B_0 = g^{b_0} * h0^{e_0'}
             // B_i = g^{b_i} * B_{i-1}^{e_i'}
             //
-            PGroupElementArray B_exp_v = B.exp(v);
-            PGroupElementArray leftSide = B_exp_v.mul(Bp);
-
-            PGroupElementArray g_exp_k_B = g.exp(k_B);
+            // If batched verification is enabled we first verify a
+            // random linear combination of the equations and only
+            // fall back on the exact verification to locate a
+            // failing equation.
+            //
             PGroupElementArray B_shift = B.shiftPush(h0);
-            PGroupElementArray B_shift_exp_k_E = B_shift.exp(k_E);
-            PGroupElementArray rightSide = g_exp_k_B.mul(B_shift_exp_k_E);
 
-            boolean B_res = leftSide.equals(rightSide);
+            boolean B_res = randomSource != null
+                && batchVerifyBridging(B_shift);
+            if (!B_res) {
+                B_res = verifyBridging(B_shift);
+            }
 
-            B_exp_v.free();
-            leftSide.free();
-            g_exp_k_B.free();
             B_shift.free();
-            B_shift_exp_k_E.free();
-            rightSide.free();
 
             if (!B_res) {
                 verdict = false;
@@ -723,6 +740,108 @@ public class PoSBasicTW {
         return verdict;
     }
 
+    /**
+     * VERIFIER: Verifies the equations of the bridging commitments
+     * element-wise, i.e., that <i>B_i^v * B_i' = g^{k_{B,i}} *
+     * B_{i-1}^{k_{E,i}}</i> for all <i>i</i>, where <i>B_{-1} =
+     * h_0</i>, and records the index of the first failing equation.
+     *
+     * @param B_shift Bridging commitments shifted one step with
+     * <i>h_0</i> pushed in front.
+     * @return <code>true</code> if all equations hold and
+     * <code>false</code> otherwise.
+     */
+    protected boolean verifyBridging(PGroupElementArray B_shift) {
+
+        PGroupElementArray B_exp_v = B.exp(v);
+        PGroupElementArray leftSide = B_exp_v.mul(Bp);
+
+        PGroupElementArray g_exp_k_B = g.exp(k_B);
+        PGroupElementArray B_shift_exp_k_E = B_shift.exp(k_E);
+        PGroupElementArray rightSide = g_exp_k_B.mul(B_shift_exp_k_E);
+
+        boolean[] B_res = leftSide.equalsAll(rightSide);
+
+        B_exp_v.free();
+        leftSide.free();
+        g_exp_k_B.free();
+        B_shift_exp_k_E.free();
+        rightSide.free();
+
+        for (int i = 0; i < B_res.length; i++) {
+            if (!B_res[i]) {
+                failedIndex = i;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * VERIFIER: Verifies a random linear combination of the equations
+     * of the bridging commitments, i.e., that
+     *
+     * <p>
+     *
+     * <i>(\prod B_i^{t_i})^v * \prod (B_i')^{t_i} = g^{\sum
+     * t_i*k_{B,i}} * \prod B_{i-1}^{t_i*k_{E,i}}</i>
+     *
+     * <p>
+     *
+     * for random exponents <i>t_i</i> of bit length {@link
+     * #batchBitLength}. This replaces three arrays of full
+     * exponentiations by two multi-exponentiations with short
+     * exponents and one with full exponents. If any element-wise
+     * equation is false, then this is accepted with probability at
+     * most <i>2^{-batchBitLength}</i> for a group of prime order.
+     *
+     * @param B_shift Bridging commitments shifted one step with
+     * <i>h_0</i> pushed in front.
+     * @return <code>true</code> if the combined equation holds and
+     * <code>false</code> otherwise.
+     */
+    protected boolean batchVerifyBridging(PGroupElementArray B_shift) {
+
+        LargeIntegerArray lia =
+            LargeIntegerArray.random(size, batchBitLength, randomSource);
+        PFieldElementArray t = pField.unsafeToElementArray(lia);
+        PFieldElementArray t_k_E = t.mul(k_E);
+
+        PGroupElement leftSide = B.expProd(t).expMul(v, Bp.expProd(t));
+        PGroupElement rightSide =
+            g.exp(k_B.innerProduct(t)).mul(B_shift.expProd(t_k_E));
+
+        t.free();
+        t_k_E.free();
+
+        return leftSide.equals(rightSide);
+    }
+
+    /**
+     * VERIFIER: Enables batched verification of the element-wise
+     * equations of the bridging commitments using random exponents
+     * of bit length equal to the bit length of the components of
+     * the random vector. If the combined equation does not hold, the
+     * equations are verified one by one.
+     *
+     * @param randomSource Source of the random exponents, or
+     * <code>null</code> to disable batched verification.
+     */
+    public void setBatchVerification(RandomSource randomSource) {
+        this.randomSource = randomSource;
+    }
+
+    /**
+     * VERIFIER: Returns the index of the first equation of the
+     * bridging commitments found to be false during verification,
+     * or -1 if no such equation was found.
+     *
+     * @return Index of first failing equation or -1.
+     */
+    public int getFailedIndex() {
+        return failedIndex;
+    }
+
     /**
      * VERIFIER: Returns the reply that must already have been
      * processed.
@@ -89,6 +89,20 @@ public class PoSFactory {
         this.statDist = statDist;
     }
 
+    /**
+     * Returns true if and only if proofs created by this factory for
+     * distinct provers may be executed concurrently. This holds when
+     * challenges are derived using a random oracle, but not when they
+     * are generated jointly, since all parties must then consume the
+     * jointly generated coins in the same order.
+     *
+     * @return True if and only if proofs may be executed
+     * concurrently.
+     */
+    public boolean concurrent() {
+        return challenger instanceof ChallengerRO;
+    }
+
     /**
      * Returns a new instance with the given session identifier and
      * parent protocol.
@@ -40,6 +40,12 @@ public class TestPoSBasicTW {
 
     public static int runTest(TestParameters tp, boolean correct)
         throws Exception {
+        return runTest(tp, correct, false, -1);
+    }
+
+    public static int runTest(TestParameters tp, boolean correct,
+                              boolean batched, int tamperedIndex)
+        throws Exception {
 
         // Set up context
 
@@ -93,6 +99,9 @@ public class TestPoSBasicTW {
 
         P.setInstance(g, h, u, r, pi);
         V.setInstance(g, h, u);
+        if (batched) {
+            V.setBatchVerification(rs);
+        }
 
         ByteTreeBasic commitment = P.commit(prgSeed, rs);
 
@@ -109,10 +118,26 @@ public class TestPoSBasicTW {
 
         ByteTreeBasic reply = P.reply(integerChallenge);
 
+        if (tamperedIndex >= 0) {
+            PRing pRing = pGroup.getPRing();
+            PRingElement[] k_B = P.k_B.elements();
+            k_B[tamperedIndex] = k_B[tamperedIndex].add(pRing.getONE());
+            reply =
+                new ByteTreeContainer(P.k_A.toByteTree(),
+                                      pRing.toElementArray(k_B).toByteTree(),
+                                      P.k_C.toByteTree(),
+                                      P.k_D.toByteTree(),
+                                      P.k_E.toByteTree());
+        }
+
         ByteTreeReader btrReply = reply.getByteTreeReader();
         boolean verdict = V.verify(btrReply);
         btrReply.close();
 
+        if (tamperedIndex >= 0 && V.getFailedIndex() != tamperedIndex) {
+            return -1;
+        }
+
         return (verdict ? 1 : 0);
     }
 
@@ -125,4 +150,15 @@ public class TestPoSBasicTW {
         throws Exception {
         return runTest(tp, false) == 0;
     }
+
+    public static boolean batchedAcceptingTranscript(TestParameters tp)
+        throws Exception {
+        return runTest(tp, true, true, -1) == 1;
+    }
+
+    public static boolean batchedRejectingTranscript(TestParameters tp)
+        throws Exception {
+        return runTest(tp, true, true, 17) == 0
+            && runTest(tp, true, false, 17) == 0;
+    }
 }
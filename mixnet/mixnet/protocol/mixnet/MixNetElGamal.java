@@ -24,6 +24,7 @@ package mixnet.protocol.mixnet;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import mixnet.*;
 import mixnet.arithm.*;
@@ -57,6 +58,12 @@ public class MixNetElGamal extends Protocol {
      */
     public static final String protocolVersion = "0.1";
 
+    /**
+     * Default maximal number of parties whose permutation
+     * commitments are verified concurrently.
+     */
+    public static final int DEFAULT_CONCURRENCY = 2;
+
     /**
      * Group over which the protocol is executed.
      */
@@ -139,6 +146,12 @@ public class MixNetElGamal extends Protocol {
      */
     protected MixNetElGamalInterface mixnetInterface;
 
+    /**
+     * Maximal number of parties whose permutation commitments are
+     * verified concurrently.
+     */
+    protected int concurrency = DEFAULT_CONCURRENCY;
+
     /**
      * @param sid Session identifier of this instance.
      * @param protocol Protocol which invokes this one.
@@ -310,13 +323,20 @@ public class MixNetElGamal extends Protocol {
 
 
         // Perform pre-computation in parallel.
-        if (j <= threshold) {
-            permutationCommitments[j].precompute(tempLog);
-        }
+        if (posFactory.concurrent()) {
 
-        for (int l = 1; l <= threshold; l++) {
+            generateConcurrently(tempLog);
+
+        } else {
 
-            permutationCommitments[l].generate(tempLog, exportDir);
+            if (j <= threshold) {
+                permutationCommitments[j].precompute(tempLog);
+            }
+
+            for (int l = 1; l <= threshold; l++) {
+
+                permutationCommitments[l].generate(tempLog, exportDir);
+            }
         }
 
         BiKeyedArrayMap encryptor = shuffle.getEncryptor(maximalNoCiphertexts);
@@ -402,11 +422,86 @@ public class MixNetElGamal extends Protocol {
 
         }
 
+        tempLog.info("Fixed base tables: " + FixExpTabCache.statistics() + ".");
+
         if (precomputeOnly) {
             precomputationPhaseFree();
         }
     }
 
+    /**
+     * Sets the maximal number of parties whose permutation
+     * commitments are verified concurrently.
+     *
+     * @param concurrency Maximal number of parties verified
+     * concurrently.
+     */
+    public void setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Generates the permutation commitments of all parties. The
+     * permutation commitments of other parties are downloaded and
+     * verified by at most {@link #concurrency} threads, while we
+     * precompute, publish, and prove knowledge of our own. The
+     * entries of each other party are kept in memory and written to
+     * the log in the order of the parties. This may only be used if
+     * the proofs of shuffles can be executed concurrently.
+     *
+     * @param log Logging context.
+     */
+    protected void generateConcurrently(Log log) {
+
+        List<Future<BufferedLog>> logs = new ArrayList<Future<BufferedLog>>();
+        ExecutorService verifiers = Executors.newFixedThreadPool(concurrency);
+
+        try {
+
+            for (int l = 1; l <= threshold; l++) {
+
+                if (l != j) {
+
+                    final PermutationCommitment pc = permutationCommitments[l];
+                    final BufferedLog bufferedLog = new BufferedLog(log);
+
+                    logs.add(verifiers.submit(new Callable<BufferedLog>() {
+                            public BufferedLog call() {
+                                pc.generate(bufferedLog, exportDir);
+                                return bufferedLog;
+                            }
+                        }));
+                }
+            }
+            verifiers.shutdown();
+
+            if (j <= threshold) {
+                permutationCommitments[j].precompute(log);
+                permutationCommitments[j].generate(log, exportDir);
+            }
+
+            for (Future<BufferedLog> bufferedLog : logs) {
+                bufferedLog.get().flush();
+            }
+
+        } catch (InterruptedException ie) {
+            throw new ProtocolError("Interrupted while generating " +
+                                    "permutation commitments!", ie);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            } else {
+                throw new ProtocolError("Unable to generate permutation " +
+                                        "commitments!", cause);
+            }
+        } finally {
+            verifiers.shutdownNow();
+        }
+    }
+
     protected void precomputationPhaseFree() {
         for (int l = 1; l <= threshold; l++) {
             permutationCommitments[l].free();
@@ -458,8 +553,17 @@ public class MixNetElGamal extends Protocol {
     }
 
     /**
+     * Identifies the list of ciphertexts held by at least
+     * <code>threshold + 1</code> parties, i.e., the list held by all
+     * honest parties. Each party publishes only a digest of its list
+     * and the digests are compared. Parties whose lists agree use
+     * their own lists. The full list is published by the agreeing
+     * party with the smallest index, and only if some party does not
+     * agree, in which case that party reads and parses this list.
      *
-     *
+     * @param log Logging context.
+     * @param ciphertexts Our input list of ciphertexts.
+     * @return Common input list of ciphertexts.
      */
     protected PGroupElementArray
         identifyCiphertexts(Log log, PGroupElementArray ciphertexts) {
@@ -467,91 +571,172 @@ public class MixNetElGamal extends Protocol {
         log.info("Identify common input ciphertexts.");
         Log tempLog = log.newChildLog();
 
-        PGroupElementArray[] candidateCiphertexts =
-            new PGroupElementArray[k + 1];
-        Arrays.fill(candidateCiphertexts, null);
-
-        int[] count = new int[k + 1];
-        Arrays.fill(count, 0);
-
         HashfunctionHeuristic sha256 = new HashfunctionHeuristic("SHA-256");
-        byte[][] candidateHashes = new byte[k + 1][];
+        byte[][] digests = new byte[k + 1][];
 
         for (int l = 1; l <= k; l++) {
 
             if (l == j) {
 
-                tempLog.info("Publish our input list of ciphertexts.");
-                candidateCiphertexts[j] = ciphertexts;
-                bullBoard.publish("IdentifyCiphertexts",
-                                  ciphertexts.toByteTree(),
+                tempLog.info("Publish digest of our input list of "
+                             + "ciphertexts.");
+                Hashdigest hd = sha256.getDigest();
+                ciphertexts.toByteTree().update(hd);
+                digests[j] = hd.digest();
+                bullBoard.publish("IdentifyCiphertextsDigest",
+                                  new ByteTree(digests[j]),
                                   tempLog);
             } else {
 
-                tempLog.info("Read input list of ciphertexts of " +
-                             ui.getDescrString(l) + ".");
-                ByteTreeReader listReader =
-                    bullBoard.waitFor(l, "IdentifyCiphertexts", tempLog);
+                tempLog.info("Read digest of input list of ciphertexts of "
+                             + ui.getDescrString(l) + ".");
+                ByteTreeReader digestReader =
+                    bullBoard.waitFor(l, "IdentifyCiphertextsDigest",
+                                      tempLog);
                 try {
-
-                    candidateCiphertexts[l] =
-                        getCiphPGroup().toElementArray(0, listReader);
-
-                } catch (ArithmFormatException afe) {
-                    tempLog.info("Malformed list! Ignored.");
-                    continue;
+                    digests[l] = digestReader.read();
+                } catch (EIOException eioe) {
+                    tempLog.info("Malformed digest! Ignored.");
                 } finally {
-                    listReader.close();
+                    digestReader.close();
                 }
             }
+        }
 
-            if (candidateCiphertexts[l] != null) {
-                Hashdigest hd = sha256.getDigest();
-                candidateCiphertexts[l].toByteTree().update(hd);
-                candidateHashes[l] = hd.digest();
+        // Find the digest shared by sufficiently many parties. Every
+        // party sees the same digests, so all parties make the same
+        // choice of source.
+        int source = 0;
+        boolean allAgree = true;
+        for (int l = 1; l <= k && source == 0; l++) {
+
+            int count = 0;
+            for (int ll = 1; ll <= k; ll++) {
+                if (digests[l] != null
+                    && Arrays.equals(digests[l], digests[ll])) {
+                    count++;
+                }
+            }
+            if (count > threshold) {
+                source = l;
+                allAgree = count == k;
             }
         }
+        if (source == 0) {
+            throw new ProtocolError("Honest parties are using distinct " +
+                                    "input lists of ciphertexts!");
+        }
+        if (allAgree) {
+            tempLog.info("All parties hold identical lists.");
+            return ciphertexts;
+        }
 
+        // Some party disagrees, so the source publishes its list.
+        if (source == j) {
 
-        for (int l = 1; l <= k; l++) {
-
-            if (candidateCiphertexts[l] != null) {
+            tempLog.info("Publish our input list of ciphertexts.");
+            bullBoard.publish("IdentifyCiphertexts",
+                              ciphertexts.toByteTree(),
+                              tempLog);
+            return ciphertexts;
+        }
 
-                for (int ll = l + 1; ll <= k; ll++) {
+        tempLog.info("Read input list of ciphertexts of " +
+                     ui.getDescrString(source) + ".");
+        ByteTreeReader listReader =
+            bullBoard.waitFor(source, "IdentifyCiphertexts", tempLog);
 
-                    if (candidateCiphertexts[ll] != null
-                        && Arrays.equals(candidateHashes[ll],
-                                         candidateHashes[l])
-                        && candidateCiphertexts[ll].
-                           equals(candidateCiphertexts[l])) {
+        if (Arrays.equals(digests[j], digests[source])) {
+            tempLog.info("Our list agrees with the digest. Use it.");
+            listReader.close();
+            return ciphertexts;
+        }
 
-                        candidateCiphertexts[ll].free();
-                        candidateCiphertexts[ll] = null;
+        PGroupElementArray common = null;
+        try {
+            common = getCiphPGroup().toElementArray(0, listReader);
+        } catch (ArithmFormatException afe) {
+            throw new ProtocolError("Malformed list of ciphertexts!", afe);
+        } finally {
+            listReader.close();
+        }
 
-                        count[l]++;
-                    }
-                }
-            }
+        Hashdigest hd = sha256.getDigest();
+        common.toByteTree().update(hd);
+        if (!Arrays.equals(hd.digest(), digests[source])) {
+            common.free();
+            throw new ProtocolError("List of ciphertexts does not match "
+                                    + "its digest!");
         }
-        int ciphIndex = 0;
-        for (int l = 1; l <= k; l++) {
-            if (count[l] >= threshold) {
-                ciphIndex = l;
-            } else if (candidateCiphertexts[l] != null) {
-                candidateCiphertexts[l].free();
-            }
+        ciphertexts.free();
+        return common;
+    }
+
+    /**
+     * Re-encrypts and permutes the given list of ciphertexts using
+     * our precomputed re-encryption factors and permutation.
+     *
+     * @param inputList Ciphertexts to be shuffled.
+     * @param permutation Our permutation.
+     * @return Shuffled ciphertexts.
+     */
+    protected PGroupElementArray shuffleList(PGroupElementArray inputList,
+                                             Permutation permutation) {
+        PGroupElementArray reencList = inputList.mul(reencFactors);
+        Permutation inverse = permutation.inv();
+        PGroupElementArray outputList = reencList.permute(inverse);
+        inverse.free();
+        reencList.free();
+        return outputList;
+    }
+
+    /**
+     * Waits for the result of a speculative shuffle.
+     *
+     * @param speculation Result of a speculative shuffle.
+     * @return Shuffled ciphertexts.
+     */
+    protected static PGroupElementArray
+        speculativeList(Future<PGroupElementArray> speculation) {
+        try {
+            return speculation.get();
+        } catch (InterruptedException ie) {
+            throw new ProtocolError("Interrupted while shuffling!", ie);
+        } catch (ExecutionException ee) {
+            throw new ProtocolError("Unable to shuffle!", ee.getCause());
         }
-        if (ciphIndex == 0) {
-            throw new ProtocolError("Honest parties are using distinct " +
-                                    "input lists of ciphertexts!");
-        } else {
-            return candidateCiphertexts[ciphIndex];
+    }
+
+    /**
+     * Waits for a speculative shuffle to terminate and frees its
+     * result. A failure of the shuffle is ignored, since its result
+     * is not used.
+     *
+     * @param speculation Result of a speculative shuffle.
+     */
+    protected static void
+        discardSpeculation(Future<PGroupElementArray> speculation) {
+        try {
+            speculation.get().free();
+        } catch (InterruptedException ie) {
+            speculation.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
         }
     }
 
     /**
      * Perform re-encryption of the list of ciphertexs.
      *
+     * <p>
+     *
+     * If we are not the first mix-server, then we start to shuffle
+     * the list of ciphertexts output by the previous mix-server in
+     * the background as soon as it is read, i.e., in parallel with
+     * the verification of its proof. If the proof is rejected, then
+     * the speculative result is discarded and we shuffle its input
+     * instead.
+     *
      * @param log Logging context.
      * @param ciphertexts Ciphertexts to be decrypted
      */
@@ -583,17 +768,28 @@ public class MixNetElGamal extends Protocol {
             pGroupDomain.product(dkg.getFullPublicKey(), one);
         HomPRingPGroup hom = encryptor.restrict(pGroupElement);
 
+        // Result of shuffling the output of the previous party
+        // before its proof is verified.
+        Future<PGroupElementArray> speculation = null;
+
         for (int l = 1; l <= threshold; l++) {
 
             if (l == j) {
 
                 // Process input list.
-                PGroupElementArray reencList = inputList.mul(reencFactors);
-
                 Permutation permutation =
                     permutationCommitments[j].getPermutation();
-                outputList = reencList.permute(permutation.inv());
-                reencList.free();
+
+                if (speculation == null) {
+
+                    outputList = shuffleList(inputList, permutation);
+
+                } else {
+
+                    tempLog.info("Use speculatively shuffled list.");
+                    outputList = speculativeList(speculation);
+                    speculation = null;
+                }
 
                 // Publish our output.
                 tempLog.info("Publish mixed list.");
@@ -645,20 +841,57 @@ public class MixNetElGamal extends Protocol {
                     listReader.close();
                 }
 
+                // If we are the next mix-server, then we shuffle the
+                // output of Party l while its proof is verified.
+                if (correct && j <= threshold && l + 1 == j) {
+
+                    tempLog.info("Shuffle speculatively.");
+                    final PGroupElementArray speculativeInput = outputList;
+                    final Permutation permutation =
+                        permutationCommitments[j].getPermutation();
+
+                    // The thread terminates when the shuffle is done.
+                    ExecutorService shuffler =
+                        Executors.newSingleThreadExecutor();
+                    speculation =
+                        shuffler.submit(new Callable<PGroupElementArray>() {
+                                public PGroupElementArray call() {
+                                    return shuffleList(speculativeInput,
+                                                       permutation);
+                                }
+                            });
+                    shuffler.shutdown();
+                }
+
                 // Verify proof of correctness of Party l
                 if (correct) {
                     CCPoS V = ccposFactory.newPoS("" + l, this);
-                    correct = V.verify(tempLog,
-                                       l,
-                                       generators.getPGroup().getg(),
-                                       generators,
-                                       permutationCommitments[l].
-                                            getCommitment(),
-                                       hom,
-                                       dkg.getFullPublicKey(),
-                                       inputList,
-                                       outputList,
-                                       exportDir);
+                    boolean verified = false;
+                    try {
+                        correct = V.verify(tempLog,
+                                           l,
+                                           generators.getPGroup().getg(),
+                                           generators,
+                                           permutationCommitments[l].
+                                                getCommitment(),
+                                           hom,
+                                           dkg.getFullPublicKey(),
+                                           inputList,
+                                           outputList,
+                                           exportDir);
+                        verified = true;
+                    } finally {
+
+                        // The speculative result was computed from
+                        // the rejected list, which can only be freed
+                        // when it is no longer read.
+                        if (speculation != null && !(verified && correct)) {
+                            tempLog.info("Discard speculatively shuffled "
+                                         + "list.");
+                            discardSpeculation(speculation);
+                            speculation = null;
+                        }
+                    }
                     if (!correct) {
                         outputList.free();
                     }
@@ -680,6 +913,8 @@ public class MixNetElGamal extends Protocol {
         }
         pGroupElement.free();
 
+        tempLog.info("Fixed base tables: " + FixExpTabCache.statistics() + ".");
+
         return inputList;
     }
 
@@ -828,12 +1063,22 @@ public class MixNetElGamal extends Protocol {
 
                 LargeIntegerArray.useFileBased();
 
+            } else if (privateInfo.getStringValue("arrays").equals("mmap")) {
+
+                LargeIntegerArray.useMemoryMapped();
+
             } else if (!privateInfo.getStringValue("arrays").equals("ram")) {
                 throw new ProtocolError("Unknown value (" +
                                         privateInfo.getStringValue("arrays") +
                                         ") of <arrays></arrays>!");
             }
 
+            // Decide how many threads are used for arithmetic on
+            // arrays. Older private info files may lack this field.
+            if (privateInfo.hasValue("cores")) {
+                ArrayWorker.setParallelism(privateInfo.getIntValue("cores"));
+            }
+
             // Extract PRG to use to derive random vectors from
             // jointly generateed random seeds in batching.
             String prgString = protocolInfo.getStringValue("prg");
@@ -1082,6 +1327,12 @@ public class MixNetElGamal extends Protocol {
         opt.addOption("-f", "", "Force a reset without query.");
         opt.addOption("-reset", "",
                       "Securely reset to state after key generation.");
+        opt.addOption("-p", "value",
+                      "Maximal number of parties whose permutation " +
+                      "commitments are verified concurrently during " +
+                      "pre-computation. This only applies if proofs are " +
+                      "non-interactive. Default is " + DEFAULT_CONCURRENCY +
+                      ".");
 
         opt.addUsageForm();
         opt.appendToUsageForm(0, "-h###");
@@ -1090,10 +1341,10 @@ public class MixNetElGamal extends Protocol {
         opt.appendToUsageForm(1, "-keygen##privateInfo,protocolInfo,publicKey#");
 
         opt.addUsageForm();
-        opt.appendToUsageForm(2, "-precomp##privateInfo,protocolInfo#");
+        opt.appendToUsageForm(2, "-precomp#-p#privateInfo,protocolInfo#");
 
         opt.addUsageForm();
-        opt.appendToUsageForm(3, "-mix##" +
+        opt.appendToUsageForm(3, "-mix#-p#" +
                               "privateInfo,protocolInfo," +
                               "ciphertexts,plaintexts#");
 
@@ -1101,7 +1352,7 @@ public class MixNetElGamal extends Protocol {
         opt.appendToUsageForm(4, "-reset#-f#privateInfo,protocolInfo#");
 
         opt.addUsageForm();
-        opt.appendToUsageForm(5, "-mixonly##" +
+        opt.appendToUsageForm(5, "-mixonly#-p#" +
                               "privateInfo,protocolInfo," +
                               "ciphertexts,ciphertextsout#");
 
@@ -1406,6 +1657,9 @@ public class MixNetElGamal extends Protocol {
                                          protocolInfo,
                                          protocolInfoFilename,
                                          ui);
+                    if (opt.valueIsGiven("-p")) {
+                        mixnet.setConcurrency(opt.getIntValue("-p"));
+                    }
                     mixnet.keyGenerationPhase(ui.getLog());
 
                     mixnet.precomputationPhase(ui.getLog(),
@@ -1463,6 +1717,9 @@ public class MixNetElGamal extends Protocol {
                                          protocolInfo,
                                          protocolInfoFilename,
                                          ui);
+                    if (opt.valueIsGiven("-p")) {
+                        mixnet.setConcurrency(opt.getIntValue("-p"));
+                    }
                     mixnet.keyGenerationPhase(ui.getLog());
 
                     // FORK
@@ -165,9 +165,17 @@ public class MixNetElGamalGen implements InfoGenerator {
 
         s = "Determines if arrays of group/field elements and integers are " +
             "stored in (possibly virtual) RAM or on file. The latter is " +
-            "slower, but can accomodate larger arrays (\"ram\" or \"file\").";
+            "slower, but can accomodate larger arrays. Arrays on file are " +
+            "either stored as byte trees or as fixed-width records in " +
+            "memory-mapped files, which allows random access " +
+            "(\"ram\", \"file\", or \"mmap\").";
         pi.addInfoField(new StringField("arrays", s, 1, 1));
 
+        s = "Number of threads used for arithmetic on arrays. A value of " +
+            "zero means that one thread is used for each core available " +
+            "to the JVM.";
+        pi.addInfoField(new IntField("cores", s, 0, 1, 0, "unbounded"));
+
         return pi;
     }
 
@@ -192,6 +200,7 @@ public class MixNetElGamalGen implements InfoGenerator {
         pi.addValue(Protocol.HINTL, ProtocolDefaults.HINTL());
 
         pi.addValue("arrays", "ram");
+        pi.addValue("cores", 0);
 
         return pi;
     }
@@ -31,6 +31,7 @@ import mixnet.crypto.*;
 import mixnet.eio.*;
 import mixnet.protocol.*;
 import mixnet.ui.*;
+import mixnet.util.*;
 // FORK
 import mixnet.ui.info.*;
 // FORK
@@ -88,6 +89,10 @@ public abstract class MixNetElGamalInterface {
 
             return new MixNetElGamalInterfaceTVS();
 
+        } else if (interfaceName.equals("binary")) {
+
+            return new MixNetElGamalInterfaceBinary();
+
         } else {
 
             // If we don't recognize the string we assume that the
@@ -170,6 +175,33 @@ public abstract class MixNetElGamalInterface {
     public abstract void decodePlaintexts(PGroupElementArray plaintexts,
                                           File file);
 
+    /**
+     * Returns the ciphertexts in the given array as an array of group
+     * elements, where <code>null</code> entries, i.e., ciphertexts
+     * that could not be parsed, are ignored.
+     *
+     * @param pGroup Group to which the ciphertexts belong.
+     * @param ciphertexts Ciphertexts or <code>null</code>.
+     * @return Array of the ciphertexts.
+     */
+    protected static PGroupElementArray toElementArray(PGroup pGroup,
+                                                       PGroupElement[]
+                                                       ciphertexts) {
+        int size = 0;
+        for (int i = 0; i < ciphertexts.length; i++) {
+            if (ciphertexts[i] != null) {
+                size++;
+            }
+        }
+        PGroupElement[] res = new PGroupElement[size];
+        for (int i = 0, j = 0; i < ciphertexts.length; i++) {
+            if (ciphertexts[i] != null) {
+                res[j++] = ciphertexts[i];
+            }
+        }
+        return pGroup.toElementArray(res);
+    }
+
     // FORK
     /**
      * This function returns a random source, initialized and defined
@@ -282,7 +314,8 @@ public abstract class MixNetElGamalInterface {
             "representations are specified using the \"-ini\" and \"-outi\" " +
             "options.\n\n" +
             "The values that can be used for input or output interfaces are: " +
-            "\"raw\", \"native\", \"json\", \"tvs\". Also any name of a " +
+            "\"raw\", \"native\", \"json\", \"tvs\", \"binary\". Also " +
+            "any name of a " +
             "class inheriting mixnet.protocol.mixnet.MixNetElGamalInterface.");
 
         return opt;
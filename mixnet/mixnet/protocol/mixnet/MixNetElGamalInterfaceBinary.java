@@ -0,0 +1,247 @@
+
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.protocol.mixnet;
+
+import java.io.*;
+import java.util.*;
+
+import mixnet.arithm.*;
+import mixnet.eio.*;
+import mixnet.protocol.*;
+import mixnet.util.*;
+
+/**
+ * Binary interface of an El Gamal mix-net. The public key and the
+ * plaintexts are represented as in {@link MixNetElGamalInterfaceRaw},
+ * but the ciphertexts are represented as a sequence of records, where
+ * each record consists of a four byte length in big endian byte order
+ * followed by the byte tree representation of a ciphertext of the
+ * given length.
+ *
+ * <p>
+ *
+ * Contrary to the raw format, the ciphertexts can be written and read
+ * in a streaming fashion. Ciphertexts are read in batches that are
+ * parsed in parallel and at most one batch is kept in memory at any
+ * given time. Records that can not be parsed are ignored.
+ *
+ * @author Douglas Wikstrom
+ */
+public class MixNetElGamalInterfaceBinary extends MixNetElGamalInterfaceRaw {
+
+    /**
+     * Maximal number of bytes read at a time when skipping a record.
+     */
+    final static int SKIP_BUFFER_SIZE = 4096;
+
+    /**
+     * Reads and discards the given number of bytes. Contrary to
+     * {@link DataInputStream#skipBytes(int)}, this fails if the end
+     * of the stream is reached before all bytes are read.
+     *
+     * @param dis Source of bytes.
+     * @param length Number of bytes to discard.
+     * @throws EOFException If the stream ends before all bytes are
+     * read.
+     * @throws IOException If the bytes can not be read.
+     */
+    protected static void skipFully(DataInputStream dis, int length)
+        throws IOException {
+        byte[] scratch = new byte[Math.min(length, SKIP_BUFFER_SIZE)];
+        while (length > 0) {
+            int len = dis.read(scratch, 0, Math.min(length, scratch.length));
+            if (len < 0) {
+                throw new EOFException();
+            }
+            length -= len;
+        }
+    }
+
+    public void writeCiphertexts(PGroupElementArray ciphertexts, File file) {
+
+        DataOutputStream dos = null;
+        try {
+
+            FileOutputStream fos = new FileOutputStream(file);
+            dos = new DataOutputStream(new BufferedOutputStream(fos));
+
+            PGroupElementIterator pgei = ciphertexts.getIterator();
+
+            PGroupElement ciphertext = null;
+            while ((ciphertext = pgei.next()) != null) {
+                byte[] record = ciphertext.toByteTree().toByteArray();
+                dos.writeInt(record.length);
+                dos.write(record);
+            }
+
+        } catch (IOException ioe) {
+            throw new ProtocolError("Unable to write ciphertexts!", ioe);
+        } finally {
+            if (dos != null) {
+                ExtIO.strictClose(dos);
+            }
+        }
+    }
+
+    /**
+     * Parses the given records in parallel and returns the
+     * ciphertexts as an array. Records that are <code>null</code> or
+     * can not be parsed are ignored.
+     *
+     * @param pGroup Group to which the ciphertexts belong.
+     * @param records Records of ciphertexts.
+     * @return Array of the ciphertexts that could be parsed.
+     */
+    protected PGroupElementArray parseCiphertexts(final PGroup pGroup,
+                                                  final byte[][] records) {
+        final PGroupElement[] ciphertexts = new PGroupElement[records.length];
+
+        ArrayWorker worker =
+            new ArrayWorker(ciphertexts.length) {
+                public void work(int start, int end) {
+                    for (int i = start; i < end; i++) {
+                        if (records[i] == null) {
+                            continue;
+                        }
+                        ByteTreeReader btr = null;
+                        try {
+
+                            btr = new ByteTree(records[i], null).
+                                getByteTreeReader();
+                            ciphertexts[i] = pGroup.toElement(btr);
+
+                        } catch (EIOException eioe) {
+                            // Ignore badly formatted ciphertexts.
+                        } catch (ArithmFormatException afe) {
+                            // Ignore badly formatted ciphertexts.
+                        } finally {
+                            if (btr != null) {
+                                btr.close();
+                            }
+                        }
+                    }
+                }
+            };
+        worker.work();
+
+        return toElementArray(pGroup, ciphertexts);
+    }
+
+    public PGroupElementArray readCiphertexts(PGroup pGroup, File file)
+    throws ProtocolFormatException {
+
+        // Every ciphertext has a byte tree representation of this
+        // length, so longer records are skipped without being read.
+        int maxLength = pGroup.getONE().toByteTree().toByteArray().length;
+
+        ArrayList<PGroupElementArray> ciphertextArrays =
+            new ArrayList<PGroupElementArray>();
+
+        DataInputStream dis = null;
+        try {
+            FileInputStream fis = new FileInputStream(file);
+            dis = new DataInputStream(new BufferedInputStream(fis));
+        } catch (FileNotFoundException fnfe) {
+            throw new ProtocolFormatException("Can not find file (" +
+                                              file.toString() + ")", fnfe);
+        }
+
+        try {
+
+            boolean moreRecords = true;
+
+            while (moreRecords) {
+
+                byte[][] records =
+                    new byte[MixNetElGamalInterfaceString.
+                             CIPHERTEXT_BUFFER_SIZE][];
+                int noRecords = 0;
+
+                while (noRecords < records.length) {
+
+                    // Only the end of the file before the first byte of
+                    // the length of a record is a proper end.
+                    int first = dis.read();
+                    if (first < 0) {
+                        moreRecords = false;
+                        break;
+                    }
+
+                    try {
+
+                        int length = first << 24
+                            | dis.readUnsignedByte() << 16
+                            | dis.readUnsignedShort();
+
+                        if (length < 0) {
+                            throw new ProtocolFormatException("Malformed "
+                                                              + "record "
+                                                              + "length!");
+                        }
+
+                        if (length > maxLength) {
+
+                            // Skip the bytes and ignore the record.
+                            skipFully(dis, length);
+
+                        } else {
+
+                            records[noRecords] = new byte[length];
+                            dis.readFully(records[noRecords]);
+
+                        }
+                        noRecords++;
+
+                    } catch (EOFException eofe) {
+                        throw new ProtocolFormatException("Truncated "
+                                                          + "ciphertexts!",
+                                                          eofe);
+                    }
+                }
+
+                if (noRecords > 0) {
+
+                    PGroupElementArray ciphertextArray =
+                        parseCiphertexts(pGroup,
+                                         Arrays.copyOf(records, noRecords));
+                    ciphertextArrays.add(ciphertextArray);
+
+                }
+            }
+
+            PGroupElementArray[] resArrays =
+                ciphertextArrays.toArray(new PGroupElementArray[0]);
+
+            PGroupElementArray res = pGroup.toElementArray(resArrays);
+
+            for (int i = 0; i < resArrays.length; i++) {
+                resArrays[i].free();
+            }
+            return res;
+
+        } catch (IOException ioe) {
+            throw new ProtocolFormatException("Unable to read from file!", ioe);
+        } finally {
+            ExtIO.strictClose(dis);
+        }
+    }
+}
@@ -88,6 +88,42 @@ public abstract class MixNetElGamalInterfaceString
         stringToCiphertext(PGroup ciphPGroup, String ciphertextString)
         throws ProtocolFormatException;
 
+    /**
+     * Parses the given representations of ciphertexts in parallel
+     * and returns the ciphertexts as an array. Badly formatted
+     * ciphertexts are ignored.
+     *
+     * @param pGroup Group to which the ciphertexts belong.
+     * @param ciphertextStrings Representations of ciphertexts.
+     * @return Array of the ciphertexts that could be parsed.
+     */
+    protected PGroupElementArray parseCiphertexts(final PGroup pGroup,
+                                                  final String[]
+                                                  ciphertextStrings) {
+        final PGroupElement[] ciphertexts =
+            new PGroupElement[ciphertextStrings.length];
+
+        ArrayWorker worker =
+            new ArrayWorker(ciphertexts.length) {
+                public void work(int start, int end) {
+                    for (int i = start; i < end; i++) {
+                        try {
+
+                            ciphertexts[i] =
+                                stringToCiphertext(pGroup,
+                                                   ciphertextStrings[i]);
+
+                        } catch (Exception e) {
+                            // Ignore badly formatted ciphertexts.
+                        }
+                    }
+                }
+            };
+        worker.work();
+
+        return toElementArray(pGroup, ciphertexts);
+    }
+
     public PGroupElementArray readCiphertexts(PGroup pGroup, File file)
     throws ProtocolFormatException {
 
@@ -108,22 +144,14 @@ public abstract class MixNetElGamalInterfaceString
 
             while (moreLines) {
 
-                ArrayList<PGroupElement> ciphertextList =
-                    new ArrayList<PGroupElement>();
+                ArrayList<String> lines = new ArrayList<String>();
 
-                while (ciphertextList.size() < CIPHERTEXT_BUFFER_SIZE) {
+                while (lines.size() < CIPHERTEXT_BUFFER_SIZE) {
 
                     String line = br.readLine();
                     if (line != null) {
 
-                        try {
-
-                            ciphertextList.add(stringToCiphertext(pGroup,
-                                                                  line));
-
-                        } catch (Exception e) {
-                            // Ignore badly formatted ciphertexts.
-                        }
+                        lines.add(line);
 
                     } else {
 
@@ -133,12 +161,11 @@ public abstract class MixNetElGamalInterfaceString
                     }
                 }
 
-                if (ciphertextList.size() > 0) {
+                if (lines.size() > 0) {
 
-                    PGroupElement[] ciphertexts =
-                        ciphertextList.toArray(new PGroupElement[0]);
                     PGroupElementArray ciphertextArray =
-                        pGroup.toElementArray(ciphertexts);
+                        parseCiphertexts(pGroup,
+                                         lines.toArray(new String[0]));
                     ciphertextArrays.add(ciphertextArray);
 
                 }
@@ -24,6 +24,7 @@ package mixnet.protocol.mixnet;
 import java.io.*;
 import java.text.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import mixnet.*;
 import mixnet.arithm.*;
@@ -68,6 +69,17 @@ public class MixNetElGamalVerifyRO {
      */
     boolean verbose;
 
+    /**
+     * Decides if the equations of proofs of shuffles are verified in
+     * a batch.
+     */
+    boolean batchVerify;
+
+    /**
+     * Number of parties whose proofs are verified concurrently.
+     */
+    int concurrency;
+
     /**
      * Certainty with which a modulus is deemed prime.
      */
@@ -109,9 +121,22 @@ public class MixNetElGamalVerifyRO {
     PGroup pGroup;
 
     /**
-     * PRG used to derive random vectors during batching.
+     * Description of the PRG used to derive random vectors during
+     * batching.
+     */
+    String prgString;
+
+    /**
+     * PRGs used to derive random vectors during batching. Each thread
+     * verifying proofs uses its own instance.
+     */
+    ThreadLocal<PRG> prgs;
+
+    /**
+     * Sources of random exponents used in batched verification. Each
+     * thread verifying proofs uses its own instance.
      */
-    PRG prg;
+    ThreadLocal<RandomSource> batchRandomSources;
 
     /**
      * Source of random challenges.
@@ -186,6 +211,11 @@ public class MixNetElGamalVerifyRO {
 	this.opt = opt;
 	this.randomSource = randomSource;
 	this.verbose = opt.getBooleanValue("-v");
+	this.batchVerify = opt.getBooleanValue("-b");
+	this.concurrency = 1;
+	if (opt.valueIsGiven("-p")) {
+	    this.concurrency = Math.max(1, opt.getIntValue("-p"));
+	}
 
 	protocolInfoFilename = opt.getStringValue("protocolInfo");
 
@@ -374,6 +404,91 @@ public class MixNetElGamalVerifyRO {
                         String.format("DecrFactReply%02d.bt", index));
     }
 
+    /**
+     * Returns a new instance of the PRG used to derive random
+     * vectors during batching.
+     *
+     * @return Instance of the PRG.
+     *
+     * @throws EIOException If the PRG can not be instantiated.
+     */
+    PRG newPRG() throws EIOException {
+        if (prgString.equals("SHA-256")) {
+            return new PRGHeuristic(new HashfunctionHeuristic("SHA-256"));
+        } else if (prgString.equals("SHA-384")) {
+            return new PRGHeuristic(new HashfunctionHeuristic("SHA-384"));
+        } else if (prgString.equals("SHA-512")) {
+            return new PRGHeuristic(new HashfunctionHeuristic("SHA-512"));
+        } else {
+            return Marshalizer.unmarshalHexAux_PRG(prgString,
+                                                   randomSource,
+                                                   certainty);
+        }
+    }
+
+    /**
+     * Initializes the per-thread PRGs and sources of random
+     * exponents, which allows proofs to be verified in several
+     * threads.
+     */
+    void initThreadLocals() {
+        prgs = new ThreadLocal<PRG>() {
+            protected PRG initialValue() {
+                try {
+                    return newPRG();
+                } catch (EIOException eioe) {
+                    failStop("Unable to instantiate PRG!", eioe);
+                    return null;
+                }
+            }
+        };
+        batchRandomSources = new ThreadLocal<RandomSource>() {
+            protected RandomSource initialValue() {
+                byte[] seed = new byte[64];
+                synchronized (randomSource) {
+                    randomSource.getBytes(seed);
+                }
+                return new PRGHeuristic(seed);
+            }
+        };
+    }
+
+    /**
+     * Returns the PRG of the calling thread.
+     *
+     * @return PRG used to derive random vectors during batching.
+     */
+    PRG getPRG() {
+        return prgs.get();
+    }
+
+    /**
+     * Returns the source of random exponents of the calling thread.
+     *
+     * @return Source of random exponents used in batched
+     * verification.
+     */
+    RandomSource getBatchRandomSource() {
+        return batchRandomSources.get();
+    }
+
+    /**
+     * Waits for the result of a task and halts if it failed.
+     *
+     * @param future Result of a task.
+     * @return Result of the task.
+     */
+    <T> T result(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ie) {
+            failStop("Interrupted while verifying!", ie);
+        } catch (ExecutionException ee) {
+            failStop("Verification failed unexpectedly!", ee.getCause());
+        }
+        return null;
+    }
+
     /**
      * Verify the execution of the protocol.
      */
@@ -407,21 +522,11 @@ public class MixNetElGamalVerifyRO {
                                                             certainty);
 
 		// Extract PRG used to derive random vectors.
-		String prgString = protocolInfo.getStringValue("prg");
-                if (prgString.equals("SHA-256")) {
-                    prg =
-                        new PRGHeuristic(new HashfunctionHeuristic("SHA-256"));
-                } else if (prgString.equals("SHA-384")) {
-                    prg =
-                        new PRGHeuristic(new HashfunctionHeuristic("SHA-384"));
-                } else if (prgString.equals("SHA-512")) {
-                    prg =
-                        new PRGHeuristic(new HashfunctionHeuristic("SHA-512"));
-                } else {
-                    prg = Marshalizer.unmarshalHexAux_PRG(prgString,
-                                                          randomSource,
-                                                          certainty);
-                }
+		prgString = protocolInfo.getStringValue("prg");
+
+                // Make sure that the PRG can be instantiated.
+                newPRG();
+                initThreadLocals();
 
 
 		// Hash function used to implement random oracles.
@@ -532,78 +637,10 @@ public class MixNetElGamalVerifyRO {
                 generators.copyOfRange(0, ciphertexts.size());
 	    println("done.");
 
-            PGroupElementArray input = ciphertexts;
-
             // Verify the shuffles.
-            for (int l = 1; l <= threshold; l++) {
-
-                printHeader("Verify shuffle of Party " + l + ".");
-
-                // Read permutation commitment
-                print("Read permutation commitment... ");
-                PGroupElementArray permutationCommitment =
-                    readPermutationCommitment(generators.getPGroup(),
-                                              l, generators.size());
-                println("done.");
-
-                // Verify proof of a shuffle for permutation commitment.
-                print("Verify proof of shuffle of commitments... ");
-                if (verifyPoS(l, generators, permutationCommitment)) {
-                    println("done.");
-                } else {
-                    println("failed.");
-                    failInfo("Setting permutation commitment to list of " +
-                             "generators.");
-                    permutationCommitment.free();
-                    permutationCommitment =
-                        generators.copyOfRange(0, generators.size());
-                }
-
-
-                // Shrink commitment.
-                print("Shrink permutation commitment... ");
-                PGroupElementArray shrunkPermutationCommitment =
-                    shrinkPermutationCommitment(l,
-                                                permutationCommitment,
-                                                shrunkGenerators.size());
-                permutationCommitment.free();
-                println("done.");
-
-
-                // Read output list.
-                print("Read output of Party " + l + "... ");
-                PGroupElementArray output =
-                    readOutputList(shuffle, l, input.size());
-                println("done.");
-
-
-                // Verify commitment consistent proof of shuffle.
-                print("Verify commitment-consistent proof of shuffle... ");
-                if (verifyCCPoS(l,
-                                shrunkGenerators,
-                                shrunkPermutationCommitment,
-                                fullElGamalPKey,
-                                input, output)) {
-                    println("done.");
-                } else {
-                    println("failed.");
-                    failInfo("Replacing output of Party " + l +
-                             " by its input.");
-                    PGroupElementArray tmp = output;
-                    output = input.copyOfRange(0, input.size());
-                    tmp.free();
-                }
-
-                // Free resources.
-                PGroupElementArray tmp = input;
-                input = output;
-
-                if (l > 1) {
-                    tmp.free();
-                }
-                shrunkPermutationCommitment.free();
-
-            }
+            PGroupElementArray input =
+                verifyShuffles(ciphertexts, generators, shrunkGenerators,
+                               fullElGamalPKey);
 
             // Free resources.
             generators.free();
@@ -625,76 +662,9 @@ public class MixNetElGamalVerifyRO {
                 ((PPGroup)decryptor.getPGroupDomain()).
                 product(basicPublicKey, inputAsElement);
 
-            // Form homomorphism by restricting the bilinear map.
-            HomPRingPGroup hom = decryptor.restrict(groupElement);
-
-            PGroupElement factorElement = null;
-
-            for (int l = 1; l <= k; l++) {
-
-                printHeader("Verify decryption of Party " + l + ".");
-
-                PGroupElement tmpFactorElement = null;
-
-                File skFile = SKfile(roProofDir, l);
-
-                if (skFile.exists()) {
-
-                    print("Read key recovered during mixing... ");
-                    ByteTreeReader btr = (new ByteTreeF(SKfile(roProofDir, l))).
-                        getByteTreeReader();
-                    PRingElement sk = homKey.getDomain().toElement(btr);
-                    btr.close();
-                    println("done.");
-
-                    print("Verify correctness of secret key... ");
-                    if (!homKey.map(sk).equals(elGamalPKeys[l])) {
-                        failStop("Secret key of Party " + l +
-                                 " is malformed!");
-                    }
-                    println("done.");
-
-                    print("Compute decryption explicitly... ");
-                    tmpFactorElement = hom.map(sk);
-                    println("done.");
-
-                } else {
-
-                    // Read decryption factor.
-                    print("Read decryption factors... ");
-                    ByteTreeReader btr = (new ByteTreeF(DFfile(roProofDir, l))).
-                        getByteTreeReader();
-                    tmpFactorElement = hom.getRange().toElement(btr);
-                    btr.close();
-                    println("done.");
-
-                    // Verify that the secret key corresponding to the
-                    // public key was used to decrypt.
-                    print("Verify decryption proof... ");
-                    if (!((PPGroupElement)tmpFactorElement).project(0).
-                        equals(elGamalPKeys[l])
-                        || !verifyDecryption(l,
-                                             hom,
-                                             groupElement,
-                                             tmpFactorElement)) {
-                        failStop("Decryption proof is malformed!");
-                    }
-                    println("done.");
-                }
-
-                if (factorElement == null) {
-
-                    factorElement = tmpFactorElement;
-
-                } else {
-
-                    PGroupElement tmp = factorElement;
-                    factorElement = factorElement.mul(tmpFactorElement);
-                    tmp.free();
-                    tmpFactorElement.free();
-
-                }
-            }
+            PGroupElement factorElement =
+                verifyDecryptions(homKey, elGamalPKeys, decryptor,
+                                  groupElement);
 
             printHeader("Verify finalization.");
 
@@ -879,6 +849,362 @@ public class MixNetElGamalVerifyRO {
         }
     }
 
+    /**
+     * Verifies the shuffles of all parties. The proofs of up to
+     * {@link #concurrency} parties are verified concurrently, and the
+     * files of the next party are read in advance by a separate
+     * thread. The commitment-consistent proof of shuffle of a party
+     * is verified speculatively with the output of the previous party
+     * as input. If the output of the previous party is replaced by
+     * its input, then the proof is verified again with the correct
+     * input. The results are printed in order.
+     *
+     * @param ciphertexts Input ciphertexts.
+     * @param generators Independent generators.
+     * @param shrunkGenerators Independent generators used for the
+     * actual number of ciphertexts.
+     * @param fullElGamalPKey Joint public key.
+     * @return Output of the last shuffle.
+     */
+    PGroupElementArray
+        verifyShuffles(final PGroupElementArray ciphertexts,
+                       final PGroupElementArray generators,
+                       final PGroupElementArray shrunkGenerators,
+                       final PGroupElement fullElGamalPKey) {
+
+        final List<Future<ShuffleFiles>> files =
+            new ArrayList<Future<ShuffleFiles>>();
+        List<Future<ShuffleVerdict>> verdicts =
+            new ArrayList<Future<ShuffleVerdict>>();
+
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        ExecutorService verifiers = Executors.newFixedThreadPool(concurrency);
+
+        PGroupElementArray input = ciphertexts;
+        PGroupElementArray previousOutput = null;
+
+        try {
+
+            int submitted = 0;
+            for (int l = 1; l <= threshold; l++) {
+
+                // Keep the parties that are verified concurrently
+                // and the party whose files are read in advance in
+                // the pipeline.
+                while (submitted < threshold && submitted < l + concurrency) {
+
+                    final int j = ++submitted;
+
+                    files.add(reader.submit(new Callable<ShuffleFiles>() {
+                            public ShuffleFiles call() {
+                                ShuffleFiles sf = new ShuffleFiles();
+                                sf.permutationCommitment =
+                                    readPermutationCommitment(
+                                        generators.getPGroup(),
+                                        j, generators.size());
+                                sf.output = readOutputList(shuffle, j,
+                                                           ciphertexts.size());
+                                return sf;
+                            }
+                        }));
+
+                    verdicts.add(verifiers.submit(
+                        new Callable<ShuffleVerdict>() {
+                            public ShuffleVerdict call() {
+                                ShuffleFiles sf = result(files.get(j - 1));
+                                PGroupElementArray speculativeInput =
+                                    ciphertexts;
+                                if (j > 1) {
+                                    speculativeInput =
+                                        result(files.get(j - 2)).output;
+                                }
+                                return verifyShuffle(j,
+                                                     generators,
+                                                     shrunkGenerators,
+                                                     fullElGamalPKey,
+                                                     speculativeInput,
+                                                     sf);
+                            }
+                        }));
+                }
+
+                printHeader("Verify shuffle of Party " + l + ".");
+
+                ShuffleVerdict verdict = result(verdicts.get(l - 1));
+
+                print("Verify proof of shuffle of commitments... ");
+                if (verdict.posValid) {
+                    println("done.");
+                } else {
+                    println("failed.");
+                    for (String message : verdict.info) {
+                        failInfo(message);
+                    }
+                    failInfo("Setting permutation commitment to list of " +
+                             "generators.");
+                }
+
+                print("Verify commitment-consistent proof of shuffle... ");
+
+                // The output of the previous party was replaced, so
+                // the speculative verification used the wrong input.
+                PGroupElementArray shrunkPermutationCommitment =
+                    verdict.shrunkPermutationCommitment;
+                boolean ccposValid = verdict.ccposValid;
+                if (verdict.input != input) {
+                    ccposValid = verifyCCPoS(l,
+                                             shrunkGenerators,
+                                             shrunkPermutationCommitment,
+                                             fullElGamalPKey,
+                                             input, verdict.output);
+                }
+
+                PGroupElementArray output = verdict.output;
+                if (ccposValid) {
+                    println("done.");
+                } else {
+                    println("failed.");
+                    failInfo("Replacing output of Party " + l +
+                             " by its input.");
+                    output = input.copyOfRange(0, input.size());
+                }
+
+                // Free resources. The output read from file of the
+                // previous party is no longer used by any task.
+                shrunkPermutationCommitment.free();
+                if (input != ciphertexts && input != previousOutput) {
+                    input.free();
+                }
+                if (previousOutput != null) {
+                    previousOutput.free();
+                }
+                previousOutput = verdict.output;
+                input = output;
+            }
+
+            if (previousOutput != null && previousOutput != input) {
+                previousOutput.free();
+            }
+
+        } finally {
+            reader.shutdown();
+            verifiers.shutdown();
+        }
+        return input;
+    }
+
+    /**
+     * Verifies the proofs of shuffle of a single party.
+     *
+     * @param l Index of party.
+     * @param generators Independent generators.
+     * @param shrunkGenerators Independent generators used for the
+     * actual number of ciphertexts.
+     * @param fullElGamalPKey Joint public key.
+     * @param input Input of the party.
+     * @param sf Files of the party.
+     * @return Verdict of the verification.
+     */
+    ShuffleVerdict verifyShuffle(int l,
+                                 PGroupElementArray generators,
+                                 PGroupElementArray shrunkGenerators,
+                                 PGroupElement fullElGamalPKey,
+                                 PGroupElementArray input,
+                                 ShuffleFiles sf) {
+
+        ShuffleVerdict verdict = new ShuffleVerdict();
+        verdict.input = input;
+        verdict.output = sf.output;
+
+        // Verify proof of a shuffle for permutation commitment.
+        PGroupElementArray permutationCommitment = sf.permutationCommitment;
+        verdict.posValid =
+            verifyPoS(l, generators, permutationCommitment, verdict.info);
+        if (!verdict.posValid) {
+            permutationCommitment.free();
+            permutationCommitment =
+                generators.copyOfRange(0, generators.size());
+        }
+
+        // Shrink commitment.
+        verdict.shrunkPermutationCommitment =
+            shrinkPermutationCommitment(l,
+                                        permutationCommitment,
+                                        shrunkGenerators.size());
+        permutationCommitment.free();
+
+        // Verify commitment consistent proof of shuffle.
+        verdict.ccposValid = verifyCCPoS(l,
+                                         shrunkGenerators,
+                                         verdict.shrunkPermutationCommitment,
+                                         fullElGamalPKey,
+                                         input, sf.output);
+        return verdict;
+    }
+
+    /**
+     * Verifies the decryption factors of all parties and returns
+     * their product. The factors of up to {@link #concurrency}
+     * parties are read and verified concurrently. The results are
+     * printed in order.
+     *
+     * @param homKey Homomorphism used to derive public keys.
+     * @param elGamalPKeys Public keys of the parties.
+     * @param decryptor Bilinear map used to compute decryption
+     * factors.
+     * @param groupElement Element to which the bilinear map is
+     * restricted.
+     * @return Product of the decryption factors.
+     */
+    PGroupElement verifyDecryptions(final HomPRingPGroup homKey,
+                                    final PGroupElement[] elGamalPKeys,
+                                    final BiKeyedArrayMap decryptor,
+                                    final PGroupElement groupElement) {
+
+        List<Future<DecryptionVerdict>> verdicts =
+            new ArrayList<Future<DecryptionVerdict>>();
+
+        ExecutorService verifiers = Executors.newFixedThreadPool(concurrency);
+
+        PGroupElement factorElement = null;
+
+        try {
+
+            int submitted = 0;
+            for (int l = 1; l <= k; l++) {
+
+                while (submitted < k && submitted < l + concurrency) {
+
+                    final int j = ++submitted;
+
+                    verdicts.add(verifiers.submit(
+                        new Callable<DecryptionVerdict>() {
+                            public DecryptionVerdict call() {
+
+                                // Batching changes the state of the
+                                // homomorphism, so each task forms
+                                // its own restriction.
+                                HomPRingPGroup hom =
+                                    decryptor.restrict(groupElement);
+                                return verifyDecryption(j, homKey,
+                                                        elGamalPKeys[j],
+                                                        hom,
+                                                        groupElement);
+                            }
+                        }));
+                }
+
+                printHeader("Verify decryption of Party " + l + ".");
+
+                DecryptionVerdict verdict = result(verdicts.get(l - 1));
+
+                if (verdict.recovered) {
+
+                    print("Verify correctness of secret key... ");
+                    if (!verdict.valid) {
+                        failStop("Secret key of Party " + l +
+                                 " is malformed!");
+                    }
+                    println("done.");
+
+                } else {
+
+                    print("Verify decryption proof... ");
+                    if (!verdict.valid) {
+                        failStop("Decryption proof is malformed!");
+                    }
+                    println("done.");
+                }
+
+                if (factorElement == null) {
+
+                    factorElement = verdict.factorElement;
+
+                } else {
+
+                    PGroupElement tmp = factorElement;
+                    factorElement = factorElement.mul(verdict.factorElement);
+                    tmp.free();
+                    verdict.factorElement.free();
+
+                }
+            }
+
+        } finally {
+            verifiers.shutdown();
+        }
+        return factorElement;
+    }
+
+    /**
+     * Verifies the decryption of a single party, i.e., either the
+     * secret key recovered during mixing or the proof of correct
+     * decryption factors.
+     *
+     * @param l Index of party.
+     * @param homKey Homomorphism used to derive public keys.
+     * @param elGamalPKey Public key of the party.
+     * @param hom Homomorphism used to compute decryption factors.
+     * @param groupElement Element defining the homomorphism.
+     * @return Verdict of the verification.
+     */
+    DecryptionVerdict verifyDecryption(int l,
+                                       HomPRingPGroup homKey,
+                                       PGroupElement elGamalPKey,
+                                       HomPRingPGroup hom,
+                                       PGroupElement groupElement) {
+
+        DecryptionVerdict verdict = new DecryptionVerdict();
+
+        File skFile = SKfile(roProofDir, l);
+
+        if (skFile.exists()) {
+
+            verdict.recovered = true;
+
+            // Read key recovered during mixing.
+            ByteTreeReader btr = (new ByteTreeF(skFile)).getByteTreeReader();
+            PRingElement sk = null;
+            try {
+                sk = homKey.getDomain().toElement(btr);
+            } catch (ArithmFormatException afe) {
+                failStop("Unable to read secret key of Party " + l + "!", afe);
+            } finally {
+                btr.close();
+            }
+
+            // Verify correctness of secret key and compute
+            // decryption explicitly.
+            verdict.valid = homKey.map(sk).equals(elGamalPKey);
+            if (verdict.valid) {
+                verdict.factorElement = hom.map(sk);
+            }
+
+        } else {
+
+            // Read decryption factors.
+            ByteTreeReader btr = (new ByteTreeF(DFfile(roProofDir, l))).
+                getByteTreeReader();
+            try {
+                verdict.factorElement = hom.getRange().toElement(btr);
+            } catch (ArithmFormatException afe) {
+                failStop("Unable to read decryption factors of Party " + l +
+                         "!", afe);
+            } finally {
+                btr.close();
+            }
+
+            // Verify that the secret key corresponding to the
+            // public key was used to decrypt.
+            verdict.valid =
+                ((PPGroupElement)verdict.factorElement).project(0).
+                equals(elGamalPKey)
+                && verifyDecryption(l, hom, groupElement,
+                                    verdict.factorElement);
+        }
+        return verdict;
+    }
+
     PGroupElementArray readDecryptionFactors(PGroupElement fullElGamalPKey,
                                              int l, int size) {
         return readArray(DFfile(roProofDir, l), fullElGamalPKey.getPGroup(),
@@ -898,7 +1224,10 @@ public class MixNetElGamalVerifyRO {
     }
 
     boolean verifyPoS(int l, PGroupElementArray generators,
-                      PGroupElementArray permutationCommitment) {
+                      PGroupElementArray permutationCommitment,
+                      List<String> info) {
+
+        PRG prg = getPRG();
 
         // Initialize proof.
         PoSBasicTW V = new PoSBasicTW(challengeBitLength,
@@ -907,6 +1236,9 @@ public class MixNetElGamalVerifyRO {
                                       prg);
         PGroupElement g = generators.getPGroup().getg();
         V.setInstance(g, generators, permutationCommitment);
+        if (batchVerify) {
+            V.setBatchVerification(getBatchRandomSource());
+        }
 
         // Generate and set batching vector.
         ByteTreeContainer challengeData =
@@ -944,6 +1276,11 @@ public class MixNetElGamalVerifyRO {
         boolean verdict = V.verify(replyReader);
         replyReader.close();
 
+        if (V.getFailedIndex() >= 0) {
+            info.add("Bridging commitment " + V.getFailedIndex() +
+                     " is invalid.");
+        }
+
         V.free();
 
         return verdict;
@@ -988,6 +1325,8 @@ public class MixNetElGamalVerifyRO {
                         PGroupElementArray input,
                         PGroupElementArray output) {
 
+        PRG prg = getPRG();
+
         BiKeyedArrayMap encryptor = shuffle.getEncryptor(1);
 
         PPGroup pGroupDomain = (PPGroup)encryptor.getPGroupDomain();
@@ -1065,6 +1404,8 @@ public class MixNetElGamalVerifyRO {
                                     PGroupElement groupElement,
                                     PGroupElement commonInput) {
 
+        PRG prg = getPRG();
+
         SigmaProofBasic V = new SigmaProofBasic(hom,
                                                 challengeBitLength,
                                                 statDist);
@@ -1236,8 +1577,19 @@ public class MixNetElGamalVerifyRO {
                       "/tmp/mixnet). This directory is deleted on " +
                       "exit.");
         opt.addOption("-a", "value",
-                      "Use file based arrays or not must be either \"file\" " +
-                      "or \"ram\". Default is \"ram\".");
+                      "Use file based arrays or not must be either \"file\", " +
+                      "\"mmap\", or \"ram\". Default is \"ram\".");
+        opt.addOption("-c", "value",
+                      "Number of threads used for arithmetic on arrays. " +
+                      "Default is one thread for each core.");
+        opt.addOption("-b", "", "Verify the element-wise equations of " +
+                      "proofs of shuffles as a single random linear " +
+                      "combination, and only verify them one by one if " +
+                      "this fails.");
+        opt.addOption("-p", "value",
+                      "Number of parties whose proofs are verified " +
+                      "concurrently. The files of the next party are " +
+                      "always read in advance. Default is 1.");
         opt.addOption("-v", "", "Verbose output, i.e., turn on output.");
         opt.addOption("-e", "", "Show stack trace of an exception.");
 
@@ -1246,12 +1598,12 @@ public class MixNetElGamalVerifyRO {
 
         opt.addUsageForm();
         opt.appendToUsageForm(1,
-                              "#-v,-e,-wd,-a#protocolInfo,roProof#");
+                              "#-v,-e,-wd,-a,-c,-b,-p#protocolInfo,roProof#");
 
         opt.addUsageForm();
         opt.appendToUsageForm(2,
-                              "#-v,-e,-wd,-a#protocolInfo,roProof,pkey," +
-                              "ciphertexts,plaintexts#");
+                              "#-v,-e,-wd,-a,-c,-b,-p#protocolInfo,roProof," +
+                              "pkey,ciphertexts,plaintexts#");
 
         opt.addUsageForm();
         opt.appendToUsageForm(3, "-version###");
@@ -1327,12 +1679,20 @@ public class MixNetElGamalVerifyRO {
 
                     LargeIntegerArray.useFileBased();
 
+                } else if (arrays.equals("mmap")) {
+
+                    LargeIntegerArray.useMemoryMapped();
+
                 } else if (!arrays.equals("ram")) {
                     System.err.println("Unknown parameter to \"-a\"!");
                     System.exit(1);
                 }
             }
 
+            if (opt.valueIsGiven("-c")) {
+                ArrayWorker.setParallelism(opt.getIntValue("-c"));
+            }
+
             boolean verifyExternal = false;
             if (opt.valueIsGiven("pkey")) {
                 verifyExternal = true;
@@ -1353,3 +1713,77 @@ public class MixNetElGamalVerifyRO {
         }
     }
 }
+
+/**
+ * Permutation commitment and output list of a party read from file.
+ */
+class ShuffleFiles {
+
+    /**
+     * Permutation commitment.
+     */
+    PGroupElementArray permutationCommitment;
+
+    /**
+     * Output list.
+     */
+    PGroupElementArray output;
+}
+
+/**
+ * Result of verifying the proofs of shuffle of a party.
+ */
+class ShuffleVerdict {
+
+    /**
+     * Input used when verifying the commitment-consistent proof of
+     * shuffle.
+     */
+    PGroupElementArray input;
+
+    /**
+     * Output list read from file.
+     */
+    PGroupElementArray output;
+
+    /**
+     * Shrunk permutation commitment.
+     */
+    PGroupElementArray shrunkPermutationCommitment;
+
+    /**
+     * Verdict of the proof of shuffle of commitments.
+     */
+    boolean posValid;
+
+    /**
+     * Verdict of the commitment-consistent proof of shuffle.
+     */
+    boolean ccposValid;
+
+    /**
+     * Information about failures to be printed.
+     */
+    List<String> info = new ArrayList<String>();
+}
+
+/**
+ * Result of verifying the decryption of a party.
+ */
+class DecryptionVerdict {
+
+    /**
+     * Decides if the secret key was recovered during mixing.
+     */
+    boolean recovered;
+
+    /**
+     * Verdict of the verification.
+     */
+    boolean valid;
+
+    /**
+     * Decryption factors of the party.
+     */
+    PGroupElement factorElement;
+}
@@ -155,7 +155,7 @@ public class PermutationCommitment extends Protocol {
                 tempLog.info("Read permutation from file.");
                 ByteTreeReader permutationReader =
                     (new ByteTreeF(permFile)).getByteTreeReader();
-                permutation = new Permutation(size, permutationReader);
+                permutation = Permutation.read(size, permutationReader);
                 permutationReader.close();
 
                 // Read commitment exponents
@@ -187,7 +187,7 @@ public class PermutationCommitment extends Protocol {
 
             // Generate and store permutation.
             tempLog.info("Generate random permutation.");
-            permutation = new Permutation(size, randomSource, statDist);
+            permutation = Permutation.random(size, randomSource, statDist);
 
             tempLog.info("Write permutation to file.");
             permutation.toByteTree().unsafeWriteTo(permFile);
@@ -405,7 +405,9 @@ public class PermutationCommitment extends Protocol {
             oldCommitmentExponents.free();
 
             tempLog.info("Shrink permutation.");
+            Permutation oldPermutation = permutation;
             permutation = permutation.shrink(noCiphertexts);
+            oldPermutation.free();
 
         } else {
 
@@ -491,5 +493,8 @@ public class PermutationCommitment extends Protocol {
         if (permutationCommitment != null) {
             permutationCommitment.free();
         }
+        if (permutation != null) {
+            permutation.free();
+        }
     }
 }
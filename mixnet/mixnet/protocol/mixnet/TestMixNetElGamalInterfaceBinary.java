@@ -0,0 +1,166 @@
+
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ * Copyright 2015 Eduardo Robles
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.protocol.mixnet;
+
+import java.io.*;
+import java.util.*;
+
+import mixnet.arithm.*;
+import mixnet.crypto.*;
+import mixnet.eio.*;
+import mixnet.protocol.*;
+
+import mixnet.test.*;
+
+/**
+ * Tests some of the functionality of {@link
+ * MixNetElGamalInterfaceBinary}.
+ *
+ * @author Douglas Wikstrom
+ */
+public class TestMixNetElGamalInterfaceBinary {
+
+    protected static PGroup pGroup = null;
+    protected static RandomSource rs;
+
+    protected static void setupPGroup(TestParameters tp) throws Exception {
+        if (pGroup == null) {
+            rs = new PRGHeuristic(tp.prgseed.getBytes());
+            pGroup = new PPGroup(new ModPGroup(tp.testSize), 2);
+        }
+    }
+
+    /**
+     * Writes the given records to the given file, where each record
+     * is preceded by the given length.
+     */
+    protected static void writeRecords(File file, int[] lengths,
+                                       byte[][] records)
+        throws IOException {
+        DataOutputStream dos =
+            new DataOutputStream(new FileOutputStream(file));
+        for (int i = 0; i < records.length; i++) {
+            dos.writeInt(lengths[i]);
+            dos.write(records[i]);
+        }
+        dos.close();
+    }
+
+    public static boolean roundTrip(TestParameters tp)
+        throws Exception {
+
+        setupPGroup(tp);
+
+        MixNetElGamalInterfaceBinary mixnetInterface =
+            new MixNetElGamalInterfaceBinary();
+        File file = new File(tp.tmpDir, "binaryroundtrip");
+
+        PGroupElementArray ciphertexts =
+            pGroup.randomElementArray(3 * tp.testSize, rs, 50);
+        mixnetInterface.writeCiphertexts(ciphertexts, file);
+
+        PGroupElementArray res =
+            mixnetInterface.readCiphertexts(pGroup, file);
+        file.delete();
+
+        return res.equals(ciphertexts);
+    }
+
+    public static boolean skipInvalid(TestParameters tp)
+        throws Exception {
+
+        setupPGroup(tp);
+
+        MixNetElGamalInterfaceBinary mixnetInterface =
+            new MixNetElGamalInterfaceBinary();
+        File file = new File(tp.tmpDir, "binaryskip");
+
+        PGroupElement[] ciphertexts =
+            pGroup.randomElementArray(2, rs, 50).elements();
+        byte[] first = ciphertexts[0].toByteTree().toByteArray();
+        byte[] second = ciphertexts[1].toByteTree().toByteArray();
+
+        // An oversize record and a record that can not be parsed are
+        // ignored.
+        byte[] oversize = new byte[first.length + 10000];
+        byte[] garbage = new byte[first.length];
+        Arrays.fill(garbage, (byte)0xFF);
+
+        byte[][] records = {first, oversize, garbage, second};
+        int[] lengths = new int[records.length];
+        for (int i = 0; i < records.length; i++) {
+            lengths[i] = records[i].length;
+        }
+        writeRecords(file, lengths, records);
+
+        PGroupElementArray res =
+            mixnetInterface.readCiphertexts(pGroup, file);
+        file.delete();
+
+        return res.equals(pGroup.toElementArray(ciphertexts));
+    }
+
+    public static boolean rejectTruncated(TestParameters tp)
+        throws Exception {
+
+        setupPGroup(tp);
+
+        MixNetElGamalInterfaceBinary mixnetInterface =
+            new MixNetElGamalInterfaceBinary();
+        File file = new File(tp.tmpDir, "binarytruncated");
+
+        byte[] first =
+            pGroup.randomElement(rs, 50).toByteTree().toByteArray();
+
+        // Final records that are cut short, both oversize and not.
+        int[][] lengths = {{first.length, first.length + 10000},
+                           {first.length, first.length}};
+        byte[][] records = {first, new byte[first.length / 2]};
+
+        for (int i = 0; i < lengths.length; i++) {
+
+            writeRecords(file, lengths[i], records);
+            try {
+                mixnetInterface.readCiphertexts(pGroup, file);
+                return false;
+            } catch (ProtocolFormatException pfe) {
+            } finally {
+                file.delete();
+            }
+        }
+
+        // A final length of a record that is cut short.
+        writeRecords(file, new int[] {first.length}, new byte[][] {first});
+        FileOutputStream fos = new FileOutputStream(file, true);
+        fos.write(new byte[2]);
+        fos.close();
+        try {
+            mixnetInterface.readCiphertexts(pGroup, file);
+            return false;
+        } catch (ProtocolFormatException pfe) {
+        } finally {
+            file.delete();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2008 2009 2010 Douglas Wikstrom
+ *
+ * This file is part of Vfork.
+ *
+ * Vfork is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Vfork is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Vfork.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package mixnet.ui;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Log that keeps its entries, and the entries of its child logs, in
+ * memory until they are flushed to the log from which it was
+ * created. This allows a task executed by a separate thread to log
+ * its events without interleaving them with the events of other
+ * tasks.
+ *
+ * @author Douglas Wikstrom
+ */
+public class BufferedLog extends Log {
+
+    /**
+     * Log to which the entries are eventually written.
+     */
+    protected Log parent;
+
+    /**
+     * Entries that have not been written yet.
+     */
+    protected ByteArrayOutputStream buffer;
+
+    /**
+     * Creates a log with the same name and indentation as the given
+     * log, but which keeps its entries in memory.
+     *
+     * @param parent Log to which the entries are eventually written.
+     */
+    public BufferedLog(Log parent) {
+        super(parent.name, parent.depthString, new ArrayList<PrintStream>());
+        this.parent = parent;
+        this.buffer = new ByteArrayOutputStream();
+        pout.add(new PrintStream(buffer));
+    }
+
+    /**
+     * Writes all entries kept in memory to the parent log in the
+     * order they were made.
+     */
+    public void flush() {
+        String entries;
+        synchronized (this) {
+            entries = buffer.toString();
+            buffer.reset();
+        }
+        BufferedReader br = new BufferedReader(new StringReader(entries));
+        try {
+            String line;
+            while ((line = br.readLine()) != null) {
+                parent.plainInfo(line);
+            }
+        } catch (IOException ioe) {
+            throw new UIError("Unable to read from memory!", ioe);
+        }
+    }
+}
@@ -21,15 +21,46 @@
 
 package mixnet.util;
 
+import java.util.concurrent.*;
+
 /**
  * Provides a simple way of dividing work performed component-wise on
  * one or more arrays on multiple cores. {@link LargeInteger} contains
  * examples of how this is used.
  *
+ * <p>
+ *
+ * The work is executed by a single pool of worker threads shared by
+ * all instances in the JVM. Thus, no threads are created or joined
+ * when an instance performs its work. An array is split into more
+ * chunks than there are cores, and idle workers steal chunks from
+ * busy workers, so unevenly sized work is balanced automatically.
+ * The number of worker threads can be set using {@link
+ * #setParallelism(int)}.
+ *
  * @author Douglas Wikstrom
  */
 public abstract class ArrayWorker {
 
+    /**
+     * Number of chunks per worker thread into which an array is
+     * split. A value larger than one allows work stealing to balance
+     * chunks of uneven cost.
+     */
+    public static final int CHUNKS_PER_CORE = 4;
+
+    /**
+     * Number of worker threads used by the shared pool.
+     */
+    private static int parallelism =
+        Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Pool of worker threads shared by all instances. This is
+     * created lazily by {@link #getPool()}.
+     */
+    private static ForkJoinPool pool = null;
+
     /**
      * Size of input arrays.
      */
@@ -71,9 +102,64 @@ public abstract class ArrayWorker {
     }
 
     /**
-     * Determines the number of cores on the machine and divides the
-     * work encapsulated in <code>worker</code> on this number of
-     * threads.
+     * Sets the number of worker threads used to perform work. A
+     * non-positive value means that the number of cores available to
+     * the JVM is used. If the shared pool has already been created,
+     * then it is shut down and subsequent work is executed by a new
+     * pool with the given parallelism. Work already submitted to the
+     * old pool is still completed by its threads.
+     *
+     * @param cores Number of worker threads.
+     */
+    public static synchronized void setParallelism(int cores) {
+        if (cores <= 0) {
+            cores = Runtime.getRuntime().availableProcessors();
+        }
+        if (cores != parallelism) {
+            parallelism = cores;
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of worker threads used to perform work.
+     *
+     * @return Number of worker threads.
+     */
+    public static synchronized int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the shared pool of worker threads, and creates it if
+     * needed.
+     *
+     * @return Shared pool of worker threads.
+     */
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+
+            ForkJoinPool.ForkJoinWorkerThreadFactory factory =
+                new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                    public ForkJoinWorkerThread newThread(ForkJoinPool p) {
+                        ForkJoinWorkerThread thread = new WorkerThread(p);
+                        thread.setPriority(java.lang.Thread.MAX_PRIORITY);
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                };
+            pool = new ForkJoinPool(parallelism, factory, null, false);
+        }
+        return pool;
+    }
+
+    /**
+     * Divides the work encapsulated in <code>worker</code> into
+     * chunks that are executed by the shared pool of worker threads,
+     * and waits until all chunks are completed.
      *
      * @param worker Encapsulation of work to be done.
      * @param size Length of arrays.
@@ -85,58 +171,72 @@ public abstract class ArrayWorker {
                                   int threshold) {
 
         // We only thread for large arrays.
-        if (threshold > 0 && size <= threshold) {
+        if (size == 0 || threshold > 0 && size <= threshold) {
 
             worker.work(0, size);
             return;
 
         } else {
 
-            // This (supposedly) returns the number of cores available
-            // to the JVM.
-            int cores =
-                Math.min(Runtime.getRuntime().availableProcessors(), size);
-
-            final int perCore = size / cores;
-            Thread[] threads = new Thread[cores];
-
-            // Start a thread for each core.
-            for (int l = 0; l < cores; l++) {
-
-                int start = l * perCore;
-                int end = (l + 1) * perCore;
-                if (l == cores - 1) {
-                    end = size;
-                }
-                threads[l] = new WorkerThread(worker, start, end) {};
-                threads[l].setPriority(java.lang.Thread.MAX_PRIORITY);
-                threads[l].start();
-            }
+            ForkJoinPool currentPool = getPool();
+
+            int chunks = currentPool.getParallelism() * CHUNKS_PER_CORE;
+            int grain = Math.max(1, (size + chunks - 1) / chunks);
 
-            // Wait for all threads to complete before returning.
-            for (int l = 0; l < threads.length; l++) {
-                try {
-                    threads[l].join();
-                } catch (InterruptedException ie) {
-                    throw new Error("Failed to join threads!", ie);
-                }
+            WorkerTask task = new WorkerTask(worker, 0, size, grain);
+
+            // Nested invocations from within a worker thread of the
+            // shared pool are executed by the invoking thread, which
+            // keeps working on other chunks while it waits. Threads
+            // of any other pool submit the work to the shared pool.
+            if (ForkJoinTask.getPool() == currentPool) {
+                task.invoke();
+            } else {
+                currentPool.invoke(task);
             }
         }
     }
 }
 
-class WorkerThread extends Thread {
+/**
+ * Worker thread of the shared pool. This is only a subclass to give
+ * the threads a recognizable name.
+ */
+class WorkerThread extends ForkJoinWorkerThread {
+
+    WorkerThread(ForkJoinPool pool) {
+        super(pool);
+        setName("ArrayWorker-" + getPoolIndex());
+    }
+}
+
+/**
+ * Recursively splits a range of indices into halves until each part
+ * is at most a given grain, and executes the parts in parallel.
+ */
+class WorkerTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    ArrayWorker worker;
     int start;
     int end;
-    ArrayWorker worker;
+    int grain;
 
-    WorkerThread(ArrayWorker worker, int start, int end) {
+    WorkerTask(ArrayWorker worker, int start, int end, int grain) {
+        this.worker = worker;
         this.start = start;
         this.end = end;
-        this.worker = worker;
+        this.grain = grain;
     }
 
-    public void run() {
-        worker.work(start, end);
+    protected void compute() {
+        if (end - start <= grain) {
+            worker.work(start, end);
+        } else {
+            int middle = (start + end) >>> 1;
+            invokeAll(new WorkerTask(worker, start, middle, grain),
+                      new WorkerTask(worker, middle, end, grain));
+        }
     }
-}
\ No newline at end of file
+}